@@ -22,7 +22,7 @@ echo "主机: $DB_HOST:$DB_PORT"
 echo "用户: $DB_USERNAME"
 echo ""
 echo "⚠️  警告: 此操作将删除所有表的所有数据！"
-echo "⚠️  包括: user、app、chat_history 表的所有数据！"
+echo "⚠️  包括: user、app、chat_history、generation_task 表的所有数据！"
 echo "⚠️  此操作不可恢复！"
 echo "=========================================="
 read -p "确认继续? (输入 'yes' 继续): " confirm
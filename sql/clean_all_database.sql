@@ -7,6 +7,9 @@ use zero_code_platform;
 -- 关闭外键检查（如果有外键约束）
 SET FOREIGN_KEY_CHECKS = 0;
 
+-- 删除生成任务表数据
+TRUNCATE TABLE generation_task;
+
 -- 删除对话历史表数据（先删除依赖表）
 TRUNCATE TABLE chat_history;
 
@@ -24,4 +27,5 @@ SELECT '数据库完全清理完成，所有表数据已清空' AS message;
 SELECT COUNT(*) AS user_count FROM user;
 SELECT COUNT(*) AS app_count FROM app;
 SELECT COUNT(*) AS chat_history_count FROM chat_history;
+SELECT COUNT(*) AS generation_task_count FROM generation_task;
 
@@ -21,7 +21,7 @@ echo "数据库: $DB_NAME"
 echo "主机: $DB_HOST:$DB_PORT"
 echo "用户: $DB_USERNAME"
 echo ""
-echo "警告: 此操作将删除 app 和 chat_history 表的所有数据！"
+echo "警告: 此操作将删除 app、chat_history 和 generation_task 表的所有数据！"
 echo "仅保留 user 表的数据。"
 echo "=========================================="
 read -p "确认继续? (yes/no): " confirm
@@ -60,3 +60,31 @@ create table chat_history
     INDEX idx_createTime (createTime),             -- 提升基于时间的查询性能
     INDEX idx_appId_createTime (appId, createTime) -- 游标查询核心索引
 ) comment '对话历史' collate = utf8mb4_unicode_ci;
+
+-- 生成任务表
+create table generation_task
+(
+    id             bigint auto_increment comment 'id' primary key,
+    appId          bigint                             not null comment '应用id',
+    userId         bigint                             not null comment '创建用户id',
+    codeGenType    varchar(64)                        not null comment '代码生成类型（枚举）',
+    modelName      varchar(128)                       null comment '模型名称',
+    promptHash     char(64)                           null comment '提示词 SHA-256',
+    status         varchar(32)                        not null comment '状态：running/succeeded/failed/cancelled/interrupted',
+    ownerNode      varchar(128)                       null comment '执行节点',
+    startTime      datetime(3)                        not null comment '开始时间',
+    admitTime      datetime(3)                        null comment '获得模型额度时间',
+    firstTokenTime datetime(3)                        null comment '首个 token 时间',
+    endTime        datetime(3)                        null comment '结束时间',
+    ttftMs         bigint                             null comment '首 token 耗时（毫秒，从开始算起）',
+    durationMs     bigint                             null comment '总耗时（毫秒）',
+    inputTokens    bigint                             null comment '输入 token 数（模型返回的用量，累计所有模型请求）',
+    outputTokens   bigint                             null comment '输出 token 数（模型返回的用量，累计所有模型请求）',
+    errorMessage   varchar(1024)                      null comment '失败原因或取消原因',
+    createTime     datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    updateTime     datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    isDelete       tinyint  default 0                 not null comment '是否删除',
+    INDEX idx_appId (appId),                                -- 提升基于应用的查询性能
+    INDEX idx_status_ownerNode (status, ownerNode),         -- 启动时对账未结束的任务
+    INDEX idx_codeGenType_startTime (codeGenType, startTime) -- 耗时统计
+) comment '生成任务' collate = utf8mb4_unicode_ci;
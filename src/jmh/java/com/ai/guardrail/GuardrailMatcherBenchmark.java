@@ -0,0 +1,161 @@
+package com.ai.guardrail;
+
+import com.config.GuardrailConfig;
+import com.model.enums.GuardrailCategoryEnum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 输入护轨的检查和加载开销，规则为随机生成的中英文短语，每条规则文本通过 {a|b} 展开为两条模式
+ * - dictionaryCheck / matcherFindFirst：自动机扫描一次输入，输入不命中任何规则（最坏情况，需要扫描完整输入）
+ * - containsLoop：原来的做法，规范化输入后逐条规则 contains，耗时随规则数线性增长
+ * - dictionaryReload：解析规则文件、展开并构建自动机，即热更新一次的耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GuardrailMatcherBenchmark {
+
+    /**
+     * 展开后的模式数
+     */
+    @Param({"100", "10000"})
+    private int ruleCount;
+
+    /**
+     * 输入长度（字符）
+     */
+    @Param("2000")
+    private int inputLength;
+
+    private Path rulesFile;
+
+    private GuardrailRuleDictionary dictionary;
+
+    private GuardrailMatcher matcher;
+
+    private List<String> patterns;
+
+    private String input;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            words.add(i % 2 == 0 ? englishWord(random) : chineseWord(random));
+        }
+        StringBuilder rules = new StringBuilder("[sensitive]\n");
+        for (int i = 0; i < ruleCount / 2; i++) {
+            rules.append(pick(words, random)).append(" {").append(pick(words, random)).append('|')
+                    .append(pick(words, random)).append("} ").append(pick(words, random)).append('\n');
+        }
+        rulesFile = Files.createTempFile("guardrail-rules", ".txt");
+        Files.writeString(rulesFile, rules, StandardCharsets.UTF_8);
+
+        GuardrailConfig guardrailConfig = new GuardrailConfig();
+        guardrailConfig.setBuiltinRulesEnabled(false);
+        guardrailConfig.setRulesPath(rulesFile.toString());
+        guardrailConfig.setReloadIntervalSeconds(0);
+        dictionary = new GuardrailRuleDictionary();
+        ReflectionTestUtils.setField(dictionary, "guardrailConfig", guardrailConfig);
+        dictionary.init();
+
+        // 与词典相同的模式，单独构建匹配器并保留模式列表，用于对比逐条 contains
+        Map<String, GuardrailCategoryEnum> patternMap = new LinkedHashMap<>();
+        for (String line : rules.toString().split("\n")) {
+            if (!line.startsWith("[")) {
+                for (String expanded : dictionary.expand(line, "benchmark", 0)) {
+                    patternMap.putIfAbsent(GuardrailMatcher.normalize(expanded), GuardrailCategoryEnum.SENSITIVE);
+                }
+            }
+        }
+        matcher = GuardrailMatcher.build(patternMap);
+        patterns = new ArrayList<>(patternMap.keySet());
+
+        // 输入使用相同的词表，扫描时有大量部分匹配，但不命中完整规则
+        StringBuilder text = new StringBuilder();
+        while (text.length() < inputLength) {
+            text.append(pick(words, random)).append(random.nextInt(8) == 0 ? "，\n" : " ");
+        }
+        input = text.substring(0, inputLength);
+        if (dictionary.check(input) != null) {
+            throw new IllegalStateException("基准输入命中了规则，请更换随机种子");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        dictionary.destroy();
+        Files.deleteIfExists(rulesFile);
+    }
+
+    @Benchmark
+    public GuardrailMatcher.Match dictionaryCheck() {
+        return dictionary.check(input);
+    }
+
+    @Benchmark
+    public GuardrailMatcher.Match matcherFindFirst() {
+        return matcher.findFirst(input);
+    }
+
+    @Benchmark
+    public String containsLoop() {
+        String normalized = GuardrailMatcher.normalize(input);
+        for (String pattern : patterns) {
+            if (normalized.contains(pattern)) {
+                return pattern;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Object dictionaryReload() {
+        return dictionary.reload();
+    }
+
+    private static String englishWord(Random random) {
+        int length = 3 + random.nextInt(6);
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+
+    private static String chineseWord(Random random) {
+        return new String(new char[]{(char) (0x4E00 + random.nextInt(2000)), (char) (0x4E00 + random.nextInt(2000))});
+    }
+
+    private static String pick(List<String> words, Random random) {
+        return words.get(random.nextInt(words.size()));
+    }
+}
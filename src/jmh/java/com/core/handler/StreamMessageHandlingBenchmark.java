@@ -0,0 +1,111 @@
+package com.core.handler;
+
+import cn.hutool.json.JSONUtil;
+import com.ai.model.message.AiResponseMessage;
+import com.ai.model.message.StreamMessage;
+import com.ai.model.message.StreamMessageTypeEnum;
+import com.model.entity.User;
+import com.service.ChatHistoryService;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式消息处理的开销：一次生成的 token 流经过消息处理器
+ * - jsonRoundTrip：原来的做法，门面把每个 token 编码为 JSON 字符串，处理器先解析出消息类型，再解析为具体消息
+ * - typedJsonMessageHandler / typedSimpleTextHandler：消息以对象形式传递，处理器按类型直接分派
+ * 加上 -prof gc 可以同时查看每次操作的分配量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamMessageHandlingBenchmark {
+
+    /**
+     * 每次操作处理的 token 数
+     */
+    @Param("1000")
+    private int tokenCount;
+
+    private List<String> tokens;
+
+    private List<StreamMessage> messages;
+
+    private ChatHistoryService chatHistoryService;
+
+    private User loginUser;
+
+    private JsonMessageStreamHandler jsonMessageStreamHandler;
+
+    private SimpleTextStreamHandler simpleTextStreamHandler;
+
+    @Setup
+    public void setUp() {
+        String sample = "<template>\n  <div class=\"todo-list\">\n    <h1>待办事项</h1>\n"
+                + "    <input v-model=\"newTodo\" @keyup.enter=\"addTodo\" placeholder=\"添加任务\" />\n  </div>\n</template>\n";
+        tokens = new ArrayList<>(tokenCount);
+        messages = new ArrayList<>(tokenCount);
+        for (int i = 0; i < tokenCount; i++) {
+            // 模型的流式片段通常只有几个字符
+            int start = (i * 3) % (sample.length() - 3);
+            String token = sample.substring(start, start + 3);
+            tokens.add(token);
+            messages.add(new AiResponseMessage(token));
+        }
+        chatHistoryService = Mockito.mock(ChatHistoryService.class);
+        loginUser = new User();
+        loginUser.setId(1L);
+        jsonMessageStreamHandler = new JsonMessageStreamHandler();
+        simpleTextStreamHandler = new SimpleTextStreamHandler();
+    }
+
+    @Benchmark
+    public String jsonRoundTrip() {
+        StringBuilder chatHistoryStringBuilder = new StringBuilder();
+        return Flux.fromIterable(tokens)
+                .map(token -> JSONUtil.toJsonStr(new AiResponseMessage(token)))
+                .map(chunk -> {
+                    String type = JSONUtil.parseObj(chunk).getStr("type");
+                    if (!StreamMessageTypeEnum.AI_RESPONSE.getValue().equals(type)) {
+                        return "";
+                    }
+                    String data = JSONUtil.toBean(chunk, AiResponseMessage.class).getData();
+                    chatHistoryStringBuilder.append(data);
+                    return data;
+                })
+                .collectList()
+                .map(chunks -> chatHistoryStringBuilder.toString())
+                .block();
+    }
+
+    @Benchmark
+    public List<String> typedJsonMessageHandler() {
+        return jsonMessageStreamHandler.handle(Flux.fromIterable(messages), chatHistoryService, 1L, loginUser)
+                .collectList()
+                .block();
+    }
+
+    @Benchmark
+    public List<String> typedSimpleTextHandler() {
+        return simpleTextStreamHandler.handle(Flux.fromIterable(messages), chatHistoryService, 1L, loginUser)
+                .collectList()
+                .block();
+    }
+}
@@ -1,8 +1,12 @@
 package com.ai;
 
+import com.ai.telemetry.LlmTelemetry;
+import com.ai.telemetry.MeteredChatModel;
+import com.config.RoutingAiModelConfig;
 import com.utils.SpringContextUtil;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.service.AiServices;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -16,11 +20,18 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class AiCodeGenTypeRoutingServiceFactory {
 
+    @Resource
+    private RoutingAiModelConfig routingAiModelConfig;
+
+    @Resource
+    private LlmTelemetry llmTelemetry;
+
     /**
      * 创建AI代码生成类型路由服务实例
      */
     public AiCodeGenTypeRoutingService createAiCodeGenTypeRoutingService() {
-        ChatModel chatModel = SpringContextUtil.getBean("routingChatModelPrototype", ChatModel.class);
+        ChatModel chatModel = new MeteredChatModel(SpringContextUtil.getBean("routingChatModelPrototype", ChatModel.class),
+                llmTelemetry.modelTag(routingAiModelConfig.getModelName()), LlmTelemetry.TYPE_ROUTING, llmTelemetry);
         return AiServices.builder(AiCodeGenTypeRoutingService.class)
                 .chatModel(chatModel)
                 .build();
@@ -6,49 +6,59 @@ import dev.langchain4j.service.MemoryId;
 import dev.langchain4j.service.SystemMessage;
 import dev.langchain4j.service.TokenStream;
 import dev.langchain4j.service.UserMessage;
+import dev.langchain4j.service.memory.ChatMemoryAccess;
 import reactor.core.publisher.Flux;
 
-public interface AiCodeGeneratorService {
+/**
+ * AI 代码生成服务
+ * 每种生成类型共享一个实例，通过 appId 作为记忆 ID 区分各应用的对话记忆
+ */
+public interface AiCodeGeneratorService extends ChatMemoryAccess {
 
     /**
      * 生成 HTML 代码
      *
+     * @param appId       应用 id
      * @param userMessage 用户提示词
      * @return AI 的输出结果
      */
     @SystemMessage(fromResource = "prompt/codegen-html-system-prompt.txt")
-    HtmlCodeResult generateHtmlCode(String userMessage);
+    HtmlCodeResult generateHtmlCode(@MemoryId long appId, @UserMessage String userMessage);
 
     /**
      * 生成多文件代码
      *
+     * @param appId       应用 id
      * @param userMessage 用户提示词
      * @return AI 的输出结果
      */
     @SystemMessage(fromResource = "prompt/codegen-multi-file-system-prompt.txt")
-    MultiFileCodeResult generateMultiFileCode(String userMessage);
+    MultiFileCodeResult generateMultiFileCode(@MemoryId long appId, @UserMessage String userMessage);
 
     /**
      * 生成 HTML 代码
      *
+     * @param appId       应用 id
      * @param userMessage 用户提示词
      * @return AI 的输出结果
      */
     @SystemMessage(fromResource = "prompt/codegen-html-system-prompt.txt")
-    Flux<String> generateHtmlCodeStream(String userMessage);
+    Flux<String> generateHtmlCodeStream(@MemoryId long appId, @UserMessage String userMessage);
 
     /**
      * 生成多文件代码
      *
+     * @param appId       应用 id
      * @param userMessage 用户提示词
      * @return AI 的输出结果
      */
     @SystemMessage(fromResource = "prompt/codegen-multi-file-system-prompt.txt")
-    Flux<String> generateMultiFileCodeStream(String userMessage);
+    Flux<String> generateMultiFileCodeStream(@MemoryId long appId, @UserMessage String userMessage);
 
     /**
      * 生成 Vue 项目代码（流式）
      *
+     * @param appId       应用 id
      * @param userMessage 用户提示词
      * @return AI 的输出结果
      */
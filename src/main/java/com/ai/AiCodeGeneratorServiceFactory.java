@@ -1,20 +1,42 @@
 package com.ai;
 
+import cn.hutool.core.io.FileUtil;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.ai.guardrail.GuardrailRuleDictionary;
 import com.ai.guardrail.PromptSafetyInputGuardrail;
+import com.ai.memory.ChatMemoryCompactor;
+import com.ai.memory.ChatMemoryHydrator;
+import com.ai.memory.ChatMemoryMetrics;
+import com.ai.memory.TokenBudgetChatMemory;
 import com.ai.tools.*;
+import com.ai.telemetry.LlmTelemetry;
+import com.ai.telemetry.MeteredChatModel;
+import com.ai.usage.UsageRecordingStreamingChatModel;
+import com.config.ChatMemoryConfig;
+import com.constant.AppConstant;
 import com.exception.BusinessException;
 import com.exception.ErrorCode;
 import com.model.enums.CodeGenTypeEnum;
+import com.model.vo.AiServiceStatsVO;
 import com.service.ChatHistoryService;
 import com.utils.SpringContextUtil;
 import dev.langchain4j.community.store.memory.chat.redis.RedisChatMemoryStore;
+import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.TokenCountEstimator;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.openai.OpenAiChatModelName;
+import dev.langchain4j.model.openai.OpenAiTokenCountEstimator;
 import dev.langchain4j.service.AiServices;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,7 +44,12 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
 
+import java.io.File;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * AI 服务创建工厂
@@ -44,21 +71,61 @@ public class AiCodeGeneratorServiceFactory {
     @Resource
     private ToolManager toolManager;
 
+    @Resource
+    private ChatMemoryConfig chatMemoryConfig;
+
+    @Resource
+    private ChatMemoryMetrics chatMemoryMetrics;
+
+    @Resource
+    private ChatMemoryHydrator chatMemoryHydrator;
+
+    @Resource
+    private LlmTelemetry llmTelemetry;
+
+    @Resource
+    private GuardrailRuleDictionary guardrailRuleDictionary;
+
+    /**
+     * 对话记忆 token 数估算器，各模型分词方式不同，这里只用于估算
+     */
+    private static final TokenCountEstimator TOKEN_COUNT_ESTIMATOR = new OpenAiTokenCountEstimator(OpenAiChatModelName.GPT_4_O);
+
     /**
-     * AI 服务实例缓存
-     * 缓存策略：
-     * - 最大缓存 1000 个实例
-     * - 写入后 30 分钟过期
-     * - 访问后 10 分钟过期
+     * 替换旧代码时最多列出的文件数
      */
-    private final Cache<String, AiCodeGeneratorService> serviceCache = Caffeine.newBuilder()
-            .maximumSize(1000)
-            .expireAfterWrite(Duration.ofMinutes(30))
-            .expireAfterAccess(Duration.ofMinutes(10))
-            .removalListener((key, value, cause) -> {
-                log.debug("AI 服务实例被移除，缓存键: {}, 原因: {}", key, cause);
-            })
-            .build();
+    private static final int MAX_REFERENCED_FILES = 50;
+
+    /**
+     * 各生成类型共享的 AI 服务实例，服务本身不保存应用状态，对话记忆按 appId 从记忆缓存中获取
+     */
+    private final Map<CodeGenTypeEnum, AiCodeGeneratorService> sharedServices = new ConcurrentHashMap<>();
+
+    /**
+     * 对话记忆缓存，按应用和生成类型缓存已预热的对话记忆
+     * 记忆内容保存在 Redis 中，缓存的只是很小的记忆对象，移出后再次使用时重新预热
+     */
+    private Cache<ChatMemoryKey, ChatMemory> chatMemoryCache;
+
+    @PostConstruct
+    public void init() {
+        chatMemoryCache = Caffeine.newBuilder()
+                .maximumSize(chatMemoryConfig.getCacheMaxSize())
+                .expireAfterAccess(Duration.ofMinutes(chatMemoryConfig.getCacheIdleMinutes()))
+                .recordStats()
+                .removalListener((ChatMemoryKey key, ChatMemory value, RemovalCause cause) -> {
+                    if (key == null || cause == RemovalCause.REPLACED) {
+                        return;
+                    }
+                    // AI 服务内部也按记忆 ID 持有对话记忆，需要同步移除，否则会一直增长
+                    AiCodeGeneratorService sharedService = sharedServices.get(key.codeGenType());
+                    if (sharedService != null) {
+                        sharedService.evictChatMemory(key.appId());
+                    }
+                    log.debug("对话记忆被移除，appId: {}, 生成类型: {}, 原因: {}", key.appId(), key.codeGenType().getValue(), cause);
+                })
+                .build();
+    }
 
     /**
      * 根据 appId 获取服务（为了兼容老逻辑）
@@ -72,43 +139,67 @@ public class AiCodeGeneratorServiceFactory {
 
     /**
      * 根据 appId 获取服务
+     * 返回该生成类型共享的服务，同时预热应用的对话记忆，调用服务方法时需要传入 appId
      *
      * @param appId       应用 id
      * @param codeGenType 生成类型
      * @return
      */
     public AiCodeGeneratorService getAiCodeGeneratorService(long appId, CodeGenTypeEnum codeGenType) {
-        String cacheKey = buildCacheKey(appId, codeGenType);
-        return serviceCache.get(cacheKey, key -> createAiCodeGeneratorService(appId, codeGenType));
+        getChatMemory(appId, codeGenType);
+        return getSharedService(codeGenType);
+    }
+
+    /**
+     * 获取生成类型共享的 AI 服务，首次使用时创建
+     *
+     * @param codeGenType 生成类型
+     * @return
+     */
+    private AiCodeGeneratorService getSharedService(CodeGenTypeEnum codeGenType) {
+        return sharedServices.computeIfAbsent(codeGenType, this::createAiCodeGeneratorService);
     }
 
     /**
-     * 创建新的 AI 服务实例
+     * 获取应用的对话记忆，不在缓存中时创建并预热
      *
      * @param appId       应用 id
      * @param codeGenType 生成类型
+     * @return 对话记忆
+     */
+    private ChatMemory getChatMemory(long appId, CodeGenTypeEnum codeGenType) {
+        return chatMemoryCache.get(new ChatMemoryKey(appId, codeGenType), key -> {
+            ChatMemory chatMemory = buildChatMemory(appId, codeGenType);
+            // 预热对话记忆：Redis 中的记忆已是最新时直接使用，否则从数据库补充或全量加载
+            chatMemoryHydrator.hydrate(appId, chatMemory, chatMemoryConfig.getMaxMessages());
+            return chatMemory;
+        });
+    }
+
+    /**
+     * 创建生成类型共享的 AI 服务实例
+     *
+     * @param codeGenType 生成类型
      * @return
      */
-    private AiCodeGeneratorService createAiCodeGeneratorService(long appId, CodeGenTypeEnum codeGenType) {
-        log.info("为 appId: {} 创建新的 AI 服务实例", appId);
-        // 根据 appId 构建独立的对话记忆
-        MessageWindowChatMemory chatMemory = MessageWindowChatMemory
-                .builder()
-                .id(appId)
-                .chatMemoryStore(redisChatMemoryStore)
-                .maxMessages(100) // 增加历史消息数，避免 Vue 项目生成过程中因工具调用过多导致上下文丢失
-                .build();
-        // 从数据库中加载对话历史到记忆中
-        chatHistoryService.loadChatHistoryToMemory(appId, chatMemory, 100);
+    private AiCodeGeneratorService createAiCodeGeneratorService(CodeGenTypeEnum codeGenType) {
+        log.info("创建 {} 类型共享的 AI 服务实例", codeGenType.getValue());
+        // 按 appId 解析对话记忆
+        ChatMemoryProvider chatMemoryProvider = memoryId -> getChatMemory(toAppId(memoryId), codeGenType);
+        // 非流式调用同样记录监控指标
+        ChatModel meteredChatModel = new MeteredChatModel(chatModel,
+                llmTelemetry.modelTag(chatModel.defaultRequestParameters().modelName()), codeGenType.getValue(), llmTelemetry);
         return switch (codeGenType) {
             // Vue 项目生成，使用工具调用和推理模型
             case VUE_PROJECT -> {
-                // 使用多例模式的 StreamingChatModel 解决并发问题
-                StreamingChatModel reasoningStreamingChatModel = SpringContextUtil.getBean("reasoningStreamingChatModelPrototype", StreamingChatModel.class);
+                // 模型的请求状态保存在每次调用的回调中，同一类型的应用共享一个模型实例
+                StreamingChatModel reasoningStreamingChatModel = new UsageRecordingStreamingChatModel(
+                        SpringContextUtil.getBean("reasoningStreamingChatModelPrototype", StreamingChatModel.class),
+                        codeGenType, llmTelemetry.resolveModelTag(codeGenType), llmTelemetry);
                 yield AiServices.builder(AiCodeGeneratorService.class)
-                        .chatModel(chatModel)
+                        .chatModel(meteredChatModel)
                         .streamingChatModel(reasoningStreamingChatModel)
-                        .chatMemoryProvider(memoryId -> chatMemory)
+                        .chatMemoryProvider(chatMemoryProvider)
                         .tools((Object[]) toolManager.getAllTools())
                         // 处理工具调用幻觉问题
                         .hallucinatedToolNameStrategy(toolExecutionRequest ->
@@ -116,20 +207,21 @@ public class AiCodeGeneratorServiceFactory {
                                         "Error: there is no tool called " + toolExecutionRequest.name())
                         )
                         .maxSequentialToolsInvocations(30)  // 最多连续调用 30 次工具
-                        .inputGuardrails(new PromptSafetyInputGuardrail()) // 添加输入护轨
-//                        .outputGuardrails(new RetryOutputGuardrail()) // 添加输出护轨，为了流式输出，这里不使用
+                        .inputGuardrails(new PromptSafetyInputGuardrail(guardrailRuleDictionary)) // 添加输入护轨
+                        // 输出护轨需要完整响应，不适用于流式输出，输出校验在流式处理和文件写入时增量进行
                         .build();
             }
             // HTML 和 多文件生成，使用流式对话模型
             case HTML, MULTI_FILE -> {
-                // 使用多例模式的 StreamingChatModel 解决并发问题
-                StreamingChatModel openAiStreamingChatModel = SpringContextUtil.getBean("streamingChatModelPrototype", StreamingChatModel.class);
+                StreamingChatModel openAiStreamingChatModel = new UsageRecordingStreamingChatModel(
+                        SpringContextUtil.getBean("streamingChatModelPrototype", StreamingChatModel.class),
+                        codeGenType, llmTelemetry.resolveModelTag(codeGenType), llmTelemetry);
                 yield AiServices.builder(AiCodeGeneratorService.class)
-                        .chatModel(chatModel)
+                        .chatModel(meteredChatModel)
                         .streamingChatModel(openAiStreamingChatModel)
-                        .chatMemory(chatMemory)
-                        .inputGuardrails(new PromptSafetyInputGuardrail()) // 添加输入护轨
-//                        .outputGuardrails(new RetryOutputGuardrail()) // 添加输出护轨，为了流式输出，这里不使用
+                        .chatMemoryProvider(chatMemoryProvider)
+                        .inputGuardrails(new PromptSafetyInputGuardrail(guardrailRuleDictionary)) // 添加输入护轨
+                        // 输出护轨需要完整响应，不适用于流式输出，输出校验在流式处理和文件写入时增量进行
                         .build();
             }
             default ->
@@ -137,6 +229,78 @@ public class AiCodeGeneratorServiceFactory {
         };
     }
 
+    /**
+     * 获取 AI 服务和对话记忆缓存的统计
+     */
+    public AiServiceStatsVO getStats() {
+        CacheStats cacheStats = chatMemoryCache.stats();
+        AiServiceStatsVO statsVO = new AiServiceStatsVO();
+        statsVO.setSharedServiceCount(sharedServices.size());
+        statsVO.setMemoryCacheSize(chatMemoryCache.estimatedSize());
+        statsVO.setMemoryHitCount(cacheStats.hitCount());
+        statsVO.setMemoryMissCount(cacheStats.missCount());
+        statsVO.setMemoryEvictionCount(cacheStats.evictionCount());
+        statsVO.setAvgMemoryLoadMillis(cacheStats.averageLoadPenalty() / 1_000_000.0);
+        return statsVO;
+    }
+
+    /**
+     * 向应用的对话记忆追加一轮对话，用于没有经过 AI 服务的回复（如缓存回放）
+     *
+     * @param appId       应用 id
+     * @param codeGenType 生成类型
+     * @param userMessage 用户消息
+     * @param aiMessage   AI 回复
+     */
+    public void appendChatMemory(long appId, CodeGenTypeEnum codeGenType, String userMessage, String aiMessage) {
+        ChatMemory chatMemory = getChatMemory(appId, codeGenType);
+        chatMemory.add(UserMessage.from(userMessage));
+        chatMemory.add(AiMessage.from(aiMessage));
+    }
+
+    /**
+     * 构建应用的对话记忆
+     * 启用 token 预算时，发送给模型前按生成类型的预算压缩历史消息，否则只按消息条数截断
+     *
+     * @param appId       应用 id
+     * @param codeGenType 生成类型
+     * @return 对话记忆
+     */
+    private ChatMemory buildChatMemory(long appId, CodeGenTypeEnum codeGenType) {
+        if (!chatMemoryConfig.isEnabled()) {
+            return MessageWindowChatMemory
+                    .builder()
+                    .id(appId)
+                    .chatMemoryStore(redisChatMemoryStore)
+                    .maxMessages(chatMemoryConfig.getMaxMessages()) // 增加历史消息数，避免 Vue 项目生成过程中因工具调用过多导致上下文丢失
+                    .build();
+        }
+        ChatMemoryCompactor compactor = new ChatMemoryCompactor(TOKEN_COUNT_ESTIMATOR,
+                chatMemoryConfig.getTokenBudget(codeGenType), chatMemoryConfig.getKeepRecentTurns(),
+                chatMemoryConfig.getSummaryEntryChars(), () -> describeCurrentFiles(appId, codeGenType));
+        return new TokenBudgetChatMemory(appId, redisChatMemoryStore, chatMemoryConfig.getMaxMessages(), compactor,
+                result -> chatMemoryMetrics.record(appId, codeGenType, result));
+    }
+
+    /**
+     * 描述应用当前的代码文件，对话记忆省略了旧版本代码时附加在最新的用户消息后
+     */
+    private String describeCurrentFiles(long appId, CodeGenTypeEnum codeGenType) {
+        File outputDir = new File(AppConstant.CODE_OUTPUT_ROOT_DIR, codeGenType.getValue() + "_" + appId);
+        if (!outputDir.isDirectory()) {
+            return "[当前还没有生成的代码文件]";
+        }
+        Path rootPath = outputDir.toPath();
+        List<String> filePaths = FileUtil.loopFiles(outputDir, file -> !file.getName().endsWith(".tmp")
+                        && !file.getPath().contains("node_modules") && !file.getPath().contains(File.separator + "dist" + File.separator))
+                .stream()
+                .map(file -> rootPath.relativize(file.toPath()).toString().replace(File.separatorChar, '/'))
+                .sorted()
+                .limit(MAX_REFERENCED_FILES)
+                .toList();
+        return "[当前代码文件：" + String.join("、", filePaths) + "]";
+    }
+
     /**
      * 创建 AI 代码生成器服务
      *
@@ -148,13 +312,21 @@ public class AiCodeGeneratorServiceFactory {
     }
 
     /**
-     * 构造缓存键
+     * 记忆 ID 转换为 appId
+     */
+    private long toAppId(Object memoryId) {
+        if (memoryId instanceof Number number) {
+            return number.longValue();
+        }
+        return Long.parseLong(String.valueOf(memoryId));
+    }
+
+    /**
+     * 对话记忆缓存键
      *
-     * @param appId
-     * @param codeGenType
-     * @return
+     * @param appId       应用 id
+     * @param codeGenType 生成类型
      */
-    private String buildCacheKey(long appId, CodeGenTypeEnum codeGenType) {
-        return appId + "_" + codeGenType.getValue();
+    private record ChatMemoryKey(long appId, CodeGenTypeEnum codeGenType) {
     }
 }
@@ -0,0 +1,112 @@
+package com.ai.failover;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 模型端点的延迟和错误统计，同一端点的所有模型实例共享
+ */
+public class EndpointStats {
+
+    /**
+     * 首 token 耗时滑动平均的权重
+     */
+    private static final double EWMA_ALPHA = 0.2;
+
+    @Getter
+    private final String group;
+
+    @Getter
+    private final String name;
+
+    @Getter
+    private final String modelName;
+
+    private final LongAdder requestCount = new LongAdder();
+
+    private final LongAdder errorCount = new LongAdder();
+
+    private final LongAdder hedgeCount = new LongAdder();
+
+    private final LongAdder winCount = new LongAdder();
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private volatile long lastFailureTime;
+
+    /**
+     * 首 token 耗时的滑动平均（毫秒），没有数据时为 -1
+     */
+    private volatile double avgTtftMs = -1;
+
+    public EndpointStats(String group, String name, String modelName) {
+        this.group = group;
+        this.name = name;
+        this.modelName = modelName;
+    }
+
+    void recordRequest() {
+        requestCount.increment();
+    }
+
+    /**
+     * 端点胜出（最先输出）
+     *
+     * @param ttftMs 首 token 耗时
+     */
+    synchronized void recordWin(long ttftMs) {
+        winCount.increment();
+        consecutiveFailures.set(0);
+        avgTtftMs = avgTtftMs < 0 ? ttftMs : EWMA_ALPHA * ttftMs + (1 - EWMA_ALPHA) * avgTtftMs;
+    }
+
+    void recordError() {
+        errorCount.increment();
+        consecutiveFailures.incrementAndGet();
+        lastFailureTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 超过首 token 期限，触发了对冲请求
+     */
+    void recordHedge() {
+        hedgeCount.increment();
+    }
+
+    /**
+     * 是否处于冷却期
+     *
+     * @param failureThreshold 连续失败阈值
+     * @param cooldownMillis   冷却时间
+     */
+    public boolean isCoolingDown(int failureThreshold, long cooldownMillis) {
+        return consecutiveFailures.get() >= failureThreshold
+                && System.currentTimeMillis() - lastFailureTime < cooldownMillis;
+    }
+
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    public long getHedgeCount() {
+        return hedgeCount.sum();
+    }
+
+    public long getWinCount() {
+        return winCount.sum();
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    public double getAvgTtftMs() {
+        return avgTtftMs;
+    }
+}
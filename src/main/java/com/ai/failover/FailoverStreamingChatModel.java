@@ -0,0 +1,269 @@
+package com.ai.failover;
+
+import com.ai.http.ModelStreamCancellation;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 带故障转移和首 token 对冲的流式模型
+ * 按顺序使用多个 OpenAI 兼容端点：当前端点出错时立即切换到下一个；超过首 token 期限仍没有收到任何响应事件时，
+ * 向下一个端点发起对冲请求，最先输出的一方胜出，其余请求被取消。只输出工具调用或思考过程的请求不产生文本片段，
+ * 期限按 HTTP 层收到的响应事件判断，不会因此发起对冲。
+ * 一旦开始输出就不再切换，之后的错误直接交给调用方。
+ * 每个请求都使用生成取消句柄的子句柄，取消生成时所有请求一起中断
+ */
+@Slf4j
+public class FailoverStreamingChatModel implements StreamingChatModel {
+
+    public static final String CANCEL_REASON_HEDGE_LOST = "hedge-lost";
+
+    private final List<ModelEndpoint> endpoints;
+
+    private final long firstTokenTimeoutMs;
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * 端点排序（冷却中的端点排到最后）
+     */
+    private final Supplier<List<ModelEndpoint>> endpointOrder;
+
+    public FailoverStreamingChatModel(List<ModelEndpoint> endpoints, long firstTokenTimeoutMs,
+                                      ScheduledExecutorService scheduler, int failureThreshold, long cooldownMillis) {
+        this.endpoints = List.copyOf(endpoints);
+        this.firstTokenTimeoutMs = firstTokenTimeoutMs;
+        this.scheduler = scheduler;
+        this.endpointOrder = () -> {
+            List<ModelEndpoint> healthy = new ArrayList<>();
+            List<ModelEndpoint> coolingDown = new ArrayList<>();
+            for (ModelEndpoint endpoint : this.endpoints) {
+                if (endpoint.stats().isCoolingDown(failureThreshold, cooldownMillis)) {
+                    coolingDown.add(endpoint);
+                } else {
+                    healthy.add(endpoint);
+                }
+            }
+            healthy.addAll(coolingDown);
+            return healthy;
+        };
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        ModelStreamCancellation cancellation = ModelStreamCancellation.current();
+        if (cancellation == null) {
+            cancellation = new ModelStreamCancellation();
+        }
+        new HedgedCall(chatRequest, handler, cancellation, endpointOrder.get()).launchNext();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return endpoints.get(0).model().supportedCapabilities();
+    }
+
+    /**
+     * 一次模型调用，可能包含多个端点上的请求
+     */
+    private class HedgedCall {
+
+        private final ChatRequest chatRequest;
+
+        private final StreamingChatResponseHandler handler;
+
+        private final ModelStreamCancellation cancellation;
+
+        private final List<ModelEndpoint> order;
+
+        private final List<Attempt> activeAttempts = new ArrayList<>();
+
+        private int nextIndex;
+
+        private Attempt winner;
+
+        private boolean finished;
+
+        private Throwable lastError;
+
+        HedgedCall(ChatRequest chatRequest, StreamingChatResponseHandler handler,
+                   ModelStreamCancellation cancellation, List<ModelEndpoint> order) {
+            this.chatRequest = chatRequest;
+            this.handler = handler;
+            this.cancellation = cancellation;
+            this.order = order;
+        }
+
+        /**
+         * 向下一个端点发起请求，没有可用端点时返回 false
+         */
+        boolean launchNext() {
+            Attempt attempt;
+            boolean hasNext;
+            synchronized (this) {
+                if (finished || winner != null || cancellation.isCancelled() || nextIndex >= order.size()) {
+                    return false;
+                }
+                attempt = new Attempt(this, order.get(nextIndex++), cancellation.child());
+                activeAttempts.add(attempt);
+                hasNext = nextIndex < order.size();
+            }
+            attempt.endpoint.stats().recordRequest();
+            if (firstTokenTimeoutMs > 0 && hasNext) {
+                scheduler.schedule(() -> onFirstTokenTimeout(attempt), firstTokenTimeoutMs, TimeUnit.MILLISECONDS);
+            }
+            try {
+                attempt.cancellation.runWith(() -> attempt.endpoint.model().chat(chatRequest, attempt));
+            } catch (RuntimeException e) {
+                attempt.onError(e);
+            }
+            return true;
+        }
+
+        private void onFirstTokenTimeout(Attempt attempt) {
+            synchronized (this) {
+                // 已有输出，或者该请求已经结束（出错时已经切换过）
+                if (winner != null || finished || !activeAttempts.contains(attempt)) {
+                    return;
+                }
+            }
+            // 已经收到响应事件（工具调用、思考过程），端点正常响应中
+            if (attempt.cancellation.isResponding()) {
+                return;
+            }
+            attempt.endpoint.stats().recordHedge();
+            log.warn("模型端点 {} 超过 {} ms 没有响应，向下一个端点发起对冲请求", attempt.endpoint.stats().getName(), firstTokenTimeoutMs);
+            launchNext();
+        }
+
+        /**
+         * 请求开始输出，第一个输出的请求胜出
+         *
+         * @return 该请求是否为胜出的请求
+         */
+        boolean claim(Attempt attempt) {
+            List<Attempt> losers;
+            synchronized (this) {
+                if (winner != null) {
+                    return winner == attempt;
+                }
+                if (finished) {
+                    return false;
+                }
+                winner = attempt;
+                losers = new ArrayList<>(activeAttempts);
+                losers.remove(attempt);
+                activeAttempts.clear();
+                activeAttempts.add(attempt);
+            }
+            attempt.endpoint.stats().recordWin(System.currentTimeMillis() - attempt.startTime);
+            for (Attempt loser : losers) {
+                loser.cancellation.cancel(CANCEL_REASON_HEDGE_LOST);
+                loser.cancellation.release();
+            }
+            return true;
+        }
+
+        void onComplete(Attempt attempt, ChatResponse response) {
+            if (!claim(attempt)) {
+                return;
+            }
+            synchronized (this) {
+                finished = true;
+            }
+            attempt.cancellation.release();
+            handler.onCompleteResponse(response);
+        }
+
+        void onError(Attempt attempt, Throwable error) {
+            boolean forward;
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                if (winner == attempt) {
+                    // 已经开始输出，不再切换
+                    finished = true;
+                    forward = true;
+                } else if (winner != null || !activeAttempts.remove(attempt)) {
+                    // 对冲中落后被取消的请求
+                    return;
+                } else {
+                    lastError = error;
+                    forward = false;
+                }
+            }
+            attempt.cancellation.release();
+            if (forward) {
+                handler.onError(error);
+                return;
+            }
+            if (!attempt.cancellation.isCancelled()) {
+                attempt.endpoint.stats().recordError();
+                log.warn("模型端点 {} 请求失败: {}", attempt.endpoint.stats().getName(), error.getMessage());
+            }
+            // 还有其他请求在进行时等待其结果，否则切换到下一个端点
+            synchronized (this) {
+                if (!activeAttempts.isEmpty()) {
+                    return;
+                }
+            }
+            if (!launchNext()) {
+                synchronized (this) {
+                    if (finished || !activeAttempts.isEmpty()) {
+                        return;
+                    }
+                    finished = true;
+                }
+                handler.onError(lastError);
+            }
+        }
+    }
+
+    /**
+     * 单个端点上的请求
+     */
+    private static class Attempt implements StreamingChatResponseHandler {
+
+        private final HedgedCall call;
+
+        private final ModelEndpoint endpoint;
+
+        private final ModelStreamCancellation cancellation;
+
+        private final long startTime = System.currentTimeMillis();
+
+        Attempt(HedgedCall call, ModelEndpoint endpoint, ModelStreamCancellation cancellation) {
+            this.call = call;
+            this.endpoint = endpoint;
+            this.cancellation = cancellation;
+        }
+
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            if (call.claim(this)) {
+                call.handler.onPartialResponse(partialResponse);
+            }
+        }
+
+        @Override
+        public void onCompleteResponse(ChatResponse completeResponse) {
+            call.onComplete(this, completeResponse);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            call.onError(this, error);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.ai.failover;
+
+import dev.langchain4j.model.chat.StreamingChatModel;
+
+/**
+ * 模型端点：某个 OpenAI 兼容服务上的流式模型及其统计
+ *
+ * @param model 流式模型
+ * @param stats 端点统计
+ */
+public record ModelEndpoint(StreamingChatModel model, EndpointStats stats) {
+}
@@ -0,0 +1,102 @@
+package com.ai.failover;
+
+import cn.hutool.core.collection.CollUtil;
+import com.config.ModelFailoverConfig;
+import com.model.vo.ModelEndpointStatsVO;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 模型故障转移管理器
+ * 为多例流式模型套上故障转移层，端点统计按（模型组、端点名称）在所有模型实例之间共享
+ */
+@Component
+public class ModelFailoverManager {
+
+    public static final String GROUP_STREAMING = "streaming";
+
+    public static final String GROUP_REASONING = "reasoning";
+
+    /**
+     * 主端点（原有模型配置）的名称
+     */
+    public static final String PRIMARY_ENDPOINT_NAME = "primary";
+
+    @Resource
+    private ModelFailoverConfig modelFailoverConfig;
+
+    private final Map<String, EndpointStats> statsMap = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService hedgeScheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("model-hedge").daemon().factory());
+
+    @PreDestroy
+    public void destroy() {
+        hedgeScheduler.shutdownNow();
+    }
+
+    /**
+     * 为流式模型加上故障转移，没有配置备用端点时直接返回主模型
+     *
+     * @param group            模型组
+     * @param primaryModelName 主端点的模型名称
+     * @param primary          主端点的流式模型
+     * @param modelBuilder     根据备用端点配置创建流式模型
+     * @return 流式模型
+     */
+    public StreamingChatModel withFailover(String group, String primaryModelName, StreamingChatModel primary,
+                                           Function<ModelFailoverConfig.Endpoint, StreamingChatModel> modelBuilder) {
+        ModelFailoverConfig.FailoverGroup failoverGroup = modelFailoverConfig.getGroup(group);
+        if (!modelFailoverConfig.isEnabled() || failoverGroup == null || CollUtil.isEmpty(failoverGroup.getEndpoints())) {
+            return primary;
+        }
+        List<ModelEndpoint> endpoints = new ArrayList<>();
+        endpoints.add(new ModelEndpoint(primary, getStats(group, PRIMARY_ENDPOINT_NAME, primaryModelName)));
+        for (ModelFailoverConfig.Endpoint endpoint : failoverGroup.getEndpoints()) {
+            endpoints.add(new ModelEndpoint(modelBuilder.apply(endpoint),
+                    getStats(group, endpoint.getName(), endpoint.getModelName())));
+        }
+        return new FailoverStreamingChatModel(endpoints, failoverGroup.getFirstTokenTimeoutMs(), hedgeScheduler,
+                modelFailoverConfig.getFailureThreshold(), TimeUnit.SECONDS.toMillis(modelFailoverConfig.getCooldownSeconds()));
+    }
+
+    /**
+     * 获取各端点的统计
+     */
+    public List<ModelEndpointStatsVO> getStatsList() {
+        List<ModelEndpointStatsVO> statsList = new ArrayList<>();
+        long cooldownMillis = TimeUnit.SECONDS.toMillis(modelFailoverConfig.getCooldownSeconds());
+        for (EndpointStats stats : statsMap.values()) {
+            long requests = stats.getRequestCount();
+            ModelEndpointStatsVO statsVO = new ModelEndpointStatsVO();
+            statsVO.setGroup(stats.getGroup());
+            statsVO.setName(stats.getName());
+            statsVO.setModelName(stats.getModelName());
+            statsVO.setRequestCount(requests);
+            statsVO.setErrorCount(stats.getErrorCount());
+            statsVO.setErrorRate(requests == 0 ? 0 : (double) stats.getErrorCount() / requests);
+            statsVO.setHedgeCount(stats.getHedgeCount());
+            statsVO.setWinCount(stats.getWinCount());
+            statsVO.setAvgTtftMs(stats.getAvgTtftMs() < 0 ? null : Math.round(stats.getAvgTtftMs()));
+            statsVO.setConsecutiveFailures(stats.getConsecutiveFailures());
+            statsVO.setCoolingDown(stats.isCoolingDown(modelFailoverConfig.getFailureThreshold(), cooldownMillis));
+            statsList.add(statsVO);
+        }
+        return statsList;
+    }
+
+    private EndpointStats getStats(String group, String name, String modelName) {
+        return statsMap.computeIfAbsent(group + ":" + name, key -> new EndpointStats(group, name, modelName));
+    }
+}
@@ -0,0 +1,320 @@
+package com.ai.guardrail;
+
+import com.model.enums.GuardrailCategoryEnum;
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 多模式匹配器（Aho-Corasick 自动机）
+ * 一次扫描输入即可检查全部规则，耗时只与输入长度有关，与规则数量无关。
+ * 规则和输入使用同一套规范化：英文转小写、全角转半角、去除零宽字符、连续空白合并为一个空格、去除冒号两侧的空白，
+ * 输入的规范化在扫描过程中逐字符完成，不产生额外的字符串。
+ * 构建完成后不可修改，热更新时整体替换
+ */
+public class GuardrailMatcher {
+
+    private static final int ROOT = 0;
+
+    private static final int NO_RULE = -1;
+
+    /**
+     * 匹配结果
+     *
+     * @param category 命中规则的类别
+     * @param pattern  命中的模式（规范化后）
+     */
+    public record Match(GuardrailCategoryEnum category, String pattern) {
+    }
+
+    /**
+     * 根节点的转移表，按字符直接寻址，大部分字符在根节点就失配
+     */
+    private final int[] rootNext;
+
+    /**
+     * 非根节点的转移：节点 i 的转移在 [edgeStart[i], edgeStart[i + 1]) 区间内，按字符升序排列
+     */
+    private final int[] edgeStart;
+
+    private final char[] edgeChars;
+
+    private final int[] edgeTargets;
+
+    /**
+     * 失配指针
+     */
+    private final int[] fail;
+
+    /**
+     * 到达节点时命中的规则下标（包含沿失配链可达的规则），没有命中为 -1
+     */
+    private final int[] matchRule;
+
+    private final GuardrailCategoryEnum[] ruleCategories;
+
+    private final String[] rulePatterns;
+
+    @Getter
+    private final int nodeCount;
+
+    private GuardrailMatcher(int[] rootNext, int[] edgeStart, char[] edgeChars, int[] edgeTargets, int[] fail,
+                             int[] matchRule, GuardrailCategoryEnum[] ruleCategories, String[] rulePatterns) {
+        this.rootNext = rootNext;
+        this.edgeStart = edgeStart;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.fail = fail;
+        this.matchRule = matchRule;
+        this.ruleCategories = ruleCategories;
+        this.rulePatterns = rulePatterns;
+        this.nodeCount = fail.length;
+    }
+
+    /**
+     * 规则数量（去重后）
+     */
+    public int getRuleCount() {
+        return rulePatterns.length;
+    }
+
+    /**
+     * 查找输入中第一个命中的规则
+     *
+     * @param input 原始输入
+     * @return 匹配结果，没有命中返回 null
+     */
+    public Match findFirst(String input) {
+        if (input == null || rulePatterns.length == 0) {
+            return null;
+        }
+        int state = ROOT;
+        // 前面是否有待输出的空白，以及上一个输出的字符是否为冒号（冒号后的空白直接丢弃）
+        boolean pendingSpace = false;
+        boolean afterColon = false;
+        for (int i = 0, length = input.length(); i < length; i++) {
+            char c = normalizeChar(input.charAt(i));
+            if (c == 0) {
+                continue;
+            }
+            if (c == ' ') {
+                pendingSpace = !afterColon && state != ROOT;
+                continue;
+            }
+            if (pendingSpace && c != ':') {
+                state = next(state, ' ');
+                if (matchRule[state] != NO_RULE) {
+                    return toMatch(matchRule[state]);
+                }
+            }
+            pendingSpace = false;
+            afterColon = c == ':';
+            state = next(state, c);
+            if (matchRule[state] != NO_RULE) {
+                return toMatch(matchRule[state]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按匹配时的规则规范化字符串，用于规则入库
+     *
+     * @param text 原始文本
+     * @return 规范化后的文本
+     */
+    public static String normalize(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        boolean afterColon = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = normalizeChar(text.charAt(i));
+            if (c == 0) {
+                continue;
+            }
+            if (c == ' ') {
+                pendingSpace = !afterColon && !sb.isEmpty();
+                continue;
+            }
+            if (pendingSpace && c != ':') {
+                sb.append(' ');
+            }
+            pendingSpace = false;
+            afterColon = c == ':';
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 单字符规范化，返回 0 表示丢弃该字符，返回空格表示空白
+     */
+    private static char normalizeChar(char c) {
+        if (c < 0x80) {
+            if (c >= 'A' && c <= 'Z') {
+                return (char) (c + 32);
+            }
+            return Character.isWhitespace(c) ? ' ' : c;
+        }
+        // 全角空格和全角 ASCII
+        if (c == '　') {
+            return ' ';
+        }
+        if (c >= '！' && c <= '～') {
+            return normalizeChar((char) (c - 0xFEE0));
+        }
+        // 零宽字符
+        if (c == '\u200B' || c == '\u200C' || c == '\u200D' || c == '\u2060' || c == '\uFEFF') {
+            return 0;
+        }
+        if (Character.isWhitespace(c)) {
+            return ' ';
+        }
+        return Character.toLowerCase(c);
+    }
+
+    private int next(int state, char c) {
+        while (true) {
+            if (state == ROOT) {
+                return rootNext[c];
+            }
+            int target = findEdge(state, c);
+            if (target != NO_RULE) {
+                return target;
+            }
+            state = fail[state];
+        }
+    }
+
+    private int findEdge(int state, char c) {
+        int low = edgeStart[state];
+        int high = edgeStart[state + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = edgeChars[mid];
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return NO_RULE;
+    }
+
+    private Match toMatch(int ruleIndex) {
+        return new Match(ruleCategories[ruleIndex], rulePatterns[ruleIndex]);
+    }
+
+    /**
+     * 构建匹配器
+     *
+     * @param patterns 规范化后的模式及其类别，同一模式重复出现时保留第一个类别
+     * @return 匹配器
+     */
+    public static GuardrailMatcher build(Map<String, GuardrailCategoryEnum> patterns) {
+        // 1. 构建字典树，构建阶段使用有序 Map 保存转移，便于之后压缩为有序数组
+        List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        List<Integer> terminalRules = new ArrayList<>();
+        children.add(new TreeMap<>());
+        terminalRules.add(NO_RULE);
+        GuardrailCategoryEnum[] ruleCategories = new GuardrailCategoryEnum[patterns.size()];
+        String[] rulePatterns = new String[patterns.size()];
+        int ruleIndex = 0;
+        for (Map.Entry<String, GuardrailCategoryEnum> entry : patterns.entrySet()) {
+            String pattern = entry.getKey();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            int node = ROOT;
+            for (int i = 0; i < pattern.length(); i++) {
+                Integer child = children.get(node).get(pattern.charAt(i));
+                if (child == null) {
+                    child = children.size();
+                    children.add(new TreeMap<>());
+                    terminalRules.add(NO_RULE);
+                    children.get(node).put(pattern.charAt(i), child);
+                }
+                node = child;
+            }
+            if (terminalRules.get(node) == NO_RULE) {
+                terminalRules.set(node, ruleIndex);
+                ruleCategories[ruleIndex] = entry.getValue();
+                rulePatterns[ruleIndex] = pattern;
+                ruleIndex++;
+            }
+        }
+        int nodeCount = children.size();
+        // 2. 压缩转移为有序数组
+        int[] edgeStart = new int[nodeCount + 1];
+        int edgeCount = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            edgeStart[node] = edgeCount;
+            edgeCount += children.get(node).size();
+        }
+        edgeStart[nodeCount] = edgeCount;
+        char[] edgeChars = new char[edgeCount];
+        int[] edgeTargets = new int[edgeCount];
+        int[] rootNext = new int[Character.MAX_VALUE + 1];
+        for (int node = 0; node < nodeCount; node++) {
+            int offset = edgeStart[node];
+            for (Map.Entry<Character, Integer> edge : children.get(node).entrySet()) {
+                edgeChars[offset] = edge.getKey();
+                edgeTargets[offset] = edge.getValue();
+                offset++;
+                if (node == ROOT) {
+                    rootNext[edge.getKey()] = edge.getValue();
+                }
+            }
+        }
+        // 3. 广度优先计算失配指针，并把失配链上的命中规则合并到当前节点
+        int[] fail = new int[nodeCount];
+        int[] matchRule = new int[nodeCount];
+        matchRule[ROOT] = NO_RULE;
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : children.get(ROOT).values()) {
+            fail[child] = ROOT;
+            matchRule[child] = terminalRules.get(child);
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (Map.Entry<Character, Integer> edge : children.get(node).entrySet()) {
+                int child = edge.getValue();
+                int state = fail[node];
+                int failTarget;
+                while (true) {
+                    Integer target = state == ROOT
+                            ? Integer.valueOf(rootNext[edge.getKey()])
+                            : children.get(state).get(edge.getKey());
+                    if (target != null) {
+                        failTarget = target;
+                        break;
+                    }
+                    state = fail[state];
+                }
+                fail[child] = failTarget;
+                int terminal = terminalRules.get(child);
+                matchRule[child] = terminal != NO_RULE ? terminal : matchRule[failTarget];
+                queue.add(child);
+            }
+        }
+        return new GuardrailMatcher(rootNext, edgeStart, edgeChars, edgeTargets, fail, matchRule,
+                Arrays.copyOf(ruleCategories, ruleIndex), Arrays.copyOf(rulePatterns, ruleIndex));
+    }
+
+    /**
+     * 空匹配器
+     */
+    public static GuardrailMatcher empty() {
+        return build(new HashMap<>());
+    }
+}
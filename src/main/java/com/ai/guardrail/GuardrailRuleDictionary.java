@@ -0,0 +1,277 @@
+package com.ai.guardrail;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.util.StrUtil;
+import com.config.GuardrailConfig;
+import com.exception.BusinessException;
+import com.exception.ErrorCode;
+import com.model.enums.GuardrailCategoryEnum;
+import com.model.vo.GuardrailStatsVO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 输入护轨规则词典
+ * 加载内置规则和外部规则文件，构建多模式匹配器；外部规则文件修改后自动重新构建并整体替换，
+ * 新规则加载失败时继续使用原有规则
+ */
+@Slf4j
+@Component
+public class GuardrailRuleDictionary {
+
+    private static final String BUILTIN_RULES_RESOURCE = "guardrail/prompt-rules.txt";
+
+    @Resource
+    private GuardrailConfig guardrailConfig;
+
+    private volatile GuardrailMatcher matcher = GuardrailMatcher.empty();
+
+    private final Map<GuardrailCategoryEnum, LongAdder> hitCounts = new EnumMap<>(GuardrailCategoryEnum.class);
+
+    private final LongAdder checkCount = new LongAdder();
+
+    private final LongAdder reloadCount = new LongAdder();
+
+    /**
+     * 外部规则文件最近一次加载时的修改时间和大小，用于判断是否需要重新加载
+     */
+    private long rulesFileModified = -1;
+
+    private long rulesFileLength = -1;
+
+    private volatile long loadTime;
+
+    private volatile long buildMillis;
+
+    private volatile String lastReloadError;
+
+    private ScheduledExecutorService reloadExecutor;
+
+    @PostConstruct
+    public void init() {
+        for (GuardrailCategoryEnum category : GuardrailCategoryEnum.values()) {
+            hitCounts.put(category, new LongAdder());
+        }
+        try {
+            reload();
+        } catch (BusinessException e) {
+            // 外部规则有误时至少保证内置规则生效
+            log.error("加载护轨规则失败，仅使用内置规则: {}", e.getMessage());
+            loadRules(false);
+        }
+        if (StrUtil.isNotBlank(guardrailConfig.getRulesPath()) && guardrailConfig.getReloadIntervalSeconds() > 0) {
+            long interval = guardrailConfig.getReloadIntervalSeconds();
+            reloadExecutor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("guardrail-reloader").daemon().factory());
+            reloadExecutor.scheduleWithFixedDelay(this::reloadIfModified, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (reloadExecutor != null) {
+            reloadExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 检查输入是否命中规则
+     *
+     * @param input 用户输入
+     * @return 命中的规则，没有命中返回 null
+     */
+    public GuardrailMatcher.Match check(String input) {
+        checkCount.increment();
+        GuardrailMatcher.Match match = matcher.findFirst(input);
+        if (match != null) {
+            hitCounts.get(match.category()).increment();
+        }
+        return match;
+    }
+
+    /**
+     * 重新加载全部规则
+     *
+     * @return 加载后的规则统计
+     */
+    public synchronized GuardrailStatsVO reload() {
+        loadRules(true);
+        return getStats();
+    }
+
+    /**
+     * 获取规则和命中统计
+     */
+    public GuardrailStatsVO getStats() {
+        GuardrailMatcher current = matcher;
+        Map<String, Long> hits = new LinkedHashMap<>();
+        hitCounts.forEach((category, count) -> hits.put(category.getValue(), count.sum()));
+        GuardrailStatsVO statsVO = new GuardrailStatsVO();
+        statsVO.setRulesPath(guardrailConfig.getRulesPath());
+        statsVO.setPatternCount(current.getRuleCount());
+        statsVO.setNodeCount(current.getNodeCount());
+        statsVO.setLoadTime(loadTime);
+        statsVO.setBuildMillis(buildMillis);
+        statsVO.setReloadCount(reloadCount.sum());
+        statsVO.setLastReloadError(lastReloadError);
+        statsVO.setCheckCount(checkCount.sum());
+        statsVO.setHitCounts(hits);
+        return statsVO;
+    }
+
+    /**
+     * 外部规则文件修改后重新加载
+     */
+    private synchronized void reloadIfModified() {
+        File rulesFile = new File(guardrailConfig.getRulesPath());
+        long modified = rulesFile.isFile() ? rulesFile.lastModified() : 0;
+        long length = rulesFile.isFile() ? rulesFile.length() : 0;
+        if (modified == rulesFileModified && length == rulesFileLength) {
+            return;
+        }
+        try {
+            loadRules(true);
+        } catch (Exception e) {
+            // 记录本次的文件状态，文件再次修改前不重复加载
+            rulesFileModified = modified;
+            rulesFileLength = length;
+            log.error("重新加载护轨规则失败，继续使用原有规则: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 加载规则并替换匹配器
+     *
+     * @param includeExternal 是否加载外部规则文件
+     */
+    private void loadRules(boolean includeExternal) {
+        long start = System.currentTimeMillis();
+        Map<String, GuardrailCategoryEnum> patterns = new LinkedHashMap<>();
+        try {
+            if (guardrailConfig.isBuiltinRulesEnabled()) {
+                parseRules(ResourceUtil.readUtf8Str(BUILTIN_RULES_RESOURCE), BUILTIN_RULES_RESOURCE, patterns);
+            }
+            String rulesPath = guardrailConfig.getRulesPath();
+            if (includeExternal && StrUtil.isNotBlank(rulesPath)) {
+                File rulesFile = new File(rulesPath);
+                if (rulesFile.isFile()) {
+                    long modified = rulesFile.lastModified();
+                    long length = rulesFile.length();
+                    parseRules(FileUtil.readUtf8String(rulesFile), rulesPath, patterns);
+                    rulesFileModified = modified;
+                    rulesFileLength = length;
+                } else {
+                    log.warn("护轨规则文件不存在: {}", rulesPath);
+                    rulesFileModified = 0;
+                    rulesFileLength = 0;
+                }
+            }
+        } catch (BusinessException e) {
+            lastReloadError = e.getMessage();
+            throw e;
+        }
+        matcher = GuardrailMatcher.build(patterns);
+        loadTime = System.currentTimeMillis();
+        buildMillis = loadTime - start;
+        lastReloadError = null;
+        reloadCount.increment();
+        log.info("护轨规则加载完成，模式数: {}，节点数: {}，耗时 {} ms", matcher.getRuleCount(), matcher.getNodeCount(), buildMillis);
+    }
+
+    /**
+     * 解析规则文本
+     *
+     * @param content  规则文本
+     * @param source   规则来源，用于错误提示
+     * @param patterns 解析结果，规范化后的模式 -> 类别
+     */
+    private void parseRules(String content, String source, Map<String, GuardrailCategoryEnum> patterns) {
+        GuardrailCategoryEnum category = null;
+        int lineNumber = 0;
+        for (String line : StrUtil.split(content, '\n')) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (line.startsWith("[") && line.endsWith("]")) {
+                category = GuardrailCategoryEnum.getEnumByValue(line.substring(1, line.length() - 1).trim());
+                if (category == null) {
+                    throw new BusinessException(ErrorCode.OPERATION_ERROR,
+                            StrUtil.format("护轨规则 {} 第 {} 行的类别不存在: {}", source, lineNumber, line));
+                }
+                continue;
+            }
+            if (category == null) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR,
+                        StrUtil.format("护轨规则 {} 第 {} 行之前没有声明类别", source, lineNumber));
+            }
+            for (String expanded : expand(line, source, lineNumber)) {
+                String pattern = GuardrailMatcher.normalize(expanded);
+                if (!pattern.isEmpty()) {
+                    patterns.putIfAbsent(pattern, category);
+                }
+            }
+        }
+    }
+
+    /**
+     * 展开规则中的 {a|b|c}
+     *
+     * @param rule       规则文本
+     * @param source     规则来源，用于错误提示
+     * @param lineNumber 规则所在行，用于错误提示
+     * @return 展开后的全部模式，按规则中出现的顺序组合
+     */
+    List<String> expand(String rule, String source, int lineNumber) {
+        List<String> results = new ArrayList<>();
+        results.add("");
+        int index = 0;
+        while (index < rule.length()) {
+            int open = rule.indexOf('{', index);
+            if (open < 0) {
+                appendAll(results, List.of(rule.substring(index)));
+                break;
+            }
+            int close = rule.indexOf('}', open);
+            if (close < 0 || rule.lastIndexOf('{', close) != open) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR,
+                        StrUtil.format("护轨规则 {} 第 {} 行的括号不匹配: {}", source, lineNumber, rule));
+            }
+            appendAll(results, List.of(rule.substring(index, open)));
+            appendAll(results, StrUtil.split(rule.substring(open + 1, close), '|'));
+            if (results.size() > guardrailConfig.getMaxExpansionsPerRule()) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR,
+                        StrUtil.format("护轨规则 {} 第 {} 行展开后超过 {} 条: {}", source, lineNumber,
+                                guardrailConfig.getMaxExpansionsPerRule(), rule));
+            }
+            index = close + 1;
+        }
+        return results;
+    }
+
+    private void appendAll(List<String> prefixes, List<String> suffixes) {
+        List<String> appended = new ArrayList<>(prefixes.size() * suffixes.size());
+        for (String prefix : prefixes) {
+            for (String suffix : suffixes) {
+                appended.add(prefix + suffix);
+            }
+        }
+        prefixes.clear();
+        prefixes.addAll(appended);
+    }
+}
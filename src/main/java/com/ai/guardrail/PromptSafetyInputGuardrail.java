@@ -3,30 +3,20 @@ package com.ai.guardrail;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.guardrail.InputGuardrail;
 import dev.langchain4j.guardrail.InputGuardrailResult;
-
-import java.util.Arrays;
-import java.util.List;
-import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * Prompt 安全审查护轨
+ * 敏感词和注入攻击模式统一由规则词典维护，一次扫描完成全部规则的检查
  */
+@Slf4j
 public class PromptSafetyInputGuardrail implements InputGuardrail {
 
-    // 敏感词列表
-    private static final List<String> SENSITIVE_WORDS = Arrays.asList(
-            "忽略之前的指令", "ignore previous instructions", "ignore above",
-            "破解", "hack", "绕过", "bypass", "越狱", "jailbreak"
-    );
+    private final GuardrailRuleDictionary guardrailRuleDictionary;
 
-    // 注入攻击模式
-    private static final List<Pattern> INJECTION_PATTERNS = Arrays.asList(
-            Pattern.compile("(?i)ignore\\s+(?:previous|above|all)\\s+(?:instructions?|commands?|prompts?)"),
-            Pattern.compile("(?i)(?:forget|disregard)\\s+(?:everything|all)\\s+(?:above|before)"),
-            Pattern.compile("(?i)(?:pretend|act|behave)\\s+(?:as|like)\\s+(?:if|you\\s+are)"),
-            Pattern.compile("(?i)system\\s*:\\s*you\\s+are"),
-            Pattern.compile("(?i)new\\s+(?:instructions?|commands?|prompts?)\\s*:")
-    );
+    public PromptSafetyInputGuardrail(GuardrailRuleDictionary guardrailRuleDictionary) {
+        this.guardrailRuleDictionary = guardrailRuleDictionary;
+    }
 
     @Override
     public InputGuardrailResult validate(UserMessage userMessage) {
@@ -39,19 +29,12 @@ public class PromptSafetyInputGuardrail implements InputGuardrail {
         if (input.trim().isEmpty()) {
             return fatal("输入内容不能为空");
         }
-        // 检查敏感词
-        String lowerInput = input.toLowerCase();
-        for (String sensitiveWord : SENSITIVE_WORDS) {
-            if (lowerInput.contains(sensitiveWord.toLowerCase())) {
-                return fatal("输入包含不当内容，请修改后重试");
-            }
-        }
-        // 检查注入攻击模式
-        for (Pattern pattern : INJECTION_PATTERNS) {
-            if (pattern.matcher(input).find()) {
-                return fatal("检测到恶意输入，请求被拒绝");
-            }
+        // 检查敏感词和注入攻击模式
+        GuardrailMatcher.Match match = guardrailRuleDictionary.check(input);
+        if (match != null) {
+            log.info("输入命中护轨规则，类别: {}，模式: {}", match.category().getValue(), match.pattern());
+            return fatal(match.category().getRejectMessage());
         }
         return success();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,133 @@
+package com.ai.http;
+
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.sse.ServerSentEvent;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 可取消的模型 HTTP 客户端
+ * 包装默认的 HTTP 客户端，流式请求发出时读取当前线程绑定的 ModelStreamCancellation，
+ * 取消后关闭响应流：JDK HttpClient 关闭响应流时会取消对响应体的订阅并释放连接，不读取剩余内容，模型随即停止输出
+ */
+public class CancellableHttpClient implements HttpClient {
+
+    private final HttpClient delegate;
+
+    public CancellableHttpClient(HttpClient delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public SuccessfulHttpResponse execute(HttpRequest request) throws HttpException, RuntimeException {
+        return delegate.execute(request);
+    }
+
+    @Override
+    public void execute(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+        ModelStreamCancellation cancellation = ModelStreamCancellation.current();
+        if (cancellation == null) {
+            delegate.execute(request, parser, listener);
+            return;
+        }
+        // 已取消的生成不再发出新的请求（例如工具调用后的后续请求）
+        if (cancellation.isCancelled()) {
+            listener.onError(new CancellationException("生成已取消"));
+            return;
+        }
+        cancellation.recordModelRequest();
+        // 响应在其他线程中解析，回调中发出的后续请求仍然绑定同一个句柄
+        ServerSentEventParser cancellableParser = (inputStream, parserListener) -> cancellation.runWith(() -> {
+            CancellableInputStream cancellableInputStream = new CancellableInputStream(inputStream, cancellation);
+            try {
+                parser.parse(cancellableInputStream, parserListener);
+            } finally {
+                cancellableInputStream.release();
+            }
+        });
+        delegate.execute(request, cancellableParser, new BoundListener(listener, cancellation));
+    }
+
+    /**
+     * 在绑定取消句柄的情况下回调原监听器
+     */
+    private record BoundListener(ServerSentEventListener delegate,
+                                 ModelStreamCancellation cancellation) implements ServerSentEventListener {
+
+        @Override
+        public void onOpen(SuccessfulHttpResponse response) {
+            cancellation.runWith(() -> delegate.onOpen(response));
+        }
+
+        @Override
+        public void onEvent(ServerSentEvent event) {
+            cancellation.recordResponseEvent();
+            cancellation.runWith(() -> delegate.onEvent(event));
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            cancellation.runWith(() -> delegate.onError(throwable));
+        }
+
+        @Override
+        public void onClose() {
+            cancellation.runWith(delegate::onClose);
+        }
+    }
+
+    /**
+     * 取消后读取立即失败，并关闭响应流
+     */
+    private static class CancellableInputStream extends FilterInputStream {
+
+        private final ModelStreamCancellation cancellation;
+
+        private final Runnable abortAction = this::abort;
+
+        CancellableInputStream(InputStream in, ModelStreamCancellation cancellation) {
+            super(in);
+            this.cancellation = cancellation;
+            cancellation.register(abortAction);
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkCancelled();
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            checkCancelled();
+            return super.read(b, off, len);
+        }
+
+        void release() {
+            cancellation.unregister(abortAction);
+        }
+
+        private void checkCancelled() throws IOException {
+            if (cancellation.isCancelled()) {
+                abort();
+                throw new IOException("生成已取消");
+            }
+        }
+
+        private void abort() {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // 连接已经不可用
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.ai.http;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 模型流取消句柄
+ * 一次生成对应一个句柄，生成期间发出的模型请求（包括工具调用后的后续请求）都会登记到句柄上，
+ * 取消时直接中断底层 HTTP 连接，模型不再继续输出。
+ * 句柄通过线程变量传递给 CancellableHttpClient：订阅生成流时绑定，模型回调线程中继续沿用
+ */
+@Slf4j
+public class ModelStreamCancellation {
+
+    private static final ThreadLocal<ModelStreamCancellation> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 根句柄，子句柄随根句柄一起取消
+     */
+    private final ModelStreamCancellation root;
+
+    /**
+     * 子句柄登记在根句柄上的取消操作
+     */
+    private Runnable rootAbortAction;
+
+    /**
+     * 正在进行的模型响应流的中断操作
+     */
+    private final Set<Runnable> abortActions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 已输出的流式片段数，用于取消统计；准确的 token 用量见 inputTokens / outputTokens
+     */
+    private final AtomicLong outputChunks = new AtomicLong();
+
+    /**
+     * 已发出的模型请求数（每次工具调用后都会发出一次后续请求），记录在根句柄上
+     */
+    private final AtomicLong modelRequests = new AtomicLong();
+
+    /**
+     * 模型返回的输入、输出 token 数，累计本次生成所有已完成的模型请求，记录在根句柄上
+     */
+    private final AtomicLong inputTokens = new AtomicLong();
+
+    private final AtomicLong outputTokens = new AtomicLong();
+
+    @Getter
+    private volatile boolean cancelled;
+
+    /**
+     * 是否已经收到模型的响应事件。工具调用和思考过程不产生文本片段，用响应事件判断模型是否已经开始响应
+     */
+    @Getter
+    private volatile boolean responding;
+
+    /**
+     * 取消原因
+     */
+    @Getter
+    private volatile String reason;
+
+    public ModelStreamCancellation() {
+        this(null);
+    }
+
+    private ModelStreamCancellation(ModelStreamCancellation root) {
+        this.root = root;
+    }
+
+    /**
+     * 获取当前线程绑定的取消句柄
+     *
+     * @return 取消句柄，未绑定返回 null
+     */
+    public static ModelStreamCancellation current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 在绑定当前句柄的情况下执行
+     *
+     * @param action 要执行的操作
+     */
+    public void runWith(Runnable action) {
+        ModelStreamCancellation previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            action.run();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 将生成流绑定到当前句柄：订阅时发出的模型请求都可以被取消，并统计输出片段数
+     *
+     * @param flux 生成流
+     * @return 绑定后的生成流
+     */
+    public <T> Flux<T> bind(Flux<T> flux) {
+        Flux<T> countedFlux = flux.doOnNext(item -> outputChunks.incrementAndGet());
+        return Flux.from(subscriber -> runWith(() -> countedFlux.subscribe(subscriber)));
+    }
+
+    /**
+     * 取消生成，中断所有正在进行的模型响应流
+     *
+     * @param reason 取消原因
+     */
+    public void cancel(String reason) {
+        if (cancelled) {
+            return;
+        }
+        this.reason = reason;
+        this.cancelled = true;
+        for (Runnable abortAction : abortActions) {
+            try {
+                abortAction.run();
+            } catch (Exception e) {
+                log.warn("中断模型响应流失败: {}", e.getMessage());
+            }
+        }
+        abortActions.clear();
+    }
+
+    /**
+     * 创建子句柄：根句柄取消时子句柄随之取消，子句柄单独取消不影响根句柄。
+     * 用于同一次生成中需要单独取消的模型请求，例如对冲请求中落后的一方
+     *
+     * @return 子句柄
+     */
+    public ModelStreamCancellation child() {
+        ModelStreamCancellation rootCancellation = root != null ? root : this;
+        ModelStreamCancellation child = new ModelStreamCancellation(rootCancellation);
+        child.rootAbortAction = () -> child.cancel(rootCancellation.reason);
+        rootCancellation.register(child.rootAbortAction);
+        return child;
+    }
+
+    /**
+     * 子句柄不再使用时解除与根句柄的关联
+     */
+    public void release() {
+        if (root != null) {
+            root.unregister(rootAbortAction);
+        }
+    }
+
+    /**
+     * 已输出的流式片段数
+     */
+    public long getOutputChunks() {
+        return outputChunks.get();
+    }
+
+    /**
+     * 记录收到模型的响应事件
+     */
+    public void recordResponseEvent() {
+        responding = true;
+    }
+
+    /**
+     * 记录一次模型请求
+     */
+    public void recordModelRequest() {
+        (root != null ? root : this).modelRequests.incrementAndGet();
+    }
+
+    /**
+     * 本次生成已发出的模型请求数（包括对冲和故障转移发出的请求）
+     */
+    public long getModelRequests() {
+        return (root != null ? root : this).modelRequests.get();
+    }
+
+    /**
+     * 记录一次已完成的模型请求返回的 token 用量
+     *
+     * @param inputTokens  输入 token 数
+     * @param outputTokens 输出 token 数
+     */
+    public void recordTokenUsage(long inputTokens, long outputTokens) {
+        ModelStreamCancellation target = root != null ? root : this;
+        target.inputTokens.addAndGet(inputTokens);
+        target.outputTokens.addAndGet(outputTokens);
+    }
+
+    /**
+     * 本次生成累计的输入 token 数（模型返回的用量，失败或被取消的请求没有用量）
+     */
+    public long getInputTokens() {
+        return (root != null ? root : this).inputTokens.get();
+    }
+
+    /**
+     * 本次生成累计的输出 token 数（模型返回的用量，失败或被取消的请求没有用量）
+     */
+    public long getOutputTokens() {
+        return (root != null ? root : this).outputTokens.get();
+    }
+
+    /**
+     * 登记模型响应流的中断操作，已取消时立即执行
+     */
+    public void register(Runnable abortAction) {
+        abortActions.add(abortAction);
+        if (cancelled && abortActions.remove(abortAction)) {
+            abortAction.run();
+        }
+    }
+
+    /**
+     * 模型响应流结束后解除登记
+     */
+    public void unregister(Runnable abortAction) {
+        abortActions.remove(abortAction);
+    }
+}
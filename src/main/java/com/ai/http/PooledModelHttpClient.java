@@ -0,0 +1,258 @@
+package com.ai.http;
+
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于共享传输层的模型 HTTP 客户端
+ * 每个模型实例持有自己的客户端对象（只保存超时配置），请求都走共享的 JDK HTTP 客户端，
+ * 流式响应在共享的有界线程池中读取。取消时关闭响应流即可中断连接（HTTP/2 下只重置当前流）。
+ * 请求超时只覆盖等待响应头，响应流另外按读超时检查空闲：超过读超时没有收到数据时关闭响应流，
+ * 避免服务商中途停止输出时读取线程一直阻塞
+ */
+@Slf4j
+public class PooledModelHttpClient implements HttpClient {
+
+    /**
+     * JDK HTTP 客户端自行管理的请求头，不能手动设置
+     */
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+    private final SharedModelHttpTransport transport;
+
+    private final Duration connectTimeout;
+
+    private final Duration readTimeout;
+
+    public PooledModelHttpClient(SharedModelHttpTransport transport, Duration connectTimeout, Duration readTimeout) {
+        this.transport = transport;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    @Override
+    public SuccessfulHttpResponse execute(HttpRequest request) throws HttpException, RuntimeException {
+        transport.onRequestStart(false);
+        try {
+            HttpResponse<String> response = transport.getHttpClient(connectTimeout)
+                    .send(toJdkRequest(request), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            transport.onResponse(response.version());
+            if (!isSuccessful(response.statusCode())) {
+                throw new HttpException(response.statusCode(), response.body());
+            }
+            return SuccessfulHttpResponse.builder()
+                    .statusCode(response.statusCode())
+                    .headers(response.headers().map())
+                    .body(response.body())
+                    .build();
+        } catch (IOException e) {
+            transport.onFailed();
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            transport.onFailed();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (RuntimeException e) {
+            transport.onFailed();
+            throw e;
+        } finally {
+            transport.onRequestEnd();
+        }
+    }
+
+    @Override
+    public void execute(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+        try {
+            transport.getStreamExecutor().execute(() -> executeStream(request, parser, listener));
+        } catch (RejectedExecutionException e) {
+            transport.onRejected();
+            listener.onError(new RejectedExecutionException("模型流式请求过多，请稍后再试", e));
+        }
+    }
+
+    private void executeStream(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+        transport.onRequestStart(true);
+        try {
+            HttpResponse<InputStream> response = transport.getHttpClient(connectTimeout)
+                    .send(toJdkRequest(request), HttpResponse.BodyHandlers.ofInputStream());
+            transport.onResponse(response.version());
+            try (InputStream body = watchIdle(response.body())) {
+                if (!isSuccessful(response.statusCode())) {
+                    transport.onFailed();
+                    listener.onError(new HttpException(response.statusCode(),
+                            new String(body.readAllBytes(), StandardCharsets.UTF_8)));
+                    return;
+                }
+                listener.onOpen(SuccessfulHttpResponse.builder()
+                        .statusCode(response.statusCode())
+                        .headers(response.headers().map())
+                        .build());
+                parser.parse(body, listener);
+            }
+            listener.onClose();
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            transport.onFailed();
+            listener.onError(e);
+        } finally {
+            transport.onRequestEnd();
+        }
+    }
+
+    private InputStream watchIdle(InputStream body) {
+        if (readTimeout == null || readTimeout.isZero() || readTimeout.isNegative()) {
+            return body;
+        }
+        return new IdleTimeoutInputStream(body, transport.getIdleWatchdog(), readTimeout);
+    }
+
+    private java.net.http.HttpRequest toJdkRequest(HttpRequest request) {
+        java.net.http.HttpRequest.Builder builder = java.net.http.HttpRequest.newBuilder(URI.create(request.url()));
+        if (readTimeout != null) {
+            builder.timeout(readTimeout);
+        }
+        if (request.headers() != null) {
+            request.headers().forEach((name, values) -> {
+                if (RESTRICTED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                    return;
+                }
+                for (String value : values) {
+                    builder.header(name, value);
+                }
+            });
+        }
+        java.net.http.HttpRequest.BodyPublisher bodyPublisher = request.body() == null
+                ? java.net.http.HttpRequest.BodyPublishers.noBody()
+                : java.net.http.HttpRequest.BodyPublishers.ofString(request.body(), StandardCharsets.UTF_8);
+        return builder.method(request.method().name(), bodyPublisher).build();
+    }
+
+    private boolean isSuccessful(int statusCode) {
+        return statusCode >= 200 && statusCode < 300;
+    }
+
+    /**
+     * 超过读超时没有读到数据时关闭响应流，阻塞中的读取随即失败
+     */
+    private static class IdleTimeoutInputStream extends FilterInputStream {
+
+        private final ScheduledExecutorService watchdog;
+
+        private final long timeoutNanos;
+
+        private volatile long lastReadNanos = System.nanoTime();
+
+        private volatile boolean timedOut;
+
+        private volatile boolean closed;
+
+        private volatile ScheduledFuture<?> pendingCheck;
+
+        IdleTimeoutInputStream(InputStream in, ScheduledExecutorService watchdog, Duration timeout) {
+            super(in);
+            this.watchdog = watchdog;
+            this.timeoutNanos = timeout.toNanos();
+            scheduleCheck(timeoutNanos);
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkTimedOut();
+            try {
+                int result = super.read();
+                lastReadNanos = System.nanoTime();
+                return result;
+            } catch (IOException e) {
+                throw timedOut ? timeoutException(e) : e;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            checkTimedOut();
+            try {
+                int count = super.read(b, off, len);
+                lastReadNanos = System.nanoTime();
+                return count;
+            } catch (IOException e) {
+                throw timedOut ? timeoutException(e) : e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            ScheduledFuture<?> check = pendingCheck;
+            if (check != null) {
+                check.cancel(false);
+            }
+            super.close();
+        }
+
+        private void scheduleCheck(long delayNanos) {
+            if (closed) {
+                return;
+            }
+            try {
+                pendingCheck = watchdog.schedule(this::check, delayNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // 应用关闭中，不再检查
+            }
+        }
+
+        private void check() {
+            if (closed) {
+                return;
+            }
+            long idleNanos = System.nanoTime() - lastReadNanos;
+            if (idleNanos < timeoutNanos) {
+                scheduleCheck(timeoutNanos - idleNanos);
+                return;
+            }
+            timedOut = true;
+            log.warn("模型响应流超过 {} ms 没有数据，关闭连接", TimeUnit.NANOSECONDS.toMillis(timeoutNanos));
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // 连接已经不可用
+            }
+        }
+
+        private void checkTimedOut() throws IOException {
+            if (timedOut) {
+                throw timeoutException(null);
+            }
+        }
+
+        private IOException timeoutException(IOException cause) {
+            HttpTimeoutException exception = new HttpTimeoutException(
+                    "模型响应流超过 " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms 没有数据");
+            if (cause != null) {
+                exception.initCause(cause);
+            }
+            return exception;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.ai.http;
+
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpClientBuilder;
+
+import java.time.Duration;
+
+/**
+ * 共享传输层的 HTTP 客户端构建器
+ * 连接超时决定使用哪个共享的 JDK 客户端；读超时同时作为等待响应头的超时和响应流的空闲超时
+ */
+public class PooledModelHttpClientBuilder implements HttpClientBuilder {
+
+    private final SharedModelHttpTransport transport;
+
+    private Duration connectTimeout;
+
+    private Duration readTimeout;
+
+    public PooledModelHttpClientBuilder(SharedModelHttpTransport transport) {
+        this.transport = transport;
+    }
+
+    @Override
+    public Duration connectTimeout() {
+        return connectTimeout;
+    }
+
+    @Override
+    public HttpClientBuilder connectTimeout(Duration timeout) {
+        this.connectTimeout = timeout;
+        return this;
+    }
+
+    @Override
+    public Duration readTimeout() {
+        return readTimeout;
+    }
+
+    @Override
+    public HttpClientBuilder readTimeout(Duration timeout) {
+        this.readTimeout = timeout;
+        return this;
+    }
+
+    @Override
+    public HttpClient build() {
+        return new PooledModelHttpClient(transport, connectTimeout, readTimeout);
+    }
+}
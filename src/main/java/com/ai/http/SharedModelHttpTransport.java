@@ -0,0 +1,160 @@
+package com.ai.http;
+
+import com.config.ModelHttpConfig;
+import com.model.vo.ModelHttpStatsVO;
+import dev.langchain4j.http.client.HttpClientBuilder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 模型共享 HTTP 传输层
+ * 多例模型（每个应用一个）只是请求状态彼此隔离，底层共用一个 JDK HTTP 客户端和一个有界的流式请求线程池，
+ * 避免每个模型实例各自创建连接池和线程池。JDK 客户端会复用空闲连接，服务端支持时通过 HTTP/2 在同一连接上多路复用。
+ * JDK 客户端的连接超时只能在创建时指定，模型 Bean 指定了不同的连接超时时，按连接超时各自共享一个客户端
+ */
+@Slf4j
+@Component
+public class SharedModelHttpTransport {
+
+    @Resource
+    private ModelHttpConfig modelHttpConfig;
+
+    /**
+     * 按连接超时共享的 JDK HTTP 客户端
+     */
+    private final Map<Duration, HttpClient> httpClients = new ConcurrentHashMap<>();
+
+    @Getter
+    private ThreadPoolExecutor streamExecutor;
+
+    /**
+     * 检查响应流空闲超时的调度线程
+     */
+    @Getter
+    private ScheduledExecutorService idleWatchdog;
+
+    private final LongAdder requestCount = new LongAdder();
+
+    private final LongAdder streamCount = new LongAdder();
+
+    private final LongAdder failedCount = new LongAdder();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private final LongAdder http2ResponseCount = new LongAdder();
+
+    private final LongAdder http1ResponseCount = new LongAdder();
+
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+
+    @PostConstruct
+    public void init() {
+        streamExecutor = new ThreadPoolExecutor(modelHttpConfig.getMaxStreams(), modelHttpConfig.getMaxStreams(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(modelHttpConfig.getQueueCapacity(), 1)),
+                Thread.ofPlatform().name("model-stream-", 0).daemon().factory());
+        streamExecutor.allowCoreThreadTimeOut(true);
+        idleWatchdog = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("model-stream-watchdog").daemon().factory());
+        log.info("模型共享 HTTP 传输层已初始化，HTTP/2：{}，流式请求上限：{}",
+                modelHttpConfig.isHttp2Enabled(), modelHttpConfig.getMaxStreams());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (streamExecutor != null) {
+            streamExecutor.shutdownNow();
+        }
+        if (idleWatchdog != null) {
+            idleWatchdog.shutdownNow();
+        }
+        httpClients.values().forEach(HttpClient::shutdownNow);
+    }
+
+    /**
+     * 获取指定连接超时的共享 JDK HTTP 客户端
+     *
+     * @param connectTimeout 连接超时，为 null 时使用配置的连接超时
+     * @return JDK HTTP 客户端
+     */
+    public HttpClient getHttpClient(Duration connectTimeout) {
+        Duration timeout = connectTimeout != null ? connectTimeout : Duration.ofSeconds(modelHttpConfig.getConnectTimeoutSeconds());
+        return httpClients.computeIfAbsent(timeout, key -> HttpClient.newBuilder()
+                .version(modelHttpConfig.isHttp2Enabled() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(key)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build());
+    }
+
+    /**
+     * 创建使用共享传输层的 HTTP 客户端构建器，交给模型 Bean 使用
+     *
+     * @return HTTP 客户端构建器
+     */
+    public HttpClientBuilder httpClientBuilder() {
+        return new PooledModelHttpClientBuilder(this);
+    }
+
+    /**
+     * 获取传输层统计
+     */
+    public ModelHttpStatsVO getStats() {
+        ModelHttpStatsVO statsVO = new ModelHttpStatsVO();
+        statsVO.setHttp2Enabled(modelHttpConfig.isHttp2Enabled());
+        statsVO.setRequestCount(requestCount.sum());
+        statsVO.setStreamCount(streamCount.sum());
+        statsVO.setFailedCount(failedCount.sum());
+        statsVO.setRejectedCount(rejectedCount.sum());
+        statsVO.setHttp2ResponseCount(http2ResponseCount.sum());
+        statsVO.setHttp1ResponseCount(http1ResponseCount.sum());
+        statsVO.setInFlightRequests(inFlightRequests.get());
+        statsVO.setActiveStreams(streamExecutor.getActiveCount());
+        statsVO.setQueuedStreams(streamExecutor.getQueue().size());
+        statsVO.setMaxStreams(streamExecutor.getMaximumPoolSize());
+        statsVO.setPoolThreads(streamExecutor.getPoolSize());
+        return statsVO;
+    }
+
+    void onRequestStart(boolean streaming) {
+        requestCount.increment();
+        if (streaming) {
+            streamCount.increment();
+        }
+        inFlightRequests.incrementAndGet();
+    }
+
+    void onRequestEnd() {
+        inFlightRequests.decrementAndGet();
+    }
+
+    void onResponse(HttpClient.Version version) {
+        if (version == HttpClient.Version.HTTP_2) {
+            http2ResponseCount.increment();
+        } else {
+            http1ResponseCount.increment();
+        }
+    }
+
+    void onFailed() {
+        failedCount.increment();
+    }
+
+    void onRejected() {
+        rejectedCount.increment();
+    }
+}
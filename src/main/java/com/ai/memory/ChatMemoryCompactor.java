@@ -0,0 +1,340 @@
+package com.ai.memory;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.TokenCountEstimator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * 对话记忆压缩器
+ * 1. 旧版本的完整代码替换为固定的占位说明（只保留最近一次包含代码的回复），当前文件列表只附加在最新一轮的用户消息后
+ * 2. 之前轮次中较长的工具参数和工具结果替换为占位说明
+ * 3. 超出 token 预算时，把最早的轮次折叠为摘要，摘要随对话滚动
+ * 压缩只作用于发送给模型的消息，Redis 中保存的仍是完整消息。
+ * 压缩结果在同一轮对话内保持不变（文件列表按轮次取快照，折叠轮数按步长取整），之前轮次的内容不随文件变化，
+ * 使多次请求的前缀一致，便于命中模型服务商的前缀缓存
+ */
+public class ChatMemoryCompactor {
+
+    private static final Pattern CODE_BLOCK_PATTERN = Pattern.compile("```[\\s\\S]*?(```|$)");
+
+    /**
+     * 超过该长度的工具参数值和工具结果视为大段内容
+     */
+    private static final int LONG_TOOL_TEXT = 500;
+
+    /**
+     * 工具参数中的文件内容字段（writeFile 的参数、writeFiles 每个文件项），之前写入的内容已被后续版本取代，
+     * 超过该长度就省略
+     */
+    private static final String FILE_CONTENT_KEY = "content";
+
+    private static final int LONG_FILE_CONTENT = 100;
+
+    /**
+     * 摘要最多保留的轮数，更早的只记录数量
+     */
+    private static final int MAX_SUMMARY_ENTRIES = 30;
+
+    /**
+     * 折叠轮数按该步长向上取整，摘要不会每轮都变化
+     */
+    private static final int FOLD_STEP = 4;
+
+    private static final String SUMMARY_ACK = "好的，我已了解之前的对话内容。";
+
+    private static final String OMITTED_CODE = "[旧版本代码已省略，当前代码文件见最新的用户消息]";
+
+    private final TokenCountEstimator tokenCountEstimator;
+
+    private final int tokenBudget;
+
+    private final int keepRecentTurns;
+
+    private final int summaryEntryChars;
+
+    /**
+     * 当前代码文件的说明，省略了旧代码时附加在最新一轮的用户消息后
+     */
+    private final Supplier<String> fileReference;
+
+    /**
+     * 文件列表快照对应的轮数，同一轮内的多次请求（工具调用后的后续请求）沿用同一快照
+     */
+    private int referenceTurnCount = -1;
+
+    private String referenceSnapshot;
+
+    public ChatMemoryCompactor(TokenCountEstimator tokenCountEstimator, int tokenBudget, int keepRecentTurns,
+                               int summaryEntryChars, Supplier<String> fileReference) {
+        this.tokenCountEstimator = tokenCountEstimator;
+        this.tokenBudget = tokenBudget;
+        this.keepRecentTurns = Math.max(keepRecentTurns, 1);
+        this.summaryEntryChars = summaryEntryChars;
+        this.fileReference = fileReference;
+    }
+
+    /**
+     * 压缩消息
+     *
+     * @param messages 完整消息
+     * @return 压缩结果
+     */
+    public CompactResult compact(List<ChatMessage> messages) {
+        int beforeTokens = tokenCountEstimator.estimateTokenCountInMessages(messages);
+        SystemMessage systemMessage = null;
+        List<List<ChatMessage>> turns = new ArrayList<>();
+        for (ChatMessage message : messages) {
+            if (message instanceof SystemMessage system) {
+                systemMessage = system;
+                continue;
+            }
+            if (message instanceof UserMessage || turns.isEmpty()) {
+                turns.add(new ArrayList<>());
+            }
+            turns.get(turns.size() - 1).add(message);
+        }
+        boolean codeOmitted = false;
+        int latestCodeMessage = findLatestCodeMessage(turns);
+        int messageIndex = 0;
+        for (int turnIndex = 0; turnIndex < turns.size(); turnIndex++) {
+            List<ChatMessage> turn = turns.get(turnIndex);
+            boolean currentTurn = turnIndex == turns.size() - 1;
+            for (int i = 0; i < turn.size(); i++, messageIndex++) {
+                ChatMessage message = turn.get(i);
+                ChatMessage replacement = null;
+                if (message instanceof AiMessage aiMessage && messageIndex != latestCodeMessage && hasCode(aiMessage.text())) {
+                    codeOmitted = true;
+                    replacement = stripCode(aiMessage);
+                } else if (!currentTurn) {
+                    // 当前轮的工具调用仍在进行，不做改动
+                    replacement = shrinkToolMessage(message);
+                }
+                if (replacement != null) {
+                    turn.set(i, replacement);
+                }
+            }
+        }
+        // 文件列表只出现在最新一轮，文件变化时不影响之前轮次的前缀
+        List<ChatMessage> latestTurn = turns.isEmpty() ? null : turns.get(turns.size() - 1);
+        if (codeOmitted && latestTurn.get(0) instanceof UserMessage userMessage) {
+            latestTurn.set(0, appendText(userMessage, currentFileReference(turns.size())));
+        }
+        // 超出预算时把最早的轮次折叠为摘要
+        int[] turnTokens = turns.stream().mapToInt(tokenCountEstimator::estimateTokenCountInMessages).toArray();
+        int fixedTokens = systemMessage == null ? 0 : tokenCountEstimator.estimateTokenCountInMessage(systemMessage);
+        int turnTotal = 0;
+        for (int tokens : turnTokens) {
+            turnTotal += tokens;
+        }
+        List<String> summaryEntries = new ArrayList<>();
+        int foldedTurns = 0;
+        int summaryTokens = 0;
+        while (fixedTokens + summaryTokens + turnTotal > tokenBudget && turns.size() - foldedTurns > keepRecentTurns) {
+            summaryEntries.add(summarizeTurn(turns.get(foldedTurns)));
+            turnTotal -= turnTokens[foldedTurns];
+            foldedTurns++;
+            summaryTokens = tokenCountEstimator.estimateTokenCountInMessages(buildSummaryMessages(summaryEntries));
+        }
+        // 按步长多折叠几轮，之后几轮对话不需要再改动摘要
+        while (foldedTurns > 0 && foldedTurns % FOLD_STEP != 0 && turns.size() - foldedTurns > keepRecentTurns) {
+            summaryEntries.add(summarizeTurn(turns.get(foldedTurns)));
+            foldedTurns++;
+        }
+        List<ChatMessage> result = new ArrayList<>();
+        if (systemMessage != null) {
+            result.add(systemMessage);
+        }
+        if (!summaryEntries.isEmpty()) {
+            result.addAll(buildSummaryMessages(summaryEntries));
+        }
+        for (int i = foldedTurns; i < turns.size(); i++) {
+            result.addAll(turns.get(i));
+        }
+        int afterTokens = tokenCountEstimator.estimateTokenCountInMessages(result);
+        return new CompactResult(result, beforeTokens, afterTokens, foldedTurns);
+    }
+
+    /**
+     * 获取当前代码文件的说明，同一轮对话内使用同一快照，避免工具写入文件后请求前缀发生变化
+     */
+    private synchronized String currentFileReference(int turnCount) {
+        if (referenceSnapshot == null || referenceTurnCount != turnCount) {
+            referenceSnapshot = fileReference.get();
+            referenceTurnCount = turnCount;
+        }
+        return referenceSnapshot;
+    }
+
+    /**
+     * 最近一次包含代码的 AI 回复在全部消息（不含系统消息）中的位置，没有返回 -1
+     */
+    private int findLatestCodeMessage(List<List<ChatMessage>> turns) {
+        int messageIndex = 0;
+        int latest = -1;
+        for (List<ChatMessage> turn : turns) {
+            for (ChatMessage message : turn) {
+                if (message instanceof AiMessage aiMessage && hasCode(aiMessage.text())) {
+                    latest = messageIndex;
+                }
+                messageIndex++;
+            }
+        }
+        return latest;
+    }
+
+    private boolean hasCode(String text) {
+        return text != null && text.contains("```");
+    }
+
+    private AiMessage stripCode(AiMessage aiMessage) {
+        String text = CODE_BLOCK_PATTERN.matcher(aiMessage.text()).replaceAll(OMITTED_CODE).trim();
+        return aiMessage.hasToolExecutionRequests()
+                ? AiMessage.from(text, aiMessage.toolExecutionRequests())
+                : AiMessage.from(text);
+    }
+
+    private UserMessage appendText(UserMessage userMessage, String text) {
+        if (userMessage.hasSingleText()) {
+            String mergedText = userMessage.singleText() + "\n\n" + text;
+            return userMessage.name() == null ? UserMessage.from(mergedText) : UserMessage.from(userMessage.name(), mergedText);
+        }
+        List<Content> contents = new ArrayList<>(userMessage.contents());
+        contents.add(TextContent.from(text));
+        return userMessage.name() == null ? UserMessage.from(contents) : UserMessage.from(userMessage.name(), contents);
+    }
+
+    /**
+     * 缩短工具调用中的大段内容（写入的文件内容、读取到的文件内容）
+     */
+    private ChatMessage shrinkToolMessage(ChatMessage message) {
+        if (message instanceof ToolExecutionResultMessage resultMessage) {
+            if (StrUtil.length(resultMessage.text()) <= LONG_TOOL_TEXT) {
+                return null;
+            }
+            return ToolExecutionResultMessage.from(resultMessage.id(), resultMessage.toolName(),
+                    StrUtil.maxLength(resultMessage.text(), LONG_TOOL_TEXT) + "（之前的工具结果已省略）");
+        }
+        if (message instanceof AiMessage aiMessage && aiMessage.hasToolExecutionRequests()) {
+            boolean changed = false;
+            List<ToolExecutionRequest> requests = new ArrayList<>();
+            for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                String arguments = shrinkArguments(request.arguments());
+                changed |= !arguments.equals(request.arguments());
+                requests.add(ToolExecutionRequest.builder()
+                        .id(request.id())
+                        .name(request.name())
+                        .arguments(arguments)
+                        .build());
+            }
+            if (!changed) {
+                return null;
+            }
+            return aiMessage.text() == null ? AiMessage.from(requests) : AiMessage.from(aiMessage.text(), requests);
+        }
+        return null;
+    }
+
+    /**
+     * 工具参数是 JSON，缩短其中较长的字符串值（包括嵌套的对象和数组，如 writeFiles 的文件列表），保证结果仍是合法的 JSON
+     */
+    private String shrinkArguments(String arguments) {
+        if (StrUtil.length(arguments) <= LONG_TOOL_TEXT || !JSONUtil.isTypeJSONObject(arguments)) {
+            return arguments;
+        }
+        JSONObject jsonObject = JSONUtil.parseObj(arguments);
+        shrinkJson(jsonObject);
+        return jsonObject.toString();
+    }
+
+    private void shrinkJson(Object json) {
+        if (json instanceof JSONObject jsonObject) {
+            for (String key : jsonObject.keySet()) {
+                Object value = jsonObject.get(key);
+                int limit = FILE_CONTENT_KEY.equals(key) ? LONG_FILE_CONTENT : LONG_TOOL_TEXT;
+                if (value instanceof String text && text.length() > limit) {
+                    jsonObject.set(key, omitted(text));
+                } else {
+                    shrinkJson(value);
+                }
+            }
+        } else if (json instanceof JSONArray jsonArray) {
+            for (int i = 0; i < jsonArray.size(); i++) {
+                Object value = jsonArray.get(i);
+                if (value instanceof String text && text.length() > LONG_TOOL_TEXT) {
+                    jsonArray.set(i, omitted(text));
+                } else {
+                    shrinkJson(value);
+                }
+            }
+        }
+    }
+
+    private String omitted(String text) {
+        return "（之前写入的内容已省略，共 " + text.length() + " 个字符）";
+    }
+
+    private String summarizeTurn(List<ChatMessage> turn) {
+        String userText = "";
+        StringBuilder aiText = new StringBuilder();
+        List<String> toolNames = new ArrayList<>();
+        for (ChatMessage message : turn) {
+            if (message instanceof UserMessage userMessage && userMessage.hasSingleText()) {
+                userText = userMessage.singleText();
+            } else if (message instanceof AiMessage aiMessage) {
+                if (StrUtil.isNotBlank(aiMessage.text())) {
+                    aiText.append(CODE_BLOCK_PATTERN.matcher(aiMessage.text()).replaceAll("[代码]")).append(' ');
+                }
+                if (aiMessage.hasToolExecutionRequests()) {
+                    aiMessage.toolExecutionRequests().forEach(request -> toolNames.add(request.name()));
+                }
+            }
+        }
+        String entry = "用户：" + abbreviate(userText) + "；AI：" + abbreviate(aiText.toString());
+        if (!toolNames.isEmpty()) {
+            entry += "（调用工具 " + toolNames.size() + " 次）";
+        }
+        return entry;
+    }
+
+    private List<ChatMessage> buildSummaryMessages(List<String> summaryEntries) {
+        StringBuilder summary = new StringBuilder("以下是之前对话的摘要：\n");
+        int start = Math.max(0, summaryEntries.size() - MAX_SUMMARY_ENTRIES);
+        if (start > 0) {
+            summary.append("（更早的 ").append(start).append(" 轮对话已省略）\n");
+        }
+        for (int i = start; i < summaryEntries.size(); i++) {
+            summary.append(i + 1).append(". ").append(summaryEntries.get(i)).append('\n');
+        }
+        return List.of(UserMessage.from(summary.toString()), AiMessage.from(SUMMARY_ACK));
+    }
+
+    private String abbreviate(String text) {
+        return StrUtil.maxLength(StrUtil.trim(text).replaceAll("\\s+", " "), summaryEntryChars);
+    }
+
+    /**
+     * 压缩结果
+     *
+     * @param messages     压缩后的消息
+     * @param beforeTokens 压缩前的 token 数（估算）
+     * @param afterTokens  压缩后的 token 数（估算）
+     * @param foldedTurns  折叠为摘要的轮数
+     */
+    public record CompactResult(List<ChatMessage> messages, int beforeTokens, int afterTokens, int foldedTurns) {
+    }
+}
@@ -0,0 +1,221 @@
+package com.ai.memory;
+
+import cn.hutool.core.collection.CollUtil;
+import com.model.entity.ChatHistory;
+import com.model.enums.ChatHistoryMessageTypeEnum;
+import com.model.vo.ChatMemoryHydrationStatsVO;
+import com.service.ChatHistoryService;
+import dev.langchain4j.community.store.memory.chat.redis.RedisChatMemoryStore;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import jakarta.annotation.Resource;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对话记忆预热
+ * Redis 中的对话记忆带有版本号（已同步到的最新一条对话历史 id）：
+ * 版本号与数据库一致时直接使用 Redis 中的记忆；落后时只补充缺少的对话历史；
+ * 没有版本号、记忆为空或版本号对应的对话历史已不存在时才从数据库全量加载
+ */
+@Slf4j
+@Component
+public class ChatMemoryHydrator {
+
+    private static final String VERSION_KEY_PREFIX = "chat_memory:version:";
+
+    private static final Duration VERSION_TTL = Duration.ofDays(7);
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    @Resource
+    private RedisChatMemoryStore redisChatMemoryStore;
+
+    @Autowired
+    @Lazy
+    private ChatHistoryService chatHistoryService;
+
+    private final Map<HydrationMode, LongAdder> counts = new EnumMap<>(HydrationMode.class);
+
+    private final Map<HydrationMode, LongAdder> totalMillis = new EnumMap<>(HydrationMode.class);
+
+    public ChatMemoryHydrator() {
+        for (HydrationMode mode : HydrationMode.values()) {
+            counts.put(mode, new LongAdder());
+            totalMillis.put(mode, new LongAdder());
+        }
+    }
+
+    /**
+     * 预热应用的对话记忆
+     *
+     * @param appId      应用 ID
+     * @param chatMemory 对话记忆
+     * @param maxCount   最多加载的对话历史条数
+     */
+    public void hydrate(long appId, ChatMemory chatMemory, int maxCount) {
+        long startTime = System.currentTimeMillis();
+        HydrationMode mode;
+        try {
+            mode = doHydrate(appId, chatMemory, maxCount);
+        } catch (Exception e) {
+            log.error("预热应用 {} 的对话记忆失败，改为全量加载: {}", appId, e.getMessage());
+            mode = fullLoad(appId, chatMemory, maxCount);
+        }
+        long duration = System.currentTimeMillis() - startTime;
+        counts.get(mode).increment();
+        totalMillis.get(mode).add(duration);
+        log.info("应用 {} 的对话记忆预热完成，方式：{}，耗时 {} ms", appId, mode.getText(), duration);
+    }
+
+    /**
+     * 对话记忆已包含最新的对话历史（一轮生成正常结束），推进版本号。
+     * 没有版本号时说明记忆还没有和数据库对齐过，不做处理
+     *
+     * @param appId 应用 ID
+     */
+    public void markSynced(long appId) {
+        try {
+            RBucket<String> versionBucket = getVersionBucket(appId);
+            if (!versionBucket.isExists()) {
+                return;
+            }
+            Long latestId = chatHistoryService.getLatestChatHistoryId(appId);
+            if (latestId != null) {
+                versionBucket.set(String.valueOf(latestId), VERSION_TTL);
+            }
+        } catch (Exception e) {
+            log.warn("更新应用 {} 的对话记忆版本失败: {}", appId, e.getMessage());
+        }
+    }
+
+    /**
+     * 获取各预热方式的次数和平均耗时
+     */
+    public List<ChatMemoryHydrationStatsVO> getStatsList() {
+        List<ChatMemoryHydrationStatsVO> statsList = new ArrayList<>();
+        for (HydrationMode mode : HydrationMode.values()) {
+            long count = counts.get(mode).sum();
+            ChatMemoryHydrationStatsVO statsVO = new ChatMemoryHydrationStatsVO();
+            statsVO.setMode(mode.getValue());
+            statsVO.setCount(count);
+            statsVO.setAvgMillis(count == 0 ? 0 : (double) totalMillis.get(mode).sum() / count);
+            statsList.add(statsVO);
+        }
+        return statsList;
+    }
+
+    private HydrationMode doHydrate(long appId, ChatMemory chatMemory, int maxCount) {
+        String version = getVersionBucket(appId).get();
+        List<ChatMessage> messages = redisChatMemoryStore.getMessages(appId);
+        if (version == null || CollUtil.isEmpty(messages)) {
+            return fullLoad(appId, chatMemory, maxCount);
+        }
+        // 第一条应为版本号对应的对话历史，之后的是记忆中可能缺少的部分
+        List<ChatHistory> historyList = chatHistoryService.listChatHistoryFromId(appId, Long.parseLong(version), maxCount + 1);
+        if (historyList.isEmpty() || !historyList.get(0).getId().equals(Long.parseLong(version)) || historyList.size() > maxCount) {
+            return fullLoad(appId, chatMemory, maxCount);
+        }
+        List<ChatHistory> deltaList = historyList.subList(1, historyList.size());
+        if (deltaList.isEmpty()) {
+            return HydrationMode.WARM;
+        }
+        mergeDelta(chatMemory, messages, deltaList);
+        getVersionBucket(appId).set(String.valueOf(deltaList.get(deltaList.size() - 1).getId()), VERSION_TTL);
+        return HydrationMode.DELTA;
+    }
+
+    /**
+     * 合并记忆中缺少的对话历史。
+     * 生成失败或被取消时，用户消息已经在记忆中，但错误提示只写入了数据库，因此逐条比对，记忆中已有的跳过
+     */
+    private void mergeDelta(ChatMemory chatMemory, List<ChatMessage> messages, List<ChatHistory> deltaList) {
+        int cursor = -1;
+        for (ChatHistory history : deltaList) {
+            ChatMessage message = toChatMessage(history);
+            if (message == null) {
+                continue;
+            }
+            int index = cursor < 0 ? messages.lastIndexOf(message) : indexOf(messages, message, cursor);
+            if (index >= 0) {
+                cursor = index + 1;
+                continue;
+            }
+            chatMemory.add(message);
+            // 后面的对话历史不会出现在本条之前
+            cursor = messages.size();
+        }
+    }
+
+    private int indexOf(List<ChatMessage> messages, ChatMessage message, int from) {
+        for (int i = from; i < messages.size(); i++) {
+            if (messages.get(i).equals(message)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private ChatMessage toChatMessage(ChatHistory history) {
+        if (ChatHistoryMessageTypeEnum.USER.getValue().equals(history.getMessageType())) {
+            return UserMessage.from(history.getMessage());
+        }
+        if (ChatHistoryMessageTypeEnum.AI.getValue().equals(history.getMessageType())) {
+            return AiMessage.from(history.getMessage());
+        }
+        return null;
+    }
+
+    private HydrationMode fullLoad(long appId, ChatMemory chatMemory, int maxCount) {
+        // 先取版本号再加载，加载期间新写入的对话历史会在下次预热时补充
+        Long latestId = chatHistoryService.getLatestChatHistoryId(appId);
+        chatHistoryService.loadChatHistoryToMemory(appId, chatMemory, maxCount);
+        RBucket<String> versionBucket = getVersionBucket(appId);
+        if (latestId == null) {
+            versionBucket.delete();
+        } else {
+            versionBucket.set(String.valueOf(latestId), VERSION_TTL);
+        }
+        return HydrationMode.FULL;
+    }
+
+    private RBucket<String> getVersionBucket(long appId) {
+        return redissonClient.getBucket(VERSION_KEY_PREFIX + appId, StringCodec.INSTANCE);
+    }
+
+    /**
+     * 预热方式
+     */
+    @Getter
+    private enum HydrationMode {
+
+        FULL("全量加载", "full"),
+        DELTA("增量补充", "delta"),
+        WARM("直接使用", "warm");
+
+        private final String text;
+
+        private final String value;
+
+        HydrationMode(String text, String value) {
+            this.text = text;
+            this.value = value;
+        }
+    }
+}
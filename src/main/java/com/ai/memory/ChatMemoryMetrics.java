@@ -0,0 +1,86 @@
+package com.ai.memory;
+
+import com.model.enums.CodeGenTypeEnum;
+import com.model.vo.ChatMemoryStatsVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对话记忆压缩统计
+ * 按代码生成类型统计每次模型请求中历史消息压缩前后的 token 数
+ */
+@Slf4j
+@Component
+public class ChatMemoryMetrics {
+
+    private final Map<CodeGenTypeEnum, Counter> counters = new EnumMap<>(CodeGenTypeEnum.class);
+
+    public ChatMemoryMetrics() {
+        for (CodeGenTypeEnum codeGenType : CodeGenTypeEnum.values()) {
+            counters.put(codeGenType, new Counter());
+        }
+    }
+
+    /**
+     * 记录一次压缩
+     *
+     * @param appId       应用 ID
+     * @param codeGenType 代码生成类型
+     * @param result      压缩结果
+     */
+    public void record(long appId, CodeGenTypeEnum codeGenType, ChatMemoryCompactor.CompactResult result) {
+        Counter counter = counters.get(codeGenType);
+        counter.requestCount.increment();
+        counter.beforeTokens.add(result.beforeTokens());
+        counter.afterTokens.add(result.afterTokens());
+        if (result.afterTokens() < result.beforeTokens()) {
+            counter.compactedCount.increment();
+        }
+        if (result.foldedTurns() > 0) {
+            counter.summarizedCount.increment();
+        }
+        log.info("应用 {} 的对话记忆 token 数（估算）：{} -> {}，折叠为摘要的轮数：{}",
+                appId, result.beforeTokens(), result.afterTokens(), result.foldedTurns());
+    }
+
+    /**
+     * 获取各代码生成类型的压缩统计
+     */
+    public List<ChatMemoryStatsVO> getStatsList() {
+        List<ChatMemoryStatsVO> statsList = new ArrayList<>();
+        counters.forEach((codeGenType, counter) -> {
+            long requests = counter.requestCount.sum();
+            long before = counter.beforeTokens.sum();
+            long after = counter.afterTokens.sum();
+            ChatMemoryStatsVO statsVO = new ChatMemoryStatsVO();
+            statsVO.setCodeGenType(codeGenType.getValue());
+            statsVO.setRequestCount(requests);
+            statsVO.setCompactedCount(counter.compactedCount.sum());
+            statsVO.setSummarizedCount(counter.summarizedCount.sum());
+            statsVO.setAvgBeforeTokens(requests == 0 ? 0 : before / requests);
+            statsVO.setAvgAfterTokens(requests == 0 ? 0 : after / requests);
+            statsVO.setSavedRatio(before == 0 ? 0 : (double) (before - after) / before);
+            statsList.add(statsVO);
+        });
+        return statsList;
+    }
+
+    private static class Counter {
+
+        private final LongAdder requestCount = new LongAdder();
+
+        private final LongAdder compactedCount = new LongAdder();
+
+        private final LongAdder summarizedCount = new LongAdder();
+
+        private final LongAdder beforeTokens = new LongAdder();
+
+        private final LongAdder afterTokens = new LongAdder();
+    }
+}
@@ -0,0 +1,96 @@
+package com.ai.memory;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 按 token 预算压缩的对话记忆
+ * 存储层按消息条数截断，保存完整消息；读取时由压缩器按 token 预算压缩后再交给模型，
+ * 每次读取都会上报压缩前后的 token 数
+ */
+@Slf4j
+public class TokenBudgetChatMemory implements ChatMemory {
+
+    private final Object id;
+
+    private final ChatMemoryStore chatMemoryStore;
+
+    private final int maxMessages;
+
+    private final ChatMemoryCompactor compactor;
+
+    private final Consumer<ChatMemoryCompactor.CompactResult> resultListener;
+
+    public TokenBudgetChatMemory(Object id, ChatMemoryStore chatMemoryStore, int maxMessages,
+                                 ChatMemoryCompactor compactor, Consumer<ChatMemoryCompactor.CompactResult> resultListener) {
+        this.id = id;
+        this.chatMemoryStore = chatMemoryStore;
+        this.maxMessages = maxMessages;
+        this.compactor = compactor;
+        this.resultListener = resultListener;
+    }
+
+    @Override
+    public Object id() {
+        return id;
+    }
+
+    @Override
+    public void add(ChatMessage message) {
+        List<ChatMessage> messages = new ArrayList<>(chatMemoryStore.getMessages(id));
+        if (message instanceof SystemMessage) {
+            // 只保留一条系统消息，内容相同时不重复添加
+            if (messages.contains(message)) {
+                return;
+            }
+            messages.removeIf(SystemMessage.class::isInstance);
+        }
+        messages.add(message);
+        evictOldest(messages);
+        chatMemoryStore.updateMessages(id, messages);
+    }
+
+    @Override
+    public List<ChatMessage> messages() {
+        List<ChatMessage> messages = new ArrayList<>(chatMemoryStore.getMessages(id));
+        ChatMemoryCompactor.CompactResult result = compactor.compact(messages);
+        try {
+            resultListener.accept(result);
+        } catch (Exception e) {
+            log.warn("记录对话记忆压缩结果失败: {}", e.getMessage());
+        }
+        return result.messages();
+    }
+
+    @Override
+    public void clear() {
+        chatMemoryStore.deleteMessages(id);
+    }
+
+    /**
+     * 超出条数上限时移除最早的消息（保留系统消息），被移除的工具调用对应的结果一起移除
+     */
+    private void evictOldest(List<ChatMessage> messages) {
+        while (messages.size() > maxMessages) {
+            int index = messages.get(0) instanceof SystemMessage ? 1 : 0;
+            if (index >= messages.size()) {
+                return;
+            }
+            ChatMessage evicted = messages.remove(index);
+            if (evicted instanceof AiMessage aiMessage && aiMessage.hasToolExecutionRequests()) {
+                while (index < messages.size() && messages.get(index) instanceof ToolExecutionResultMessage) {
+                    messages.remove(index);
+                }
+            }
+        }
+    }
+}
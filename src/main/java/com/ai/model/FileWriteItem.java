@@ -0,0 +1,24 @@
+package com.ai.model;
+
+import dev.langchain4j.model.output.structured.Description;
+import lombok.Data;
+
+/**
+ * 批量写入的单个文件
+ */
+@Description("要写入的文件")
+@Data
+public class FileWriteItem {
+
+    /**
+     * 文件的相对路径
+     */
+    @Description("文件的相对路径")
+    private String relativeFilePath;
+
+    /**
+     * 文件内容
+     */
+    @Description("要写入文件的完整内容")
+    private String content;
+}
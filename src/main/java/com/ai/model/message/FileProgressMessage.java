@@ -0,0 +1,43 @@
+package com.ai.model.message;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * 文件生成进度消息
+ * 分段并行生成时多个文件同时输出，AI 响应文本按文件顺序推送，各文件的实时进度通过该消息单独推送
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+public final class FileProgressMessage extends StreamMessage {
+
+    public static final String STATUS_GENERATING = "generating";
+
+    public static final String STATUS_COMPLETED = "completed";
+
+    public static final String STATUS_FAILED = "failed";
+
+    /**
+     * 文件名
+     */
+    private String file;
+
+    /**
+     * 生成状态：generating / completed / failed
+     */
+    private String status;
+
+    /**
+     * 已输出的字符数
+     */
+    private long chars;
+
+    public FileProgressMessage(String file, String status, long chars) {
+        super(StreamMessageTypeEnum.FILE_PROGRESS.getValue());
+        this.file = file;
+        this.status = status;
+        this.chars = chars;
+    }
+}
@@ -6,11 +6,12 @@ import lombok.NoArgsConstructor;
 
 /**
  * 流式消息响应基类
+ * 生成过程中的消息以对象形式在流中传递，只在 SSE 输出时编码一次
  */
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-public class StreamMessage {
+public abstract sealed class StreamMessage permits AiResponseMessage, ToolRequestMessage, ToolExecutedMessage, FileProgressMessage {
 
     /**
      * 消息类型
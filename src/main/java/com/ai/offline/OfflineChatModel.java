@@ -0,0 +1,65 @@
+package com.ai.offline;
+
+import com.ai.routing.CodeGenTypeHeuristicClassifier;
+import com.config.OfflineModelConfig;
+import com.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.List;
+
+/**
+ * 离线路由模型
+ * 返回配置的生成类型，未配置时按关键词判断，判断不出时返回 HTML
+ */
+public class OfflineChatModel implements ChatModel {
+
+    private final OfflineModelConfig config;
+
+    private final OfflineLatencySimulator simulator;
+
+    public OfflineChatModel(OfflineModelConfig config, OfflineLatencySimulator simulator) {
+        this.config = config;
+        this.simulator = simulator;
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        try {
+            Thread.sleep(simulator.jitter(config.getTtftMs()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("离线模型请求被中断", e);
+        }
+        if (simulator.shouldFail()) {
+            throw new RuntimeException("离线模型模拟的请求失败");
+        }
+        CodeGenTypeEnum codeGenType = config.getRoutingType();
+        if (codeGenType == null) {
+            codeGenType = CodeGenTypeHeuristicClassifier.classify(latestUserPrompt(chatRequest.messages()), 1, 1);
+        }
+        if (codeGenType == null) {
+            codeGenType = CodeGenTypeEnum.HTML;
+        }
+        return ChatResponse.builder()
+                .aiMessage(AiMessage.from(codeGenType.name()))
+                .tokenUsage(new TokenUsage(0, 1))
+                .finishReason(FinishReason.STOP)
+                .build();
+    }
+
+    private String latestUserPrompt(List<ChatMessage> messages) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i) instanceof UserMessage userMessage && userMessage.hasSingleText()) {
+                return userMessage.singleText();
+            }
+        }
+        return "";
+    }
+}
@@ -0,0 +1,56 @@
+package com.ai.offline;
+
+import com.config.OfflineModelConfig;
+
+import java.util.Random;
+
+/**
+ * 离线模型的延迟抖动和失败注入
+ * 配置了随机数种子时，同样的请求顺序得到同样的延迟和失败序列
+ */
+public class OfflineLatencySimulator {
+
+    private final OfflineModelConfig config;
+
+    private final Random random;
+
+    public OfflineLatencySimulator(OfflineModelConfig config) {
+        this.config = config;
+        this.random = config.getSeed() != null ? new Random(config.getSeed()) : new Random();
+    }
+
+    /**
+     * 对基础延迟加上随机抖动
+     *
+     * @param baseMillis 基础延迟（毫秒）
+     * @return 实际延迟（毫秒）
+     */
+    public long jitter(long baseMillis) {
+        double ratio = Math.max(0, Math.min(config.getJitterRatio(), 1));
+        double factor = 1 + ratio * (random.nextDouble() * 2 - 1);
+        return Math.max(0, Math.round(baseMillis * factor));
+    }
+
+    /**
+     * 选择本次请求的失败点
+     *
+     * @param chunkCount 输出片段数
+     * @return 在第几个片段之前失败，-1 表示不失败
+     */
+    public int pickFailurePoint(int chunkCount) {
+        if (random.nextDouble() < config.getFailureRate()) {
+            return 0;
+        }
+        if (chunkCount > 1 && random.nextDouble() < config.getMidStreamFailureRate()) {
+            return 1 + random.nextInt(chunkCount - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * 本次非流式请求是否失败
+     */
+    public boolean shouldFail() {
+        return random.nextDouble() < config.getFailureRate();
+    }
+}
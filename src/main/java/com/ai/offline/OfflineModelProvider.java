@@ -0,0 +1,75 @@
+package com.ai.offline;
+
+import com.config.OfflineModelConfig;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * 离线模型提供者
+ * 启用离线模型时，各模型配置改为从这里创建模型，所有离线模型共享脚本、随机数和输出线程
+ */
+@Slf4j
+@Component
+public class OfflineModelProvider {
+
+    /**
+     * 离线模型的输出线程数
+     */
+    private static final int SCHEDULER_THREADS = 4;
+
+    @Resource
+    private OfflineModelConfig offlineModelConfig;
+
+    private OfflineModelScripts scripts;
+
+    private OfflineLatencySimulator simulator;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        if (!offlineModelConfig.isEnabled()) {
+            return;
+        }
+        scripts = new OfflineModelScripts(offlineModelConfig.getRecordingDir(), offlineModelConfig.getTemplateSections());
+        simulator = new OfflineLatencySimulator(offlineModelConfig);
+        scheduler = Executors.newScheduledThreadPool(SCHEDULER_THREADS, Thread.ofPlatform().name("offline-model-", 0).daemon().factory());
+        log.warn("已启用离线模型，所有生成都使用本地回放输出，不会访问模型服务商");
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 是否启用离线模型
+     */
+    public boolean isEnabled() {
+        return offlineModelConfig.isEnabled();
+    }
+
+    /**
+     * 创建离线流式模型
+     */
+    public StreamingChatModel streamingChatModel() {
+        return new OfflineStreamingChatModel(offlineModelConfig, scripts, simulator, scheduler);
+    }
+
+    /**
+     * 创建离线路由模型
+     */
+    public ChatModel chatModel() {
+        return new OfflineChatModel(offlineModelConfig, simulator);
+    }
+}
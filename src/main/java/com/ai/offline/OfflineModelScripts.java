@@ -0,0 +1,451 @@
+package com.ai.offline;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.http.HtmlUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.ai.model.MultiFileCodeResult;
+import com.core.parser.MultiFileCodeParser;
+import com.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 离线模型的输出脚本
+ * 按请求推断生成类型，返回录制的输出或内置模板。录制文本中的 {{prompt}} 替换为用户提示词。
+ * Vue 项目的输出是多步脚本，每一步包含一段文本和若干工具调用，按本轮已完成的工具调用轮数决定回放哪一步
+ */
+@Slf4j
+public class OfflineModelScripts {
+
+    private static final String PROMPT_PLACEHOLDER = "{{prompt}}";
+
+    private static final String VUE_RECORDING_FILE = "vue_project.json";
+
+    /**
+     * 多文件分段生成的规划请求和分段请求在系统提示词中的标识
+     */
+    private static final String PLAN_PROMPT_MARKER = "页面结构契约";
+
+    private static final Pattern SECTION_FILE_PATTERN = Pattern.compile("你只负责生成 (index\\.html|style\\.css|script\\.js)");
+
+    /**
+     * 录制的文本输出（HTML、多文件）
+     */
+    private final Map<CodeGenTypeEnum, String> textRecordings = new LinkedHashMap<>();
+
+    /**
+     * 录制的 Vue 项目脚本
+     */
+    private final JSONArray vueRecording;
+
+    private final int templateSections;
+
+    public OfflineModelScripts(String recordingDir, int templateSections) {
+        this.templateSections = Math.max(templateSections, 1);
+        JSONArray vueSteps = null;
+        if (StrUtil.isNotBlank(recordingDir)) {
+            for (CodeGenTypeEnum codeGenType : List.of(CodeGenTypeEnum.HTML, CodeGenTypeEnum.MULTI_FILE)) {
+                File file = new File(recordingDir, codeGenType.getValue() + ".txt");
+                if (file.isFile()) {
+                    textRecordings.put(codeGenType, FileUtil.readUtf8String(file));
+                }
+            }
+            File vueFile = new File(recordingDir, VUE_RECORDING_FILE);
+            if (vueFile.isFile()) {
+                vueSteps = JSONUtil.parseArray(FileUtil.readUtf8String(vueFile));
+            }
+            log.info("离线模型加载录制输出：{}，Vue 项目脚本：{}", textRecordings.keySet(), vueSteps != null);
+        }
+        this.vueRecording = vueSteps;
+    }
+
+    /**
+     * 获取本次请求要回放的输出
+     *
+     * @param chatRequest 模型请求
+     * @return 输出步骤
+     */
+    public Step nextStep(ChatRequest chatRequest) {
+        List<ChatMessage> messages = chatRequest.messages();
+        String prompt = latestUserPrompt(messages);
+        CodeGenTypeEnum codeGenType = inferCodeGenType(chatRequest);
+        String systemPrompt = systemPrompt(messages);
+        Matcher sectionMatcher = SECTION_FILE_PATTERN.matcher(systemPrompt);
+        if (sectionMatcher.find()) {
+            return new Step(multiFileSection(sectionMatcher.group(1), prompt), List.of());
+        }
+        if (systemPrompt.contains(PLAN_PROMPT_MARKER)) {
+            return new Step(planTemplate(), List.of());
+        }
+        if (codeGenType != CodeGenTypeEnum.VUE_PROJECT) {
+            String recording = textRecordings.get(codeGenType);
+            String text = recording != null
+                    ? recording.replace(PROMPT_PLACEHOLDER, prompt)
+                    : codeGenType == CodeGenTypeEnum.HTML ? htmlTemplate(prompt) : multiFileTemplate(prompt);
+            return new Step(text, List.of());
+        }
+        Set<String> toolNames = chatRequest.toolSpecifications().stream()
+                .map(ToolSpecification::name)
+                .collect(Collectors.toSet());
+        List<Step> steps = vueRecording != null ? recordedVueSteps(prompt) : vueTemplate(prompt, toolNames);
+        int index = Math.min(completedToolRounds(messages), steps.size() - 1);
+        return steps.get(index);
+    }
+
+    /**
+     * 根据请求推断生成类型：带工具定义的是 Vue 项目，系统提示词要求拆分 style.css 的是多文件，其余为 HTML
+     */
+    private CodeGenTypeEnum inferCodeGenType(ChatRequest chatRequest) {
+        if (!chatRequest.toolSpecifications().isEmpty()) {
+            return CodeGenTypeEnum.VUE_PROJECT;
+        }
+        for (ChatMessage message : chatRequest.messages()) {
+            if (message instanceof SystemMessage systemMessage && systemMessage.text().contains("style.css")) {
+                return CodeGenTypeEnum.MULTI_FILE;
+            }
+        }
+        return CodeGenTypeEnum.HTML;
+    }
+
+    private String systemPrompt(List<ChatMessage> messages) {
+        for (ChatMessage message : messages) {
+            if (message instanceof SystemMessage systemMessage) {
+                return systemMessage.text();
+            }
+        }
+        return "";
+    }
+
+    private String latestUserPrompt(List<ChatMessage> messages) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i) instanceof UserMessage userMessage && userMessage.hasSingleText()) {
+                return userMessage.singleText();
+            }
+        }
+        return "";
+    }
+
+    /**
+     * 最后一条用户消息之后已完成的工具调用轮数
+     */
+    private int completedToolRounds(List<ChatMessage> messages) {
+        int rounds = 0;
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            ChatMessage message = messages.get(i);
+            if (message instanceof UserMessage) {
+                break;
+            }
+            if (message instanceof AiMessage aiMessage && aiMessage.hasToolExecutionRequests()) {
+                rounds++;
+            }
+        }
+        return rounds;
+    }
+
+    private List<Step> recordedVueSteps(String prompt) {
+        String escapedPrompt = JSONUtil.escape(prompt);
+        List<Step> steps = new ArrayList<>();
+        for (int i = 0; i < vueRecording.size(); i++) {
+            JSONObject stepJson = vueRecording.getJSONObject(i);
+            List<ToolExecutionRequest> toolCalls = new ArrayList<>();
+            JSONArray toolCallsJson = stepJson.getJSONArray("toolCalls");
+            if (toolCallsJson != null) {
+                for (int j = 0; j < toolCallsJson.size(); j++) {
+                    JSONObject toolCall = toolCallsJson.getJSONObject(j);
+                    String arguments = toolCall.getStr("arguments", "{}");
+                    toolCalls.add(toolCall(i, j, toolCall.getStr("name"), arguments.replace(PROMPT_PLACEHOLDER, escapedPrompt)));
+                }
+            }
+            steps.add(new Step(StrUtil.nullToEmpty(stepJson.getStr("text")).replace(PROMPT_PLACEHOLDER, prompt), toolCalls));
+        }
+        // 最后一步不能再调用工具，否则会一直重复
+        if (steps.isEmpty() || !steps.get(steps.size() - 1).toolCalls().isEmpty()) {
+            steps.add(new Step("网站生成完毕。", List.of()));
+        }
+        return steps;
+    }
+
+    private List<Step> vueTemplate(String prompt, Set<String> toolNames) {
+        Map<String, String> files = vueTemplateFiles(prompt);
+        String plan = "网站生成计划：创建 Vite + Vue 3 项目，包含入口、路由和首页，共 " + files.size() + " 个文件。\n\n";
+        List<Step> steps = new ArrayList<>();
+        if (toolNames.contains("writeFiles")) {
+            JSONArray fileArray = new JSONArray();
+            files.forEach((path, content) -> fileArray.add(new JSONObject()
+                    .set("relativeFilePath", path)
+                    .set("content", content)));
+            String arguments = new JSONObject().set("files", fileArray).toString();
+            steps.add(new Step(plan, List.of(toolCall(0, 0, "writeFiles", arguments))));
+        } else {
+            int index = 0;
+            for (Map.Entry<String, String> file : files.entrySet()) {
+                String arguments = new JSONObject()
+                        .set("relativeFilePath", file.getKey())
+                        .set("content", file.getValue())
+                        .toString();
+                steps.add(new Step(index == 0 ? plan : "", List.of(toolCall(index, 0, "writeFile", arguments))));
+                index++;
+            }
+        }
+        steps.add(new Step("\n\n网站生成完毕。", List.of()));
+        return steps;
+    }
+
+    private ToolExecutionRequest toolCall(int step, int index, String name, String arguments) {
+        return ToolExecutionRequest.builder()
+                .id("offline_" + step + "_" + index)
+                .name(name)
+                .arguments(arguments)
+                .build();
+    }
+
+    private String htmlTemplate(String prompt) {
+        String title = HtmlUtil.escape(StrUtil.maxLength(prompt, 60));
+        return String.format("""
+                根据需求生成的单页面网站如下。
+
+                ```html
+                <!DOCTYPE html>
+                <html lang="en">
+                <head>
+                    <meta charset="UTF-8">
+                    <meta name="viewport" content="width=device-width, initial-scale=1.0">
+                    <title>Offline Demo</title>
+                    <style>
+                %s
+                    </style>
+                </head>
+                <body>
+                    <header><h1>%s</h1></header>
+                    <main>
+                %s
+                    </main>
+                    <footer>&copy; 2025 Offline Demo</footer>
+                    <script>
+                %s
+                    </script>
+                </body>
+                </html>
+                ```
+                """, templateCss(), title, templateSectionsHtml(), templateScript());
+    }
+
+    private String multiFileTemplate(String prompt) {
+        String title = HtmlUtil.escape(StrUtil.maxLength(prompt, 60));
+        return String.format("""
+                根据需求生成的网站文件如下。
+
+                ```html
+                <!DOCTYPE html>
+                <html lang="en">
+                <head>
+                    <meta charset="UTF-8">
+                    <meta name="viewport" content="width=device-width, initial-scale=1.0">
+                    <title>Offline Demo</title>
+                    <link rel="stylesheet" href="style.css">
+                </head>
+                <body>
+                    <header><h1>%s</h1></header>
+                    <main>
+                %s
+                    </main>
+                    <footer>&copy; 2025 Offline Demo</footer>
+                    <script src="script.js"></script>
+                </body>
+                </html>
+                ```
+
+                ```css
+                %s
+                ```
+
+                ```javascript
+                %s
+                ```
+                """, title, templateSectionsHtml(), templateCss(), templateScript());
+    }
+
+    /**
+     * 多文件分段生成中单个文件的输出：取多文件录制或模板中对应的代码块
+     */
+    private String multiFileSection(String fileName, String prompt) {
+        String recording = textRecordings.get(CodeGenTypeEnum.MULTI_FILE);
+        String text = recording != null ? recording.replace(PROMPT_PLACEHOLDER, prompt) : multiFileTemplate(prompt);
+        MultiFileCodeResult result = new MultiFileCodeParser().parseCode(text);
+        return switch (fileName) {
+            case "style.css" -> "```css\n" + StrUtil.nullToEmpty(result.getCssCode()) + "\n```\n";
+            case "script.js" -> "```javascript\n" + StrUtil.nullToEmpty(result.getJsCode()) + "\n```\n";
+            default -> "```html\n" + StrUtil.nullToEmpty(result.getHtmlCode()) + "\n```\n";
+        };
+    }
+
+    /**
+     * 多文件分段生成的规划输出，与模板页面的结构一致
+     */
+    private String planTemplate() {
+        JSONArray sections = new JSONArray();
+        sections.add(new JSONObject().set("id", "page-header").set("tag", "header").set("purpose", "Page title"));
+        for (int i = 1; i <= templateSections; i++) {
+            sections.add(new JSONObject().set("id", "section-" + i).set("tag", "section").set("purpose", "Content section " + i));
+        }
+        sections.add(new JSONObject().set("id", "page-footer").set("tag", "footer").set("purpose", "Copyright"));
+        return new JSONObject()
+                .set("title", "Offline Demo")
+                .set("theme", "Light gray header and footer, sans-serif font")
+                .set("sections", sections)
+                .set("ids", new JSONArray())
+                .set("classes", JSONUtil.parseArray("[{\"name\": \"section\", \"usage\": \"Content section\"}]"))
+                .set("interactions", JSONUtil.parseArray("[{\"selector\": \".section\", \"behavior\": \"Log the section index on click\"}]"))
+                .toString();
+    }
+
+    private Map<String, String> vueTemplateFiles(String prompt) {
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put("package.json", """
+                {
+                  "name": "offline-demo",
+                  "private": true,
+                  "version": "0.0.0",
+                  "type": "module",
+                  "scripts": {
+                    "dev": "vite",
+                    "build": "vite build",
+                    "preview": "vite preview"
+                  },
+                  "dependencies": {
+                    "vue": "^3.4.0",
+                    "vue-router": "^4.3.0"
+                  },
+                  "devDependencies": {
+                    "@vitejs/plugin-vue": "^5.0.0",
+                    "vite": "^5.2.0"
+                  }
+                }
+                """);
+        files.put("vite.config.js", """
+                import { defineConfig } from 'vite'
+                import vue from '@vitejs/plugin-vue'
+
+                export default defineConfig({
+                  base: './',
+                  plugins: [vue()]
+                })
+                """);
+        files.put("index.html", """
+                <!DOCTYPE html>
+                <html lang="en">
+                <head>
+                  <meta charset="UTF-8">
+                  <meta name="viewport" content="width=device-width, initial-scale=1.0">
+                  <title>Offline Demo</title>
+                </head>
+                <body>
+                  <div id="app"></div>
+                  <script type="module" src="/src/main.js"></script>
+                </body>
+                </html>
+                """);
+        files.put("src/main.js", """
+                import { createApp } from 'vue'
+                import App from './App.vue'
+                import router from './router'
+
+                createApp(App).use(router).mount('#app')
+                """);
+        files.put("src/router/index.js", """
+                import { createRouter, createWebHashHistory } from 'vue-router'
+                import Home from '../pages/Home.vue'
+
+                export default createRouter({
+                  history: createWebHashHistory(),
+                  routes: [{ path: '/', component: Home }]
+                })
+                """);
+        files.put("src/App.vue", """
+                <template>
+                  <router-view />
+                </template>
+                """);
+        files.put("src/pages/Home.vue", String.format("""
+                <template>
+                  <main class="home">
+                    <h1>Offline Demo</h1>
+                    <p>{{ prompt }}</p>
+                    <section v-for="index in sections" :key="index" class="section">
+                      <h2>Section {{ index }}</h2>
+                      <p>Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt ut labore.</p>
+                    </section>
+                  </main>
+                </template>
+
+                <script setup>
+                const prompt = %s
+                const sections = %d
+                </script>
+
+                <style scoped>
+                .home { max-width: 960px; margin: 0 auto; padding: 24px; }
+                .section { padding: 16px 0; border-bottom: 1px solid #eee; }
+                </style>
+                """, JSONUtil.quote(StrUtil.maxLength(prompt, 60)), templateSections));
+        return files;
+    }
+
+    private String templateSectionsHtml() {
+        StringBuilder sections = new StringBuilder();
+        for (int i = 1; i <= templateSections; i++) {
+            sections.append(String.format("""
+                            <section class="section">
+                                <h2>Section %d</h2>
+                                <p>Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt ut labore et dolore magna aliqua.</p>
+                                <img src="https://picsum.photos/seed/%d/800/400" alt="Placeholder Image">
+                            </section>
+                    """, i, i));
+        }
+        return sections.toString();
+    }
+
+    private String templateCss() {
+        return """
+                body { margin: 0; font-family: sans-serif; color: #333; }
+                header, footer { padding: 24px; text-align: center; background: #f5f5f5; }
+                main { max-width: 960px; margin: 0 auto; padding: 24px; }
+                .section { padding: 16px 0; border-bottom: 1px solid #eee; }
+                .section img { max-width: 100%; height: auto; }""";
+    }
+
+    private String templateScript() {
+        return """
+                document.querySelectorAll('.section').forEach((section, index) => {
+                    section.addEventListener('click', () => console.log('section', index + 1));
+                });""";
+    }
+
+    /**
+     * 一次模型响应
+     *
+     * @param text      输出文本
+     * @param toolCalls 工具调用，为空表示最终回复
+     */
+    public record Step(String text, List<ToolExecutionRequest> toolCalls) {
+    }
+}
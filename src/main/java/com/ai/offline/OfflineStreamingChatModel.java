@@ -0,0 +1,219 @@
+package com.ai.offline;
+
+import com.ai.http.ModelStreamCancellation;
+import com.config.OfflineModelConfig;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 离线流式模型
+ * 按配置的首 token 延迟、输出速度和抖动回放脚本输出，可按概率注入请求失败。
+ * 与真实模型一样登记到生成取消句柄上：取消后立即停止输出（包括首 token 等待期间）并以 CancellationException 回调 onError，
+ * 回调中发出的后续请求沿用同一句柄
+ */
+public class OfflineStreamingChatModel implements StreamingChatModel {
+
+    /**
+     * 最小输出间隔（毫秒），输出速度较高时每次输出多个 token
+     */
+    private static final long MIN_TICK_MILLIS = 10;
+
+    private final OfflineModelConfig config;
+
+    private final OfflineModelScripts scripts;
+
+    private final OfflineLatencySimulator simulator;
+
+    private final ScheduledExecutorService scheduler;
+
+    public OfflineStreamingChatModel(OfflineModelConfig config, OfflineModelScripts scripts,
+                                     OfflineLatencySimulator simulator, ScheduledExecutorService scheduler) {
+        this.config = config;
+        this.scripts = scripts;
+        this.simulator = simulator;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        ModelStreamCancellation cancellation = ModelStreamCancellation.current();
+        if (cancellation != null) {
+            if (cancellation.isCancelled()) {
+                handler.onError(new CancellationException("生成已取消"));
+                return;
+            }
+            cancellation.recordModelRequest();
+        }
+        new Playback(chatRequest, scripts.nextStep(chatRequest), handler, cancellation).start();
+    }
+
+    /**
+     * 一次请求的回放
+     */
+    private class Playback {
+
+        private final ChatRequest chatRequest;
+
+        private final OfflineModelScripts.Step step;
+
+        private final StreamingChatResponseHandler handler;
+
+        private final ModelStreamCancellation cancellation;
+
+        private final List<String> chunks;
+
+        private final long tickMillis;
+
+        /**
+         * 每次输出的 token 数，可能带小数：按累计的输出次数计算应输出的总数，小数部分累积到之后的输出
+         */
+        private final double tokensPerTick;
+
+        private int ticks;
+
+        /**
+         * 在第几个片段之前失败，-1 表示不失败
+         */
+        private final int failAt;
+
+        private int position;
+
+        /**
+         * 已回调完成或失败，之后不再回调
+         */
+        private boolean finished;
+
+        /**
+         * 已被取消，由回放线程回调 onError
+         */
+        private volatile boolean aborted;
+
+        private volatile ScheduledFuture<?> pendingTick;
+
+        private final Runnable abortAction = this::abort;
+
+        Playback(ChatRequest chatRequest, OfflineModelScripts.Step step, StreamingChatResponseHandler handler,
+                 ModelStreamCancellation cancellation) {
+            this.chatRequest = chatRequest;
+            this.step = step;
+            this.handler = handler;
+            this.cancellation = cancellation;
+            this.chunks = split(step.text(), Math.max(config.getCharsPerToken(), 1));
+            int tokensPerSecond = Math.max(config.getTokensPerSecond(), 1);
+            this.tickMillis = Math.max(Math.round(1000.0 / tokensPerSecond), MIN_TICK_MILLIS);
+            this.tokensPerTick = tokensPerSecond * tickMillis / 1000.0;
+            this.failAt = simulator.pickFailurePoint(chunks.size());
+        }
+
+        void start() {
+            pendingTick = scheduler.schedule(this::emit, simulator.jitter(config.getTtftMs()), TimeUnit.MILLISECONDS);
+            if (cancellation != null) {
+                // 已取消时立即执行中断
+                cancellation.register(abortAction);
+            }
+        }
+
+        private synchronized void emit() {
+            if (finished) {
+                return;
+            }
+            if (aborted || (cancellation != null && cancellation.isCancelled())) {
+                finish(() -> runBound(() -> handler.onError(new CancellationException("生成已取消"))));
+                return;
+            }
+            runBound(() -> {
+                ticks++;
+                int end = (int) Math.min(Math.max(Math.round(ticks * tokensPerTick), position + 1), chunks.size());
+                if (failAt >= 0 && failAt < end) {
+                    // 失败前先输出失败点之前的片段
+                    for (; position < failAt && !aborted; position++) {
+                        handler.onPartialResponse(chunks.get(position));
+                    }
+                    finish(() -> handler.onError(new RuntimeException("离线模型模拟的请求失败")));
+                    return;
+                }
+                // 下游在回调中取消生成时不再继续输出，由下一次回放回调 onError
+                for (; position < end && !aborted; position++) {
+                    handler.onPartialResponse(chunks.get(position));
+                }
+                if (position < chunks.size() || aborted) {
+                    pendingTick = scheduler.schedule(this::emit, aborted ? 0 : simulator.jitter(tickMillis), TimeUnit.MILLISECONDS);
+                    return;
+                }
+                finish(() -> handler.onCompleteResponse(buildResponse()));
+            });
+        }
+
+        /**
+         * 取消生成：跳过剩余的等待（包括首 token 延迟），由回放线程回调 onError，与真实模型的连接被中断时一致。
+         * 取消可能发生在任意线程（包括其他回放的回调中），这里不加锁也不直接回调
+         */
+        private void abort() {
+            aborted = true;
+            ScheduledFuture<?> tick = pendingTick;
+            if (tick != null && tick.cancel(false)) {
+                scheduler.execute(this::emit);
+            }
+        }
+
+        private void finish(Runnable callback) {
+            finished = true;
+            if (cancellation != null) {
+                cancellation.unregister(abortAction);
+            }
+            callback.run();
+        }
+
+        private ChatResponse buildResponse() {
+            List<ToolExecutionRequest> toolCalls = step.toolCalls();
+            AiMessage aiMessage;
+            if (toolCalls.isEmpty()) {
+                aiMessage = AiMessage.from(step.text());
+            } else if (step.text().isEmpty()) {
+                aiMessage = AiMessage.from(toolCalls);
+            } else {
+                aiMessage = AiMessage.from(step.text(), toolCalls);
+            }
+            int charsPerToken = Math.max(config.getCharsPerToken(), 1);
+            int inputChars = chatRequest.messages().stream().mapToInt(message -> message.toString().length()).sum();
+            int outputChars = step.text().length() + toolCalls.stream().mapToInt(request -> request.arguments().length()).sum();
+            return ChatResponse.builder()
+                    .aiMessage(aiMessage)
+                    .tokenUsage(new TokenUsage(inputChars / charsPerToken, outputChars / charsPerToken))
+                    .finishReason(toolCalls.isEmpty() ? FinishReason.STOP : FinishReason.TOOL_EXECUTION)
+                    .build();
+        }
+
+        /**
+         * 在绑定取消句柄的情况下回调，工具调用后发出的后续请求仍然绑定同一个句柄
+         */
+        private void runBound(Runnable action) {
+            if (cancellation == null) {
+                action.run();
+            } else {
+                cancellation.runWith(action);
+            }
+        }
+    }
+
+    private static List<String> split(String text, int chunkChars) {
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < text.length(); i += chunkChars) {
+            chunks.add(text.substring(i, Math.min(text.length(), i + chunkChars)));
+        }
+        return chunks;
+    }
+}
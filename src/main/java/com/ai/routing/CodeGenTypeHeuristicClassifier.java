@@ -0,0 +1,218 @@
+package com.ai.routing;
+
+import com.model.enums.CodeGenTypeEnum;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 代码生成类型本地分类器
+ * 按关键词为每种生成类型打分，强特征（明确提到技术栈或页面数量）3 分，弱特征 1 分，
+ * 关键词前面带有否定词（不要、无需、without 等）时不计分。
+ * 部分关键词需要按整个单词匹配（spa 不匹配 space），或者后面不能紧跟特定单词（single page 后面是 app 时是单页应用）
+ */
+public class CodeGenTypeHeuristicClassifier {
+
+    private static final int STRONG = 3;
+
+    private static final int WEAK = 1;
+
+    /**
+     * 否定词与关键词之间最多间隔的字符数
+     */
+    private static final int NEGATION_WINDOW = 6;
+
+    private static final List<String> NEGATIONS = List.of("不要", "不用", "不需要", "无需", "别用", "不使用", "不涉及",
+            "don't", "do not", "no ", "not ", "without ");
+
+    /**
+     * 去掉空格后的否定词，用于匹配去掉空格的文本
+     */
+    private static final List<String> COMPACT_NEGATIONS = NEGATIONS.stream()
+            .map(negation -> negation.replace(" ", ""))
+            .toList();
+
+    private static final Map<CodeGenTypeEnum, List<Feature>> FEATURES = Map.of(
+            CodeGenTypeEnum.VUE_PROJECT, List.of(
+                    new Feature("vue", STRONG),
+                    new Feature("前端项目", STRONG),
+                    new Feature("工程化", STRONG),
+                    new Feature("单页应用", STRONG),
+                    new Feature("single page app", STRONG),
+                    new Feature("single-page app", STRONG),
+                    new Feature("spa", STRONG, true, List.of()),
+                    new Feature("管理系统", STRONG),
+                    new Feature("后台管理", STRONG),
+                    new Feature("dashboard", STRONG),
+                    new Feature("状态管理", STRONG),
+                    new Feature("pinia", STRONG),
+                    new Feature("vue router", STRONG),
+                    new Feature("路由", WEAK),
+                    new Feature("组件", WEAK),
+                    new Feature("登录", WEAK),
+                    new Feature("注册", WEAK),
+                    new Feature("购物车", WEAK),
+                    new Feature("数据管理", WEAK),
+                    new Feature("增删改查", WEAK),
+                    new Feature("交互", WEAK)
+            ),
+            CodeGenTypeEnum.MULTI_FILE, List.of(
+                    new Feature("多页面", STRONG),
+                    new Feature("多个页面", STRONG),
+                    new Feature("multi-page", STRONG),
+                    new Feature("multiple pages", STRONG),
+                    new Feature("多文件", STRONG),
+                    new Feature("分离", WEAK),
+                    new Feature("css 文件", WEAK),
+                    new Feature("js 文件", WEAK),
+                    new Feature("子页面", WEAK),
+                    new Feature("导航", WEAK)
+            ),
+            CodeGenTypeEnum.HTML, List.of(
+                    new Feature("单页面", STRONG),
+                    new Feature("单个页面", STRONG),
+                    new Feature("一个页面", STRONG),
+                    new Feature("single page", STRONG, false, List.of("app")),
+                    new Feature("one page", STRONG),
+                    new Feature("落地页", STRONG),
+                    new Feature("landing page", STRONG),
+                    new Feature("单个 html", STRONG),
+                    new Feature("一个 html", STRONG),
+                    new Feature("静态页面", WEAK),
+                    new Feature("展示页", WEAK),
+                    new Feature("简单", WEAK),
+                    new Feature("个人主页", WEAK),
+                    new Feature("简历", WEAK)
+            )
+    );
+
+    private CodeGenTypeHeuristicClassifier() {
+    }
+
+    /**
+     * 本地判定代码生成类型
+     *
+     * @param prompt    用户提示词
+     * @param minScore  最低得分
+     * @param minMargin 最高得分领先第二名的分数
+     * @return 判定结果，需求不明确时返回 null
+     */
+    public static CodeGenTypeEnum classify(String prompt, int minScore, int minMargin) {
+        Map<CodeGenTypeEnum, Integer> scores = score(prompt);
+        CodeGenTypeEnum best = null;
+        int bestScore = 0;
+        int secondScore = 0;
+        for (Map.Entry<CodeGenTypeEnum, Integer> entry : scores.entrySet()) {
+            int value = entry.getValue();
+            if (value > bestScore) {
+                secondScore = bestScore;
+                bestScore = value;
+                best = entry.getKey();
+            } else if (value > secondScore) {
+                secondScore = value;
+            }
+        }
+        if (bestScore < minScore || bestScore - secondScore < minMargin) {
+            return null;
+        }
+        return best;
+    }
+
+    /**
+     * 计算各生成类型的得分
+     *
+     * @param prompt 用户提示词
+     * @return 各类型得分
+     */
+    public static Map<CodeGenTypeEnum, Integer> score(String prompt) {
+        // 规范化：英文转小写，合并连续空白
+        String text = prompt.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+        // "html 文件" 和 "html文件" 视为相同
+        String compactText = text.replace(" ", "");
+        Map<CodeGenTypeEnum, Integer> scores = new EnumMap<>(CodeGenTypeEnum.class);
+        FEATURES.forEach((codeGenType, features) -> {
+            int total = 0;
+            for (Feature feature : features) {
+                if (matches(text, feature.keyword(), feature, NEGATIONS)
+                        || matches(compactText, feature.keyword().replace(" ", ""), feature, COMPACT_NEGATIONS)) {
+                    total += feature.weight();
+                }
+            }
+            scores.put(codeGenType, total);
+        });
+        return scores;
+    }
+
+    /**
+     * 文本中是否出现未被否定的关键词
+     */
+    private static boolean matches(String text, String keyword, Feature feature, List<String> negations) {
+        int index = text.indexOf(keyword);
+        while (index >= 0) {
+            int end = index + keyword.length();
+            if (!isNegated(text, index, negations)
+                    && (!feature.wholeWord() || isWholeWord(text, index, end))
+                    && !isFollowedBy(text, end, feature.notFollowedBy())) {
+                return true;
+            }
+            index = text.indexOf(keyword, end);
+        }
+        return false;
+    }
+
+    /**
+     * 关键词前后不是英文字母或数字
+     */
+    private static boolean isWholeWord(String text, int start, int end) {
+        return (start == 0 || !isAsciiLetterOrDigit(text.charAt(start - 1)))
+                && (end == text.length() || !isAsciiLetterOrDigit(text.charAt(end)));
+    }
+
+    /**
+     * 关键词后面（跳过空格和连字符）是否紧跟指定的单词
+     */
+    private static boolean isFollowedBy(String text, int end, List<String> words) {
+        int start = end;
+        while (start < text.length() && (text.charAt(start) == ' ' || text.charAt(start) == '-')) {
+            start++;
+        }
+        for (String word : words) {
+            if (text.startsWith(word, start)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAsciiLetterOrDigit(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isNegated(String text, int index, List<String> negations) {
+        for (String negation : negations) {
+            // 窗口包含否定词本身，较长的英文否定词（without）也能完整匹配
+            String window = text.substring(Math.max(0, index - NEGATION_WINDOW - negation.length()), index);
+            if (window.contains(negation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 关键词特征
+     *
+     * @param keyword       关键词（小写）
+     * @param weight        权重
+     * @param wholeWord     是否按整个单词匹配
+     * @param notFollowedBy 后面紧跟这些单词时不匹配
+     */
+    private record Feature(String keyword, int weight, boolean wholeWord, List<String> notFollowedBy) {
+
+        Feature(String keyword, int weight) {
+            this(keyword, weight, false, List.of());
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.ai.routing;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.ai.AiCodeGenTypeRoutingService;
+import com.ai.AiCodeGenTypeRoutingServiceFactory;
+import com.config.RoutingConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.model.enums.CodeGenTypeEnum;
+import com.model.vo.RoutingStatsVO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 代码生成类型路由器
+ * 依次尝试本地关键词评分、路由结果缓存，都无法确定时才调用路由模型，
+ * 模型结果按提示词指纹（规范化提示词 + 路由系统提示词版本）缓存
+ */
+@Slf4j
+@Component
+public class CodeGenTypeRouter {
+
+    private static final String ROUTING_PROMPT_RESOURCE = "prompt/codegen-routing-system-prompt.txt";
+
+    @Resource
+    private RoutingConfig routingConfig;
+
+    @Resource
+    private AiCodeGenTypeRoutingServiceFactory aiCodeGenTypeRoutingServiceFactory;
+
+    private Cache<String, CodeGenTypeEnum> decisionCache;
+
+    /**
+     * 路由系统提示词版本，提示词变化后旧的缓存结果不再命中
+     */
+    private String routingPromptVersion;
+
+    private final LongAdder heuristicCount = new LongAdder();
+
+    private final LongAdder cacheHitCount = new LongAdder();
+
+    private final LongAdder llmCount = new LongAdder();
+
+    private final LongAdder llmTotalMillis = new LongAdder();
+
+    private final LongAdder fastPathTotalNanos = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        decisionCache = Caffeine.newBuilder()
+                .maximumSize(routingConfig.getCacheMaxSize())
+                .expireAfterWrite(Duration.ofHours(routingConfig.getCacheTtlHours()))
+                .build();
+        routingPromptVersion = DigestUtil.sha256Hex(ResourceUtil.readUtf8Str(ROUTING_PROMPT_RESOURCE)).substring(0, 12);
+    }
+
+    /**
+     * 根据用户需求选择代码生成类型
+     *
+     * @param prompt 用户提示词
+     * @return 代码生成类型，无法确定时返回 null
+     */
+    public CodeGenTypeEnum route(String prompt) {
+        long startNanos = System.nanoTime();
+        // 1. 需求明确时本地直接判定
+        if (routingConfig.isHeuristicEnabled()) {
+            CodeGenTypeEnum codeGenType = CodeGenTypeHeuristicClassifier.classify(prompt,
+                    routingConfig.getMinScore(), routingConfig.getMinMargin());
+            if (codeGenType != null) {
+                heuristicCount.increment();
+                fastPathTotalNanos.add(System.nanoTime() - startNanos);
+                log.info("本地规则判定代码生成类型: {}", codeGenType.getValue());
+                return codeGenType;
+            }
+        }
+        // 2. 相同需求之前已经由模型判定过
+        String fingerprint = buildFingerprint(prompt);
+        CodeGenTypeEnum cached = decisionCache.getIfPresent(fingerprint);
+        if (cached != null) {
+            cacheHitCount.increment();
+            fastPathTotalNanos.add(System.nanoTime() - startNanos);
+            return cached;
+        }
+        // 3. 调用路由模型（多例模式）
+        AiCodeGenTypeRoutingService aiCodeGenTypeRoutingService = aiCodeGenTypeRoutingServiceFactory.createAiCodeGenTypeRoutingService();
+        CodeGenTypeEnum codeGenType = aiCodeGenTypeRoutingService.routeCodeGenType(prompt);
+        llmCount.increment();
+        llmTotalMillis.add(Duration.ofNanos(System.nanoTime() - startNanos).toMillis());
+        if (codeGenType != null) {
+            decisionCache.put(fingerprint, codeGenType);
+        }
+        return codeGenType;
+    }
+
+    /**
+     * 获取路由统计：跳过模型调用的比例和节省的耗时
+     */
+    public RoutingStatsVO getStats() {
+        long heuristics = heuristicCount.sum();
+        long cacheHits = cacheHitCount.sum();
+        long llmCalls = llmCount.sum();
+        long fastPaths = heuristics + cacheHits;
+        long total = fastPaths + llmCalls;
+        double avgLlmMillis = llmCalls == 0 ? 0 : (double) llmTotalMillis.sum() / llmCalls;
+        double avgFastPathMillis = fastPaths == 0 ? 0 : fastPathTotalNanos.sum() / 1_000_000.0 / fastPaths;
+        RoutingStatsVO statsVO = new RoutingStatsVO();
+        statsVO.setTotalCount(total);
+        statsVO.setHeuristicCount(heuristics);
+        statsVO.setCacheHitCount(cacheHits);
+        statsVO.setLlmCount(llmCalls);
+        statsVO.setSkipRate(total == 0 ? 0 : (double) fastPaths / total);
+        statsVO.setAvgLlmMillis(avgLlmMillis);
+        statsVO.setAvgFastPathMillis(avgFastPathMillis);
+        // 按模型调用的平均耗时估算跳过模型节省的总耗时
+        statsVO.setEstimatedSavedMillis(Math.round(fastPaths * Math.max(avgLlmMillis - avgFastPathMillis, 0)));
+        return statsVO;
+    }
+
+    /**
+     * 提示词指纹：去除首尾空白、合并连续空白、英文转小写后与路由提示词版本一起摘要
+     */
+    private String buildFingerprint(String prompt) {
+        String normalized = StrUtil.trim(prompt).replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return DigestUtil.sha256Hex(routingPromptVersion + "|" + normalized);
+    }
+}
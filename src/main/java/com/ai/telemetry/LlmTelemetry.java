@@ -0,0 +1,309 @@
+package com.ai.telemetry;
+
+import cn.hutool.core.util.StrUtil;
+import com.ai.offline.OfflineModelProvider;
+import com.core.admission.LlmAdmissionController;
+import com.model.enums.CodeGenTypeEnum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大模型调用监控指标
+ * 通过 Micrometer 记录每次模型调用的首 token 耗时、token 间隔、总耗时、输出速度、token 数和工具调用次数，
+ * 按模型、生成类型和结果打标签，由 /actuator/prometheus 导出。
+ * 管理接口中的 token 用量、提示词缓存和工具调用统计也从这里的指标汇总，不再单独计数
+ */
+@Component
+public class LlmTelemetry {
+
+    public static final String OUTCOME_SUCCESS = "success";
+
+    public static final String OUTCOME_ERROR = "error";
+
+    public static final String OUTCOME_CANCELLED = "cancelled";
+
+    /**
+     * 不属于代码生成类型的调用（智能路由）使用的生成类型标签
+     */
+    public static final String TYPE_ROUTING = "routing";
+
+    /**
+     * 代码生成方式：单流生成 / 分段并行生成
+     */
+    public static final String MODE_SINGLE = "single";
+
+    public static final String MODE_SECTIONED = "sectioned";
+
+    private static final String MODEL_OFFLINE = "offline";
+
+    private static final String TAG_MODEL = "model";
+
+    private static final String TAG_CODE_GEN_TYPE = "code_gen_type";
+
+    private static final String TAG_OUTCOME = "outcome";
+
+    private static final String TAG_KIND = "kind";
+
+    private static final String TAG_CACHE = "cache";
+
+    private static final String TAG_TOOL = "tool";
+
+    private static final String METRIC_TOKENS = "codegen.llm.tokens";
+
+    private static final String METRIC_PROMPT_CACHE_TTFT = "codegen.llm.prompt.cache.ttft";
+
+    private static final String METRIC_TOOL_INVOCATIONS = "codegen.llm.tool.invocations";
+
+    /**
+     * 命中缓存的 token 占输入 token 的比例不低于该值时，视为命中提示词缓存的请求
+     */
+    private static final double PROMPT_CACHE_HIT_RATIO = 0.5;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private LlmAdmissionController llmAdmissionController;
+
+    @Resource
+    private OfflineModelProvider offlineModelProvider;
+
+    /**
+     * token 间隔计时器，每个 token 都会记录一次，按模型和生成类型缓存避免重复查找
+     */
+    private final Map<String, Timer> interTokenTimers = new ConcurrentHashMap<>();
+
+    /**
+     * 获取生成类型使用的模型在监控指标中的名称
+     *
+     * @param codeGenType 代码生成类型
+     * @return 模型名称，启用离线模型时为 offline
+     */
+    public String resolveModelTag(CodeGenTypeEnum codeGenType) {
+        if (offlineModelProvider.isEnabled()) {
+            return MODEL_OFFLINE;
+        }
+        return modelTag(llmAdmissionController.resolveModelName(codeGenType));
+    }
+
+    /**
+     * 模型名称为空时使用 unknown
+     */
+    public String modelTag(String modelName) {
+        if (offlineModelProvider.isEnabled()) {
+            return MODEL_OFFLINE;
+        }
+        return StrUtil.blankToDefault(modelName, "unknown");
+    }
+
+    /**
+     * 记录一次模型调用
+     *
+     * @param call 调用结果
+     */
+    public void recordCall(CallRecord call) {
+        Tags tags = Tags.of(TAG_MODEL, call.model(), TAG_CODE_GEN_TYPE, call.codeGenType(), TAG_OUTCOME, call.outcome());
+        Timer.builder("codegen.llm.request.duration")
+                .description("模型调用总耗时")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(call.durationNanos(), TimeUnit.NANOSECONDS);
+        if (call.ttftNanos() >= 0) {
+            Timer.builder("codegen.llm.ttft")
+                    .description("模型首 token 耗时")
+                    .tags(tags)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(call.ttftNanos(), TimeUnit.NANOSECONDS);
+        }
+        countTokens(tags, "prompt", call.inputTokens());
+        countTokens(tags, "completion", call.outputTokens());
+        countTokens(tags, "cached", call.cachedTokens());
+        // 按是否命中服务商的提示词缓存区分首次输出耗时，只有返回了输入 token 数的调用才能判断
+        if (call.inputTokens() > 0 && call.ttftNanos() >= 0) {
+            boolean cacheHit = (double) call.cachedTokens() / call.inputTokens() >= PROMPT_CACHE_HIT_RATIO;
+            Timer.builder(METRIC_PROMPT_CACHE_TTFT)
+                    .description("按是否命中提示词缓存区分的首次输出耗时")
+                    .tags(tags)
+                    .tag(TAG_CACHE, cacheHit ? "hit" : "miss")
+                    .register(meterRegistry)
+                    .record(call.ttftNanos(), TimeUnit.NANOSECONDS);
+        }
+        // 输出速度按首 token 之后的耗时计算
+        long streamingNanos = call.durationNanos() - Math.max(call.ttftNanos(), 0);
+        if (call.outputTokens() > 0 && streamingNanos > 0) {
+            DistributionSummary.builder("codegen.llm.output.tokens.per.second")
+                    .description("模型输出速度（token/秒）")
+                    .baseUnit("tokens")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .record(call.outputTokens() * 1e9 / streamingNanos);
+        }
+    }
+
+    /**
+     * 记录相邻两次流式输出的间隔
+     *
+     * @param model       模型名称
+     * @param codeGenType 生成类型标签
+     * @param nanos       间隔（纳秒）
+     */
+    public void recordInterTokenLatency(String model, String codeGenType, long nanos) {
+        interTokenTimers.computeIfAbsent(model + "|" + codeGenType, key -> Timer.builder("codegen.llm.inter.token.latency")
+                        .description("模型流式输出的 token 间隔")
+                        .tags(TAG_MODEL, model, TAG_CODE_GEN_TYPE, codeGenType)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(1))
+                        .maximumExpectedValue(Duration.ofSeconds(30))
+                        .register(meterRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次工具调用
+     *
+     * @param model       模型名称
+     * @param codeGenType 生成类型标签
+     * @param toolName    工具名称
+     * @param outcome     结果
+     */
+    public void recordToolInvocation(String model, String codeGenType, String toolName, String outcome) {
+        Counter.builder(METRIC_TOOL_INVOCATIONS)
+                .description("工具调用次数")
+                .tags(TAG_MODEL, model, TAG_CODE_GEN_TYPE, codeGenType, TAG_OUTCOME, outcome, TAG_TOOL, toolName)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 记录一次代码生成的端到端耗时（从开始调用模型到代码保存完成，不含排队），用于对比不同生成方式
+     *
+     * @param model       模型名称
+     * @param codeGenType 生成类型标签
+     * @param mode        生成方式
+     * @param signalType  生成流的结束信号
+     * @param nanos       耗时（纳秒）
+     */
+    public void recordGeneration(String model, String codeGenType, String mode, SignalType signalType, long nanos) {
+        String outcome = switch (signalType) {
+            case ON_COMPLETE -> OUTCOME_SUCCESS;
+            case ON_ERROR -> OUTCOME_ERROR;
+            default -> OUTCOME_CANCELLED;
+        };
+        Timer.builder("codegen.generation.duration")
+                .description("代码生成端到端耗时")
+                .tags(TAG_MODEL, model, TAG_CODE_GEN_TYPE, codeGenType, TAG_OUTCOME, outcome, "mode", mode)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 汇总生成类型的 token 数（所有模型和结果）
+     *
+     * @param codeGenType 生成类型标签
+     * @param kind        prompt / completion / cached
+     * @return token 数
+     */
+    public long sumTokens(String codeGenType, String kind) {
+        return (long) meterRegistry.find(METRIC_TOKENS)
+                .tags(TAG_CODE_GEN_TYPE, codeGenType, TAG_KIND, kind)
+                .counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+
+    /**
+     * 汇总生成类型的工具调用次数（所有模型和结果）
+     *
+     * @param codeGenType 生成类型标签
+     * @param toolName    工具名称，为 null 时汇总所有工具
+     * @return 调用次数
+     */
+    public long sumToolInvocations(String codeGenType, String toolName) {
+        Tags tags = Tags.of(TAG_CODE_GEN_TYPE, codeGenType);
+        if (toolName != null) {
+            tags = tags.and(TAG_TOOL, toolName);
+        }
+        return (long) meterRegistry.find(METRIC_TOOL_INVOCATIONS)
+                .tags(tags)
+                .counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+
+    /**
+     * 汇总生成类型中命中或未命中提示词缓存的调用的首次输出耗时（所有模型和结果）
+     *
+     * @param codeGenType 生成类型标签
+     * @param cacheHit    是否命中缓存
+     * @return 调用次数和总耗时
+     */
+    public TimerTotals sumPromptCacheTtft(String codeGenType, boolean cacheHit) {
+        long count = 0;
+        double totalMillis = 0;
+        for (Timer timer : meterRegistry.find(METRIC_PROMPT_CACHE_TTFT)
+                .tags(TAG_CODE_GEN_TYPE, codeGenType, TAG_CACHE, cacheHit ? "hit" : "miss")
+                .timers()) {
+            count += timer.count();
+            totalMillis += timer.totalTime(TimeUnit.MILLISECONDS);
+        }
+        return new TimerTotals(count, totalMillis);
+    }
+
+    private void countTokens(Tags tags, String kind, long tokens) {
+        if (tokens <= 0) {
+            return;
+        }
+        Counter.builder(METRIC_TOKENS)
+                .description("模型调用的 token 数")
+                .tags(tags)
+                .tag(TAG_KIND, kind)
+                .register(meterRegistry)
+                .increment(tokens);
+    }
+
+    /**
+     * 一次模型调用的结果
+     *
+     * @param model         模型名称
+     * @param codeGenType   生成类型标签
+     * @param outcome       结果
+     * @param durationNanos 总耗时（纳秒）
+     * @param ttftNanos     首 token 耗时（纳秒），没有输出时为 -1
+     * @param inputTokens   输入 token 数
+     * @param cachedTokens  命中缓存的输入 token 数
+     * @param outputTokens  输出 token 数
+     */
+    public record CallRecord(String model, String codeGenType, String outcome, long durationNanos, long ttftNanos,
+                             long inputTokens, long cachedTokens, long outputTokens) {
+    }
+
+    /**
+     * 计时器的汇总
+     *
+     * @param count       次数
+     * @param totalMillis 总耗时（毫秒）
+     */
+    public record TimerTotals(long count, double totalMillis) {
+
+        /**
+         * 平均耗时（毫秒），没有记录时为 null
+         */
+        public Long avgMillis() {
+            return count == 0 ? null : Math.round(totalMillis / count);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.ai.telemetry;
+
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.Set;
+
+/**
+ * 记录监控指标的非流式模型
+ */
+public class MeteredChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+
+    private final String model;
+
+    private final String codeGenType;
+
+    private final LlmTelemetry llmTelemetry;
+
+    public MeteredChatModel(ChatModel delegate, String model, String codeGenType, LlmTelemetry llmTelemetry) {
+        this.delegate = delegate;
+        this.model = model;
+        this.codeGenType = codeGenType;
+        this.llmTelemetry = llmTelemetry;
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        long startTime = System.nanoTime();
+        try {
+            ChatResponse chatResponse = delegate.chat(chatRequest);
+            long duration = System.nanoTime() - startTime;
+            TokenUsage tokenUsage = chatResponse.tokenUsage();
+            long inputTokens = tokenUsage == null || tokenUsage.inputTokenCount() == null ? 0 : tokenUsage.inputTokenCount();
+            long outputTokens = tokenUsage == null || tokenUsage.outputTokenCount() == null ? 0 : tokenUsage.outputTokenCount();
+            // 非流式调用的首 token 耗时即总耗时
+            llmTelemetry.recordCall(new LlmTelemetry.CallRecord(model, codeGenType, LlmTelemetry.OUTCOME_SUCCESS,
+                    duration, duration, inputTokens, 0, outputTokens));
+            return chatResponse;
+        } catch (RuntimeException e) {
+            llmTelemetry.recordCall(new LlmTelemetry.CallRecord(model, codeGenType, LlmTelemetry.OUTCOME_ERROR,
+                    System.nanoTime() - startTime, -1, 0, 0, 0));
+            throw e;
+        }
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+}
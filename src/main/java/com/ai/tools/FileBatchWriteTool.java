@@ -0,0 +1,111 @@
+package com.ai.tools;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import com.ai.model.FileWriteItem;
+import dev.langchain4j.agent.tool.P;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolMemoryId;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 批量文件写入工具
+ * 一次工具调用并行写入多个文件，减少逐个写入时的模型往返次数
+ */
+@Slf4j
+@Component
+public class FileBatchWriteTool extends BaseTool {
+
+    /**
+     * 单次最多写入的文件数
+     */
+    private static final int MAX_BATCH_SIZE = 30;
+
+    @Resource
+    private FileWriteTool fileWriteTool;
+
+    @Tool("批量写入多个文件，一次调用并行写入所有文件，返回每个文件的写入结果")
+    public String writeFiles(
+            @P("要写入的文件列表，每项包含文件的相对路径和完整内容")
+            List<FileWriteItem> files,
+            @ToolMemoryId Long appId
+    ) {
+        if (CollUtil.isEmpty(files)) {
+            return "批量写入失败: 文件列表为空";
+        }
+        if (files.size() > MAX_BATCH_SIZE) {
+            return "批量写入失败: 单次最多写入 " + MAX_BATCH_SIZE + " 个文件，请分批写入";
+        }
+        // 同一批次中路径重复时只写入第一个，避免并行写入同一文件
+        Set<String> seenPaths = new HashSet<>();
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (FileWriteItem file : files) {
+                String relativeFilePath = file == null ? null : file.getRelativeFilePath();
+                if (StrUtil.isBlank(relativeFilePath)) {
+                    futures.add(CompletableFuture.completedFuture("文件写入失败: 文件路径为空"));
+                } else if (!seenPaths.add(relativeFilePath)) {
+                    futures.add(CompletableFuture.completedFuture("文件写入失败: " + relativeFilePath + ", 错误: 同一批次中路径重复"));
+                } else {
+                    String content = StrUtil.nullToEmpty(file.getContent());
+                    futures.add(CompletableFuture.supplyAsync(() -> fileWriteTool.writeFile(relativeFilePath, content, appId), executor));
+                }
+            }
+        }
+        List<String> results = futures.stream().map(CompletableFuture::join).toList();
+        long successCount = results.stream().filter(result -> result.startsWith(FileWriteTool.WRITE_SUCCESS_PREFIX)).count();
+        log.info("应用 {} 批量写入文件 {} 个，成功 {} 个", appId, results.size(), successCount);
+        return String.format("批量写入完成，成功 %d 个，失败 %d 个：\n%s",
+                successCount, results.size() - successCount, String.join("\n", results));
+    }
+
+    @Override
+    public String getToolName() {
+        return "writeFiles";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "批量写入文件";
+    }
+
+    @Override
+    public String generateToolExecutedResult(JSONObject arguments) {
+        JSONArray files = arguments.getJSONArray("files");
+        if (files == null) {
+            return String.format("[工具调用] %s", getDisplayName());
+        }
+        StringBuilder result = new StringBuilder(String.format("[工具调用] %s %d 个", getDisplayName(), files.size()));
+        // 与写入时一致，跳过路径为空或重复的文件
+        Set<String> seenPaths = new HashSet<>();
+        for (int i = 0; i < files.size(); i++) {
+            JSONObject file = files.getJSONObject(i);
+            String relativeFilePath = file.getStr("relativeFilePath");
+            if (StrUtil.isBlank(relativeFilePath) || !seenPaths.add(relativeFilePath)) {
+                continue;
+            }
+            String suffix = FileUtil.getSuffix(relativeFilePath);
+            result.append(String.format("""
+
+                    [文件] %s
+                    ```%s
+                    %s
+                    ```
+                    """, relativeFilePath, suffix, file.getStr("content")));
+        }
+        return result.toString();
+    }
+}
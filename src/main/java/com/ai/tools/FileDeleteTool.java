@@ -2,9 +2,11 @@ package com.ai.tools;
 
 import cn.hutool.json.JSONObject;
 import com.constant.AppConstant;
+import com.core.GenerationTaskManager;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.agent.tool.ToolMemoryId;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
@@ -21,12 +23,20 @@ import java.nio.file.Paths;
 @Component
 public class FileDeleteTool extends BaseTool {
 
+    @Resource
+    private GenerationTaskManager generationTaskManager;
+
     @Tool("删除指定路径的文件")
     public String deleteFile(
             @P("文件的相对路径")
             String relativeFilePath,
             @ToolMemoryId Long appId
     ) {
+        // 生成租约已丢失（其他节点已接管）时拒绝写入
+        if (!generationTaskManager.isWritable(appId)) {
+            log.warn("应用 {} 的生成租约已失效，拒绝删除文件: {}", appId, relativeFilePath);
+            return "文件删除失败: " + relativeFilePath + ", 错误: 生成任务已失效";
+        }
         try {
             Path path = Paths.get(relativeFilePath);
             if (!path.isAbsolute()) {
@@ -2,10 +2,15 @@ package com.ai.tools;
 
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.json.JSONObject;
+import com.config.OutputGuardConfig;
 import com.constant.AppConstant;
+import com.core.GenerationTaskManager;
+import com.core.guard.CodeOutputValidator;
+import com.core.guard.OutputGuardMetrics;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.agent.tool.ToolMemoryId;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
@@ -23,6 +28,25 @@ import java.nio.file.StandardOpenOption;
 @Component
 public class FileWriteTool extends BaseTool {
 
+    /**
+     * 写入成功的结果前缀
+     */
+    public static final String WRITE_SUCCESS_PREFIX = "文件写入成功: ";
+
+    /**
+     * 内容未通过校验的结果前缀，模型收到后重新写入该文件
+     */
+    public static final String VALIDATION_FAILURE_PREFIX = "文件校验失败: ";
+
+    @Resource
+    private GenerationTaskManager generationTaskManager;
+
+    @Resource
+    private OutputGuardConfig outputGuardConfig;
+
+    @Resource
+    private OutputGuardMetrics outputGuardMetrics;
+
     @Tool("写入文件到指定路径")
     public String writeFile(
             @P("文件的相对路径")
@@ -31,6 +55,20 @@ public class FileWriteTool extends BaseTool {
             String content,
             @ToolMemoryId Long appId
     ) {
+        // 生成租约已丢失（其他节点已接管）时拒绝写入
+        if (!generationTaskManager.isWritable(appId)) {
+            log.warn("应用 {} 的生成租约已失效，拒绝写入文件: {}", appId, relativeFilePath);
+            return "文件写入失败: " + relativeFilePath + ", 错误: 生成任务已失效";
+        }
+        // 内容被截断或为空时不写入，让模型只重新写入这个文件
+        if (outputGuardConfig.isEnabled()) {
+            String problem = CodeOutputValidator.validate(relativeFilePath, content, outputGuardConfig.getMaxFileChars());
+            if (problem != null) {
+                outputGuardMetrics.recordRejectedToolWrite();
+                log.warn("应用 {} 写入的文件未通过校验: {}, {}", appId, relativeFilePath, problem);
+                return VALIDATION_FAILURE_PREFIX + relativeFilePath + ", 错误: " + problem + "，请重新写入该文件的完整内容";
+            }
+        }
         try {
             Path path = Paths.get(relativeFilePath);
             if (!path.isAbsolute()) {
@@ -50,7 +88,7 @@ public class FileWriteTool extends BaseTool {
                     StandardOpenOption.TRUNCATE_EXISTING);
             log.info("成功写入文件: {}", path.toAbsolutePath());
             // 注意要返回相对路径，不能让 AI 把文件绝对路径返回给用户
-            return "文件写入成功: " + relativeFilePath;
+            return WRITE_SUCCESS_PREFIX + relativeFilePath;
         } catch (IOException e) {
             String errorMessage = "文件写入失败: " + relativeFilePath + ", 错误: " + e.getMessage();
             log.error(errorMessage, e);
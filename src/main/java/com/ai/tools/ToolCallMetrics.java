@@ -0,0 +1,81 @@
+package com.ai.tools;
+
+import com.ai.telemetry.LlmTelemetry;
+import com.model.enums.CodeGenTypeEnum;
+import com.model.vo.ToolCallStatsVO;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * 工具调用统计
+ * 统计每次 Vue 项目生成的模型请求数（模型往返次数）、工具调用数和写入的文件数，
+ * 用于观察批量写入工具减少的往返次数。
+ * 每次生成的模型请求数和写入文件数记录为监控指标，工具调用次数来自 LlmTelemetry 的 codegen.llm.tool.invocations
+ */
+@Slf4j
+@Component
+public class ToolCallMetrics {
+
+    private static final String CODE_GEN_TYPE = CodeGenTypeEnum.VUE_PROJECT.getValue();
+
+    private static final String BATCH_WRITE_TOOL = "writeFiles";
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private LlmTelemetry llmTelemetry;
+
+    private DistributionSummary modelRequestSummary;
+
+    private DistributionSummary fileWriteSummary;
+
+    @PostConstruct
+    public void init() {
+        modelRequestSummary = DistributionSummary.builder("codegen.generation.model.requests")
+                .description("每次生成发出的模型请求数")
+                .tag("code_gen_type", CODE_GEN_TYPE)
+                .register(meterRegistry);
+        fileWriteSummary = DistributionSummary.builder("codegen.generation.files.written")
+                .description("每次生成写入的文件数")
+                .tag("code_gen_type", CODE_GEN_TYPE)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次完成的生成
+     *
+     * @param appId         应用 ID
+     * @param modelRequests 模型请求数
+     * @param toolCalls     工具调用数
+     * @param batchWrites   批量写入工具的调用数
+     * @param filesWritten  写入的文件数（包括单个写入和批量写入）
+     */
+    public void record(long appId, long modelRequests, long toolCalls, long batchWrites, long filesWritten) {
+        modelRequestSummary.record(modelRequests);
+        fileWriteSummary.record(filesWritten);
+        log.info("应用 {} 的生成共发出模型请求 {} 次，调用工具 {} 次（批量写入 {} 次），写入文件 {} 个",
+                appId, modelRequests, toolCalls, batchWrites, filesWritten);
+    }
+
+    /**
+     * 获取工具调用统计
+     */
+    public ToolCallStatsVO getStats() {
+        long generations = modelRequestSummary.count();
+        double modelRequests = modelRequestSummary.totalAmount();
+        double files = fileWriteSummary.totalAmount();
+        ToolCallStatsVO statsVO = new ToolCallStatsVO();
+        statsVO.setGenerationCount(generations);
+        statsVO.setBatchWriteCount(llmTelemetry.sumToolInvocations(CODE_GEN_TYPE, BATCH_WRITE_TOOL));
+        statsVO.setAvgModelRequests(generations == 0 ? 0 : modelRequests / generations);
+        statsVO.setAvgToolCalls(generations == 0 ? 0 : (double) llmTelemetry.sumToolInvocations(CODE_GEN_TYPE, null) / generations);
+        statsVO.setAvgFilesWritten(generations == 0 ? 0 : files / generations);
+        statsVO.setFilesPerModelRequest(modelRequests == 0 ? 0 : files / modelRequests);
+        return statsVO;
+    }
+}
@@ -5,6 +5,8 @@ import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -32,6 +34,8 @@ public class ToolManager {
      */
     @PostConstruct
     public void initTools() {
+        // 工具按名称排序，保证每次请求中工具定义的顺序一致，便于命中模型服务商的前缀缓存
+        Arrays.sort(tools, Comparator.comparing(BaseTool::getToolName));
         for (BaseTool tool : tools) {
             toolMap.put(tool.getToolName(), tool);
             log.info("注册工具: {} -> {}", tool.getToolName(), tool.getDisplayName());
@@ -0,0 +1,51 @@
+package com.ai.usage;
+
+import com.ai.telemetry.LlmTelemetry;
+import com.model.enums.CodeGenTypeEnum;
+import com.model.vo.PromptCacheStatsVO;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 提示词缓存统计
+ * 按代码生成类型汇总模型返回的输入 token 数和其中命中服务商前缀缓存的 token 数，
+ * 并分别统计命中缓存（命中比例不低于一半）和未命中缓存的请求的首次输出耗时。
+ * 数据来自 LlmTelemetry 记录的监控指标（codegen.llm.tokens、codegen.llm.prompt.cache.ttft），这里只做汇总
+ */
+@Component
+public class PromptCacheMetrics {
+
+    @Resource
+    private LlmTelemetry llmTelemetry;
+
+    /**
+     * 获取各代码生成类型的提示词缓存统计
+     */
+    public List<PromptCacheStatsVO> getStatsList() {
+        List<PromptCacheStatsVO> statsList = new ArrayList<>();
+        for (CodeGenTypeEnum codeGenType : CodeGenTypeEnum.values()) {
+            String type = codeGenType.getValue();
+            long inputTokens = llmTelemetry.sumTokens(type, "prompt");
+            long cachedTokens = llmTelemetry.sumTokens(type, "cached");
+            LlmTelemetry.TimerTotals hit = llmTelemetry.sumPromptCacheTtft(type, true);
+            LlmTelemetry.TimerTotals miss = llmTelemetry.sumPromptCacheTtft(type, false);
+            PromptCacheStatsVO statsVO = new PromptCacheStatsVO();
+            statsVO.setCodeGenType(type);
+            statsVO.setRequestCount(hit.count() + miss.count());
+            statsVO.setInputTokens(inputTokens);
+            statsVO.setCachedTokens(cachedTokens);
+            statsVO.setUncachedTokens(inputTokens - cachedTokens);
+            statsVO.setOutputTokens(llmTelemetry.sumTokens(type, "completion"));
+            statsVO.setCachedRatio(inputTokens == 0 ? 0 : (double) cachedTokens / inputTokens);
+            statsVO.setHitRequestCount(hit.count());
+            statsVO.setMissRequestCount(miss.count());
+            statsVO.setHitAvgFirstOutputMillis(hit.avgMillis());
+            statsVO.setMissAvgFirstOutputMillis(miss.avgMillis());
+            statsList.add(statsVO);
+        }
+        return statsList;
+    }
+}
@@ -0,0 +1,110 @@
+package com.ai.usage;
+
+import com.ai.http.ModelStreamCancellation;
+import com.ai.telemetry.LlmTelemetry;
+import com.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.openai.OpenAiTokenUsage;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.Set;
+
+/**
+ * 记录 token 用量和延迟指标的流式模型
+ * 从响应的 usage 中读取服务商返回的缓存命中 token 数（OpenAI 兼容接口的 prompt_tokens_details.cached_tokens），
+ * 和首 token 耗时、token 间隔、总耗时、token 数一起记录为监控指标，提示词缓存统计从这些指标汇总；
+ * 并把 token 用量累计到本次生成的取消句柄上，生成结束时写入生成任务记录
+ */
+public class UsageRecordingStreamingChatModel implements StreamingChatModel {
+
+    private final StreamingChatModel delegate;
+
+    private final CodeGenTypeEnum codeGenType;
+
+    /**
+     * 监控指标中的模型名称
+     */
+    private final String modelName;
+
+    private final LlmTelemetry llmTelemetry;
+
+    public UsageRecordingStreamingChatModel(StreamingChatModel delegate, CodeGenTypeEnum codeGenType, String modelName,
+                                            LlmTelemetry llmTelemetry) {
+        this.delegate = delegate;
+        this.codeGenType = codeGenType;
+        this.modelName = modelName;
+        this.llmTelemetry = llmTelemetry;
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        long startTime = System.nanoTime();
+        ModelStreamCancellation cancellation = ModelStreamCancellation.current();
+        delegate.chat(chatRequest, new StreamingChatResponseHandler() {
+
+            private volatile long firstOutputTime;
+
+            private volatile long lastOutputTime;
+
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                long now = System.nanoTime();
+                if (firstOutputTime == 0) {
+                    firstOutputTime = now;
+                } else {
+                    llmTelemetry.recordInterTokenLatency(modelName, codeGenType.getValue(), now - lastOutputTime);
+                }
+                lastOutputTime = now;
+                handler.onPartialResponse(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                long now = System.nanoTime();
+                // 只有工具调用、没有文本输出的响应以完成时间作为首次输出时间
+                long firstOutputNanos = (firstOutputTime == 0 ? now : firstOutputTime) - startTime;
+                record(completeResponse.tokenUsage(), now - startTime, firstOutputNanos, cancellation);
+                handler.onCompleteResponse(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                String outcome = cancellation != null && cancellation.isCancelled()
+                        ? LlmTelemetry.OUTCOME_CANCELLED : LlmTelemetry.OUTCOME_ERROR;
+                long ttftNanos = firstOutputTime == 0 ? -1 : firstOutputTime - startTime;
+                llmTelemetry.recordCall(new LlmTelemetry.CallRecord(modelName, codeGenType.getValue(), outcome,
+                        System.nanoTime() - startTime, ttftNanos, 0, 0, 0));
+                handler.onError(error);
+            }
+        });
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    private void record(TokenUsage tokenUsage, long durationNanos, long firstOutputNanos,
+                        ModelStreamCancellation cancellation) {
+        long inputTokens = 0;
+        long cachedTokens = 0;
+        long outputTokens = 0;
+        if (tokenUsage != null) {
+            inputTokens = tokenUsage.inputTokenCount() == null ? 0 : tokenUsage.inputTokenCount();
+            outputTokens = tokenUsage.outputTokenCount() == null ? 0 : tokenUsage.outputTokenCount();
+            if (tokenUsage instanceof OpenAiTokenUsage openAiTokenUsage && openAiTokenUsage.inputTokensDetails() != null
+                    && openAiTokenUsage.inputTokensDetails().cachedTokens() != null) {
+                cachedTokens = openAiTokenUsage.inputTokensDetails().cachedTokens();
+            }
+        }
+        llmTelemetry.recordCall(new LlmTelemetry.CallRecord(modelName, codeGenType.getValue(), LlmTelemetry.OUTCOME_SUCCESS,
+                durationNanos, firstOutputNanos, inputTokens, cachedTokens, outputTokens));
+        if (cancellation != null) {
+            cancellation.recordTokenUsage(inputTokens, outputTokens);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 大模型准入控制配置
+ * 按模型限制同时进行的流式生成数量，超出的请求按用户轮询排队
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.admission")
+@Data
+public class AdmissionConfig {
+
+    /**
+     * 是否启用准入控制
+     */
+    private boolean enabled = true;
+
+    /**
+     * 未单独配置的模型允许的最大并发模型流数
+     */
+    private int defaultMaxConcurrency = 20;
+
+    /**
+     * 按模型名称配置的最大并发模型流数
+     */
+    private Map<String, Integer> models = new HashMap<>();
+
+    /**
+     * 每个模型的排队上限，超出后直接拒绝
+     */
+    private int maxQueueSize = 200;
+
+    /**
+     * 最长排队时间（秒），超时后放弃生成
+     */
+    private long queueTimeoutSeconds = 300;
+
+    /**
+     * 还没有历史数据时，估算等待时间使用的单次生成耗时（秒）
+     */
+    private long initialAvgDurationSeconds = 60;
+
+    /**
+     * 获取指定模型的最大并发模型流数
+     *
+     * @param modelName 模型名称
+     * @return 最大并发模型流数
+     */
+    public int getMaxConcurrency(String modelName) {
+        return models.getOrDefault(modelName, defaultMaxConcurrency);
+    }
+}
@@ -0,0 +1,69 @@
+package com.config;
+
+import com.model.enums.CodeGenTypeEnum;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 对话记忆配置
+ * 按代码生成类型限制发送给模型的历史 token 数，超出的较早轮次折叠为摘要，旧版本的完整代码替换为当前文件列表
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.memory")
+@Data
+public class ChatMemoryConfig {
+
+    /**
+     * 是否启用 token 预算，关闭时按消息条数截断
+     */
+    private boolean enabled = true;
+
+    /**
+     * Redis 中最多保存的消息条数
+     */
+    private int maxMessages = 100;
+
+    /**
+     * 未单独配置的生成类型的 token 预算
+     */
+    private int defaultTokenBudget = 16_000;
+
+    /**
+     * 按代码生成类型配置的 token 预算
+     */
+    private Map<CodeGenTypeEnum, Integer> tokenBudgets = new EnumMap<>(CodeGenTypeEnum.class);
+
+    /**
+     * 始终完整保留的最近轮数（包括当前轮）
+     */
+    private int keepRecentTurns = 2;
+
+    /**
+     * 摘要中每轮对话保留的字符数
+     */
+    private int summaryEntryChars = 100;
+
+    /**
+     * 本地最多缓存的对话记忆数（每个应用每种生成类型一个）
+     */
+    private int cacheMaxSize = 2000;
+
+    /**
+     * 对话记忆空闲多久（分钟）后移出本地缓存，再次使用时重新预热
+     */
+    private long cacheIdleMinutes = 30;
+
+    /**
+     * 获取指定生成类型的 token 预算
+     *
+     * @param codeGenType 代码生成类型
+     * @return token 预算
+     */
+    public int getTokenBudget(CodeGenTypeEnum codeGenType) {
+        return tokenBudgets.getOrDefault(codeGenType, defaultTokenBudget);
+    }
+}
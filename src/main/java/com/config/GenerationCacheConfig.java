@@ -0,0 +1,50 @@
+package com.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 生成结果缓存配置
+ * 首轮对话的 HTML / 多文件生成按规范化后的提示词精确匹配缓存，命中时按节奏回放缓存内容
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.cache")
+@Data
+public class GenerationCacheConfig {
+
+    /**
+     * 是否启用生成结果缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 本地缓存（L1）最大条目数
+     */
+    private long localMaxSize = 200;
+
+    /**
+     * 本地缓存（L1）写入后过期时间（分钟）
+     */
+    private long localTtlMinutes = 60;
+
+    /**
+     * Redis 缓存（L2）过期时间（小时）
+     */
+    private long redisTtlHours = 24;
+
+    /**
+     * 单条缓存最大字符数，超过的结果不缓存
+     */
+    private int maxEntryChars = 200_000;
+
+    /**
+     * 回放时每个片段的字符数
+     */
+    private int replayChunkChars = 200;
+
+    /**
+     * 回放时相邻片段的间隔（毫秒），0 表示不限速
+     */
+    private long replayIntervalMs = 20;
+}
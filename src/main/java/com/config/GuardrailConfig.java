@@ -0,0 +1,35 @@
+package com.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 输入护轨规则配置
+ * 内置规则随应用发布，外部规则文件修改后自动重新加载，无需重新部署
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.guardrail")
+@Data
+public class GuardrailConfig {
+
+    /**
+     * 是否加载内置规则（classpath:guardrail/prompt-rules.txt）
+     */
+    private boolean builtinRulesEnabled = true;
+
+    /**
+     * 外部规则文件路径，为空表示只使用内置规则
+     */
+    private String rulesPath;
+
+    /**
+     * 检查外部规则文件是否修改的间隔（秒），小于等于 0 表示不自动重新加载
+     */
+    private long reloadIntervalSeconds = 10;
+
+    /**
+     * 单条规则通过 {a|b} 展开后最多生成的模式数，避免写错的规则生成过多模式
+     */
+    private int maxExpansionsPerRule = 256;
+}
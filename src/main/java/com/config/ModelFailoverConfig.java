@@ -0,0 +1,81 @@
+package com.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 模型故障转移配置
+ * 每组模型（streaming、reasoning）在主端点之后按顺序配置备用的 OpenAI 兼容端点，
+ * 超过首 token 期限仍没有输出时向下一个端点发起对冲请求，先输出的一方胜出，另一方被取消
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.failover")
+@Data
+public class ModelFailoverConfig {
+
+    /**
+     * 是否启用故障转移
+     */
+    private boolean enabled = true;
+
+    /**
+     * 端点连续失败多少次后进入冷却，冷却期间排到最后
+     */
+    private int failureThreshold = 3;
+
+    /**
+     * 冷却时间（秒）
+     */
+    private long cooldownSeconds = 60;
+
+    /**
+     * 按模型组配置的备用端点，键为 streaming 或 reasoning
+     */
+    private Map<String, FailoverGroup> groups = new HashMap<>();
+
+    /**
+     * 获取模型组配置
+     *
+     * @param group 模型组
+     * @return 模型组配置，未配置返回 null
+     */
+    public FailoverGroup getGroup(String group) {
+        return groups.get(group);
+    }
+
+    @Data
+    public static class FailoverGroup {
+
+        /**
+         * 首 token 期限（毫秒），超过后仍没有收到任何响应事件（文本、工具调用或思考过程）时向下一个端点发起对冲请求，
+         * 0 表示只在出错时切换
+         */
+        private long firstTokenTimeoutMs = 10_000;
+
+        /**
+         * 备用端点，按优先级排列
+         */
+        private List<Endpoint> endpoints = new ArrayList<>();
+    }
+
+    @Data
+    public static class Endpoint {
+
+        /**
+         * 端点名称，用于统计
+         */
+        private String name;
+
+        private String baseUrl;
+
+        private String apiKey;
+
+        private String modelName;
+    }
+}
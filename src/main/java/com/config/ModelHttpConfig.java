@@ -0,0 +1,35 @@
+package com.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 模型 HTTP 传输配置
+ * 所有模型 Bean 共享同一个 HTTP 客户端（连接复用、支持时使用 HTTP/2 多路复用）和同一个有界的流式请求线程池
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.model-http")
+@Data
+public class ModelHttpConfig {
+
+    /**
+     * 是否优先使用 HTTP/2，服务端不支持时自动降级为 HTTP/1.1
+     */
+    private boolean http2Enabled = true;
+
+    /**
+     * 建立连接超时时间（秒），模型 Bean 未指定连接超时时使用
+     */
+    private long connectTimeoutSeconds = 15;
+
+    /**
+     * 同时进行的流式请求上限（读取响应流的线程数）
+     */
+    private int maxStreams = 200;
+
+    /**
+     * 流式请求线程都在使用时的等待队列长度，超出后请求直接失败
+     */
+    private int queueCapacity = 100;
+}
@@ -0,0 +1,30 @@
+package com.config;
+
+import cn.hutool.core.net.NetUtil;
+import cn.hutool.core.util.StrUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 节点配置
+ * 多节点部署时用于区分任务和锁的归属，需保证重启前后一致
+ */
+@Configuration
+public class NodeConfig {
+
+    /**
+     * 节点标识，为空时使用主机名
+     */
+    @Value("${code-gen.node-id:}")
+    private String nodeId;
+
+    /**
+     * 获取节点标识
+     */
+    public String getNodeId() {
+        if (StrUtil.isBlank(nodeId)) {
+            nodeId = NetUtil.getLocalHostName();
+        }
+        return nodeId;
+    }
+}
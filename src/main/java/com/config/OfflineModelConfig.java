@@ -0,0 +1,72 @@
+package com.config;
+
+import com.model.enums.CodeGenTypeEnum;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 离线模型配置
+ * 启用后流式生成模型、推理模型和路由模型都替换为本地的离线模型，按录制或模板输出回放，
+ * 不访问模型服务商，用于压测和回归测试整条生成链路
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.offline-model")
+@Data
+public class OfflineModelConfig {
+
+    /**
+     * 是否启用离线模型
+     */
+    private boolean enabled = false;
+
+    /**
+     * 首 token 延迟（毫秒）
+     */
+    private long ttftMs = 800;
+
+    /**
+     * 输出速度（token/秒）
+     */
+    private int tokensPerSecond = 40;
+
+    /**
+     * 每个 token 对应的字符数，用于切分输出和估算 token 数
+     */
+    private int charsPerToken = 3;
+
+    /**
+     * 延迟抖动比例，每次延迟在 [1 - jitterRatio, 1 + jitterRatio] 倍之间随机
+     */
+    private double jitterRatio = 0.2;
+
+    /**
+     * 首 token 之前请求失败的概率
+     */
+    private double failureRate = 0;
+
+    /**
+     * 输出过程中请求失败的概率
+     */
+    private double midStreamFailureRate = 0;
+
+    /**
+     * 随机数种子，为空时每次启动不同
+     */
+    private Long seed;
+
+    /**
+     * 录制输出所在目录，存在 html.txt、multi_file.txt、vue_project.json 时优先回放，否则使用内置模板
+     */
+    private String recordingDir;
+
+    /**
+     * 内置模板中页面内容区块的数量，用于调整输出长度
+     */
+    private int templateSections = 6;
+
+    /**
+     * 路由模型固定返回的生成类型，为空时按关键词判断，判断不出时返回 HTML
+     */
+    private CodeGenTypeEnum routingType;
+}
@@ -0,0 +1,36 @@
+package com.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 输出校验配置
+ * 在流式输出过程中增量校验生成的代码：未闭合的代码块、不完整的 HTML、空文件和超长输出，
+ * 代码块被截断时发起续写请求补全，而不是整体重新生成
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.output-guard")
+@Data
+public class OutputGuardConfig {
+
+    /**
+     * 是否启用输出校验
+     */
+    private boolean enabled = true;
+
+    /**
+     * 单次生成（HTML / 多文件）最多输出的字符数，超过后立即中止生成
+     */
+    private int maxOutputChars = 300_000;
+
+    /**
+     * 单个文件最多的字符数
+     */
+    private int maxFileChars = 200_000;
+
+    /**
+     * 代码块被截断时最多发起的续写次数，0 表示不续写
+     */
+    private int maxContinuations = 2;
+}
@@ -1,5 +1,9 @@
 package com.config;
 
+import com.ai.failover.ModelFailoverManager;
+import com.ai.http.CancellableHttpClientBuilder;
+import com.ai.http.SharedModelHttpTransport;
+import com.ai.offline.OfflineModelProvider;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
 import lombok.Data;
@@ -32,7 +36,21 @@ public class ReasoningStreamingChatModelConfig {
      */
     @Bean
     @Scope("prototype")
-    public StreamingChatModel reasoningStreamingChatModelPrototype() {
+    public StreamingChatModel reasoningStreamingChatModelPrototype(SharedModelHttpTransport sharedModelHttpTransport,
+                                                                   ModelFailoverManager modelFailoverManager,
+                                                                   OfflineModelProvider offlineModelProvider) {
+        // 启用离线模型时使用本地回放，用于压测和回归测试
+        if (offlineModelProvider.isEnabled()) {
+            return offlineModelProvider.streamingChatModel();
+        }
+        StreamingChatModel primary = buildModel(baseUrl, apiKey, modelName, sharedModelHttpTransport);
+        // 配置了备用端点时，主端点出错或首 token 超时后切换到备用端点
+        return modelFailoverManager.withFailover(ModelFailoverManager.GROUP_REASONING, modelName, primary,
+                endpoint -> buildModel(endpoint.getBaseUrl(), endpoint.getApiKey(), endpoint.getModelName(), sharedModelHttpTransport));
+    }
+
+    private StreamingChatModel buildModel(String baseUrl, String apiKey, String modelName,
+                                          SharedModelHttpTransport sharedModelHttpTransport) {
         return OpenAiStreamingChatModel.builder()
                 .apiKey(apiKey)
                 .baseUrl(baseUrl)
@@ -41,6 +59,8 @@ public class ReasoningStreamingChatModelConfig {
                 .temperature(temperature)
                 .logRequests(logRequests)
                 .logResponses(logResponses)
+                // 共享 HTTP 传输层，支持取消生成时中断模型响应流
+                .httpClientBuilder(new CancellableHttpClientBuilder(sharedModelHttpTransport.httpClientBuilder()))
                 .build();
     }
 }
@@ -1,5 +1,7 @@
 package com.config;
 
+import com.ai.http.SharedModelHttpTransport;
+import com.ai.offline.OfflineModelProvider;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
 import lombok.Data;
@@ -35,7 +37,12 @@ public class RoutingAiModelConfig {
      */
     @Bean
     @Scope("prototype")
-    public ChatModel routingChatModelPrototype() {
+    public ChatModel routingChatModelPrototype(SharedModelHttpTransport sharedModelHttpTransport,
+                                               OfflineModelProvider offlineModelProvider) {
+        // 启用离线模型时使用本地路由，用于压测和回归测试
+        if (offlineModelProvider.isEnabled()) {
+            return offlineModelProvider.chatModel();
+        }
         return OpenAiChatModel.builder()
                 .apiKey(apiKey)
                 .modelName(modelName)
@@ -44,6 +51,8 @@ public class RoutingAiModelConfig {
                 .temperature(temperature)
                 .logRequests(logRequests)
                 .logResponses(logResponses)
+                // 共享 HTTP 传输层
+                .httpClientBuilder(sharedModelHttpTransport.httpClientBuilder())
                 .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 代码生成类型路由配置
+ * 明确的需求由本地关键词评分直接判定，不明确的需求才调用路由模型，模型结果按提示词指纹缓存
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.routing")
+@Data
+public class RoutingConfig {
+
+    /**
+     * 是否启用本地关键词评分
+     */
+    private boolean heuristicEnabled = true;
+
+    /**
+     * 本地判定需要的最低得分
+     */
+    private int minScore = 3;
+
+    /**
+     * 本地判定时最高得分需要领先第二名的分数
+     */
+    private int minMargin = 2;
+
+    /**
+     * 路由结果缓存最大条目数
+     */
+    private long cacheMaxSize = 1000;
+
+    /**
+     * 路由结果缓存过期时间（小时）
+     */
+    private long cacheTtlHours = 24;
+}
@@ -0,0 +1,31 @@
+package com.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 多文件分段并行生成配置
+ * 首轮多文件生成先用一次简短的规划请求确定页面结构契约（区块、id、类名），
+ * 再并行生成 index.html、style.css 和 script.js，端到端耗时取决于最慢的一个文件，而不是三个文件之和
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.sectioned-generation")
+@Data
+public class SectionedGenerationConfig {
+
+    /**
+     * 是否启用分段并行生成
+     */
+    private boolean enabled = false;
+
+    /**
+     * 规划结果最多的字符数，超过或解析失败时回退为单流生成
+     */
+    private int maxPlanChars = 6000;
+
+    /**
+     * 每个文件每输出多少字符推送一次进度
+     */
+    private int progressIntervalChars = 1000;
+}
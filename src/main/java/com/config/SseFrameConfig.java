@@ -0,0 +1,53 @@
+package com.config;
+
+import com.model.enums.CodeGenTypeEnum;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * SSE 帧合并配置
+ * 按时间窗口和字节阈值把多个 token 合并为一个 SSE 帧，可按代码生成类型单独配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen.sse")
+@Data
+public class SseFrameConfig {
+
+    /**
+     * 默认合并策略
+     */
+    private FramePolicy defaults = new FramePolicy();
+
+    /**
+     * 按代码生成类型覆盖的合并策略
+     */
+    private Map<CodeGenTypeEnum, FramePolicy> types = new EnumMap<>(CodeGenTypeEnum.class);
+
+    /**
+     * 获取指定代码生成类型的合并策略
+     *
+     * @param codeGenType 代码生成类型
+     * @return 合并策略
+     */
+    public FramePolicy getPolicy(CodeGenTypeEnum codeGenType) {
+        return types.getOrDefault(codeGenType, defaults);
+    }
+
+    @Data
+    public static class FramePolicy {
+
+        /**
+         * 合并时间窗口（毫秒），从缓冲区收到第一个 token 开始计时，0 表示不合并
+         */
+        private long windowMs = 50;
+
+        /**
+         * 单帧最大字节数（UTF-8），缓冲区达到该值立即发送
+         */
+        private int maxBytes = 4096;
+    }
+}
@@ -0,0 +1,290 @@
+package com.controller;
+
+import com.ai.AiCodeGeneratorServiceFactory;
+import com.ai.failover.ModelFailoverManager;
+import com.ai.guardrail.GuardrailRuleDictionary;
+import com.ai.http.SharedModelHttpTransport;
+import com.ai.memory.ChatMemoryHydrator;
+import com.ai.memory.ChatMemoryMetrics;
+import com.ai.routing.CodeGenTypeRouter;
+import com.ai.tools.ToolCallMetrics;
+import com.ai.usage.PromptCacheMetrics;
+import com.annotation.AuthCheck;
+import com.common.BaseResponse;
+import com.common.ResultUtils;
+import com.constant.UserConstant;
+import com.core.GenerationCancelMetrics;
+import com.core.admission.LlmAdmissionController;
+import com.core.cache.GenerationResultCache;
+import com.core.guard.OutputGuardMetrics;
+import com.exception.ErrorCode;
+import com.exception.ThrowUtils;
+import com.model.vo.AdmissionStatsVO;
+import com.model.vo.AiServiceStatsVO;
+import com.model.vo.ChatMemoryHydrationStatsVO;
+import com.model.vo.ChatMemoryStatsVO;
+import com.model.vo.GenerationCacheStatsVO;
+import com.model.vo.GenerationCancelStatsVO;
+import com.model.vo.GenerationLatencyStatsVO;
+import com.model.vo.GenerationTaskCountVO;
+import com.model.vo.GenerationTaskVO;
+import com.model.vo.GuardrailStatsVO;
+import com.model.vo.ModelEndpointStatsVO;
+import com.model.vo.ModelHttpStatsVO;
+import com.model.vo.OutputGuardStatsVO;
+import com.model.vo.PromptCacheStatsVO;
+import com.model.vo.RoutingStatsVO;
+import com.model.vo.ToolCallStatsVO;
+import com.service.AppService;
+import com.service.GenerationTaskRecordService;
+import jakarta.annotation.Resource;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 运维统计 控制层。
+ * 生成任务、模型调用、缓存、护轨等组件的运行统计，仅管理员可访问；时序数据见 /actuator/prometheus
+ */
+@RestController
+@RequestMapping("/admin")
+public class AdminMetricsController {
+
+    @Resource
+    private AppService appService;
+
+    @Resource
+    private GenerationTaskRecordService generationTaskRecordService;
+
+    @Resource
+    private GenerationCancelMetrics generationCancelMetrics;
+
+    @Resource
+    private LlmAdmissionController llmAdmissionController;
+
+    @Resource
+    private GenerationResultCache generationResultCache;
+
+    @Resource
+    private CodeGenTypeRouter codeGenTypeRouter;
+
+    @Resource
+    private SharedModelHttpTransport sharedModelHttpTransport;
+
+    @Resource
+    private ModelFailoverManager modelFailoverManager;
+
+    @Resource
+    private ChatMemoryMetrics chatMemoryMetrics;
+
+    @Resource
+    private ChatMemoryHydrator chatMemoryHydrator;
+
+    @Resource
+    private AiCodeGeneratorServiceFactory aiCodeGeneratorServiceFactory;
+
+    @Resource
+    private ToolCallMetrics toolCallMetrics;
+
+    @Resource
+    private PromptCacheMetrics promptCacheMetrics;
+
+    @Resource
+    private GuardrailRuleDictionary guardrailRuleDictionary;
+
+    @Resource
+    private OutputGuardMetrics outputGuardMetrics;
+
+    /**
+     * 管理员查看生成取消统计（含估算节省的 token 数）
+     *
+     * @return 各生成类型的取消统计
+     */
+    @GetMapping("/chat/gen/cancel/stats")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<List<GenerationCancelStatsVO>> getGenerationCancelStats() {
+        return ResultUtils.success(generationCancelMetrics.getStatsList());
+    }
+
+    /**
+     * 管理员查看本节点正在运行和最近被回收（长时间没有进展）的生成任务
+     *
+     * @return 生成任务列表
+     */
+    @GetMapping("/chat/gen/task/list")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<List<GenerationTaskVO>> listGenerationTasks() {
+        return ResultUtils.success(appService.listGenerationTasks());
+    }
+
+    /**
+     * 管理员查看本节点各代码生成类型正在运行的任务数
+     *
+     * @return 各类型的任务数
+     */
+    @GetMapping("/chat/gen/task/count")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<List<GenerationTaskCountVO>> countGenerationTasks() {
+        return ResultUtils.success(appService.countGenerationTasks());
+    }
+
+    /**
+     * 管理员查看各代码生成类型的首 token 耗时和总耗时分位数（p50/p95/p99）
+     *
+     * @param days 统计最近多少天，默认 7 天
+     * @return 各类型的耗时统计
+     */
+    @GetMapping("/chat/gen/latency/stats")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<List<GenerationLatencyStatsVO>> getGenerationLatencyStats(@RequestParam(defaultValue = "7") int days) {
+        ThrowUtils.throwIf(days <= 0 || days > 90, ErrorCode.PARAMS_ERROR, "统计天数范围为 1-90");
+        return ResultUtils.success(generationTaskRecordService.getLatencyStats(days));
+    }
+
+    /**
+     * 管理员查看创建应用时代码生成类型的路由情况（跳过模型调用的比例、节省的耗时）
+     *
+     * @return 路由统计
+     */
+    @GetMapping("/routing/stats")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<RoutingStatsVO> getRoutingStats() {
+        return ResultUtils.success(codeGenTypeRouter.getStats());
+    }
+
+    /**
+     * 管理员查看各代码生成类型对话记忆压缩前后的 token 数
+     *
+     * @return 各类型的压缩统计
+     */
+    @GetMapping("/chat/memory/stats")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<List<ChatMemoryStatsVO>> getChatMemoryStats() {
+        return ResultUtils.success(chatMemoryMetrics.getStatsList());
+    }
+
+    /**
+     * 管理员查看对话记忆预热情况（全量加载、增量补充、直接使用的次数和平均耗时）
+     *
+     * @return 各预热方式的统计
+     */
+    @GetMapping("/chat/memory/hydration/stats")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<List<ChatMemoryHydrationStatsVO>> getChatMemoryHydrationStats() {
+        return ResultUtils.success(chatMemoryHydrator.getStatsList());
+    }
+
+    /**
+     * 管理员查看共享 AI 服务和对话记忆缓存情况（命中率、冷启动平均耗时）
+     *
+     * @return AI 服务统计
+     */
+    @GetMapping("/ai/service/stats")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<AiServiceStatsVO> getAiServiceStats() {
+        return ResultUtils.success(aiCodeGeneratorServiceFactory.getStats());
+    }
+
+    /**
+     * 管理员查看 Vue 项目生成的模型往返次数、工具调用数和写入文件数
+     *
+     * @return 工具调用统计
+     */
+    @GetMapping("/ai/tool/stats")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<ToolCallStatsVO> getToolCallStats() {
+        return ResultUtils.success(toolCallMetrics.getStats());
+    }
+
+    /**
+     * 管理员查看各生成类型命中模型服务商提示词缓存的 token 数，以及命中与未命中缓存时的首次输出耗时
+     *
+     * @return 各生成类型的提示词缓存统计
+     */
+    @GetMapping("/ai/prompt-cache/stats")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<List<PromptCacheStatsVO>> getPromptCacheStats() {
+        return ResultUtils.success(promptCacheMetrics.getStatsList());
+    }
+
+    /**
+     * 管理员查看输入护轨的规则数量和各类别的命中次数
+     *
+     * @return 护轨统计
+     */
+    @GetMapping("/guardrail/stats")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<GuardrailStatsVO> getGuardrailStats() {
+        return ResultUtils.success(guardrailRuleDictionary.getStats());
+    }
+
+    /**
+     * 管理员立即重新加载输入护轨规则（外部规则文件修改后也会自动加载）
+     *
+     * @return 重新加载后的护轨统计
+     */
+    @PostMapping("/guardrail/reload")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<GuardrailStatsVO> reloadGuardrailRules() {
+        return ResultUtils.success(guardrailRuleDictionary.reload());
+    }
+
+    /**
+     * 管理员查看输出校验情况（续写次数、未通过校验的文件、超长中止和跳过构建的生成）
+     *
+     * @return 输出校验统计
+     */
+    @GetMapping("/output-guard/stats")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<OutputGuardStatsVO> getOutputGuardStats() {
+        return ResultUtils.success(outputGuardMetrics.getStats());
+    }
+
+    /**
+     * 管理员查看各模型端点的延迟、错误率和对冲情况
+     *
+     * @return 各端点统计
+     */
+    @GetMapping("/model/endpoint/stats")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<List<ModelEndpointStatsVO>> getModelEndpointStats() {
+        return ResultUtils.success(modelFailoverManager.getStatsList());
+    }
+
+    /**
+     * 管理员查看模型共享 HTTP 传输层的使用情况（请求数、活跃流、排队数、协商的协议）
+     *
+     * @return 传输层统计
+     */
+    @GetMapping("/model/http/stats")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<ModelHttpStatsVO> getModelHttpStats() {
+        return ResultUtils.success(sharedModelHttpTransport.getStats());
+    }
+
+    /**
+     * 管理员查看生成结果缓存的命中情况
+     *
+     * @return 缓存统计
+     */
+    @GetMapping("/chat/gen/cache/stats")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<GenerationCacheStatsVO> getGenerationCacheStats() {
+        return ResultUtils.success(generationResultCache.getStats());
+    }
+
+    /**
+     * 管理员查看各模型的准入状态（并发数、排队人数）
+     *
+     * @return 各模型的准入状态
+     */
+    @GetMapping("/chat/gen/admission/stats")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<List<AdmissionStatsVO>> getAdmissionStats() {
+        return ResultUtils.success(llmAdmissionController.getStatsList());
+    }
+}
@@ -1,8 +1,8 @@
 package com.controller;
 
 import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.util.ObjUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
@@ -12,12 +12,15 @@ import com.common.DeleteRequest;
 import com.common.ResultUtils;
 import com.constant.AppConstant;
 import com.constant.UserConstant;
+import com.core.builder.VueBuildJob;
+import com.core.sse.GenerationEvent;
 import com.exception.BusinessException;
 import com.exception.ErrorCode;
 import com.exception.ThrowUtils;
 import com.model.dto.app.*;
 import com.model.entity.User;
 import com.model.vo.AppVO;
+import com.model.vo.GenerationStatusVO;
 import com.ratelimter.annotation.RateLimit;
 import com.ratelimter.enums.RateLimitType;
 import com.service.ProjectDownloadService;
@@ -32,12 +35,10 @@ import org.springframework.web.bind.annotation.*;
 import com.model.entity.App;
 import com.service.AppService;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
 
 import java.io.File;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -62,29 +63,98 @@ public class AppController {
     @RateLimit(limitType = RateLimitType.USER, rate = 5, rateInterval = 60, message = "AI 对话请求过于频繁，请稍后再试")
     public Flux<ServerSentEvent<String>> chatToGenCode(@RequestParam Long appId,
                                                        @RequestParam String message,
+                                                       @RequestParam(defaultValue = "false") boolean noCache,
+                                                       @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
                                                        HttpServletRequest request) {
         // 参数校验
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 id 错误");
         ThrowUtils.throwIf(StrUtil.isBlank(message), ErrorCode.PARAMS_ERROR, "提示词不能为空");
         // 获取当前登录用户
         User loginUser = userService.getLoginUser(request);
-        // 调用服务生成代码（SSE 流式返回）
-        Flux<String> contentFlux = appService.chatToGenCode(appId, message, loginUser);
-        return contentFlux
-                .map(chunk -> {
-                    Map<String, String> wrapper = Map.of("d", chunk);
-                    String jsonData = JSONUtil.toJsonStr(wrapper);
-                    return ServerSentEvent.<String>builder()
-                            .data(jsonData)
-                            .build();
-                })
-                .concatWith(Mono.just(
-                        // 发送结束事件
-                        ServerSentEvent.<String>builder()
-                                .event("done")
-                                .data("")
-                                .build()
-                ));
+        // EventSource 自动重连会携带 Last-Event-ID，从断点续传，不再重新生成
+        if (lastEventId != null) {
+            return appService.resumeGenCode(appId, lastEventId, loginUser).map(this::toServerSentEvent);
+        }
+        // 调用服务生成代码（SSE 流式返回，token 已按帧合并并编码）
+        Flux<GenerationEvent> eventFlux = appService.chatToGenCode(appId, message, loginUser, !noCache);
+        return eventFlux.map(this::toServerSentEvent);
+    }
+
+    /**
+     * 订阅正在进行的生成：断线续传（页面刷新等无法自动重连的场景）或多端观看（其他标签页、管理员）
+     *
+     * @param appId       应用 ID
+     * @param lastEventId 已收到的最后一个事件序号，不传则从头回放
+     * @param request     请求
+     * @return 断点之后的 SSE 事件流
+     */
+    @GetMapping(value = "/chat/gen/code/resume", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> resumeGenCode(@RequestParam Long appId,
+                                                       @RequestParam(required = false) Long lastEventId,
+                                                       @RequestHeader(value = "Last-Event-ID", required = false) Long headerLastEventId,
+                                                       HttpServletRequest request) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 id 错误");
+        User loginUser = userService.getLoginUser(request);
+        // 自动重连时请求头中的序号更新
+        long resumeFrom = headerLastEventId != null ? headerLastEventId : ObjUtil.defaultIfNull(lastEventId, 0L);
+        return appService.resumeGenCode(appId, resumeFrom, loginUser).map(this::toServerSentEvent);
+    }
+
+    /**
+     * 获取应用当前的生成状态，用于判断是否可以订阅观看
+     *
+     * @param appId   应用 ID
+     * @param request 请求
+     * @return 生成状态
+     */
+    @GetMapping("/chat/gen/status")
+    public BaseResponse<GenerationStatusVO> getGenerationStatus(@RequestParam Long appId, HttpServletRequest request) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 id 错误");
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(appService.getGenerationStatus(appId, loginUser));
+    }
+
+    /**
+     * 取消正在进行的生成（所有观看者断开一段时间后也会自动取消）
+     *
+     * @param appChatCancelRequest 取消请求
+     * @param request              请求
+     * @return 是否取消成功
+     */
+    @PostMapping("/chat/gen/cancel")
+    public BaseResponse<Boolean> cancelGenCode(@RequestBody AppChatCancelRequest appChatCancelRequest, HttpServletRequest request) {
+        ThrowUtils.throwIf(appChatCancelRequest == null, ErrorCode.PARAMS_ERROR);
+        Long appId = appChatCancelRequest.getAppId();
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 id 错误");
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(appService.cancelGenCode(appId, loginUser));
+    }
+
+    /**
+     * 获取 Vue 项目的构建任务状态（排队位置、构建阶段、结果）
+     *
+     * @param appId   应用 ID
+     * @param request 请求
+     * @return 构建任务，没有构建记录返回 null
+     */
+    @GetMapping("/build/status")
+    public BaseResponse<VueBuildJob> getBuildStatus(@RequestParam Long appId, HttpServletRequest request) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 id 错误");
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(appService.getBuildStatus(appId, loginUser));
+    }
+
+    /**
+     * 生成事件转换为 SSE 事件
+     */
+    private ServerSentEvent<String> toServerSentEvent(GenerationEvent generationEvent) {
+        ServerSentEvent.Builder<String> builder = ServerSentEvent.<String>builder()
+                .event(generationEvent.getEvent())
+                .data(generationEvent.getData());
+        if (generationEvent.getId() > 0) {
+            builder.id(String.valueOf(generationEvent.getId()));
+        }
+        return builder.build();
     }
 
     /**
@@ -1,17 +1,31 @@
 package com.core;
 
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONArray;
 import cn.hutool.json.JSONUtil;
 import com.ai.AiCodeGeneratorService;
 import com.ai.AiCodeGeneratorServiceFactory;
+import com.ai.http.ModelStreamCancellation;
 import com.ai.model.HtmlCodeResult;
 import com.ai.model.MultiFileCodeResult;
 import com.ai.model.message.AiResponseMessage;
+import com.ai.model.message.StreamMessage;
 import com.ai.model.message.ToolExecutedMessage;
 import com.ai.model.message.ToolRequestMessage;
-import com.constant.AppConstant;
-import com.core.builder.VueProjectBuilder;
+import com.ai.telemetry.LlmTelemetry;
+import com.ai.tools.FileWriteTool;
+import com.ai.tools.ToolCallMetrics;
+import com.ai.tools.ToolManager;
+import com.config.GenerationCacheConfig;
+import com.config.OutputGuardConfig;
+import com.core.cache.GenerationResultCache;
+import com.core.guard.OutputGuardMetrics;
+import com.core.guard.StreamingOutputGuard;
 import com.core.parser.CodeParserExecutor;
+import com.core.parser.StreamingCodeParser;
 import com.core.saver.CodeFileSaverExecutor;
+import com.core.saver.StreamingCodeFileSaver;
+import com.core.sectioned.SectionedCodeGenerator;
 import com.exception.BusinessException;
 import com.exception.ErrorCode;
 import com.model.enums.CodeGenTypeEnum;
@@ -24,6 +38,14 @@ import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 
 import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * AI 代码生成门面类，组合代码生成和保存功能
@@ -32,11 +54,53 @@ import java.io.File;
 @Slf4j
 public class AiCodeGeneratorFacade {
 
+    /**
+     * 工具失败信息的开头
+     */
+    private static final Pattern TOOL_FAILURE_PATTERN = Pattern.compile("错误|Error|[^\\n：:]{0,10}失败[：:]");
+
+    /**
+     * 写入工具返回的单个文件结果（批量写入时每行一个文件）
+     */
+    private static final Pattern FILE_WRITE_RESULT_PATTERN = Pattern.compile(
+            "^(" + Pattern.quote(FileWriteTool.WRITE_SUCCESS_PREFIX) + "|" + Pattern.quote(FileWriteTool.VALIDATION_FAILURE_PREFIX)
+                    + ")(.+?)(?:, 错误: (.*?)(?:，请重新写入.*)?)?$", Pattern.MULTILINE);
+
+    /**
+     * 代码块被截断时的续写提示词，对话记忆中已有被截断的回复
+     */
+    private static final String CONTINUATION_PROMPT = "你的上一条回复在 {} 的代码块中被截断了。请从截断处继续输出剩余的代码，"
+            + "不要重复已经输出的内容，不要重新开始代码块，也不要添加任何解释，输出完毕后闭合代码块。";
+
     @Resource
     private AiCodeGeneratorServiceFactory aiCodeGeneratorServiceFactory;
 
     @Resource
-    private VueProjectBuilder vueProjectBuilder;
+    private GenerationTaskManager generationTaskManager;
+
+    @Resource
+    private GenerationResultCache generationResultCache;
+
+    @Resource
+    private GenerationCacheConfig generationCacheConfig;
+
+    @Resource
+    private ToolCallMetrics toolCallMetrics;
+
+    @Resource
+    private ToolManager toolManager;
+
+    @Resource
+    private LlmTelemetry llmTelemetry;
+
+    @Resource
+    private OutputGuardConfig outputGuardConfig;
+
+    @Resource
+    private OutputGuardMetrics outputGuardMetrics;
+
+    @Resource
+    private SectionedCodeGenerator sectionedCodeGenerator;
 
     /**
      * 统一入口：根据类型生成并保存代码
@@ -54,11 +118,11 @@ public class AiCodeGeneratorFacade {
         AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(appId, codeGenTypeEnum);
         return switch (codeGenTypeEnum) {
             case HTML -> {
-                HtmlCodeResult result = aiCodeGeneratorService.generateHtmlCode(userMessage);
+                HtmlCodeResult result = aiCodeGeneratorService.generateHtmlCode(appId, userMessage);
                 yield CodeFileSaverExecutor.executeSaver(result, CodeGenTypeEnum.HTML, appId);
             }
             case MULTI_FILE -> {
-                MultiFileCodeResult result = aiCodeGeneratorService.generateMultiFileCode(userMessage);
+                MultiFileCodeResult result = aiCodeGeneratorService.generateMultiFileCode(appId, userMessage);
                 yield CodeFileSaverExecutor.executeSaver(result, CodeGenTypeEnum.MULTI_FILE, appId);
             }
             default -> {
@@ -74,9 +138,23 @@ public class AiCodeGeneratorFacade {
      * @param userMessage     用户提示词
      * @param codeGenTypeEnum 生成类型
      * @param appId           应用 ID
-     * @return 保存的目录
+     * @return 流式消息（AI 响应片段、工具调用等）
+     */
+    public Flux<StreamMessage> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId) {
+        return generateAndSaveCodeStream(userMessage, codeGenTypeEnum, appId, null);
+    }
+
+    /**
+     * 统一入口：根据类型生成并保存代码（流式），生成成功后写入生成结果缓存
+     *
+     * @param userMessage     用户提示词
+     * @param codeGenTypeEnum 生成类型
+     * @param appId           应用 ID
+     * @param cacheKey        生成结果缓存键，为 null 时不写入缓存
+     * @return 流式消息（AI 响应片段、工具调用等）
      */
-    public Flux<String> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId) {
+    public Flux<StreamMessage> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId,
+                                                         String cacheKey) {
         if (codeGenTypeEnum == null) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "生成类型不能为空");
         }
@@ -84,12 +162,12 @@ public class AiCodeGeneratorFacade {
         AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(appId, codeGenTypeEnum);
         return switch (codeGenTypeEnum) {
             case HTML -> {
-                Flux<String> codeStream = aiCodeGeneratorService.generateHtmlCodeStream(userMessage);
-                yield processCodeStream(codeStream, CodeGenTypeEnum.HTML, appId);
+                Flux<String> codeStream = aiCodeGeneratorService.generateHtmlCodeStream(appId, userMessage);
+                yield processCodeStream(codeStream, aiCodeGeneratorService, CodeGenTypeEnum.HTML, appId, cacheKey);
             }
             case MULTI_FILE -> {
-                Flux<String> codeStream = aiCodeGeneratorService.generateMultiFileCodeStream(userMessage);
-                yield processCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE, appId);
+                Flux<String> codeStream = aiCodeGeneratorService.generateMultiFileCodeStream(appId, userMessage);
+                yield processCodeStream(codeStream, aiCodeGeneratorService, CodeGenTypeEnum.MULTI_FILE, appId, cacheKey);
             }
             case VUE_PROJECT -> {
                 TokenStream tokenStream = aiCodeGeneratorService.generateVueProjectCodeStream(appId, userMessage);
@@ -103,30 +181,90 @@ public class AiCodeGeneratorFacade {
     }
 
     /**
-     * 将 TokenStream 转换为 Flux<String>，并传递工具调用信息
+     * 首轮多文件生成：先规划页面结构契约，再并行生成 HTML、CSS 和 JS，规划失败时回退为单流生成
+     *
+     * @param userMessage 用户提示词
+     * @param appId       应用 ID
+     * @param cacheKey    生成结果缓存键，为 null 时不写入缓存
+     * @return 流式消息（AI 响应片段、文件进度）
+     */
+    public Flux<StreamMessage> generateSectionedCodeStream(String userMessage, Long appId, String cacheKey) {
+        return sectionedCodeGenerator.generate(userMessage, appId, cacheKey,
+                () -> generateAndSaveCodeStream(userMessage, CodeGenTypeEnum.MULTI_FILE, appId, cacheKey));
+    }
+
+    /**
+     * 回放缓存的生成结果：按配置的节奏分片推送，推送完成后保存代码并更新对话记忆
+     *
+     * @param cachedCode      缓存的完整 AI 输出
+     * @param userMessage     用户提示词
+     * @param codeGenTypeEnum 生成类型
+     * @param appId           应用 ID
+     * @return 流式消息
+     */
+    public Flux<StreamMessage> replayCachedCode(String cachedCode, String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId) {
+        Flux<String> chunkStream = Flux.fromIterable(splitChunks(cachedCode, generationCacheConfig.getReplayChunkChars()));
+        if (generationCacheConfig.getReplayIntervalMs() > 0) {
+            chunkStream = chunkStream.delayElements(Duration.ofMillis(generationCacheConfig.getReplayIntervalMs()));
+        }
+        return chunkStream.doOnComplete(() -> {
+            if (!generationTaskManager.isWritable(appId)) {
+                log.warn("应用 {} 的生成任务已失效，跳过保存缓存结果", appId);
+                return;
+            }
+            try {
+                Object parsedResult = CodeParserExecutor.executeParser(cachedCode, codeGenTypeEnum);
+                File saveDir = CodeFileSaverExecutor.executeSaver(parsedResult, codeGenTypeEnum, appId);
+                aiCodeGeneratorServiceFactory.appendChatMemory(appId, codeGenTypeEnum, userMessage, cachedCode);
+                log.info("缓存结果保存成功，目录为：{}", saveDir.getAbsolutePath());
+            } catch (Exception e) {
+                log.error("缓存结果保存失败: {}", e.getMessage());
+            }
+        }).map(AiResponseMessage::new);
+    }
+
+    /**
+     * 将 TokenStream 转换为 Flux<StreamMessage>，并传递工具调用信息
+     * 消息以对象形式传递给下游，不做 JSON 序列化
      *
      * @param tokenStream TokenStream 对象
      * @param appId       应用 ID
-     * @return Flux<String> 流式响应
+     * @return 流式消息
      */
-    private Flux<String> processTokenStream(TokenStream tokenStream, Long appId) {
+    private Flux<StreamMessage> processTokenStream(TokenStream tokenStream, Long appId) {
         return Flux.create(sink -> {
+            // 订阅时绑定的取消句柄，用于读取本次生成的模型请求数
+            ModelStreamCancellation cancellation = ModelStreamCancellation.current();
+            AtomicLong toolCalls = new AtomicLong();
+            AtomicLong batchWrites = new AtomicLong();
+            AtomicLong filesWritten = new AtomicLong();
+            // 最近一次写入未通过校验的文件，之后写入成功时移除
+            Map<String, String> rejectedFiles = new LinkedHashMap<>();
             tokenStream.onPartialResponse((String partialResponse) -> {
-                        AiResponseMessage aiResponseMessage = new AiResponseMessage(partialResponse);
-                        sink.next(JSONUtil.toJsonStr(aiResponseMessage));
+                        sink.next(new AiResponseMessage(partialResponse));
                     })
                     .onToolExecuted((ToolExecution toolExecution) -> {
+                        countToolExecution(toolExecution, toolCalls, batchWrites, filesWritten);
+                        trackRejectedFiles(toolExecution.result(), rejectedFiles);
                         // 从 ToolExecution 中提取工具请求信息，先发送工具请求消息
-                        ToolRequestMessage toolRequestMessage = new ToolRequestMessage(toolExecution.request());
-                        sink.next(JSONUtil.toJsonStr(toolRequestMessage));
+                        sink.next(new ToolRequestMessage(toolExecution.request()));
                         // 然后发送工具执行结果消息
-                        ToolExecutedMessage toolExecutedMessage = new ToolExecutedMessage(toolExecution);
-                        sink.next(JSONUtil.toJsonStr(toolExecutedMessage));
+                        sink.next(new ToolExecutedMessage(toolExecution));
                     })
                     .onCompleteResponse((ChatResponse response) -> {
-                        // 执行 Vue 项目构建（同步执行，确保预览时项目已就绪）
-                        String projectPath = AppConstant.CODE_OUTPUT_ROOT_DIR + "/vue_project_" + appId;
-                        vueProjectBuilder.buildProject(projectPath);
+                        long modelRequests = cancellation != null ? cancellation.getModelRequests() : 0;
+                        toolCallMetrics.record(appId, modelRequests, toolCalls.get(), batchWrites.get(), filesWritten.get());
+                        // 仍有文件未通过校验时不再构建，避免浪费构建时间
+                        if (outputGuardConfig.isEnabled() && !rejectedFiles.isEmpty()) {
+                            outputGuardMetrics.recordBlockedGeneration();
+                            List<String> problems = new ArrayList<>();
+                            rejectedFiles.forEach((path, problem) -> problems.add(path + "：" + problem));
+                            log.warn("应用 {} 生成的文件未通过校验，跳过构建: {}", appId, problems);
+                            sink.error(new BusinessException(ErrorCode.OPERATION_ERROR,
+                                    "生成的文件未通过校验，已跳过构建：" + String.join("；", problems)));
+                            return;
+                        }
+                        // Vue 项目构建由构建队列异步执行，不阻塞模型回调线程
                         sink.complete();
                     })
                     .onError((Throwable error) -> {
@@ -138,31 +276,182 @@ public class AiCodeGeneratorFacade {
     }
 
     /**
-     * 通用流式代码处理方法
-     *
-     * @param codeStream  代码流
-     * @param codeGenType 代码生成类型
-     * @param appId       应用 ID
-     * @return 流式响应
-     */
-    private Flux<String> processCodeStream(Flux<String> codeStream, CodeGenTypeEnum codeGenType, Long appId) {
-        // 字符串拼接器，用于当流式返回所有的代码之后，再保存代码
-        StringBuilder codeBuilder = new StringBuilder();
-        return codeStream.doOnNext(chunk -> {
-            // 实时收集代码片段
-            codeBuilder.append(chunk);
-        }).doOnComplete(() -> {
-            // 流式返回完成后，保存代码
+     * 统计工具调用次数和写入的文件数
+     */
+    private void countToolExecution(ToolExecution toolExecution, AtomicLong toolCalls, AtomicLong batchWrites,
+                                    AtomicLong filesWritten) {
+        toolCalls.incrementAndGet();
+        String toolName = toolExecution.request().name();
+        // 模型可能调用不存在的工具，统一记为 unknown，避免标签值无限增长
+        String toolTag = toolManager.getTool(toolName) != null ? toolName : "unknown";
+        String outcome = isToolFailure(toolExecution.result()) ? LlmTelemetry.OUTCOME_ERROR : LlmTelemetry.OUTCOME_SUCCESS;
+        llmTelemetry.recordToolInvocation(llmTelemetry.resolveModelTag(CodeGenTypeEnum.VUE_PROJECT),
+                CodeGenTypeEnum.VUE_PROJECT.getValue(), toolTag, outcome);
+        if ("writeFile".equals(toolName)) {
+            filesWritten.incrementAndGet();
+        } else if ("writeFiles".equals(toolName)) {
+            batchWrites.incrementAndGet();
             try {
-                String completeCode = codeBuilder.toString();
-                // 使用执行器解析代码
-                Object parsedResult = CodeParserExecutor.executeParser(completeCode, codeGenType);
-                // 使用执行器保存代码
-                File saveDir = CodeFileSaverExecutor.executeSaver(parsedResult, codeGenType, appId);
-                log.info("保存成功，目录为：{}", saveDir.getAbsolutePath());
+                JSONArray files = JSONUtil.parseObj(toolExecution.request().arguments()).getJSONArray("files");
+                filesWritten.addAndGet(files == null ? 0 : files.size());
             } catch (Exception e) {
-                log.error("保存失败: {}", e.getMessage());
+                log.warn("解析批量写入参数失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 根据写入工具的返回结果，记录未通过校验的文件；模型重新写入成功后移除
+     */
+    private void trackRejectedFiles(String result, Map<String, String> rejectedFiles) {
+        if (result == null) {
+            return;
+        }
+        Matcher matcher = FILE_WRITE_RESULT_PATTERN.matcher(result);
+        while (matcher.find()) {
+            String path = matcher.group(2).trim();
+            if (FileWriteTool.WRITE_SUCCESS_PREFIX.equals(matcher.group(1))) {
+                rejectedFiles.remove(path);
+            } else {
+                rejectedFiles.put(path, StrUtil.nullToEmpty(matcher.group(3)));
             }
+        }
+    }
+
+    /**
+     * 工具返回的是否为失败信息（如“文件写入失败: ...”、“错误：...”、不存在的工具）
+     */
+    private boolean isToolFailure(String result) {
+        return result != null && TOOL_FAILURE_PATTERN.matcher(result).lookingAt();
+    }
+
+    /**
+     * 通用流式代码处理方法
+     * 使用流式解析器边接收边写文件，代码块闭合时对应文件即已落盘。
+     * 输出经 StreamingOutputGuard 增量校验：超长时立即中止；流结束时代码块仍未闭合则发起续写请求补全；
+     * 未通过校验的文件不落盘，并以错误结束本次生成
+     *
+     * @param codeStream             代码流
+     * @param aiCodeGeneratorService AI 服务，用于发起续写请求
+     * @param codeGenType            代码生成类型
+     * @param appId                  应用 ID
+     * @param cacheKey               生成结果缓存键，为 null 时不写入缓存
+     * @return 流式消息
+     */
+    private Flux<StreamMessage> processCodeStream(Flux<String> codeStream, AiCodeGeneratorService aiCodeGeneratorService,
+                                                  CodeGenTypeEnum codeGenType, Long appId, String cacheKey) {
+        return Flux.defer(() -> {
+            // 订阅时绑定的取消句柄，续写请求也需要绑定，取消生成时一起中断
+            ModelStreamCancellation cancellation = ModelStreamCancellation.current();
+            long startTime = System.nanoTime();
+            StreamingCodeFileSaver codeFileSaver = new StreamingCodeFileSaver(codeGenType, appId,
+                    () -> generationTaskManager.isWritable(appId));
+            StreamingOutputGuard outputGuard = new StreamingOutputGuard(codeFileSaver, outputGuardConfig);
+            StreamingCodeParser codeParser = new StreamingCodeParser(codeGenType, outputGuard);
+            StringBuilder fullCode = cacheKey != null ? new StringBuilder() : null;
+            // 前一段输出结束后再判断是否需要续写，此时前一段的内容都已送入解析器
+            Flux<String> guardedStream = codeStream.concatWith(Flux.defer(() ->
+                    continueTruncatedBlock(aiCodeGeneratorService, codeGenType, appId, codeParser, outputGuard, cancellation)));
+            return guardedStream.doOnNext(chunk -> {
+                if (fullCode != null) {
+                    fullCode.append(chunk);
+                }
+                outputGuard.onChunk(chunk);
+                // 实时解析代码片段，解析失败不影响流式输出
+                try {
+                    codeParser.feed(chunk);
+                } catch (Exception e) {
+                    log.error("解析代码片段失败: {}", e.getMessage());
+                }
+                if (outputGuard.getAbortReason() != null) {
+                    outputGuardMetrics.recordRunawayAbort();
+                    throw new BusinessException(ErrorCode.OPERATION_ERROR, outputGuard.getAbortReason());
+                }
+            }).concatWith(Flux.defer(() -> completeCodeStream(codeParser, codeFileSaver, outputGuard, fullCode, cacheKey)))
+                    .doOnError(error -> codeFileSaver.abort())
+                    .doOnCancel(codeFileSaver::abort)
+                    .doFinally(signalType -> llmTelemetry.recordGeneration(llmTelemetry.resolveModelTag(codeGenType),
+                            codeGenType.getValue(), LlmTelemetry.MODE_SINGLE, signalType, System.nanoTime() - startTime))
+                    .map(AiResponseMessage::new);
         });
     }
+
+    /**
+     * 流结束时代码块仍未闭合（通常是达到模型输出上限），发起续写请求补全该代码块，而不是整体重新生成
+     *
+     * @return 续写内容，不需要续写时为空
+     */
+    private Flux<String> continueTruncatedBlock(AiCodeGeneratorService aiCodeGeneratorService, CodeGenTypeEnum codeGenType,
+                                                Long appId, StreamingCodeParser codeParser, StreamingOutputGuard outputGuard,
+                                                ModelStreamCancellation cancellation) {
+        String openFile = codeParser.getOpenBlock();
+        if (!outputGuard.shouldContinue(openFile) || (cancellation != null && cancellation.isCancelled())) {
+            return Flux.empty();
+        }
+        log.warn("应用 {} 的代码块 {} 被截断，发起第 {} 次续写", appId, openFile, outputGuard.getContinuationCount() + 1);
+        outputGuardMetrics.recordContinuation();
+        String prompt = StrUtil.format(CONTINUATION_PROMPT, openFile);
+        Flux<String> continuation = codeGenType == CodeGenTypeEnum.HTML
+                ? aiCodeGeneratorService.generateHtmlCodeStream(appId, prompt)
+                : aiCodeGeneratorService.generateMultiFileCodeStream(appId, prompt);
+        if (cancellation != null) {
+            Flux<String> unbound = continuation;
+            continuation = Flux.from(subscriber -> cancellation.runWith(() -> unbound.subscribe(subscriber)));
+        }
+        return outputGuard.stitch(continuation).concatWith(Flux.defer(() ->
+                continueTruncatedBlock(aiCodeGeneratorService, codeGenType, appId, codeParser, outputGuard, cancellation)));
+    }
+
+    /**
+     * 流式输出结束：处理剩余内容，校验通过后完成保存并写入生成结果缓存，未通过时以错误结束
+     */
+    private Flux<String> completeCodeStream(StreamingCodeParser codeParser, StreamingCodeFileSaver codeFileSaver,
+                                            StreamingOutputGuard outputGuard, StringBuilder fullCode, String cacheKey) {
+        try {
+            outputGuard.markTruncated(codeParser.getOpenBlock());
+            codeParser.finish();
+        } catch (Exception e) {
+            log.error("解析剩余内容失败: {}", e.getMessage());
+        }
+        if (outputGuard.getContinuationCount() > 0 && codeParser.getOpenBlock() == null && outputGuard.getRejectedFileCount() == 0) {
+            outputGuardMetrics.recordRecovered();
+        }
+        List<String> problems = outputGuard.getProblems();
+        if (!problems.isEmpty()) {
+            outputGuardMetrics.recordRejectedFiles(outputGuard.getRejectedFileCount());
+            outputGuardMetrics.recordBlockedGeneration();
+            log.warn("生成的代码未通过校验: {}", problems);
+            return Flux.error(new BusinessException(ErrorCode.OPERATION_ERROR,
+                    "生成的代码未通过校验，未通过的文件没有保存：" + String.join("；", problems)));
+        }
+        try {
+            File saveDir = codeFileSaver.complete();
+            log.info("保存成功，目录为：{}，文件：{}", saveDir.getAbsolutePath(), codeFileSaver.getSavedFiles());
+            // 只缓存完整保存成功的结果
+            if (fullCode != null) {
+                generationResultCache.put(cacheKey, fullCode.toString());
+            }
+        } catch (Exception e) {
+            log.error("保存失败: {}", e.getMessage());
+        }
+        return Flux.empty();
+    }
+
+    /**
+     * 按字符数切分文本，不拆开代理对
+     */
+    private List<String> splitChunks(String text, int chunkChars) {
+        List<String> chunks = new ArrayList<>();
+        int size = Math.max(chunkChars, 1);
+        int start = 0;
+        while (start < text.length()) {
+            int end = Math.min(start + size, text.length());
+            if (end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) {
+                end++;
+            }
+            chunks.add(text.substring(start, end));
+            start = end;
+        }
+        return chunks;
+    }
 }
@@ -0,0 +1,106 @@
+package com.core;
+
+import com.core.sse.GenerationSession;
+import com.model.enums.CodeGenTypeEnum;
+import com.model.vo.GenerationCancelStatsVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 生成取消统计
+ * 以正常完成的生成的平均输出量为基准，估算取消生成节省的 token 数（流式片段数近似为 token 数）
+ */
+@Slf4j
+@Component
+public class GenerationCancelMetrics {
+
+    private final Map<CodeGenTypeEnum, TypeStats> statsMap = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次正常完成的生成
+     *
+     * @param codeGenType  代码生成类型
+     * @param outputChunks 输出片段数
+     */
+    public void recordCompleted(CodeGenTypeEnum codeGenType, long outputChunks) {
+        TypeStats stats = getStats(codeGenType);
+        stats.completedCount.increment();
+        stats.completedTokens.add(outputChunks);
+    }
+
+    /**
+     * 记录一次被取消的生成
+     *
+     * @param codeGenType  代码生成类型
+     * @param reason       取消原因
+     * @param outputChunks 取消前已输出的片段数
+     */
+    public void recordCancelled(CodeGenTypeEnum codeGenType, String reason, long outputChunks) {
+        TypeStats stats = getStats(codeGenType);
+        long avgCompletedTokens = stats.getAvgCompletedTokens();
+        long savedTokens = Math.max(avgCompletedTokens - outputChunks, 0);
+        stats.cancelledCount.increment();
+        if (GenerationSession.CANCEL_REASON_DISCONNECT.equals(reason)) {
+            stats.disconnectCancelledCount.increment();
+        } else if (GenerationSession.CANCEL_REASON_USER.equals(reason)) {
+            stats.userCancelledCount.increment();
+        }
+        stats.tokensBeforeCancel.add(outputChunks);
+        stats.estimatedSavedTokens.add(savedTokens);
+        log.info("生成已取消，类型: {}, 原因: {}, 已输出 token 数: {}, 平均输出 token 数: {}, 估算节省 token 数: {}",
+                codeGenType.getValue(), reason, outputChunks, avgCompletedTokens, savedTokens);
+    }
+
+    /**
+     * 获取各生成类型的取消统计
+     */
+    public List<GenerationCancelStatsVO> getStatsList() {
+        List<GenerationCancelStatsVO> statsList = new ArrayList<>();
+        for (CodeGenTypeEnum codeGenType : CodeGenTypeEnum.values()) {
+            TypeStats stats = getStats(codeGenType);
+            GenerationCancelStatsVO statsVO = new GenerationCancelStatsVO();
+            statsVO.setCodeGenType(codeGenType.getValue());
+            statsVO.setCompletedCount(stats.completedCount.sum());
+            statsVO.setAvgCompletedTokens(stats.getAvgCompletedTokens());
+            statsVO.setCancelledCount(stats.cancelledCount.sum());
+            statsVO.setUserCancelledCount(stats.userCancelledCount.sum());
+            statsVO.setDisconnectCancelledCount(stats.disconnectCancelledCount.sum());
+            statsVO.setTokensBeforeCancel(stats.tokensBeforeCancel.sum());
+            statsVO.setEstimatedSavedTokens(stats.estimatedSavedTokens.sum());
+            statsList.add(statsVO);
+        }
+        return statsList;
+    }
+
+    private TypeStats getStats(CodeGenTypeEnum codeGenType) {
+        return statsMap.computeIfAbsent(codeGenType, key -> new TypeStats());
+    }
+
+    private static class TypeStats {
+
+        private final LongAdder completedCount = new LongAdder();
+
+        private final LongAdder completedTokens = new LongAdder();
+
+        private final LongAdder cancelledCount = new LongAdder();
+
+        private final LongAdder userCancelledCount = new LongAdder();
+
+        private final LongAdder disconnectCancelledCount = new LongAdder();
+
+        private final LongAdder tokensBeforeCancel = new LongAdder();
+
+        private final LongAdder estimatedSavedTokens = new LongAdder();
+
+        long getAvgCompletedTokens() {
+            long count = completedCount.sum();
+            return count == 0 ? 0 : completedTokens.sum() / count;
+        }
+    }
+}
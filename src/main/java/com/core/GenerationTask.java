@@ -0,0 +1,103 @@
+package com.core;
+
+import com.core.lock.GenerationLease;
+import com.core.sse.GenerationSession;
+import com.model.enums.CodeGenTypeEnum;
+import com.model.enums.GenerationTaskStateEnum;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 生成任务记录
+ * 记录任务的状态、开始时间、最近一次进展时间、执行节点和取消句柄（生成会话），
+ * 长时间没有进展的任务由 GenerationTaskManager 回收
+ */
+@Getter
+public class GenerationTask {
+
+    private final long appId;
+
+    private final long userId;
+
+    private final CodeGenTypeEnum codeGenType;
+
+    /**
+     * 执行任务的节点
+     */
+    private final String ownerNode;
+
+    /**
+     * 生成租约，本机槽位占用成功后才获取
+     */
+    @Setter
+    private volatile GenerationLease lease;
+
+    private final long startTime = System.currentTimeMillis();
+
+    @Setter
+    private volatile GenerationTaskStateEnum state = GenerationTaskStateEnum.STARTING;
+
+    /**
+     * 最近一次进展时间（收到模型输出或排队位置变化）
+     */
+    private volatile long lastProgressTime = startTime;
+
+    /**
+     * 取消句柄，会话创建前为 null
+     */
+    @Setter
+    private volatile GenerationSession session;
+
+    /**
+     * 结束时间，仅回收的任务有值
+     */
+    @Setter
+    private volatile Long endTime;
+
+    /**
+     * 对应的生成任务记录 id（generation_task 表），写入失败时为 null
+     */
+    @Setter
+    private volatile Long recordId;
+
+    /**
+     * 获得模型额度的时间，0 表示还没有获得
+     */
+    private volatile long admitTime;
+
+    /**
+     * 收到首个 token 的时间，0 表示还没有收到
+     */
+    private volatile long firstTokenTime;
+
+    public GenerationTask(long appId, long userId, CodeGenTypeEnum codeGenType, String ownerNode) {
+        this.appId = appId;
+        this.userId = userId;
+        this.codeGenType = codeGenType;
+        this.ownerNode = ownerNode;
+    }
+
+    /**
+     * 记录一次进展
+     *
+     * @param state 当前状态
+     */
+    public void recordProgress(GenerationTaskStateEnum state) {
+        long now = System.currentTimeMillis();
+        this.state = state;
+        this.lastProgressTime = now;
+        if (state == GenerationTaskStateEnum.RUNNING && admitTime == 0) {
+            admitTime = now;
+        }
+    }
+
+    /**
+     * 记录收到模型输出，首次调用时记录首 token 时间
+     */
+    public void recordOutput() {
+        recordProgress(GenerationTaskStateEnum.RUNNING);
+        if (firstTokenTime == 0) {
+            firstTokenTime = lastProgressTime;
+        }
+    }
+}
@@ -1,47 +1,158 @@
 package com.core;
 
+import com.ai.http.ModelStreamCancellation;
+import com.config.AdmissionConfig;
+import com.config.NodeConfig;
+import com.core.lock.GenerationLease;
+import com.core.lock.GenerationLock;
+import com.core.sse.GenerationSession;
+import com.model.enums.CodeGenTypeEnum;
+import com.model.enums.GenerationTaskStateEnum;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Schedulers;
 
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
- * 简单的任务去重管理器，避免同一应用并发触发多次代码生成。
+ * 任务去重管理器，避免同一应用并发触发多次代码生成。
+ * 本机先通过内存中的任务记录快速去重，再获取生成锁（单机或 Redis 分布式锁）的租约，
+ * 租约丢失时取消本机的生成，持有租约期间才允许写入代码目录。
+ * 任务记录保存状态、开始时间、最近一次进展时间、执行节点和取消句柄，
+ * 后台定时回收长时间没有进展的任务，避免结束回调没有执行时应用被永久锁住。
+ * 同时保存每个应用最近一次的生成会话，用于断线续传。
  */
 @Component
 @Slf4j
 public class GenerationTaskManager {
 
-    private final Map<Long, Long> runningTasks = new ConcurrentHashMap<>();
+    /**
+     * 最多保留的已回收任务数
+     */
+    private static final int REAPED_HISTORY_LIMIT = 50;
+
+    private final Map<Long, GenerationTask> runningTasks = new ConcurrentHashMap<>();
+
+    private final Map<Long, GenerationSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * 最近回收的任务，最新的在前
+     */
+    private final Deque<GenerationTask> reapedTasks = new ConcurrentLinkedDeque<>();
+
+    @Resource
+    private GenerationLock generationLock;
+
+    @Resource
+    private NodeConfig nodeConfig;
+
+    @Resource
+    private AdmissionConfig admissionConfig;
+
+    /**
+     * 生成会话回放缓冲区最多保留的事件数
+     */
+    @Value("${code-gen.session.replay-limit:1024}")
+    private int replayLimit;
+
+    /**
+     * 生成结束后会话继续保留的时间（秒），便于刚好在结束时断线的前端续传
+     */
+    @Value("${code-gen.session.retention-seconds:60}")
+    private long retentionSeconds;
+
+    /**
+     * 所有观看者断开后等待重连的时间（秒），超时后自动取消生成，小于 0 表示不自动取消
+     */
+    @Value("${code-gen.session.cancel-grace-seconds:15}")
+    private long cancelGraceSeconds;
+
+    /**
+     * 任务超过该时间（秒）没有进展视为失效，由后台回收；排队中的任务额外加上最长排队时间
+     */
+    @Value("${code-gen.task.stale-seconds:300}")
+    private long staleSeconds;
+
+    /**
+     * 回收检查间隔（秒）
+     */
+    @Value("${code-gen.task.reap-interval-seconds:30}")
+    private long reapIntervalSeconds;
+
+    private ScheduledExecutorService reaperExecutor;
+
+    @PostConstruct
+    public void init() {
+        generationLock.onLeaseLost(this::onLeaseLost);
+        reaperExecutor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("gen-task-reaper").daemon().factory());
+        reaperExecutor.scheduleWithFixedDelay(this::reapStaleTasks, reapIntervalSeconds, reapIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (reaperExecutor != null) {
+            reaperExecutor.shutdownNow();
+        }
+    }
 
     /**
-     * 尝试为指定 appId 开始任务，如果已经存在则返回 false。
+     * 尝试为指定 appId 开始任务，如果已经存在则返回 null。
      *
-     * @param appId 应用 ID
-     * @return 是否成功占用任务槽位
+     * @param appId       应用 ID
+     * @param userId      发起生成的用户 ID
+     * @param codeGenType 代码生成类型
+     * @return 任务记录，未能占用任务槽位返回 null
      */
-    public boolean tryStart(long appId) {
-        Long previous = runningTasks.putIfAbsent(appId, System.currentTimeMillis());
-        if (previous == null) {
-            log.debug("开始执行应用 {} 的生成任务", appId);
-            return true;
+    public GenerationTask tryStart(long appId, long userId, CodeGenTypeEnum codeGenType) {
+        GenerationTask task = new GenerationTask(appId, userId, codeGenType, nodeConfig.getNodeId());
+        GenerationTask previous = runningTasks.putIfAbsent(appId, task);
+        if (previous != null) {
+            log.warn("应用 {} 已有生成任务在运行，开始时间：{}，状态：{}", appId, previous.getStartTime(), previous.getState().getValue());
+            return null;
+        }
+        // 本机槽位占用成功后再获取租约，本机重复请求不会访问 Redis
+        GenerationLease lease;
+        try {
+            lease = generationLock.tryAcquire(appId);
+        } catch (RuntimeException e) {
+            runningTasks.remove(appId, task);
+            throw e;
         }
-        log.warn("应用 {} 已有生成任务在运行，开始时间：{}", appId, previous);
-        return false;
+        if (lease == null) {
+            runningTasks.remove(appId, task);
+            log.warn("应用 {} 已有生成任务在其他节点运行", appId);
+            return null;
+        }
+        task.setLease(lease);
+        log.debug("开始执行应用 {} 的生成任务，令牌: {}", appId, lease.getFencingToken());
+        return task;
     }
 
     /**
-     * 结束指定 appId 的任务。
+     * 结束任务，重复调用或任务已被回收时不做任何处理。
      *
-     * @param appId 应用 ID
+     * @param task 任务记录
      */
-    public void finish(long appId) {
-        Long startTime = runningTasks.remove(appId);
-        if (startTime != null) {
-            long duration = System.currentTimeMillis() - startTime;
-            log.debug("应用 {} 的生成任务结束，耗时 {} ms", appId, duration);
+    public void finish(GenerationTask task) {
+        if (!runningTasks.remove(task.getAppId(), task)) {
+            return;
         }
+        releaseLease(task);
+        long duration = System.currentTimeMillis() - task.getStartTime();
+        log.debug("应用 {} 的生成任务结束，耗时 {} ms", task.getAppId(), duration);
     }
 
     /**
@@ -50,5 +161,149 @@ public class GenerationTaskManager {
     public boolean isRunning(long appId) {
         return runningTasks.containsKey(appId);
     }
-}
 
+    /**
+     * 本机是否仍持有应用的有效租约，写入代码目录前调用
+     *
+     * @param appId 应用 ID
+     * @return 是否允许写入
+     */
+    public boolean isWritable(long appId) {
+        GenerationLease lease = getLease(appId);
+        return lease != null && generationLock.isValid(lease);
+    }
+
+    /**
+     * 获取本机持有的应用租约
+     *
+     * @param appId 应用 ID
+     * @return 租约，本机没有运行该应用的任务返回 null
+     */
+    public GenerationLease getLease(long appId) {
+        GenerationTask task = runningTasks.get(appId);
+        return task == null ? null : task.getLease();
+    }
+
+    /**
+     * 为已占用槽位的任务创建生成会话，替换该应用之前的会话，会话同时作为任务的取消句柄
+     *
+     * @param task         任务记录
+     * @param cancellation 模型流取消句柄
+     * @return 生成会话
+     */
+    public GenerationSession createSession(GenerationTask task, ModelStreamCancellation cancellation) {
+        GenerationSession session = new GenerationSession(task.getAppId(), task.getUserId(), task.getCodeGenType(),
+                replayLimit, cancellation, cancelGraceSeconds);
+        sessions.put(task.getAppId(), session);
+        task.setSession(session);
+        return session;
+    }
+
+    /**
+     * 会话事件流结束后延迟清理，保留一段时间用于续传。
+     * Vue 项目的会话在 AI 生成结束后还会推送构建进度，因此会话的结束晚于任务槽位的释放
+     *
+     * @param appId   应用 ID
+     * @param session 已结束的会话
+     */
+    public void expireSession(long appId, GenerationSession session) {
+        Schedulers.boundedElastic().schedule(() -> sessions.remove(appId, session), retentionSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 获取应用最近一次的生成会话
+     *
+     * @param appId 应用 ID
+     * @return 生成会话，不存在或已过期返回 null
+     */
+    public GenerationSession getSession(long appId) {
+        return sessions.get(appId);
+    }
+
+    /**
+     * 获取正在运行的任务
+     */
+    public List<GenerationTask> getRunningTasks() {
+        return new ArrayList<>(runningTasks.values());
+    }
+
+    /**
+     * 获取最近回收的任务，最新的在前
+     */
+    public List<GenerationTask> getReapedTasks() {
+        return new ArrayList<>(reapedTasks);
+    }
+
+    /**
+     * 按代码生成类型统计正在运行的任务数
+     */
+    public Map<CodeGenTypeEnum, Long> countRunningByType() {
+        Map<CodeGenTypeEnum, Long> counts = new EnumMap<>(CodeGenTypeEnum.class);
+        for (CodeGenTypeEnum codeGenType : CodeGenTypeEnum.values()) {
+            counts.put(codeGenType, 0L);
+        }
+        for (GenerationTask task : runningTasks.values()) {
+            counts.merge(task.getCodeGenType(), 1L, Long::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * 回收长时间没有进展的任务：取消生成会话，释放租约和任务槽位
+     */
+    private void reapStaleTasks() {
+        long now = System.currentTimeMillis();
+        for (GenerationTask task : runningTasks.values()) {
+            long timeoutMillis = TimeUnit.SECONDS.toMillis(staleSeconds);
+            if (task.getState() == GenerationTaskStateEnum.QUEUED) {
+                timeoutMillis += TimeUnit.SECONDS.toMillis(admissionConfig.getQueueTimeoutSeconds());
+            }
+            if (now - task.getLastProgressTime() <= timeoutMillis) {
+                continue;
+            }
+            try {
+                reap(task);
+            } catch (Exception e) {
+                log.error("回收应用 {} 的生成任务失败: {}", task.getAppId(), e.getMessage());
+            }
+        }
+    }
+
+    private void reap(GenerationTask task) {
+        if (!runningTasks.remove(task.getAppId(), task)) {
+            return;
+        }
+        log.warn("应用 {} 的生成任务超过 {} 秒没有进展，已回收，状态：{}，开始时间：{}",
+                task.getAppId(), staleSeconds, task.getState().getValue(), task.getStartTime());
+        task.setState(GenerationTaskStateEnum.REAPED);
+        task.setEndTime(System.currentTimeMillis());
+        GenerationSession session = task.getSession();
+        if (session != null) {
+            session.cancel(GenerationSession.CANCEL_REASON_STALE);
+        }
+        releaseLease(task);
+        reapedTasks.addFirst(task);
+        while (reapedTasks.size() > REAPED_HISTORY_LIMIT) {
+            reapedTasks.pollLast();
+        }
+    }
+
+    private void releaseLease(GenerationTask task) {
+        GenerationLease lease = task.getLease();
+        if (lease != null) {
+            generationLock.release(lease);
+        }
+    }
+
+    /**
+     * 租约丢失：其他节点可能已经接管该应用，立即取消本机的生成
+     */
+    private void onLeaseLost(GenerationLease lease) {
+        long appId = lease.getAppId();
+        log.error("应用 {} 的生成租约已丢失，令牌: {}，取消本机的生成", appId, lease.getFencingToken());
+        GenerationTask task = runningTasks.get(appId);
+        if (task != null && task.getLease() == lease && task.getSession() != null) {
+            task.getSession().cancel(GenerationSession.CANCEL_REASON_LEASE_LOST);
+        }
+    }
+}
@@ -0,0 +1,513 @@
+package com.core.admission;
+
+import com.config.AdmissionConfig;
+import com.config.ReasoningStreamingChatModelConfig;
+import com.config.StreamingChatModelConfig;
+import com.core.sse.GenerationEvent;
+import com.core.sse.GenerationSession;
+import com.exception.BusinessException;
+import com.exception.ErrorCode;
+import com.model.enums.CodeGenTypeEnum;
+import com.model.vo.AdmissionStatsVO;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 大模型准入控制器
+ * 按模型限制同时进行的流式生成数量，避免突发请求打满模型服务商的并发额度（429 影响所有用户）。
+ * 超出并发上限的请求按用户公平排队：每个用户各自排队，放行时优先选择正在生成数量最少的用户，
+ * 数量相同时轮流选择，单个用户连续提交的请求不会挤占其他用户。排队期间推送 queue 事件，告知排队位置和预计等待时间。
+ * 并发额度按同时进行的模型流计算：同时发起多个模型流的生成（如分段并行生成）按流数占用额度
+ */
+@Slf4j
+@Component
+public class LlmAdmissionController {
+
+    @Resource
+    private AdmissionConfig admissionConfig;
+
+    @Resource
+    private StreamingChatModelConfig streamingChatModelConfig;
+
+    @Resource
+    private ReasoningStreamingChatModelConfig reasoningStreamingChatModelConfig;
+
+    /**
+     * 模型名称 -> 模型准入池
+     */
+    private final Map<String, ModelPool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * 在准入控制下执行生成：获得模型并发额度后才订阅生成流，排队期间推送 queue 事件
+     *
+     * @param codeGenType 代码生成类型，决定使用的模型
+     * @param userId      用户 ID
+     * @param appId       应用 ID
+     * @param generation  生成事件流（订阅时才调用模型）
+     * @return 排队事件 + 生成事件流，生成流结束后释放额度
+     */
+    public Flux<GenerationEvent> admit(CodeGenTypeEnum codeGenType, long userId, long appId,
+                                       Flux<GenerationEvent> generation) {
+        return admit(codeGenType, userId, appId, generation, 1);
+    }
+
+    /**
+     * 在准入控制下执行同时发起多个模型流的生成，按流数占用并发额度
+     *
+     * @param codeGenType 代码生成类型，决定使用的模型
+     * @param userId      用户 ID
+     * @param appId       应用 ID
+     * @param generation  生成事件流（订阅时才调用模型）
+     * @param weight      同时进行的模型流数，超过模型并发上限时按上限计算
+     * @return 排队事件 + 生成事件流，生成流结束后释放额度
+     */
+    public Flux<GenerationEvent> admit(CodeGenTypeEnum codeGenType, long userId, long appId,
+                                       Flux<GenerationEvent> generation, int weight) {
+        if (!admissionConfig.isEnabled()) {
+            return generation;
+        }
+        ModelPool pool = getPool(resolveModelName(codeGenType));
+        int ticketWeight = Math.min(Math.max(weight, 1), pool.maxConcurrency);
+        return Flux.create(sink -> {
+            Ticket ticket = new Ticket(pool, userId, appId, ticketWeight, generation, sink);
+            sink.onDispose(ticket::dispose);
+            pool.enqueue(ticket);
+        });
+    }
+
+    /**
+     * 排队人数已满时提前拒绝，避免保存用户消息、占用任务槽位后才失败
+     *
+     * @param codeGenType 代码生成类型
+     */
+    public void checkQueueCapacity(CodeGenTypeEnum codeGenType) {
+        if (!admissionConfig.isEnabled()) {
+            return;
+        }
+        ModelPool pool = getPool(resolveModelName(codeGenType));
+        if (pool.isQueueFull()) {
+            throw new BusinessException(ErrorCode.TOO_MANY_REQUEST, "当前排队人数过多，请稍后再试");
+        }
+    }
+
+    /**
+     * 获取各模型的准入状态
+     */
+    public List<AdmissionStatsVO> getStatsList() {
+        List<AdmissionStatsVO> statsList = new ArrayList<>();
+        for (ModelPool pool : pools.values()) {
+            statsList.add(pool.getStats());
+        }
+        return statsList;
+    }
+
+    /**
+     * 代码生成类型使用的模型：Vue 项目使用推理模型，其他类型使用普通流式模型
+     *
+     * @param codeGenType 代码生成类型
+     * @return 模型名称
+     */
+    public String resolveModelName(CodeGenTypeEnum codeGenType) {
+        if (codeGenType == CodeGenTypeEnum.VUE_PROJECT) {
+            return reasoningStreamingChatModelConfig.getModelName();
+        }
+        return streamingChatModelConfig.getModelName();
+    }
+
+    private ModelPool getPool(String modelName) {
+        return pools.computeIfAbsent(String.valueOf(modelName), ModelPool::new);
+    }
+
+    /**
+     * 单个模型的准入池，所有状态都在锁内访问
+     */
+    private final class ModelPool {
+
+        private final String modelName;
+
+        private final int maxConcurrency;
+
+        /**
+         * 已占用的额度（同时进行的模型流数）
+         */
+        private int running;
+
+        private int waiting;
+
+        /**
+         * 用户 ID -> 该用户的排队请求
+         */
+        private final LinkedHashMap<Long, Deque<Ticket>> userQueues = new LinkedHashMap<>();
+
+        /**
+         * 用户 ID -> 该用户正在生成的数量
+         */
+        private final Map<Long, Integer> userRunning = new HashMap<>();
+
+        /**
+         * 用户 ID -> 该用户最近一次被放行的序号，正在生成数量相同时优先放行更久没有被放行的用户
+         */
+        private final Map<Long, Long> userLastAdmitted = new HashMap<>();
+
+        private long admitSequence;
+
+        /**
+         * 单次生成的平均耗时（毫秒，指数加权），用于估算等待时间
+         */
+        private double avgDurationMs;
+
+        private long admittedCount;
+
+        private long rejectedCount;
+
+        private ModelPool(String modelName) {
+            this.modelName = modelName;
+            this.maxConcurrency = Math.max(admissionConfig.getMaxConcurrency(modelName), 1);
+            this.avgDurationMs = TimeUnit.SECONDS.toMillis(admissionConfig.getInitialAvgDurationSeconds());
+        }
+
+        synchronized boolean isQueueFull() {
+            return running >= maxConcurrency && waiting >= admissionConfig.getMaxQueueSize();
+        }
+
+        void enqueue(Ticket ticket) {
+            boolean admitted = false;
+            boolean rejected = false;
+            synchronized (this) {
+                if (running + ticket.weight <= maxConcurrency && waiting == 0) {
+                    running += ticket.weight;
+                    markAdmitted(ticket.userId);
+                    admitted = true;
+                } else if (waiting >= admissionConfig.getMaxQueueSize()) {
+                    rejectedCount++;
+                    rejected = true;
+                } else {
+                    userQueues.computeIfAbsent(ticket.userId, key -> new ArrayDeque<>()).addLast(ticket);
+                    waiting++;
+                }
+            }
+            if (admitted) {
+                ticket.start();
+                return;
+            }
+            if (rejected) {
+                log.warn("模型 {} 排队人数已满，拒绝应用 {} 的生成", modelName, ticket.appId);
+                ticket.fail(new BusinessException(ErrorCode.TOO_MANY_REQUEST, "当前排队人数过多，请稍后再试"));
+                return;
+            }
+            log.info("模型 {} 并发已满（{}），应用 {} 开始排队", modelName, maxConcurrency, ticket.appId);
+            ticket.scheduleTimeout(admissionConfig.getQueueTimeoutSeconds());
+            publishPositions();
+        }
+
+        /**
+         * 移除排队中的请求
+         *
+         * @return 是否仍在排队
+         */
+        boolean remove(Ticket ticket) {
+            boolean removed;
+            synchronized (this) {
+                Deque<Ticket> queue = userQueues.get(ticket.userId);
+                removed = queue != null && queue.remove(ticket);
+                if (removed) {
+                    waiting--;
+                    if (queue.isEmpty()) {
+                        userQueues.remove(ticket.userId);
+                        if (!userRunning.containsKey(ticket.userId)) {
+                            userLastAdmitted.remove(ticket.userId);
+                        }
+                    }
+                }
+            }
+            if (removed) {
+                publishPositions();
+            }
+            return removed;
+        }
+
+        /**
+         * 归还额度并放行排队请求，归还的额度可能放行多个请求
+         *
+         * @param ticket     归还额度的请求
+         * @param durationMs 本次生成的耗时
+         */
+        void release(Ticket ticket, long durationMs) {
+            List<Ticket> admittedTickets = new ArrayList<>();
+            synchronized (this) {
+                running -= ticket.weight;
+                userRunning.computeIfPresent(ticket.userId, (key, count) -> count > 1 ? count - 1 : null);
+                if (!userRunning.containsKey(ticket.userId) && !userQueues.containsKey(ticket.userId)) {
+                    userLastAdmitted.remove(ticket.userId);
+                }
+                // 排队期间已取消的请求没有实际调用模型，不计入平均耗时
+                if (durationMs > 0) {
+                    avgDurationMs = avgDurationMs * 0.8 + durationMs * 0.2;
+                }
+                Ticket next;
+                while ((next = pollNext()) != null) {
+                    running += next.weight;
+                    markAdmitted(next.userId);
+                    admittedTickets.add(next);
+                }
+            }
+            if (!admittedTickets.isEmpty()) {
+                admittedTickets.forEach(Ticket::start);
+                publishPositions();
+            }
+        }
+
+        private void markAdmitted(long userId) {
+            userRunning.merge(userId, 1, Integer::sum);
+            userLastAdmitted.put(userId, ++admitSequence);
+            admittedCount++;
+        }
+
+        /**
+         * 选择下一个放行的请求：在有排队请求的用户中，选择正在生成数量最少的用户，
+         * 数量相同时选择更久没有被放行的用户。剩余额度不够该请求时不放行，
+         * 也不越过它放行后面占用额度更少的请求，避免占用额度多的请求一直等待
+         */
+        private Ticket pollNext() {
+            Long userId = selectUser(userQueues, userRunning, userLastAdmitted);
+            if (userId == null) {
+                return null;
+            }
+            Deque<Ticket> queue = userQueues.get(userId);
+            if (running + queue.peekFirst().weight > maxConcurrency) {
+                return null;
+            }
+            Ticket next = queue.pollFirst();
+            if (queue.isEmpty()) {
+                userQueues.remove(userId);
+            }
+            waiting--;
+            return next;
+        }
+
+        private Long selectUser(Map<Long, Deque<Ticket>> queues, Map<Long, Integer> runningCounts,
+                                Map<Long, Long> lastAdmitted) {
+            Long selected = null;
+            int minRunning = Integer.MAX_VALUE;
+            long minLastAdmitted = Long.MAX_VALUE;
+            for (Long userId : queues.keySet()) {
+                int userRunningCount = runningCounts.getOrDefault(userId, 0);
+                long userLastAdmittedSequence = lastAdmitted.getOrDefault(userId, 0L);
+                if (userRunningCount < minRunning
+                        || (userRunningCount == minRunning && userLastAdmittedSequence < minLastAdmitted)) {
+                    selected = userId;
+                    minRunning = userRunningCount;
+                    minLastAdmitted = userLastAdmittedSequence;
+                }
+            }
+            return selected;
+        }
+
+        /**
+         * 按放行规则模拟计算每个排队请求的位置，位置变化时推送 queue 事件
+         */
+        private void publishPositions() {
+            List<Ticket> order = new ArrayList<>();
+            double estimatedDurationMs;
+            synchronized (this) {
+                LinkedHashMap<Long, Deque<Ticket>> queues = new LinkedHashMap<>();
+                userQueues.forEach((userId, queue) -> queues.put(userId, new ArrayDeque<>(queue)));
+                Map<Long, Integer> runningCounts = new HashMap<>(userRunning);
+                Map<Long, Long> lastAdmitted = new HashMap<>(userLastAdmitted);
+                long sequence = admitSequence;
+                Long userId;
+                while ((userId = selectUser(queues, runningCounts, lastAdmitted)) != null) {
+                    Deque<Ticket> queue = queues.get(userId);
+                    order.add(queue.pollFirst());
+                    if (queue.isEmpty()) {
+                        queues.remove(userId);
+                    }
+                    runningCounts.merge(userId, 1, Integer::sum);
+                    lastAdmitted.put(userId, ++sequence);
+                }
+                estimatedDurationMs = avgDurationMs;
+            }
+            int slots = 0;
+            for (int i = 0; i < order.size(); i++) {
+                int position = i + 1;
+                // 前面（含自身）每占用 maxConcurrency 个额度需要等待一轮生成
+                slots += order.get(i).weight;
+                long estimatedWaitMs = (long) (Math.ceil((double) slots / maxConcurrency) * estimatedDurationMs);
+                order.get(i).publishPosition(position, estimatedWaitMs);
+            }
+        }
+
+        synchronized AdmissionStatsVO getStats() {
+            AdmissionStatsVO statsVO = new AdmissionStatsVO();
+            statsVO.setModelName(modelName);
+            statsVO.setMaxConcurrency(maxConcurrency);
+            statsVO.setRunningCount(running);
+            statsVO.setWaitingCount(waiting);
+            statsVO.setWaitingUserCount(userQueues.size());
+            statsVO.setAvgDurationMs((long) avgDurationMs);
+            statsVO.setAdmittedCount(admittedCount);
+            statsVO.setRejectedCount(rejectedCount);
+            return statsVO;
+        }
+    }
+
+    /**
+     * 一次生成请求的准入凭证
+     */
+    private static final class Ticket {
+
+        private final ModelPool pool;
+
+        private final long userId;
+
+        private final long appId;
+
+        /**
+         * 占用的额度（同时进行的模型流数）
+         */
+        private final int weight;
+
+        private final Flux<GenerationEvent> generation;
+
+        private final FluxSink<GenerationEvent> sink;
+
+        private final long enqueueTime = System.currentTimeMillis();
+
+        /**
+         * 已获得额度
+         */
+        private final AtomicBoolean admitted = new AtomicBoolean();
+
+        /**
+         * 额度已归还，只归还一次
+         */
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * 排队期间已结束（超时、拒绝或取消）
+         */
+        private volatile boolean finished;
+
+        private volatile long startTime;
+
+        private volatile int lastPosition;
+
+        private volatile Disposable upstream;
+
+        private volatile Disposable timeoutTask;
+
+        private Ticket(ModelPool pool, long userId, long appId, int weight, Flux<GenerationEvent> generation,
+                       FluxSink<GenerationEvent> sink) {
+            this.pool = pool;
+            this.userId = userId;
+            this.appId = appId;
+            this.weight = weight;
+            this.generation = generation;
+            this.sink = sink;
+        }
+
+        void scheduleTimeout(long timeoutSeconds) {
+            timeoutTask = Schedulers.parallel().schedule(() -> {
+                if (pool.remove(this)) {
+                    log.warn("应用 {} 排队超时，已等待 {} ms", appId, System.currentTimeMillis() - enqueueTime);
+                    fail(new BusinessException(ErrorCode.TOO_MANY_REQUEST, "排队超时，请稍后再试"));
+                }
+            }, timeoutSeconds, TimeUnit.SECONDS);
+        }
+
+        /**
+         * 获得额度，开始订阅生成流
+         */
+        void start() {
+            startTime = System.currentTimeMillis();
+            admitted.set(true);
+            Disposable timeout = timeoutTask;
+            if (timeout != null) {
+                timeout.dispose();
+            }
+            if (finished || sink.isCancelled()) {
+                startTime = 0;
+                release();
+                return;
+            }
+            if (lastPosition > 0) {
+                log.info("应用 {} 排队结束，等待 {} ms", appId, startTime - enqueueTime);
+                sink.next(queueEvent(0, 0));
+            }
+            upstream = generation.subscribe(sink::next,
+                    error -> {
+                        release();
+                        sink.error(error);
+                    },
+                    () -> {
+                        release();
+                        sink.complete();
+                    });
+            // 订阅期间下游已取消
+            if (sink.isCancelled()) {
+                upstream.dispose();
+                release();
+            }
+        }
+
+        void publishPosition(int position, long estimatedWaitMs) {
+            if (position != lastPosition && !admitted.get() && !finished) {
+                lastPosition = position;
+                sink.next(queueEvent(position, estimatedWaitMs));
+            }
+        }
+
+        void fail(Throwable error) {
+            finished = true;
+            sink.error(error);
+        }
+
+        /**
+         * 下游取消：排队中则移出队列，运行中则取消生成并归还额度
+         */
+        void dispose() {
+            Disposable timeout = timeoutTask;
+            if (timeout != null) {
+                timeout.dispose();
+            }
+            if (!admitted.get()) {
+                // 已被放行但还没开始时，start 会发现下游已取消并归还额度
+                finished = true;
+                pool.remove(this);
+                return;
+            }
+            Disposable current = upstream;
+            if (current != null) {
+                current.dispose();
+            }
+            release();
+        }
+
+        private void release() {
+            if (admitted.get() && released.compareAndSet(false, true)) {
+                pool.release(this, startTime > 0 ? System.currentTimeMillis() - startTime : 0);
+            }
+        }
+
+        private GenerationEvent queueEvent(int position, long estimatedWaitMs) {
+            return new GenerationEvent(0, GenerationSession.QUEUE_EVENT,
+                    String.format("{\"position\":%d,\"estimatedWaitMs\":%d}", position, estimatedWaitMs));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.core.builder;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * Vue 项目构建任务
+ */
+@Data
+public class VueBuildJob implements Serializable {
+
+    /**
+     * 应用 ID
+     */
+    private Long appId;
+
+    /**
+     * 任务状态，取值见 VueBuildStatusEnum
+     */
+    private String status;
+
+    /**
+     * 当前构建阶段（install / build），仅构建中有值
+     */
+    private String phase;
+
+    /**
+     * 结果说明
+     */
+    private String message;
+
+    /**
+     * 构建期间又有新的构建请求，本次结束后需要重新构建
+     */
+    private Boolean rerunRequested;
+
+    /**
+     * 排队位置（从 1 开始），仅排队中有值
+     */
+    private Integer queuePosition;
+
+    /**
+     * 入队时间
+     */
+    private Long enqueueTime;
+
+    /**
+     * 开始构建时间
+     */
+    private Long startTime;
+
+    /**
+     * 结束时间
+     */
+    private Long endTime;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,364 @@
+package com.core.builder;
+
+import cn.hutool.json.JSONUtil;
+import com.config.NodeConfig;
+import com.constant.AppConstant;
+import com.model.enums.CodeGenTypeEnum;
+import com.model.enums.VueBuildStatusEnum;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBlockingQueue;
+import org.redisson.api.RMapCache;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vue 项目构建任务管理器
+ * 构建任务进入 Redis 中的持久化队列，由固定数量的工作线程依次执行，服务重启后未完成的任务会重新执行。
+ * 同一应用同时只有一个任务：排队中的任务直接合并，构建中的任务结束后再重新构建一次。
+ * 生成代码的文件在本机磁盘上，因此队列按节点隔离
+ */
+@Slf4j
+@Component
+public class VueBuildJobManager {
+
+    private static final String QUEUE_KEY_PREFIX = "vue_build:queue:";
+
+    private static final String JOB_KEY_PREFIX = "vue_build:job:";
+
+    /**
+     * 已结束任务的保留时间（小时）
+     */
+    private static final long FINISHED_JOB_TTL_HOURS = 24;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    @Resource
+    private VueProjectBuilder vueProjectBuilder;
+
+    @Resource
+    private NodeConfig nodeConfig;
+
+    /**
+     * 构建工作线程数
+     */
+    @Value("${code-gen.build.workers:2}")
+    private int workers;
+
+    /**
+     * 排队任务数上限，超出后拒绝新任务
+     */
+    @Value("${code-gen.build.max-queue-size:50}")
+    private int maxQueueSize;
+
+    /**
+     * 订阅构建进度的最长时间（秒）
+     */
+    @Value("${code-gen.build.watch-timeout-seconds:900}")
+    private long watchTimeoutSeconds;
+
+    /**
+     * 待构建的应用 ID 队列
+     */
+    private RBlockingQueue<String> queue;
+
+    /**
+     * 应用 ID -> 构建任务（JSON）
+     */
+    private RMapCache<String, String> jobs;
+
+    /**
+     * 本节点的任务状态变更广播，状态变更都在锁内发布
+     */
+    private final Sinks.Many<VueBuildJob> jobUpdates = Sinks.many().multicast().directBestEffort();
+
+    private ExecutorService workerPool;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        String nodeId = nodeConfig.getNodeId();
+        queue = redissonClient.getBlockingQueue(QUEUE_KEY_PREFIX + nodeId, StringCodec.INSTANCE);
+        jobs = redissonClient.getMapCache(JOB_KEY_PREFIX + nodeId, StringCodec.INSTANCE);
+        try {
+            recoverJobs();
+        } catch (Exception e) {
+            log.error("恢复 Vue 构建任务失败: {}", e.getMessage());
+        }
+        running = true;
+        workerPool = Executors.newFixedThreadPool(workers, Thread.ofPlatform().name("vue-build-worker-", 0).factory());
+        for (int i = 0; i < workers; i++) {
+            workerPool.submit(this::workLoop);
+        }
+        log.info("Vue 构建队列已启动，节点: {}, 工作线程数: {}, 队列上限: {}", nodeId, workers, maxQueueSize);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        if (workerPool != null) {
+            // 正在执行的构建被中断后仍为构建中状态，下次启动时重新入队
+            workerPool.shutdownNow();
+        }
+    }
+
+    /**
+     * 提交构建任务
+     *
+     * @param appId 应用 ID
+     * @return 当前任务
+     */
+    public synchronized VueBuildJob submit(long appId) {
+        VueBuildJob job = getJob(appId);
+        VueBuildStatusEnum status = job == null ? null : VueBuildStatusEnum.getEnumByValue(job.getStatus());
+        if (status == VueBuildStatusEnum.QUEUED) {
+            log.info("应用 {} 已有排队中的构建任务，合并本次请求", appId);
+            return job;
+        }
+        if (status == VueBuildStatusEnum.RUNNING) {
+            // 构建中的是旧代码，结束后重新构建
+            log.info("应用 {} 正在构建，结束后重新构建", appId);
+            job.setRerunRequested(true);
+            saveJob(job);
+            return job;
+        }
+        job = new VueBuildJob();
+        job.setAppId(appId);
+        job.setEnqueueTime(System.currentTimeMillis());
+        if (queue.size() >= maxQueueSize) {
+            log.warn("Vue 构建队列已满，拒绝应用 {} 的构建任务", appId);
+            job.setStatus(VueBuildStatusEnum.FAILED.getValue());
+            job.setMessage("构建队列已满，请稍后重试");
+            job.setEndTime(System.currentTimeMillis());
+            saveJob(job);
+            publish(job);
+            return job;
+        }
+        job.setStatus(VueBuildStatusEnum.QUEUED.getValue());
+        saveJob(job);
+        publish(job);
+        queue.offer(String.valueOf(appId));
+        log.info("应用 {} 的构建任务已入队，当前排队数: {}", appId, queue.size());
+        return job;
+    }
+
+    /**
+     * 提交构建任务并订阅构建进度
+     *
+     * @param appId 应用 ID
+     * @return 构建进度，任务结束后完成
+     */
+    public Flux<VueBuildJob> submitAndWatch(long appId) {
+        // 访问 Redis 会阻塞，不占用调用方线程
+        return Mono.fromCallable(() -> submit(appId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(job -> watch(appId));
+    }
+
+    /**
+     * 订阅构建进度：先发送当前状态，再发送后续变更，任务结束后完成
+     *
+     * @param appId 应用 ID
+     * @return 构建进度
+     */
+    public Flux<VueBuildJob> watch(long appId) {
+        Flux<VueBuildJob> updates = jobUpdates.asFlux().filter(job -> job.getAppId() == appId);
+        Mono<VueBuildJob> current = Mono.fromCallable(() -> getJob(appId)).subscribeOn(Schedulers.boundedElastic());
+        return Flux.merge(updates, current)
+                .takeUntil(job -> isFinished(job.getStatus()))
+                .timeout(Duration.ofSeconds(watchTimeoutSeconds), Flux.empty());
+    }
+
+    /**
+     * 获取应用的构建任务
+     *
+     * @param appId 应用 ID
+     * @return 构建任务，不存在返回 null
+     */
+    public VueBuildJob getJob(long appId) {
+        String json = jobs.get(String.valueOf(appId));
+        return json == null ? null : JSONUtil.toBean(json, VueBuildJob.class);
+    }
+
+    /**
+     * 获取应用的构建任务，排队中的任务附带排队位置
+     *
+     * @param appId 应用 ID
+     * @return 构建任务，不存在返回 null
+     */
+    public VueBuildJob getJobWithPosition(long appId) {
+        VueBuildJob job = getJob(appId);
+        if (job != null && VueBuildStatusEnum.QUEUED.getValue().equals(job.getStatus())) {
+            int index = queue.readAll().indexOf(String.valueOf(appId));
+            job.setQueuePosition(index < 0 ? null : index + 1);
+        }
+        return job;
+    }
+
+    private void workLoop() {
+        while (running) {
+            String appIdStr;
+            try {
+                appIdStr = queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("获取 Vue 构建任务失败: {}", e.getMessage());
+                sleepQuietly();
+                continue;
+            }
+            if (appIdStr == null) {
+                continue;
+            }
+            try {
+                runJob(Long.parseLong(appIdStr));
+            } catch (Exception e) {
+                log.error("执行 Vue 构建任务失败，appId: {}, 错误: {}", appIdStr, e.getMessage(), e);
+            }
+        }
+    }
+
+    private void runJob(long appId) {
+        markRunning(appId);
+        String projectPath = AppConstant.CODE_OUTPUT_ROOT_DIR + File.separator + CodeGenTypeEnum.VUE_PROJECT.getValue() + "_" + appId;
+        boolean success;
+        try {
+            success = vueProjectBuilder.buildProject(projectPath, phase -> updatePhase(appId, phase));
+        } catch (Exception e) {
+            log.error("构建 Vue 项目时发生异常: {}", e.getMessage(), e);
+            success = false;
+        }
+        if (!running) {
+            // 服务关闭导致构建中断，保持构建中状态，重启后重新执行
+            return;
+        }
+        finishJob(appId, success);
+    }
+
+    private synchronized void markRunning(long appId) {
+        VueBuildJob job = getJob(appId);
+        if (job == null) {
+            job = new VueBuildJob();
+            job.setAppId(appId);
+            job.setEnqueueTime(System.currentTimeMillis());
+        }
+        job.setStatus(VueBuildStatusEnum.RUNNING.getValue());
+        job.setPhase(null);
+        job.setMessage(null);
+        job.setRerunRequested(false);
+        job.setStartTime(System.currentTimeMillis());
+        job.setEndTime(null);
+        saveJob(job);
+        publish(job);
+        log.info("开始构建应用 {}，排队耗时 {} ms", appId, job.getStartTime() - job.getEnqueueTime());
+    }
+
+    private synchronized void updatePhase(long appId, String phase) {
+        VueBuildJob job = getJob(appId);
+        if (job == null) {
+            return;
+        }
+        job.setPhase(phase);
+        saveJob(job);
+        publish(job);
+    }
+
+    private synchronized void finishJob(long appId, boolean success) {
+        VueBuildJob job = getJob(appId);
+        if (job == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        log.info("应用 {} 构建{}，耗时 {} ms", appId, success ? "成功" : "失败", now - job.getStartTime());
+        if (Boolean.TRUE.equals(job.getRerunRequested())) {
+            // 构建期间代码又有更新，重新入队
+            job.setStatus(VueBuildStatusEnum.QUEUED.getValue());
+            job.setPhase(null);
+            job.setRerunRequested(false);
+            job.setEnqueueTime(now);
+            saveJob(job);
+            publish(job);
+            queue.offer(String.valueOf(appId));
+            return;
+        }
+        job.setStatus(success ? VueBuildStatusEnum.SUCCESS.getValue() : VueBuildStatusEnum.FAILED.getValue());
+        job.setPhase(null);
+        job.setMessage(success ? "构建成功" : "构建失败，请查看服务日志");
+        job.setEndTime(now);
+        saveJob(job);
+        publish(job);
+    }
+
+    /**
+     * 重启后恢复任务：构建中被中断的任务和未在队列中的排队任务重新入队
+     */
+    private synchronized void recoverJobs() {
+        List<String> queuedAppIds = queue.readAll();
+        int recovered = 0;
+        for (Map.Entry<String, String> entry : jobs.entrySet()) {
+            VueBuildJob job = JSONUtil.toBean(entry.getValue(), VueBuildJob.class);
+            VueBuildStatusEnum status = VueBuildStatusEnum.getEnumByValue(job.getStatus());
+            if (status != VueBuildStatusEnum.RUNNING && status != VueBuildStatusEnum.QUEUED) {
+                continue;
+            }
+            if (status == VueBuildStatusEnum.RUNNING) {
+                job.setStatus(VueBuildStatusEnum.QUEUED.getValue());
+                job.setPhase(null);
+                saveJob(job);
+            }
+            if (!queuedAppIds.contains(entry.getKey())) {
+                queue.offer(entry.getKey());
+                recovered++;
+            }
+        }
+        if (recovered > 0) {
+            log.info("恢复了 {} 个未完成的 Vue 构建任务", recovered);
+        }
+    }
+
+    private void saveJob(VueBuildJob job) {
+        String key = String.valueOf(job.getAppId());
+        String json = JSONUtil.toJsonStr(job);
+        if (isFinished(job.getStatus())) {
+            jobs.fastPut(key, json, FINISHED_JOB_TTL_HOURS, TimeUnit.HOURS);
+        } else {
+            jobs.fastPut(key, json);
+        }
+    }
+
+    private void publish(VueBuildJob job) {
+        jobUpdates.tryEmitNext(job);
+    }
+
+    private static boolean isFinished(String status) {
+        VueBuildStatusEnum statusEnum = VueBuildStatusEnum.getEnumByValue(status);
+        return statusEnum != null && statusEnum.isFinished();
+    }
+
+    private static void sleepQuietly() {
+        try {
+            TimeUnit.SECONDS.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
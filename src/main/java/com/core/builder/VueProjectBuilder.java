@@ -6,6 +6,7 @@ import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * 构建 Vue 项目
@@ -14,6 +15,16 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class VueProjectBuilder {
 
+    /**
+     * 构建阶段：安装依赖
+     */
+    public static final String PHASE_INSTALL = "install";
+
+    /**
+     * 构建阶段：打包
+     */
+    public static final String PHASE_BUILD = "build";
+
     /**
      * 异步构建 Vue 项目
      *
@@ -37,6 +48,18 @@ public class VueProjectBuilder {
      * @return 是否构建成功
      */
     public boolean buildProject(String projectPath) {
+        return buildProject(projectPath, phase -> {
+        });
+    }
+
+    /**
+     * 构建 Vue 项目，并在进入每个阶段时回调
+     *
+     * @param projectPath   项目根目录路径
+     * @param phaseListener 阶段回调，参数为 PHASE_INSTALL / PHASE_BUILD
+     * @return 是否构建成功
+     */
+    public boolean buildProject(String projectPath, Consumer<String> phaseListener) {
         File projectDir = new File(projectPath);
         if (!projectDir.exists() || !projectDir.isDirectory()) {
             log.error("项目目录不存在：{}", projectPath);
@@ -50,11 +73,13 @@ public class VueProjectBuilder {
         }
         log.info("开始构建 Vue 项目：{}", projectPath);
         // 执行 npm install
+        phaseListener.accept(PHASE_INSTALL);
         if (!executeNpmInstall(projectDir)) {
             log.error("npm install 执行失败：{}", projectPath);
             return false;
         }
         // 执行 npm run build
+        phaseListener.accept(PHASE_BUILD);
         if (!executeNpmBuild(projectDir)) {
             log.error("npm run build 执行失败：{}", projectPath);
             return false;
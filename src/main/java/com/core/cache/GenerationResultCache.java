@@ -0,0 +1,185 @@
+package com.core.cache;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.ai.offline.OfflineModelProvider;
+import com.config.GenerationCacheConfig;
+import com.core.admission.LlmAdmissionController;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.model.enums.CodeGenTypeEnum;
+import com.model.vo.GenerationCacheStatsVO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 生成结果两级缓存
+ * 首轮对话的 HTML / 多文件生成结果按（规范化提示词、生成类型、系统提示词版本、模型名称）精确匹配缓存，
+ * L1 为本地 Caffeine 缓存，L2 为 Redis 缓存，L2 命中时回填 L1。
+ * 系统提示词或模型变化时缓存键随之变化，旧结果自然过期。
+ * 启用离线模型时不读写缓存：离线输出不能混入真实模型的缓存，压测也需要每次都走完整的生成流程
+ */
+@Slf4j
+@Component
+public class GenerationResultCache {
+
+    private static final String REDIS_KEY_PREFIX = "gen_cache:";
+
+    /**
+     * 各生成类型的系统提示词文件
+     */
+    private static final Map<CodeGenTypeEnum, String> SYSTEM_PROMPT_RESOURCES = Map.of(
+            CodeGenTypeEnum.HTML, "prompt/codegen-html-system-prompt.txt",
+            CodeGenTypeEnum.MULTI_FILE, "prompt/codegen-multi-file-system-prompt.txt"
+    );
+
+    @Resource
+    private GenerationCacheConfig generationCacheConfig;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    @Resource
+    private LlmAdmissionController llmAdmissionController;
+
+    @Resource
+    private OfflineModelProvider offlineModelProvider;
+
+    /**
+     * 系统提示词版本（内容摘要）
+     */
+    private final Map<CodeGenTypeEnum, String> systemPromptVersions = new EnumMap<>(CodeGenTypeEnum.class);
+
+    private Cache<String, String> localCache;
+
+    private final LongAdder localHitCount = new LongAdder();
+
+    private final LongAdder redisHitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder putCount = new LongAdder();
+
+    private final LongAdder bypassCount = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(generationCacheConfig.getLocalMaxSize())
+                .expireAfterWrite(Duration.ofMinutes(generationCacheConfig.getLocalTtlMinutes()))
+                .build();
+        SYSTEM_PROMPT_RESOURCES.forEach((codeGenType, resource) ->
+                systemPromptVersions.put(codeGenType, DigestUtil.sha256Hex(ResourceUtil.readUtf8Str(resource)).substring(0, 12)));
+    }
+
+    /**
+     * 该生成类型是否支持缓存，启用离线模型时不使用缓存
+     */
+    public boolean isCacheable(CodeGenTypeEnum codeGenType) {
+        return generationCacheConfig.isEnabled() && !offlineModelProvider.isEnabled()
+                && systemPromptVersions.containsKey(codeGenType);
+    }
+
+    /**
+     * 构造缓存键
+     *
+     * @param prompt      用户提示词
+     * @param codeGenType 生成类型
+     * @return 缓存键
+     */
+    public String buildKey(String prompt, CodeGenTypeEnum codeGenType) {
+        String modelName = llmAdmissionController.resolveModelName(codeGenType);
+        String raw = StrUtil.join("|", codeGenType.getValue(), systemPromptVersions.get(codeGenType), modelName, normalize(prompt));
+        return DigestUtil.sha256Hex(raw);
+    }
+
+    /**
+     * 查询缓存，先查本地再查 Redis
+     *
+     * @param key 缓存键
+     * @return 缓存的完整 AI 输出，未命中返回 null
+     */
+    public String get(String key) {
+        String cached = localCache.getIfPresent(key);
+        if (cached != null) {
+            localHitCount.increment();
+            return cached;
+        }
+        try {
+            cached = redissonClient.<String>getBucket(REDIS_KEY_PREFIX + key, StringCodec.INSTANCE).get();
+        } catch (Exception e) {
+            log.error("查询生成结果缓存失败: {}", e.getMessage());
+        }
+        if (cached != null) {
+            redisHitCount.increment();
+            localCache.put(key, cached);
+            return cached;
+        }
+        missCount.increment();
+        return null;
+    }
+
+    /**
+     * 写入缓存
+     *
+     * @param key     缓存键
+     * @param content 完整 AI 输出
+     */
+    public void put(String key, String content) {
+        if (StrUtil.isBlank(content) || content.length() > generationCacheConfig.getMaxEntryChars()) {
+            return;
+        }
+        localCache.put(key, content);
+        try {
+            redissonClient.<String>getBucket(REDIS_KEY_PREFIX + key, StringCodec.INSTANCE)
+                    .set(content, Duration.ofHours(generationCacheConfig.getRedisTtlHours()));
+        } catch (Exception e) {
+            log.error("写入生成结果缓存失败: {}", e.getMessage());
+        }
+        putCount.increment();
+    }
+
+    /**
+     * 记录一次未使用缓存的生成（非首轮对话或请求选择不使用缓存）
+     */
+    public void recordBypass() {
+        bypassCount.increment();
+    }
+
+    /**
+     * 获取缓存统计
+     */
+    public GenerationCacheStatsVO getStats() {
+        long localHits = localHitCount.sum();
+        long redisHits = redisHitCount.sum();
+        long misses = missCount.sum();
+        long lookups = localHits + redisHits + misses;
+        GenerationCacheStatsVO statsVO = new GenerationCacheStatsVO();
+        statsVO.setLocalHitCount(localHits);
+        statsVO.setRedisHitCount(redisHits);
+        statsVO.setMissCount(misses);
+        statsVO.setPutCount(putCount.sum());
+        statsVO.setBypassCount(bypassCount.sum());
+        statsVO.setLocalSize(localCache.estimatedSize());
+        statsVO.setHitRate(lookups == 0 ? 0 : (double) (localHits + redisHits) / lookups);
+        return statsVO;
+    }
+
+    /**
+     * 规范化提示词：去除首尾空白、合并连续空白、英文转小写
+     */
+    private String normalize(String prompt) {
+        return StrUtil.trim(prompt).replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
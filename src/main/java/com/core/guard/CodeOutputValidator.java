@@ -0,0 +1,169 @@
+package com.core.guard;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+
+import java.util.Locale;
+
+/**
+ * 生成代码的完整性校验
+ * 只检查截断和空内容这类确定的问题（标签、括号没有闭合），不做语法检查，避免误判
+ */
+public final class CodeOutputValidator {
+
+    private CodeOutputValidator() {
+    }
+
+    /**
+     * 校验文件内容
+     *
+     * @param fileName 文件名或相对路径
+     * @param content  文件内容
+     * @param maxChars 文件最多的字符数
+     * @return 问题描述，校验通过返回 null
+     */
+    public static String validate(String fileName, CharSequence content, int maxChars) {
+        if (StrUtil.isBlank(content)) {
+            return "文件内容为空";
+        }
+        if (content.length() > maxChars) {
+            return StrUtil.format("文件内容过长（{} 字符，上限 {} 字符）", content.length(), maxChars);
+        }
+        String text = content.toString();
+        String suffix = StrUtil.nullToEmpty(FileUtil.getSuffix(fileName)).toLowerCase(Locale.ROOT);
+        return switch (suffix) {
+            case "html", "htm" -> checkTags(text, "html", "head", "body", "script", "style");
+            case "vue" -> checkTags(text, "template", "script", "style");
+            case "js", "mjs", "cjs", "jsx", "ts", "tsx", "json" -> checkBrackets(text, true);
+            case "css", "scss", "less" -> checkBrackets(text, false);
+            default -> null;
+        };
+    }
+
+    /**
+     * 检查标签的开始和结束数量是否一致
+     */
+    private static String checkTags(String content, String... tagNames) {
+        String lowerContent = content.toLowerCase(Locale.ROOT);
+        for (String tagName : tagNames) {
+            int openCount = countTag(lowerContent, "<" + tagName);
+            int closeCount = StrUtil.count(lowerContent, "</" + tagName + ">");
+            if (openCount > closeCount) {
+                return StrUtil.format("代码不完整，缺少 </{}>", tagName);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 统计开始标签数量，标签名后必须是空白、> 或 /，避免 <header> 被计为 <head>
+     */
+    private static int countTag(String content, String tagPrefix) {
+        int count = 0;
+        int index = content.indexOf(tagPrefix);
+        while (index >= 0) {
+            int next = index + tagPrefix.length();
+            if (next >= content.length()) {
+                count++;
+            } else {
+                char c = content.charAt(next);
+                if (c == '>' || c == '/' || Character.isWhitespace(c)) {
+                    count++;
+                }
+            }
+            index = content.indexOf(tagPrefix, next);
+        }
+        return count;
+    }
+
+    /**
+     * 检查括号是否闭合，跳过字符串、模板字符串和注释
+     *
+     * @param lineComment 是否支持 // 行注释（CSS 中 // 可能出现在 url() 里）
+     */
+    private static String checkBrackets(String content, boolean lineComment) {
+        int braces = 0;
+        int brackets = 0;
+        int parens = 0;
+        int length = content.length();
+        int i = 0;
+        while (i < length) {
+            char c = content.charAt(i);
+            char next = i + 1 < length ? content.charAt(i + 1) : 0;
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '/' && next == '*') {
+                int end = content.indexOf("*/", i + 2);
+                if (end < 0) {
+                    return "代码不完整，注释没有闭合";
+                }
+                i = end + 2;
+                continue;
+            }
+            if (lineComment && c == '/' && next == '/') {
+                i = skipLine(content, i);
+                continue;
+            }
+            if (c == '"' || c == '\'') {
+                // 普通字符串不能跨行，遇到换行即结束，避免误判
+                i = skipQuoted(content, i + 1, c, true);
+                continue;
+            }
+            if (c == '`' && lineComment) {
+                i = skipQuoted(content, i + 1, c, false);
+                if (i > length) {
+                    return "代码不完整，模板字符串没有闭合";
+                }
+                continue;
+            }
+            switch (c) {
+                case '{' -> braces++;
+                case '}' -> braces--;
+                case '[' -> brackets++;
+                case ']' -> brackets--;
+                case '(' -> parens++;
+                case ')' -> parens--;
+                default -> {
+                }
+            }
+            i++;
+        }
+        if (braces > 0 || brackets > 0 || parens > 0) {
+            return StrUtil.format("代码不完整，有未闭合的括号（{} 个 '{'，{} 个 '['，{} 个 '('）",
+                    Math.max(braces, 0), Math.max(brackets, 0), Math.max(parens, 0));
+        }
+        return null;
+    }
+
+    /**
+     * 跳过字符串，返回结束引号之后的位置；没有结束引号时返回 length + 1
+     */
+    private static int skipQuoted(String content, int start, char quote, boolean stopAtNewline) {
+        int i = start;
+        while (i < content.length()) {
+            char c = content.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == quote) {
+                return i + 1;
+            }
+            if (stopAtNewline && c == '\n') {
+                return i + 1;
+            }
+            i++;
+        }
+        return stopAtNewline ? content.length() : content.length() + 1;
+    }
+
+    private static int skipLine(String content, int start) {
+        int i = start;
+        while (i < content.length() && content.charAt(i) != '\n') {
+            i++;
+        }
+        return i + 1;
+    }
+}
@@ -0,0 +1,82 @@
+package com.core.guard;
+
+import com.model.vo.OutputGuardStatsVO;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 输出校验统计
+ * 统计续写次数及其补全成功的次数、未通过校验的文件数、超长中止的生成数，以及因此没有保存或构建的生成数
+ */
+@Component
+public class OutputGuardMetrics {
+
+    private final LongAdder continuationCount = new LongAdder();
+
+    private final LongAdder recoveredCount = new LongAdder();
+
+    private final LongAdder rejectedFileCount = new LongAdder();
+
+    private final LongAdder rejectedToolWriteCount = new LongAdder();
+
+    private final LongAdder runawayAbortCount = new LongAdder();
+
+    private final LongAdder blockedGenerationCount = new LongAdder();
+
+    /**
+     * 记录一次续写请求
+     */
+    public void recordContinuation() {
+        continuationCount.increment();
+    }
+
+    /**
+     * 记录一次经过续写后代码块正常闭合的生成
+     */
+    public void recordRecovered() {
+        recoveredCount.increment();
+    }
+
+    /**
+     * 记录流式输出中未通过校验、没有保存的文件
+     */
+    public void recordRejectedFiles(int count) {
+        rejectedFileCount.add(count);
+    }
+
+    /**
+     * 记录一次被拒绝的工具写入（模型会收到错误信息并重新写入）
+     */
+    public void recordRejectedToolWrite() {
+        rejectedToolWriteCount.increment();
+    }
+
+    /**
+     * 记录一次因输出超长而中止的生成
+     */
+    public void recordRunawayAbort() {
+        runawayAbortCount.increment();
+    }
+
+    /**
+     * 记录一次因校验未通过而没有保存或构建的生成
+     */
+    public void recordBlockedGeneration() {
+        blockedGenerationCount.increment();
+    }
+
+    /**
+     * 获取输出校验统计
+     */
+    public OutputGuardStatsVO getStats() {
+        OutputGuardStatsVO statsVO = new OutputGuardStatsVO();
+        statsVO.setContinuationCount(continuationCount.sum());
+        statsVO.setRecoveredCount(recoveredCount.sum());
+        statsVO.setRejectedFileCount(rejectedFileCount.sum());
+        statsVO.setRejectedToolWriteCount(rejectedToolWriteCount.sum());
+        statsVO.setRunawayAbortCount(runawayAbortCount.sum());
+        statsVO.setBlockedGenerationCount(blockedGenerationCount.sum());
+        return statsVO;
+    }
+}
@@ -0,0 +1,239 @@
+package com.core.guard;
+
+import cn.hutool.core.util.StrUtil;
+import com.config.OutputGuardConfig;
+import com.core.parser.CodeBlockListener;
+import com.core.parser.StreamingCodeParser;
+import com.core.saver.StreamingCodeFileSaver;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 流式输出校验
+ * 位于 StreamingCodeParser 和 StreamingCodeFileSaver 之间，边接收边校验：
+ * 1. 输出总长度或单个文件超过上限时记录中止原因，由调用方立即中止生成
+ * 2. 代码块结束时校验内容，未通过校验的文件不落盘，保留上一版本
+ * 3. 流结束时仍未闭合的代码块视为被截断，调用方可以发起续写请求，续写内容经 stitch 去除重复部分后继续送入解析器
+ * <p>
+ * 非线程安全，每次流式生成创建一个实例
+ */
+@Slf4j
+public class StreamingOutputGuard implements CodeBlockListener {
+
+    /**
+     * 保留的最近输出字符数，用于去除续写内容开头与已有内容重复的部分
+     */
+    private static final int TAIL_CHARS = 200;
+
+    /**
+     * 认定为重复内容的最少字符数，过短的重叠可能只是巧合
+     */
+    private static final int MIN_OVERLAP_CHARS = 16;
+
+    private static final String FENCE = "```";
+
+    private final StreamingCodeFileSaver codeFileSaver;
+
+    private final OutputGuardConfig outputGuardConfig;
+
+    private final StringBuilder blockContent = new StringBuilder();
+
+    private final StringBuilder tail = new StringBuilder();
+
+    /**
+     * 未通过校验的文件及原因
+     */
+    private final List<String> problems = new ArrayList<>();
+
+    private final Set<String> acceptedFiles = new HashSet<>();
+
+    private long outputChars;
+
+    /**
+     * 被截断的代码块对应的文件
+     */
+    private String truncatedFile;
+
+    /**
+     * 中止原因，不为空时调用方应立即中止生成
+     */
+    @Getter
+    private String abortReason;
+
+    /**
+     * 已发起的续写次数
+     */
+    @Getter
+    private int continuationCount;
+
+    public StreamingOutputGuard(StreamingCodeFileSaver codeFileSaver, OutputGuardConfig outputGuardConfig) {
+        this.codeFileSaver = codeFileSaver;
+        this.outputGuardConfig = outputGuardConfig;
+    }
+
+    /**
+     * 接收一段原始输出（送入解析器之前调用）
+     *
+     * @param chunk 输出片段
+     */
+    public void onChunk(String chunk) {
+        outputChars += chunk.length();
+        tail.append(chunk);
+        if (tail.length() > TAIL_CHARS * 2) {
+            tail.delete(0, tail.length() - TAIL_CHARS);
+        }
+        if (outputGuardConfig.isEnabled() && abortReason == null && outputChars > outputGuardConfig.getMaxOutputChars()) {
+            abortReason = StrUtil.format("生成内容超过 {} 字符，已中止", outputGuardConfig.getMaxOutputChars());
+        }
+    }
+
+    @Override
+    public void onBlockStart(String fileName) {
+        blockContent.setLength(0);
+        codeFileSaver.onBlockStart(fileName);
+    }
+
+    @Override
+    public void onBlockContent(String fileName, CharSequence content) {
+        blockContent.append(content);
+        if (outputGuardConfig.isEnabled() && abortReason == null && blockContent.length() > outputGuardConfig.getMaxFileChars()) {
+            abortReason = StrUtil.format("文件 {} 超过 {} 字符，已中止", fileName, outputGuardConfig.getMaxFileChars());
+        }
+        codeFileSaver.onBlockContent(fileName, content);
+    }
+
+    @Override
+    public void onBlockEnd(String fileName) {
+        if (!outputGuardConfig.isEnabled()) {
+            codeFileSaver.onBlockEnd(fileName);
+            return;
+        }
+        // 空的 CSS / JS 代码块不保存也不算错误，与原有保存逻辑一致
+        if (StrUtil.isBlank(blockContent) && !StreamingCodeParser.HTML_FILE_NAME.equals(fileName)) {
+            codeFileSaver.onBlockEnd(fileName);
+            return;
+        }
+        String problem = fileName.equals(truncatedFile)
+                ? "代码被截断，代码块没有闭合"
+                : CodeOutputValidator.validate(fileName, blockContent, outputGuardConfig.getMaxFileChars());
+        if (problem != null) {
+            log.warn("文件 {} 未通过校验，不保存: {}", fileName, problem);
+            problems.add(fileName + "：" + problem);
+            // 丢弃临时文件，保留上一版本
+            codeFileSaver.abort();
+            return;
+        }
+        acceptedFiles.add(fileName);
+        codeFileSaver.onBlockEnd(fileName);
+    }
+
+    /**
+     * 流结束时标记被截断的代码块，需要在 StreamingCodeParser.finish() 之前调用
+     *
+     * @param openFile 仍未闭合的代码块对应的文件，没有则为 null
+     */
+    public void markTruncated(String openFile) {
+        this.truncatedFile = openFile;
+    }
+
+    /**
+     * 是否应该对未闭合的代码块发起续写
+     *
+     * @param openFile 仍未闭合的代码块对应的文件
+     * @return 是否续写
+     */
+    public boolean shouldContinue(String openFile) {
+        return openFile != null
+                && outputGuardConfig.isEnabled()
+                && abortReason == null
+                && continuationCount < outputGuardConfig.getMaxContinuations();
+    }
+
+    /**
+     * 处理续写内容：去掉开头重新打开的代码围栏，以及与已有输出重复的部分
+     *
+     * @param continuation 续写的流式输出
+     * @return 可以直接接在已有输出后面的内容
+     */
+    public Flux<String> stitch(Flux<String> continuation) {
+        return Flux.defer(() -> {
+            continuationCount++;
+            String previousTail = tail.toString();
+            StringBuilder head = new StringBuilder();
+            boolean[] released = {false};
+            return continuation.<String>handle((chunk, sink) -> {
+                if (released[0]) {
+                    sink.next(chunk);
+                    return;
+                }
+                head.append(chunk);
+                if (head.length() >= TAIL_CHARS) {
+                    released[0] = true;
+                    String cleanedHead = cleanHead(head.toString(), previousTail);
+                    if (!cleanedHead.isEmpty()) {
+                        sink.next(cleanedHead);
+                    }
+                }
+            }).concatWith(Flux.defer(() -> {
+                if (released[0] || head.isEmpty()) {
+                    return Flux.empty();
+                }
+                String cleanedHead = cleanHead(head.toString(), previousTail);
+                return cleanedHead.isEmpty() ? Flux.empty() : Flux.just(cleanedHead);
+            }));
+        });
+    }
+
+    /**
+     * 获取校验问题，包括没有保存任何 HTML 代码的情况
+     *
+     * @return 问题列表，为空表示校验通过
+     */
+    public List<String> getProblems() {
+        if (!outputGuardConfig.isEnabled()) {
+            return List.of();
+        }
+        List<String> result = new ArrayList<>(problems);
+        boolean htmlRejected = problems.stream().anyMatch(problem -> problem.startsWith(StreamingCodeParser.HTML_FILE_NAME));
+        if (!htmlRejected && !acceptedFiles.contains(StreamingCodeParser.HTML_FILE_NAME)) {
+            result.add(StreamingCodeParser.HTML_FILE_NAME + "：没有生成 HTML 代码");
+        }
+        return result;
+    }
+
+    /**
+     * 未通过校验、没有保存的文件数
+     */
+    public int getRejectedFileCount() {
+        return problems.size();
+    }
+
+    /**
+     * 清理续写内容的开头
+     */
+    private String cleanHead(String head, String previousTail) {
+        String cleaned = head;
+        // 模型可能重新打开代码块（如 ```html），带语言标识的围栏行直接去掉；不带语言标识的是结束围栏，需要保留
+        String trimmed = StrUtil.trimStart(cleaned);
+        if (trimmed.startsWith(FENCE)) {
+            int lineEnd = trimmed.indexOf('\n');
+            String language = (lineEnd < 0 ? trimmed : trimmed.substring(0, lineEnd)).substring(FENCE.length()).trim();
+            if (!language.isEmpty() && !language.startsWith(FENCE)) {
+                cleaned = lineEnd < 0 ? "" : trimmed.substring(lineEnd + 1);
+            }
+        }
+        // 去掉与已有输出末尾重复的部分
+        for (int overlap = Math.min(cleaned.length(), previousTail.length()); overlap >= MIN_OVERLAP_CHARS; overlap--) {
+            if (previousTail.endsWith(cleaned.substring(0, overlap))) {
+                return cleaned.substring(overlap);
+            }
+        }
+        return cleaned;
+    }
+}
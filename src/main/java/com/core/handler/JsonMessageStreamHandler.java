@@ -19,7 +19,8 @@ import java.util.Set;
 
 /**
  * JSON 消息流处理器
- * 处理 VUE_PROJECT 类型的复杂流式响应，包含工具调用信息
+ * 处理 VUE_PROJECT 类型的复杂流式响应，包含工具调用信息。
+ * 消息以对象形式传入，按类型直接分派，无需再解析 JSON
  */
 @Slf4j
 @Component
@@ -30,7 +31,7 @@ public class JsonMessageStreamHandler {
 
     /**
      * 处理 TokenStream（VUE_PROJECT）
-     * 解析 JSON 消息并重组为完整的响应格式
+     * 将流式消息重组为完整的响应格式
      *
      * @param originFlux         原始流
      * @param chatHistoryService 聊天历史服务
@@ -38,7 +39,7 @@ public class JsonMessageStreamHandler {
      * @param loginUser          登录用户
      * @return 处理后的流
      */
-    public Flux<String> handle(Flux<String> originFlux,
+    public Flux<String> handle(Flux<StreamMessage> originFlux,
                                ChatHistoryService chatHistoryService,
                                long appId, User loginUser) {
         // 收集数据用于生成后端记忆格式
@@ -46,9 +47,9 @@ public class JsonMessageStreamHandler {
         // 用于跟踪已经见过的工具ID，判断是否是第一次调用
         Set<String> seenToolIds = new HashSet<>();
         return originFlux
-                .map(chunk -> {
-                    // 解析每个 JSON 消息块
-                    return handleJsonMessageChunk(chunk, chatHistoryStringBuilder, seenToolIds);
+                .map(streamMessage -> {
+                    // 处理每条消息
+                    return handleStreamMessage(streamMessage, chatHistoryStringBuilder, seenToolIds);
                 })
                 .filter(StrUtil::isNotEmpty) // 过滤空字串
                 .doOnComplete(() -> {
@@ -60,26 +61,27 @@ public class JsonMessageStreamHandler {
                     // 如果AI回复失败，也要记录错误消息
                     String errorMessage = "AI回复失败: " + error.getMessage();
                     chatHistoryService.addChatMessage(appId, errorMessage, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
+                })
+                .doOnCancel(() -> {
+                    // 生成被取消，保留已生成的内容并标记为已取消
+                    String partialResponse = chatHistoryStringBuilder.toString();
+                    String cancelledMessage = StrUtil.isBlank(partialResponse) ? "AI回复已取消" : partialResponse + "\n\n（AI回复已取消）";
+                    chatHistoryService.addChatMessage(appId, cancelledMessage, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
                 });
     }
 
     /**
-     * 解析并收集 TokenStream 数据
+     * 收集 TokenStream 数据
      */
-    private String handleJsonMessageChunk(String chunk, StringBuilder chatHistoryStringBuilder, Set<String> seenToolIds) {
-        // 解析 JSON
-        StreamMessage streamMessage = JSONUtil.toBean(chunk, StreamMessage.class);
-        StreamMessageTypeEnum typeEnum = StreamMessageTypeEnum.getEnumByValue(streamMessage.getType());
-        switch (typeEnum) {
-            case AI_RESPONSE -> {
-                AiResponseMessage aiMessage = JSONUtil.toBean(chunk, AiResponseMessage.class);
+    private String handleStreamMessage(StreamMessage streamMessage, StringBuilder chatHistoryStringBuilder, Set<String> seenToolIds) {
+        return switch (streamMessage) {
+            case AiResponseMessage aiMessage -> {
                 String data = aiMessage.getData();
                 // 直接拼接响应
                 chatHistoryStringBuilder.append(data);
-                return data;
+                yield data;
             }
-            case TOOL_REQUEST -> {
-                ToolRequestMessage toolRequestMessage = JSONUtil.toBean(chunk, ToolRequestMessage.class);
+            case ToolRequestMessage toolRequestMessage -> {
                 String toolId = toolRequestMessage.getId();
                 String toolName = toolRequestMessage.getName();
                 // 检查是否是第一次看到这个工具 ID
@@ -89,14 +91,13 @@ public class JsonMessageStreamHandler {
                     // 根据工具名称获取工具实例
                     BaseTool tool = toolManager.getTool(toolName);
                     // 返回格式化的工具调用信息
-                    return tool.generateToolRequestResponse();
+                    yield tool.generateToolRequestResponse();
                 } else {
                     // 不是第一次调用这个工具，直接返回空
-                    return "";
+                    yield "";
                 }
             }
-            case TOOL_EXECUTED -> {
-                ToolExecutedMessage toolExecutedMessage = JSONUtil.toBean(chunk, ToolExecutedMessage.class);
+            case ToolExecutedMessage toolExecutedMessage -> {
                 JSONObject jsonObject = JSONUtil.parseObj(toolExecutedMessage.getArguments());
                 // 根据工具名称获取工具实例
                 String toolName = toolExecutedMessage.getName();
@@ -105,12 +106,10 @@ public class JsonMessageStreamHandler {
                 // 输出前端和要持久化的内容
                 String output = String.format("\n\n%s\n\n", result);
                 chatHistoryStringBuilder.append(output);
-                return output;
-            }
-            default -> {
-                log.error("不支持的消息类型: {}", typeEnum);
-                return "";
+                yield output;
             }
-        }
+            // 文件进度以 file 事件单独推送，不计入对话历史
+            case FileProgressMessage fileProgressMessage -> "";
+        };
     }
-} 
\ No newline at end of file
+}
@@ -1,5 +1,8 @@
 package com.core.handler;
 
+import cn.hutool.core.util.StrUtil;
+import com.ai.model.message.AiResponseMessage;
+import com.ai.model.message.StreamMessage;
 import com.model.entity.User;
 import com.model.enums.ChatHistoryMessageTypeEnum;
 import com.service.ChatHistoryService;
@@ -24,13 +27,15 @@ public class SimpleTextStreamHandler {
      * @param loginUser          登录用户
      * @return 处理后的流
      */
-    public Flux<String> handle(Flux<String> originFlux,
+    public Flux<String> handle(Flux<StreamMessage> originFlux,
                                ChatHistoryService chatHistoryService,
                                long appId, User loginUser) {
         StringBuilder aiResponseBuilder = new StringBuilder();
         return originFlux
-                .map(chunk -> {
+                .ofType(AiResponseMessage.class)
+                .map(aiMessage -> {
                     // 收集AI响应内容
+                    String chunk = aiMessage.getData();
                     aiResponseBuilder.append(chunk);
                     return chunk;
                 })
@@ -43,6 +48,12 @@ public class SimpleTextStreamHandler {
                     // 如果AI回复失败，也要记录错误消息
                     String errorMessage = "AI回复失败: " + error.getMessage();
                     chatHistoryService.addChatMessage(appId, errorMessage, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
+                })
+                .doOnCancel(() -> {
+                    // 生成被取消，保留已生成的内容并标记为已取消
+                    String partialResponse = aiResponseBuilder.toString();
+                    String cancelledMessage = StrUtil.isBlank(partialResponse) ? "AI回复已取消" : partialResponse + "\n\n（AI回复已取消）";
+                    chatHistoryService.addChatMessage(appId, cancelledMessage, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
                 });
     }
 }
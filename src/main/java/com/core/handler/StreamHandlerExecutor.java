@@ -1,5 +1,7 @@
 package com.core.handler;
 
+import com.ai.memory.ChatMemoryHydrator;
+import com.ai.model.message.StreamMessage;
 import com.model.entity.User;
 import com.model.enums.CodeGenTypeEnum;
 import com.service.ChatHistoryService;
@@ -11,8 +13,8 @@ import reactor.core.publisher.Flux;
 /**
  * 流处理器执行器
  * 根据代码生成类型创建合适的流处理器：
- * 1. 传统的 Flux<String> 流（HTML、MULTI_FILE） -> SimpleTextStreamHandler
- * 2. TokenStream 格式的复杂流（VUE_PROJECT） -> JsonMessageStreamHandler
+ * 1. 只有 AI 响应片段的流（HTML、MULTI_FILE） -> SimpleTextStreamHandler
+ * 2. 包含工具调用的复杂流（VUE_PROJECT） -> JsonMessageStreamHandler
  */
 @Slf4j
 @Component
@@ -21,6 +23,9 @@ public class StreamHandlerExecutor {
     @Resource
     private JsonMessageStreamHandler jsonMessageStreamHandler;
 
+    @Resource
+    private ChatMemoryHydrator chatMemoryHydrator;
+
     /**
      * 创建流处理器并处理聊天历史记录
      *
@@ -31,14 +36,16 @@ public class StreamHandlerExecutor {
      * @param codeGenType        代码生成类型
      * @return 处理后的流
      */
-    public Flux<String> doExecute(Flux<String> originFlux,
+    public Flux<String> doExecute(Flux<StreamMessage> originFlux,
                                   ChatHistoryService chatHistoryService,
                                   long appId, User loginUser, CodeGenTypeEnum codeGenType) {
-        return switch (codeGenType) {
+        Flux<String> handledFlux = switch (codeGenType) {
             case VUE_PROJECT -> // 使用注入的组件实例
                     jsonMessageStreamHandler.handle(originFlux, chatHistoryService, appId, loginUser);
             case HTML, MULTI_FILE -> // 简单文本处理器不需要依赖注入
                     new SimpleTextStreamHandler().handle(originFlux, chatHistoryService, appId, loginUser);
         };
+        // 正常结束时 AI 回复已同时写入对话记忆和数据库，推进对话记忆的版本号
+        return handledFlux.doOnComplete(() -> chatMemoryHydrator.markSynced(appId));
     }
 }
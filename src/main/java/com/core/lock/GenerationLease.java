@@ -0,0 +1,40 @@
+package com.core.lock;
+
+import lombok.Getter;
+
+/**
+ * 生成任务租约
+ * 持有租约的节点才能写入应用的代码目录，fencingToken 单调递增，用于拒绝已失效持有者的写入
+ */
+@Getter
+public class GenerationLease {
+
+    private final long appId;
+
+    /**
+     * 防护令牌，同一应用每次加锁递增
+     */
+    private final long fencingToken;
+
+    /**
+     * 持有租约的节点
+     */
+    private final String ownerNode;
+
+    private final long acquireTime = System.currentTimeMillis();
+
+    /**
+     * 租约是否已丢失（续期失败或已过期）
+     */
+    private volatile boolean lost;
+
+    public GenerationLease(long appId, long fencingToken, String ownerNode) {
+        this.appId = appId;
+        this.fencingToken = fencingToken;
+        this.ownerNode = ownerNode;
+    }
+
+    void markLost() {
+        this.lost = true;
+    }
+}
@@ -0,0 +1,39 @@
+package com.core.lock;
+
+import java.util.function.Consumer;
+
+/**
+ * 生成任务锁，保证同一应用同时只有一个生成任务
+ */
+public interface GenerationLock {
+
+    /**
+     * 尝试获取应用的生成租约
+     *
+     * @param appId 应用 ID
+     * @return 租约，已被占用返回 null
+     */
+    GenerationLease tryAcquire(long appId);
+
+    /**
+     * 释放租约
+     *
+     * @param lease 租约
+     */
+    void release(GenerationLease lease);
+
+    /**
+     * 租约是否仍然有效（未丢失，且没有更新的持有者）
+     *
+     * @param lease 租约
+     * @return 是否有效
+     */
+    boolean isValid(GenerationLease lease);
+
+    /**
+     * 注册租约丢失的回调
+     *
+     * @param listener 回调
+     */
+    void onLeaseLost(Consumer<GenerationLease> listener);
+}
@@ -0,0 +1,47 @@
+package com.core.lock;
+
+import com.config.NodeConfig;
+import jakarta.annotation.Resource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 单机生成任务锁，适用于单节点部署，不访问 Redis
+ */
+@Component
+@ConditionalOnProperty(name = "code-gen.lock.type", havingValue = "local", matchIfMissing = true)
+public class LocalGenerationLock implements GenerationLock {
+
+    private final Map<Long, GenerationLease> leases = new ConcurrentHashMap<>();
+
+    private final AtomicLong tokenGenerator = new AtomicLong();
+
+    @Resource
+    private NodeConfig nodeConfig;
+
+    @Override
+    public GenerationLease tryAcquire(long appId) {
+        GenerationLease lease = new GenerationLease(appId, tokenGenerator.incrementAndGet(), nodeConfig.getNodeId());
+        return leases.putIfAbsent(appId, lease) == null ? lease : null;
+    }
+
+    @Override
+    public void release(GenerationLease lease) {
+        leases.remove(lease.getAppId(), lease);
+    }
+
+    @Override
+    public boolean isValid(GenerationLease lease) {
+        return leases.get(lease.getAppId()) == lease;
+    }
+
+    @Override
+    public void onLeaseLost(Consumer<GenerationLease> listener) {
+        // 单机租约不会丢失
+    }
+}
@@ -0,0 +1,214 @@
+package com.core.lock;
+
+import com.config.NodeConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 基于 Redisson 的分布式生成任务锁，适用于多节点部署
+ * - 租约：加锁时设置过期时间，节点宕机后租约自动过期
+ * - 心跳：后台定时续期本节点持有的租约，续期失败视为租约丢失
+ * - 防护令牌：加锁成功时在同一个脚本中递增 Redis 计数器作为令牌，计数器始终等于最新持有者的令牌。
+ *   写入代码前比较 Redis 中的最新令牌，已被新持有者接管的旧持有者无法继续写入；
+ *   不依赖节点之间共享代码目录，各节点的代码目录仍然在本机
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "code-gen.lock.type", havingValue = "redis")
+public class RedisGenerationLock implements GenerationLock {
+
+    private static final String LOCK_KEY_PREFIX = "gen_lock:";
+
+    private static final String FENCE_KEY_PREFIX = "gen_lock:fence:";
+
+    /**
+     * 未被持有时加锁并递增令牌，返回令牌；已被持有返回 0。
+     * 只有加锁成功才递增，计数器不会超过当前持有者的令牌
+     */
+    private static final String ACQUIRE_SCRIPT = """
+            if redis.call('exists', KEYS[1]) == 1 then
+                return 0
+            end
+            local token = redis.call('incr', KEYS[2])
+            redis.call('set', KEYS[1], ARGV[1] .. ':' .. token, 'px', ARGV[2])
+            return token
+            """;
+
+    /**
+     * 仍由自己持有时续期
+     */
+    private static final String RENEW_SCRIPT = """
+            if redis.call('get', KEYS[1]) == ARGV[1] then
+                return redis.call('pexpire', KEYS[1], ARGV[2])
+            end
+            return 0
+            """;
+
+    /**
+     * 仍由自己持有时删除
+     */
+    private static final String RELEASE_SCRIPT = """
+            if redis.call('get', KEYS[1]) == ARGV[1] then
+                return redis.call('del', KEYS[1])
+            end
+            return 0
+            """;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    @Resource
+    private NodeConfig nodeConfig;
+
+    /**
+     * 租约时长（秒），心跳间隔为其三分之一
+     */
+    @Value("${code-gen.lock.lease-seconds:30}")
+    private long leaseSeconds;
+
+    /**
+     * 本节点持有的租约 -> 最近一次续期成功的时间
+     */
+    private final Map<GenerationLease, Long> heldLeases = new ConcurrentHashMap<>();
+
+    private final List<Consumer<GenerationLease>> leaseLostListeners = new CopyOnWriteArrayList<>();
+
+    private ScheduledExecutorService heartbeatExecutor;
+
+    @PostConstruct
+    public void init() {
+        long heartbeatMillis = Math.max(TimeUnit.SECONDS.toMillis(leaseSeconds) / 3, 1000);
+        heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("gen-lock-heartbeat").daemon().factory());
+        heartbeatExecutor.scheduleWithFixedDelay(this::renewLeases, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        log.info("分布式生成锁已启用，节点: {}, 租约: {} 秒", nodeConfig.getNodeId(), leaseSeconds);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (heartbeatExecutor != null) {
+            heartbeatExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public GenerationLease tryAcquire(long appId) {
+        Long fencingToken = redissonClient.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, ACQUIRE_SCRIPT,
+                RScript.ReturnType.INTEGER, List.of(LOCK_KEY_PREFIX + appId, FENCE_KEY_PREFIX + appId),
+                nodeConfig.getNodeId(), String.valueOf(TimeUnit.SECONDS.toMillis(leaseSeconds)));
+        if (fencingToken == null || fencingToken == 0) {
+            RBucket<String> bucket = redissonClient.getBucket(LOCK_KEY_PREFIX + appId, StringCodec.INSTANCE);
+            log.warn("应用 {} 的生成锁已被其他节点持有: {}", appId, bucket.get());
+            return null;
+        }
+        GenerationLease lease = new GenerationLease(appId, fencingToken, nodeConfig.getNodeId());
+        heldLeases.put(lease, System.currentTimeMillis());
+        log.debug("获取应用 {} 的生成锁，令牌: {}", appId, fencingToken);
+        return lease;
+    }
+
+    @Override
+    public void release(GenerationLease lease) {
+        heldLeases.remove(lease);
+        if (lease.isLost()) {
+            return;
+        }
+        try {
+            redissonClient.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, RELEASE_SCRIPT,
+                    RScript.ReturnType.INTEGER, List.of(LOCK_KEY_PREFIX + lease.getAppId()), lockValue(lease));
+        } catch (Exception e) {
+            // 释放失败时等待租约自然过期
+            log.error("释放应用 {} 的生成锁失败: {}", lease.getAppId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isValid(GenerationLease lease) {
+        if (lease.isLost()) {
+            return false;
+        }
+        long latestToken;
+        try {
+            latestToken = redissonClient.getAtomicLong(FENCE_KEY_PREFIX + lease.getAppId()).get();
+        } catch (Exception e) {
+            // Redis 暂时不可用时以心跳为准：续期持续失败超过租约时长会标记为丢失
+            log.warn("读取应用 {} 的防护令牌失败: {}", lease.getAppId(), e.getMessage());
+            return !lease.isLost();
+        }
+        // Redis 中的令牌更大，说明已有新的持有者
+        if (latestToken > lease.getFencingToken()) {
+            log.warn("应用 {} 的生成锁已被新的持有者接管，当前令牌: {}, 最新令牌: {}",
+                    lease.getAppId(), lease.getFencingToken(), latestToken);
+            markLost(lease);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void onLeaseLost(Consumer<GenerationLease> listener) {
+        leaseLostListeners.add(listener);
+    }
+
+    /**
+     * 心跳：续期本节点持有的所有租约
+     */
+    private void renewLeases() {
+        long leaseMillis = TimeUnit.SECONDS.toMillis(leaseSeconds);
+        for (Map.Entry<GenerationLease, Long> entry : heldLeases.entrySet()) {
+            GenerationLease lease = entry.getKey();
+            try {
+                Long renewed = redissonClient.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, RENEW_SCRIPT,
+                        RScript.ReturnType.INTEGER, List.of(LOCK_KEY_PREFIX + lease.getAppId()),
+                        lockValue(lease), String.valueOf(leaseMillis));
+                if (renewed != null && renewed == 1) {
+                    entry.setValue(System.currentTimeMillis());
+                } else {
+                    log.error("应用 {} 的生成锁续期失败，租约已过期或被其他节点持有", lease.getAppId());
+                    markLost(lease);
+                }
+            } catch (Exception e) {
+                log.error("应用 {} 的生成锁续期异常: {}", lease.getAppId(), e.getMessage());
+                // 超过租约时长未能续期，锁已经过期
+                if (System.currentTimeMillis() - entry.getValue() > leaseMillis) {
+                    markLost(lease);
+                }
+            }
+        }
+    }
+
+    private void markLost(GenerationLease lease) {
+        if (heldLeases.remove(lease) == null && lease.isLost()) {
+            return;
+        }
+        lease.markLost();
+        for (Consumer<GenerationLease> listener : leaseLostListeners) {
+            try {
+                listener.accept(lease);
+            } catch (Exception e) {
+                log.error("处理租约丢失失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private String lockValue(GenerationLease lease) {
+        return lease.getOwnerNode() + ":" + lease.getFencingToken();
+    }
+}
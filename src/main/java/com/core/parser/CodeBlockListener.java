@@ -0,0 +1,30 @@
+package com.core.parser;
+
+/**
+ * 流式代码块监听器
+ * 由 StreamingCodeParser 在识别到代码块的开始、内容和结束时回调
+ */
+public interface CodeBlockListener {
+
+    /**
+     * 代码块开始
+     *
+     * @param fileName 代码块对应的文件名
+     */
+    void onBlockStart(String fileName);
+
+    /**
+     * 代码块内容（已去除首尾空白，可能被拆分为多次回调）
+     *
+     * @param fileName 代码块对应的文件名
+     * @param content  代码片段
+     */
+    void onBlockContent(String fileName, CharSequence content);
+
+    /**
+     * 代码块结束（闭合围栏或流结束）
+     *
+     * @param fileName 代码块对应的文件名
+     */
+    void onBlockEnd(String fileName);
+}
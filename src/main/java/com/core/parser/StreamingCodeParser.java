@@ -0,0 +1,265 @@
+package com.core.parser;
+
+import com.exception.BusinessException;
+import com.exception.ErrorCode;
+import com.model.enums.CodeGenTypeEnum;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 流式代码解析器（推模式状态机）
+ * 逐块接收 AI 的流式输出，识别 ```html / ```css / ```js 代码围栏，并把代码内容实时回调给监听器。
+ * 提取规则与 HtmlCodeParser、MultiFileCodeParser 保持一致：
+ * 1. 每种语言只取第一个代码块
+ * 2. 代码内容去除首尾空白
+ * 3. HTML 模式下没有找到代码块时，将整个内容作为 HTML
+ * <p>
+ * 非线程安全，每次流式生成创建一个实例
+ */
+@Slf4j
+public class StreamingCodeParser {
+
+    public static final String HTML_FILE_NAME = "index.html";
+
+    public static final String CSS_FILE_NAME = "style.css";
+
+    public static final String JS_FILE_NAME = "script.js";
+
+    private static final String FENCE = "```";
+
+    /**
+     * 解析状态：代码块外 / 目标代码块内 / 非目标代码块内
+     */
+    private enum State {
+        TEXT, CODE, SKIP
+    }
+
+    private final CodeGenTypeEnum codeGenType;
+
+    private final CodeBlockListener listener;
+
+    /**
+     * 当前尚未处理完的行
+     */
+    private final StringBuilder lineBuffer = new StringBuilder();
+
+    /**
+     * 暂存的尾部空白，只有后面出现非空白内容时才输出，用于实现 trim 效果
+     */
+    private final StringBuilder pendingWhitespace = new StringBuilder();
+
+    /**
+     * 已经出现过的文件，每种语言只取第一个代码块
+     */
+    private final Set<String> seenFiles = new HashSet<>();
+
+    /**
+     * HTML 模式兜底内容，出现第一个 html 代码块后即丢弃
+     */
+    private StringBuilder fallbackBuilder;
+
+    private State state = State.TEXT;
+
+    private String currentFile;
+
+    private boolean blockHasContent;
+
+    public StreamingCodeParser(CodeGenTypeEnum codeGenType, CodeBlockListener listener) {
+        if (codeGenType != CodeGenTypeEnum.HTML && codeGenType != CodeGenTypeEnum.MULTI_FILE) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型: " + codeGenType);
+        }
+        this.codeGenType = codeGenType;
+        this.listener = listener;
+        this.fallbackBuilder = codeGenType == CodeGenTypeEnum.HTML ? new StringBuilder() : null;
+    }
+
+    /**
+     * 接收一段流式输出
+     *
+     * @param chunk 代码片段
+     */
+    public void feed(String chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return;
+        }
+        if (fallbackBuilder != null) {
+            fallbackBuilder.append(chunk);
+        }
+        int start = 0;
+        for (int i = 0; i < chunk.length(); i++) {
+            if (chunk.charAt(i) == '\n') {
+                lineBuffer.append(chunk, start, i + 1);
+                processLine();
+                start = i + 1;
+            }
+        }
+        lineBuffer.append(chunk, start, chunk.length());
+        // 代码块内的半行内容可以提前输出
+        if (state == State.CODE) {
+            flushPartialLine();
+        }
+    }
+
+    /**
+     * 流结束，处理剩余内容
+     */
+    public void finish() {
+        if (!lineBuffer.isEmpty()) {
+            processLine();
+        }
+        if (state == State.CODE) {
+            log.warn("代码块 {} 未闭合，按流结束处理", currentFile);
+            endBlock();
+        }
+        state = State.TEXT;
+        // HTML 模式下没有找到代码块，将整个内容作为 HTML
+        if (fallbackBuilder != null && !seenFiles.contains(HTML_FILE_NAME)) {
+            String htmlCode = fallbackBuilder.toString().trim();
+            fallbackBuilder = null;
+            if (!htmlCode.isEmpty()) {
+                seenFiles.add(HTML_FILE_NAME);
+                listener.onBlockStart(HTML_FILE_NAME);
+                listener.onBlockContent(HTML_FILE_NAME, htmlCode);
+                listener.onBlockEnd(HTML_FILE_NAME);
+            }
+        }
+    }
+
+    /**
+     * 获取尚未闭合的目标代码块，流结束时仍未闭合说明输出被截断
+     * 结束围栏所在的行还没有换行时尚未处理，但代码块已经闭合
+     *
+     * @return 代码块对应的文件名，不在目标代码块内返回 null
+     */
+    public String getOpenBlock() {
+        if (state != State.CODE || lineBuffer.indexOf(FENCE) >= 0) {
+            return null;
+        }
+        return currentFile;
+    }
+
+    /**
+     * 处理一整行
+     */
+    private void processLine() {
+        String line = lineBuffer.toString();
+        lineBuffer.setLength(0);
+        int fenceIndex = line.indexOf(FENCE);
+        switch (state) {
+            case TEXT -> {
+                if (fenceIndex < 0) {
+                    return;
+                }
+                String language = line.substring(fenceIndex + FENCE.length()).trim().toLowerCase();
+                String fileName = resolveFileName(language);
+                if (fileName != null && seenFiles.add(fileName)) {
+                    startBlock(fileName);
+                } else {
+                    state = State.SKIP;
+                }
+            }
+            case CODE -> {
+                if (fenceIndex < 0) {
+                    emit(line);
+                    return;
+                }
+                emit(line.substring(0, fenceIndex));
+                endBlock();
+            }
+            case SKIP -> {
+                if (fenceIndex >= 0) {
+                    state = State.TEXT;
+                }
+            }
+        }
+    }
+
+    /**
+     * 输出代码块内未换行的内容，保留末尾可能构成围栏的反引号
+     */
+    private void flushPartialLine() {
+        if (lineBuffer.indexOf(FENCE) >= 0) {
+            return;
+        }
+        int end = lineBuffer.length();
+        while (end > 0 && lineBuffer.charAt(end - 1) == '`') {
+            end--;
+        }
+        if (end == 0) {
+            return;
+        }
+        emit(lineBuffer.substring(0, end));
+        lineBuffer.delete(0, end);
+    }
+
+    /**
+     * 输出代码内容，去除代码块首尾空白
+     */
+    private void emit(String text) {
+        int last = text.length() - 1;
+        while (last >= 0 && text.charAt(last) <= ' ') {
+            last--;
+        }
+        if (last < 0) {
+            // 纯空白内容：代码开头的直接丢弃，中间的暂存
+            if (blockHasContent) {
+                pendingWhitespace.append(text);
+            }
+            return;
+        }
+        int first = 0;
+        if (blockHasContent) {
+            if (!pendingWhitespace.isEmpty()) {
+                listener.onBlockContent(currentFile, pendingWhitespace.toString());
+                pendingWhitespace.setLength(0);
+            }
+        } else {
+            while (text.charAt(first) <= ' ') {
+                first++;
+            }
+        }
+        listener.onBlockContent(currentFile, text.substring(first, last + 1));
+        pendingWhitespace.append(text, last + 1, text.length());
+        blockHasContent = true;
+    }
+
+    private void startBlock(String fileName) {
+        state = State.CODE;
+        currentFile = fileName;
+        blockHasContent = false;
+        pendingWhitespace.setLength(0);
+        if (HTML_FILE_NAME.equals(fileName)) {
+            fallbackBuilder = null;
+        }
+        listener.onBlockStart(fileName);
+    }
+
+    private void endBlock() {
+        listener.onBlockEnd(currentFile);
+        state = State.TEXT;
+        currentFile = null;
+        pendingWhitespace.setLength(0);
+    }
+
+    /**
+     * 根据代码围栏的语言标识确定文件名
+     *
+     * @param language 语言标识
+     * @return 文件名，非目标语言返回 null
+     */
+    private String resolveFileName(String language) {
+        if ("html".equals(language)) {
+            return HTML_FILE_NAME;
+        }
+        if (codeGenType != CodeGenTypeEnum.MULTI_FILE) {
+            return null;
+        }
+        return switch (language) {
+            case "css" -> CSS_FILE_NAME;
+            case "js", "javascript" -> JS_FILE_NAME;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,175 @@
+package com.core.saver;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import com.constant.AppConstant;
+import com.core.parser.CodeBlockListener;
+import com.core.parser.StreamingCodeParser;
+import com.exception.BusinessException;
+import com.exception.ErrorCode;
+import com.model.enums.CodeGenTypeEnum;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 流式代码文件保存器
+ * 配合 StreamingCodeParser 使用，代码块内容边接收边写入临时文件，代码块闭合时原子替换为正式文件，
+ * 保证预览时不会读到写了一半的文件。
+ * 替换正式文件前检查写入许可（生成租约），租约已失效时丢弃临时文件，避免覆盖新持有者写入的代码
+ */
+@Slf4j
+public class StreamingCodeFileSaver implements CodeBlockListener {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final String baseDirPath;
+
+    /**
+     * 已经落盘的文件
+     */
+    private final List<String> savedFiles = new ArrayList<>();
+
+    /**
+     * 是否允许写入正式文件
+     */
+    private final BooleanSupplier writeGuard;
+
+    private Writer currentWriter;
+
+    private Path currentTempPath;
+
+    /**
+     * 写入失败后不再继续写入，避免影响流式输出
+     */
+    private boolean failed;
+
+    public StreamingCodeFileSaver(CodeGenTypeEnum codeGenType, Long appId) {
+        this(codeGenType, appId, () -> true);
+    }
+
+    public StreamingCodeFileSaver(CodeGenTypeEnum codeGenType, Long appId, BooleanSupplier writeGuard) {
+        if (appId == null) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "应用 ID 不能为空");
+        }
+        String dirName = StrUtil.format("{}_{}", codeGenType.getValue(), appId);
+        this.baseDirPath = AppConstant.CODE_OUTPUT_ROOT_DIR + File.separator + dirName;
+        this.writeGuard = writeGuard;
+    }
+
+    @Override
+    public synchronized void onBlockStart(String fileName) {
+        closeCurrentFile(true);
+    }
+
+    @Override
+    public synchronized void onBlockContent(String fileName, CharSequence content) {
+        if (failed) {
+            return;
+        }
+        try {
+            // 懒打开：空代码块不覆盖已有文件，与 CodeFileSaverTemplate.writeToFile 保持一致
+            if (currentWriter == null) {
+                FileUtil.mkdir(baseDirPath);
+                currentTempPath = Paths.get(baseDirPath, fileName + TEMP_SUFFIX);
+                currentWriter = Files.newBufferedWriter(currentTempPath, StandardCharsets.UTF_8);
+            }
+            currentWriter.append(content);
+        } catch (IOException e) {
+            log.error("流式写入文件失败: {}, 错误: {}", fileName, e.getMessage());
+            failed = true;
+            closeCurrentFile(true);
+        }
+    }
+
+    @Override
+    public synchronized void onBlockEnd(String fileName) {
+        if (failed || currentWriter == null) {
+            return;
+        }
+        Path tempPath = currentTempPath;
+        closeCurrentFile(false);
+        Path targetPath = Paths.get(baseDirPath, fileName);
+        if (!writeGuard.getAsBoolean()) {
+            log.warn("写入许可已失效，放弃保存文件: {}", targetPath);
+            failed = true;
+            FileUtil.del(tempPath);
+            return;
+        }
+        try {
+            try {
+                Files.move(tempPath, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            savedFiles.add(fileName);
+            log.info("文件保存成功: {}", targetPath);
+        } catch (IOException e) {
+            log.error("保存文件失败: {}, 错误: {}", fileName, e.getMessage());
+            failed = true;
+            FileUtil.del(tempPath);
+        }
+    }
+
+    /**
+     * 流式生成完成，校验保存结果
+     *
+     * @return 保存的目录
+     */
+    public synchronized File complete() {
+        if (failed) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "代码文件写入失败");
+        }
+        // 至少要有 HTML 代码，CSS 和 JS 可以为空
+        if (!savedFiles.contains(StreamingCodeParser.HTML_FILE_NAME)) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "HTML 代码不能为空");
+        }
+        return new File(baseDirPath);
+    }
+
+    /**
+     * 流式生成异常或被取消，丢弃未完成的文件
+     */
+    public synchronized void abort() {
+        closeCurrentFile(true);
+    }
+
+    /**
+     * 获取已经落盘的文件
+     */
+    public synchronized List<String> getSavedFiles() {
+        return new ArrayList<>(savedFiles);
+    }
+
+    /**
+     * 关闭当前文件
+     *
+     * @param discard 是否删除临时文件
+     */
+    private void closeCurrentFile(boolean discard) {
+        if (currentWriter == null) {
+            return;
+        }
+        try {
+            currentWriter.close();
+        } catch (IOException e) {
+            log.error("关闭文件失败: {}, 错误: {}", currentTempPath, e.getMessage());
+        }
+        if (discard) {
+            FileUtil.del(currentTempPath);
+        }
+        currentWriter = null;
+        currentTempPath = null;
+    }
+}
@@ -0,0 +1,426 @@
+package com.core.sectioned;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.ai.AiCodeGeneratorServiceFactory;
+import com.ai.guardrail.GuardrailRuleDictionary;
+import com.ai.guardrail.PromptSafetyInputGuardrail;
+import com.ai.http.ModelStreamCancellation;
+import com.ai.model.MultiFileCodeResult;
+import com.ai.model.message.AiResponseMessage;
+import com.ai.model.message.FileProgressMessage;
+import com.ai.model.message.StreamMessage;
+import com.ai.telemetry.LlmTelemetry;
+import com.ai.usage.UsageRecordingStreamingChatModel;
+import com.config.OutputGuardConfig;
+import com.config.SectionedGenerationConfig;
+import com.core.GenerationTaskManager;
+import com.core.cache.GenerationResultCache;
+import com.core.guard.CodeOutputValidator;
+import com.core.guard.OutputGuardMetrics;
+import com.core.parser.CodeParserExecutor;
+import com.core.parser.StreamingCodeParser;
+import com.core.saver.CodeFileSaverExecutor;
+import com.exception.BusinessException;
+import com.exception.ErrorCode;
+import com.model.enums.CodeGenTypeEnum;
+import com.utils.SpringContextUtil;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.guardrail.InputGuardrailException;
+import dev.langchain4j.guardrail.InputGuardrailResult;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 多文件分段并行生成
+ * 1. 规划：一次简短的模型请求输出页面结构契约（区块、id、类名、交互），固定三个文件之间的约定
+ * 2. 并行生成：按契约同时发起 index.html、style.css、script.js 三个流式请求，AI 响应文本按文件顺序合并输出，
+ * 各文件的实时进度以 FileProgressMessage 单独推送
+ * 3. 三个文件都完成后统一校验，通过 MultiFileCodeFileSaverTemplate 保存，并写入对话记忆和生成结果缓存
+ * <p>
+ * 规划结果无法解析时回退为单流生成；任一文件失败时中断其余文件的模型请求
+ */
+@Slf4j
+@Component
+public class SectionedCodeGenerator {
+
+    private static final String PLAN_PROMPT_RESOURCE = "prompt/codegen-multi-file-plan-system-prompt.txt";
+
+    private static final String SECTION_PROMPT_RESOURCE = "prompt/codegen-multi-file-section-system-prompt.txt";
+
+    /**
+     * 分段生成的用户消息：原始需求 + 页面结构契约
+     */
+    private static final String SECTION_USER_MESSAGE = "网站需求：\n{}\n\n页面结构契约：\n{}";
+
+    private static final String CANCEL_REASON_SECTION_FAILED = "section-failed";
+
+    /**
+     * 并行生成的文件，AI 响应文本按此顺序输出
+     */
+    private static final List<Section> SECTIONS = List.of(
+            new Section(StreamingCodeParser.HTML_FILE_NAME, "html"),
+            new Section(StreamingCodeParser.CSS_FILE_NAME, "css"),
+            new Section(StreamingCodeParser.JS_FILE_NAME, "javascript"));
+
+    /**
+     * 同时进行的模型流数，准入控制按此占用并发额度
+     */
+    public static final int CONCURRENT_STREAMS = SECTIONS.size();
+
+    @Resource
+    private SectionedGenerationConfig sectionedGenerationConfig;
+
+    @Resource
+    private OutputGuardConfig outputGuardConfig;
+
+    @Resource
+    private OutputGuardMetrics outputGuardMetrics;
+
+    @Resource
+    private GenerationTaskManager generationTaskManager;
+
+    @Resource
+    private GenerationResultCache generationResultCache;
+
+    @Resource
+    private AiCodeGeneratorServiceFactory aiCodeGeneratorServiceFactory;
+
+    @Resource
+    private LlmTelemetry llmTelemetry;
+
+    @Resource
+    private GuardrailRuleDictionary guardrailRuleDictionary;
+
+    private String planSystemPrompt;
+
+    /**
+     * 与单流生成相同的输入护轨，规划和分段请求不经过 AI Service，需要自行校验
+     */
+    private PromptSafetyInputGuardrail inputGuardrail;
+
+    /**
+     * 各文件的系统提示词，内容固定，便于命中模型服务商的前缀缓存
+     */
+    private final Map<String, String> sectionSystemPrompts = new LinkedHashMap<>();
+
+    /**
+     * 流式对话模型，首次使用时创建，各次生成共享
+     */
+    private volatile StreamingChatModel streamingChatModel;
+
+    @PostConstruct
+    public void init() {
+        planSystemPrompt = ResourceUtil.readUtf8Str(PLAN_PROMPT_RESOURCE);
+        inputGuardrail = new PromptSafetyInputGuardrail(guardrailRuleDictionary);
+        String sectionTemplate = ResourceUtil.readUtf8Str(SECTION_PROMPT_RESOURCE);
+        for (Section section : SECTIONS) {
+            sectionSystemPrompts.put(section.fileName(), sectionTemplate
+                    .replace("{{file}}", section.fileName())
+                    .replace("{{language}}", section.language()));
+        }
+    }
+
+    /**
+     * 分段并行生成并保存多文件代码
+     *
+     * @param userMessage 用户提示词
+     * @param appId       应用 ID
+     * @param cacheKey    生成结果缓存键，为 null 时不写入缓存
+     * @param fallback    规划失败时回退的单流生成
+     * @return 流式消息（AI 响应片段、文件进度）
+     */
+    public Flux<StreamMessage> generate(String userMessage, Long appId, String cacheKey, Supplier<Flux<StreamMessage>> fallback) {
+        // 与 AI Service 一致，调用时同步校验输入，不通过时直接抛出异常
+        InputGuardrailResult guardrailResult = inputGuardrail.validate(UserMessage.from(userMessage));
+        if (!guardrailResult.isSuccess()) {
+            throw new InputGuardrailException(guardrailResult.toString(), guardrailResult.getFirstFailureException());
+        }
+        return Flux.defer(() -> {
+            // 订阅时绑定的取消句柄，之后在其他线程发起的模型请求都需要绑定
+            ModelStreamCancellation cancellation = ModelStreamCancellation.current();
+            long startTime = System.nanoTime();
+            return bindTo(streamText(planSystemPrompt, userMessage), cancellation)
+                    .collect(StringBuilder::new, StringBuilder::append)
+                    .flatMapMany(planText -> {
+                        JSONObject contract = parseContract(planText.toString());
+                        if (contract == null) {
+                            log.warn("应用 {} 的页面结构规划无法解析，回退为单流生成", appId);
+                            return bindTo(fallback.get(), cancellation);
+                        }
+                        long planMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+                        log.info("应用 {} 的页面结构规划完成，耗时 {} ms，区块数: {}", appId, planMillis,
+                                contract.getJSONArray("sections").size());
+                        return generateSections(userMessage, contract, appId, cacheKey, cancellation, startTime);
+                    });
+        });
+    }
+
+    /**
+     * 按契约并行生成三个文件
+     */
+    private Flux<StreamMessage> generateSections(String userMessage, JSONObject contract, Long appId, String cacheKey,
+                                                 ModelStreamCancellation cancellation, long startTime) {
+        // 子句柄：任一文件失败时只中断本次的其余文件请求，用户取消时随根句柄一起取消
+        ModelStreamCancellation sectionCancellation = cancellation != null ? cancellation.child() : null;
+        String sectionUserMessage = StrUtil.format(SECTION_USER_MESSAGE, userMessage, contract.toStringPretty());
+        Sinks.Many<StreamMessage> progressSink = Sinks.many().unicast().onBackpressureBuffer();
+        Map<String, String> outputs = new ConcurrentHashMap<>();
+        AtomicLong outputChars = new AtomicLong();
+        List<Flux<String>> sectionStreams = new ArrayList<>();
+        for (Section section : SECTIONS) {
+            sectionStreams.add(sectionStream(section, sectionUserMessage, sectionCancellation, progressSink, outputs, outputChars));
+        }
+        StringBuilder fullText = new StringBuilder();
+        // mergeSequential 同时订阅三个文件，先输出完 HTML 再依次输出已缓冲的 CSS 和 JS
+        Flux<String> textStream = Flux.just(describeContract(contract))
+                .concatWith(Flux.mergeSequential(sectionStreams))
+                .doOnNext(fullText::append)
+                .concatWith(Flux.defer(() -> completeSections(userMessage, appId, cacheKey, outputs, fullText, startTime)))
+                .doOnError(error -> {
+                    if (sectionCancellation != null) {
+                        sectionCancellation.cancel(CANCEL_REASON_SECTION_FAILED);
+                    }
+                })
+                .doFinally(signalType -> {
+                    llmTelemetry.recordGeneration(llmTelemetry.resolveModelTag(CodeGenTypeEnum.MULTI_FILE),
+                            CodeGenTypeEnum.MULTI_FILE.getValue(), LlmTelemetry.MODE_SECTIONED, signalType, System.nanoTime() - startTime);
+                    if (sectionCancellation != null) {
+                        sectionCancellation.release();
+                    }
+                    synchronized (progressSink) {
+                        progressSink.tryEmitComplete();
+                    }
+                });
+        return Flux.merge(textStream.map(AiResponseMessage::new), progressSink.asFlux());
+    }
+
+    /**
+     * 单个文件的生成流：实时推送进度，完成后记录输出
+     */
+    private Flux<String> sectionStream(Section section, String userText, ModelStreamCancellation cancellation,
+                                       Sinks.Many<StreamMessage> progressSink, Map<String, String> outputs, AtomicLong outputChars) {
+        String fileName = section.fileName();
+        return Flux.defer(() -> {
+            StringBuilder output = new StringBuilder();
+            long[] reportedChars = {0};
+            emitProgress(progressSink, fileName, FileProgressMessage.STATUS_GENERATING, 0);
+            return bindTo(streamText(sectionSystemPrompts.get(fileName), userText), cancellation)
+                    .doOnNext(chunk -> {
+                        output.append(chunk);
+                        long totalChars = outputChars.addAndGet(chunk.length());
+                        if (outputGuardConfig.isEnabled() && totalChars > outputGuardConfig.getMaxOutputChars()) {
+                            outputGuardMetrics.recordRunawayAbort();
+                            throw new BusinessException(ErrorCode.OPERATION_ERROR,
+                                    StrUtil.format("生成内容超过 {} 字符，已中止", outputGuardConfig.getMaxOutputChars()));
+                        }
+                        if (output.length() - reportedChars[0] >= sectionedGenerationConfig.getProgressIntervalChars()) {
+                            reportedChars[0] = output.length();
+                            emitProgress(progressSink, fileName, FileProgressMessage.STATUS_GENERATING, output.length());
+                        }
+                    })
+                    .doOnComplete(() -> {
+                        outputs.put(fileName, output.toString());
+                        emitProgress(progressSink, fileName, FileProgressMessage.STATUS_COMPLETED, output.length());
+                    })
+                    .doOnError(error -> emitProgress(progressSink, fileName, FileProgressMessage.STATUS_FAILED, output.length()))
+                    // 文件之间空行分隔，保证下一个代码围栏从新行开始
+                    .concatWith(Flux.just("\n\n"))
+                    // 排在后面的文件输出先缓冲，不向模型流施加背压，进度按实际输出推送
+                    .onBackpressureBuffer();
+        });
+    }
+
+    /**
+     * 三个文件都完成：校验通过后保存，写入对话记忆和生成结果缓存；未通过时以错误结束
+     */
+    private Flux<String> completeSections(String userMessage, Long appId, String cacheKey, Map<String, String> outputs,
+                                          StringBuilder fullText, long startTime) {
+        StringBuilder combined = new StringBuilder();
+        for (Section section : SECTIONS) {
+            combined.append(outputs.getOrDefault(section.fileName(), "")).append("\n\n");
+        }
+        MultiFileCodeResult result = (MultiFileCodeResult) CodeParserExecutor.executeParser(combined.toString(), CodeGenTypeEnum.MULTI_FILE);
+        List<String> problems = validate(result);
+        if (!problems.isEmpty()) {
+            outputGuardMetrics.recordRejectedFiles(problems.size());
+            outputGuardMetrics.recordBlockedGeneration();
+            log.warn("应用 {} 分段生成的代码未通过校验: {}", appId, problems);
+            return Flux.error(new BusinessException(ErrorCode.OPERATION_ERROR,
+                    "生成的代码未通过校验，没有保存：" + String.join("；", problems)));
+        }
+        if (!generationTaskManager.isWritable(appId)) {
+            log.warn("应用 {} 的生成任务已失效，跳过保存分段生成结果", appId);
+            return Flux.empty();
+        }
+        try {
+            File saveDir = CodeFileSaverExecutor.executeSaver(result, CodeGenTypeEnum.MULTI_FILE, appId);
+            // 分段请求不经过对话记忆，补写本轮对话，后续修改沿用单流生成
+            aiCodeGeneratorServiceFactory.appendChatMemory(appId, CodeGenTypeEnum.MULTI_FILE, userMessage, fullText.toString());
+            if (cacheKey != null) {
+                generationResultCache.put(cacheKey, fullText.toString());
+            }
+            log.info("分段生成保存成功，目录为：{}，总耗时 {} ms", saveDir.getAbsolutePath(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        } catch (Exception e) {
+            log.error("分段生成保存失败: {}", e.getMessage());
+        }
+        return Flux.empty();
+    }
+
+    /**
+     * 校验三个文件，HTML 必须存在；CSS / JS 为空时不保存也不算错误，与单流生成一致
+     */
+    private List<String> validate(MultiFileCodeResult result) {
+        List<String> problems = new ArrayList<>();
+        if (StrUtil.isBlank(result.getHtmlCode())) {
+            problems.add(StreamingCodeParser.HTML_FILE_NAME + "：没有生成 HTML 代码");
+        }
+        if (!outputGuardConfig.isEnabled()) {
+            return problems;
+        }
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put(StreamingCodeParser.HTML_FILE_NAME, result.getHtmlCode());
+        files.put(StreamingCodeParser.CSS_FILE_NAME, result.getCssCode());
+        files.put(StreamingCodeParser.JS_FILE_NAME, result.getJsCode());
+        files.forEach((fileName, content) -> {
+            if (StrUtil.isBlank(content)) {
+                return;
+            }
+            String problem = CodeOutputValidator.validate(fileName, content, outputGuardConfig.getMaxFileChars());
+            if (problem != null) {
+                problems.add(fileName + "：" + problem);
+            }
+        });
+        return problems;
+    }
+
+    /**
+     * 解析规划结果，只接受带 sections 的 JSON 对象
+     *
+     * @param planText 规划请求的输出
+     * @return 页面结构契约，无法解析返回 null
+     */
+    private JSONObject parseContract(String planText) {
+        // 模型可能用代码块包裹 JSON
+        int start = planText.indexOf('{');
+        int end = planText.lastIndexOf('}');
+        if (start < 0 || end <= start || end - start + 1 > sectionedGenerationConfig.getMaxPlanChars()) {
+            return null;
+        }
+        try {
+            JSONObject contract = JSONUtil.parseObj(planText.substring(start, end + 1));
+            JSONArray sections = contract.getJSONArray("sections");
+            return sections == null || sections.isEmpty() ? null : contract;
+        } catch (Exception e) {
+            log.warn("解析页面结构规划失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 规划完成后输出的说明，计入对话历史
+     */
+    private String describeContract(JSONObject contract) {
+        List<String> sectionIds = new ArrayList<>();
+        JSONArray sections = contract.getJSONArray("sections");
+        for (int i = 0; i < sections.size(); i++) {
+            Object section = sections.get(i);
+            String sectionId = section instanceof JSONObject sectionJson ? sectionJson.getStr("id") : String.valueOf(section);
+            if (StrUtil.isNotBlank(sectionId)) {
+                sectionIds.add(sectionId);
+            }
+        }
+        return StrUtil.format("页面结构：{}，共 {} 个区块。以下并行生成 {}、{} 和 {}。\n\n", String.join("、", sectionIds),
+                sections.size(), StreamingCodeParser.HTML_FILE_NAME, StreamingCodeParser.CSS_FILE_NAME,
+                StreamingCodeParser.JS_FILE_NAME);
+    }
+
+    private void emitProgress(Sinks.Many<StreamMessage> progressSink, String fileName, String status, long chars) {
+        // 三个文件的模型回调在不同线程，串行写入
+        synchronized (progressSink) {
+            progressSink.tryEmitNext(new FileProgressMessage(fileName, status, chars));
+        }
+    }
+
+    /**
+     * 发起一次流式模型请求
+     */
+    private Flux<String> streamText(String systemPrompt, String userText) {
+        ChatRequest chatRequest = ChatRequest.builder()
+                .messages(SystemMessage.from(systemPrompt), UserMessage.from(userText))
+                .build();
+        return Flux.create(sink -> getStreamingChatModel().chat(chatRequest, new StreamingChatResponseHandler() {
+
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                sink.next(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                sink.complete();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                sink.error(error);
+            }
+        }));
+    }
+
+    /**
+     * 在取消句柄绑定的情况下订阅，订阅时发出的模型请求可以被取消
+     */
+    private <T> Flux<T> bindTo(Flux<T> flux, ModelStreamCancellation cancellation) {
+        if (cancellation == null) {
+            return flux;
+        }
+        return Flux.from(subscriber -> cancellation.runWith(() -> flux.subscribe(subscriber)));
+    }
+
+    private StreamingChatModel getStreamingChatModel() {
+        if (streamingChatModel == null) {
+            synchronized (this) {
+                if (streamingChatModel == null) {
+                    streamingChatModel = new UsageRecordingStreamingChatModel(
+                            SpringContextUtil.getBean("streamingChatModelPrototype", StreamingChatModel.class),
+                            CodeGenTypeEnum.MULTI_FILE, llmTelemetry.resolveModelTag(CodeGenTypeEnum.MULTI_FILE),
+                            llmTelemetry);
+                }
+            }
+        }
+        return streamingChatModel;
+    }
+
+    /**
+     * 并行生成的文件
+     *
+     * @param fileName 文件名
+     * @param language 代码块的语言标识
+     */
+    private record Section(String fileName, String language) {
+    }
+}
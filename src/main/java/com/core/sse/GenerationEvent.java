@@ -0,0 +1,27 @@
+package com.core.sse;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 生成过程中推送给前端的 SSE 事件（带序号，用于断线续传）
+ */
+@Data
+@AllArgsConstructor
+public class GenerationEvent {
+
+    /**
+     * 事件序号，从 1 开始递增；小于等于 0 表示不参与续传的控制事件
+     */
+    private long id;
+
+    /**
+     * 事件名称，为空表示默认的 message 事件
+     */
+    private String event;
+
+    /**
+     * 事件数据
+     */
+    private String data;
+}
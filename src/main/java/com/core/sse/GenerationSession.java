@@ -0,0 +1,239 @@
+package com.core.sse;
+
+import com.ai.http.ModelStreamCancellation;
+import com.model.enums.CodeGenTypeEnum;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 生成会话
+ * 独立于前端连接订阅一次生成流，为每一帧分配递增序号，并在有界的回放缓冲区中保留最近的事件。
+ * 前端断线后携带 Last-Event-ID 重新连接时，从断点之后继续推送，无需再次调用 AI。
+ * 会话是共享的热发布者，多个观看者（其他标签页、管理员）订阅同一次生成，
+ * 晚到的订阅者先收到已有事件再接上实时事件，不会产生额外的 AI 调用，对话历史也只在上游保存一次。
+ * 所有观看者断开并超过宽限期仍未重连时，自动取消生成，中断模型响应流
+ */
+@Slf4j
+public class GenerationSession {
+
+    /**
+     * 结束事件名称
+     */
+    public static final String DONE_EVENT = "done";
+
+    /**
+     * 回放缓冲区已丢弃部分事件时发送的事件名称
+     */
+    public static final String REPLAY_TRUNCATED_EVENT = "replay-truncated";
+
+    /**
+     * Vue 项目构建进度事件名称
+     */
+    public static final String BUILD_EVENT = "build";
+
+    /**
+     * 分段并行生成时各文件的进度事件名称
+     */
+    public static final String FILE_EVENT = "file";
+
+    /**
+     * 排队等待模型额度时发送的事件名称，position 为 0 表示排队结束
+     */
+    public static final String QUEUE_EVENT = "queue";
+
+    /**
+     * 生成被取消时发送的事件名称
+     */
+    public static final String CANCELLED_EVENT = "cancelled";
+
+    /**
+     * 取消原因：用户主动取消
+     */
+    public static final String CANCEL_REASON_USER = "user";
+
+    /**
+     * 取消原因：所有观看者断开连接
+     */
+    public static final String CANCEL_REASON_DISCONNECT = "disconnect";
+
+    /**
+     * 取消原因：生成租约丢失，其他节点可能已接管该应用
+     */
+    public static final String CANCEL_REASON_LEASE_LOST = "lease-lost";
+
+    /**
+     * 取消原因：任务长时间没有进展，被后台回收
+     */
+    public static final String CANCEL_REASON_STALE = "stale";
+
+    @Getter
+    private final long appId;
+
+    @Getter
+    private final long userId;
+
+    @Getter
+    private final CodeGenTypeEnum codeGenType;
+
+    /**
+     * 带回放的事件广播，最多保留 replayLimit 个事件
+     */
+    private final Sinks.Many<GenerationEvent> eventSink;
+
+    @Getter
+    private final long startTime = System.currentTimeMillis();
+
+    /**
+     * 当前订阅者数量
+     */
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    /**
+     * 模型流取消句柄
+     */
+    @Getter
+    private final ModelStreamCancellation cancellation;
+
+    /**
+     * 所有观看者断开后等待重连的时间（秒），小于 0 表示不自动取消
+     */
+    private final long cancelGraceSeconds;
+
+    @Getter
+    private volatile long lastEventId;
+
+    @Getter
+    private volatile boolean terminated;
+
+    private Disposable upstream;
+
+    public GenerationSession(long appId, long userId, CodeGenTypeEnum codeGenType, int replayLimit,
+                             ModelStreamCancellation cancellation, long cancelGraceSeconds) {
+        this.appId = appId;
+        this.userId = userId;
+        this.codeGenType = codeGenType;
+        this.eventSink = Sinks.many().replay().limit(replayLimit);
+        this.cancellation = cancellation;
+        this.cancelGraceSeconds = cancelGraceSeconds;
+    }
+
+    /**
+     * 开始消费事件流（只能调用一次），事件序号由会话统一分配
+     *
+     * @param eventFlux 事件流（数据帧、构建进度等）
+     */
+    public synchronized void start(Flux<GenerationEvent> eventFlux) {
+        if (upstream != null) {
+            throw new IllegalStateException("生成会话已经开始");
+        }
+        upstream = eventFlux.subscribe(this::onEvent, this::onError, this::onComplete);
+    }
+
+    /**
+     * 订阅会话事件
+     *
+     * @param lastEventId 前端已收到的最后一个事件序号，0 表示从头开始
+     * @return 断点之后的事件流（回放 + 实时）
+     */
+    public Flux<GenerationEvent> subscribe(long lastEventId) {
+        Flux<GenerationEvent> eventFlux = eventSink.asFlux()
+                .filter(event -> event.getId() > lastEventId)
+                .doOnSubscribe(subscription -> subscriberCount.incrementAndGet())
+                .doFinally(signalType -> {
+                    if (subscriberCount.decrementAndGet() == 0) {
+                        onAllSubscribersLeft();
+                    }
+                });
+        return eventFlux.switchOnFirst((signal, flux) -> {
+            GenerationEvent first = signal.get();
+            if (first != null && first.getId() > lastEventId + 1) {
+                // 回放缓冲区已经丢弃了断点之后的部分事件，通知前端内容不完整
+                log.warn("应用 {} 的回放缓冲区不足，断点: {}, 最早可回放事件: {}", appId, lastEventId, first.getId());
+                GenerationEvent truncatedEvent = new GenerationEvent(0, REPLAY_TRUNCATED_EVENT,
+                        String.format("{\"lastEventId\":%d,\"firstEventId\":%d}", lastEventId, first.getId()));
+                return Flux.just(truncatedEvent).concatWith(flux);
+            }
+            return flux;
+        });
+    }
+
+    /**
+     * 当前订阅者数量
+     */
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    /**
+     * 取消生成：中断模型响应流，取消上游订阅（释放任务槽位、记录对话历史），并通知所有观看者
+     *
+     * @param reason 取消原因
+     * @return 是否成功取消，会话已结束返回 false
+     */
+    public boolean cancel(String reason) {
+        Disposable upstreamToDispose;
+        synchronized (this) {
+            if (terminated) {
+                return false;
+            }
+            cancellation.cancel(reason);
+            eventSink.tryEmitNext(new GenerationEvent(++lastEventId, CANCELLED_EVENT,
+                    String.format("{\"reason\":\"%s\"}", reason)));
+            eventSink.tryEmitNext(new GenerationEvent(++lastEventId, DONE_EVENT, ""));
+            terminated = true;
+            eventSink.tryEmitComplete();
+            upstreamToDispose = upstream;
+        }
+        log.info("应用 {} 的生成已取消，原因: {}, 已输出片段数: {}", appId, reason, cancellation.getOutputChunks());
+        // 在锁外取消上游，上游的取消回调可能比较耗时
+        if (upstreamToDispose != null) {
+            upstreamToDispose.dispose();
+        }
+        return true;
+    }
+
+    /**
+     * 所有观看者都已断开，宽限期后仍无人重连则取消生成
+     */
+    private void onAllSubscribersLeft() {
+        if (terminated || cancelGraceSeconds < 0) {
+            return;
+        }
+        Schedulers.boundedElastic().schedule(() -> {
+            if (subscriberCount.get() == 0 && !terminated) {
+                cancel(CANCEL_REASON_DISCONNECT);
+            }
+        }, cancelGraceSeconds, TimeUnit.SECONDS);
+    }
+
+    private synchronized void onEvent(GenerationEvent event) {
+        if (terminated) {
+            return;
+        }
+        eventSink.tryEmitNext(new GenerationEvent(++lastEventId, event.getEvent(), event.getData()));
+    }
+
+    private synchronized void onComplete() {
+        if (terminated) {
+            return;
+        }
+        eventSink.tryEmitNext(new GenerationEvent(++lastEventId, DONE_EVENT, ""));
+        terminated = true;
+        eventSink.tryEmitComplete();
+    }
+
+    private synchronized void onError(Throwable error) {
+        if (terminated) {
+            return;
+        }
+        terminated = true;
+        eventSink.tryEmitError(error);
+    }
+}
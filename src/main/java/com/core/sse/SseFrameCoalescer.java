@@ -0,0 +1,277 @@
+package com.core.sse;
+
+import com.ai.telemetry.LlmTelemetry;
+import com.config.SseFrameConfig;
+import com.model.enums.CodeGenTypeEnum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SSE 帧合并器
+ * 将逐 token 的流按时间窗口和字节阈值合并为 {"d": "..."} 格式的 SSE 帧数据，
+ * 帧编码复用预分配的缓冲区，避免每个 token 都创建 Map、序列化 JSON 并 flush 一次。
+ * 每个流结束时把帧统计记录为监控指标（codegen.sse.*），按生成类型和结束方式打标签
+ */
+@Slf4j
+@Component
+public class SseFrameCoalescer {
+
+    private static final String FRAME_PREFIX = "{\"d\":\"";
+
+    private static final String FRAME_SUFFIX = "\"}";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    @Resource
+    private SseFrameConfig sseFrameConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 合并 token 流为 SSE 帧
+     *
+     * @param chunkFlux   token 流
+     * @param codeGenType 代码生成类型
+     * @param appId       应用 ID
+     * @return 帧数据流（JSON 字符串）
+     */
+    public Flux<String> coalesce(Flux<String> chunkFlux, CodeGenTypeEnum codeGenType, long appId) {
+        SseFrameConfig.FramePolicy policy = sseFrameConfig.getPolicy(codeGenType);
+        return Flux.create(sink -> {
+            FrameWriter frameWriter = new FrameWriter(sink, policy, codeGenType, appId);
+            Disposable upstream = chunkFlux.subscribe(frameWriter::append, frameWriter::error, frameWriter::complete);
+            sink.onDispose(() -> {
+                frameWriter.dispose();
+                upstream.dispose();
+            });
+        });
+    }
+
+    /**
+     * 记录一个结束的流的帧统计
+     *
+     * @param codeGenType 代码生成类型
+     * @param outcome     结束方式
+     * @param stats       帧统计
+     */
+    private void recordStats(CodeGenTypeEnum codeGenType, String outcome, SseStreamStats stats) {
+        Tags tags = Tags.of("code_gen_type", codeGenType.getValue(), "outcome", outcome);
+        meterRegistry.counter("codegen.sse.streams", tags).increment();
+        meterRegistry.counter("codegen.sse.chunks", tags).increment(stats.getChunks());
+        meterRegistry.counter("codegen.sse.frames", tags).increment(stats.getFrames());
+        Counter.builder("codegen.sse.bytes")
+                .description("发送的 SSE 帧字节数")
+                .baseUnit("bytes")
+                .tags(tags)
+                .register(meterRegistry)
+                .increment(stats.getBytes());
+        meterRegistry.counter("codegen.sse.flushes", tags.and("trigger", "size")).increment(stats.getSizeFlushes());
+        meterRegistry.counter("codegen.sse.flushes", tags.and("trigger", "window")).increment(stats.getWindowFlushes());
+        meterRegistry.counter("codegen.sse.flushes", tags.and("trigger", "final")).increment(stats.getFinalFlushes());
+        if (stats.getFrames() > 0) {
+            DistributionSummary.builder("codegen.sse.chunks.per.frame")
+                    .description("每帧平均合并的 token 数（每个流记录一次）")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .record(stats.getChunksPerFrame());
+        }
+    }
+
+    /**
+     * 计算字符串 UTF-8 编码后的字节数
+     */
+    static int utf8Length(CharSequence text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800 || Character.isSurrogate(c)) {
+                // 代理对的两个 char 共占 4 字节
+                length += 2;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 单个流的帧写入器，所有状态都在锁内访问
+     */
+    private final class FrameWriter {
+
+        private final FluxSink<String> sink;
+
+        private final long windowMs;
+
+        private final int maxBytes;
+
+        private final CodeGenTypeEnum codeGenType;
+
+        private final long appId;
+
+        /**
+         * 待发送的 token 内容
+         */
+        private final StringBuilder pending;
+
+        /**
+         * 复用的帧编码缓冲区
+         */
+        private final StringBuilder frameBuilder;
+
+        private final SseStreamStats stats = new SseStreamStats();
+
+        private int pendingBytes;
+
+        private Disposable scheduledFlush;
+
+        private boolean terminated;
+
+        FrameWriter(FluxSink<String> sink, SseFrameConfig.FramePolicy policy, CodeGenTypeEnum codeGenType, long appId) {
+            this.sink = sink;
+            this.windowMs = policy.getWindowMs();
+            this.maxBytes = Math.max(policy.getMaxBytes(), 1);
+            this.codeGenType = codeGenType;
+            this.appId = appId;
+            this.pending = new StringBuilder(maxBytes);
+            // 预留转义字符和 JSON 包装的空间
+            this.frameBuilder = new StringBuilder(maxBytes + maxBytes / 4 + FRAME_PREFIX.length() + FRAME_SUFFIX.length());
+        }
+
+        synchronized void append(String chunk) {
+            if (terminated || chunk == null || chunk.isEmpty()) {
+                return;
+            }
+            stats.setChunks(stats.getChunks() + 1);
+            pending.append(chunk);
+            pendingBytes += utf8Length(chunk);
+            // 达到字节阈值或未开启合并，立即发送
+            if (windowMs <= 0 || pendingBytes >= maxBytes) {
+                stats.setSizeFlushes(stats.getSizeFlushes() + 1);
+                flush();
+                return;
+            }
+            // 缓冲区收到第一个 token 时开始计时
+            if (scheduledFlush == null) {
+                scheduledFlush = Schedulers.boundedElastic().schedule(this::onWindowExpired, windowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        synchronized void complete() {
+            if (terminated) {
+                return;
+            }
+            if (pendingBytes > 0) {
+                stats.setFinalFlushes(stats.getFinalFlushes() + 1);
+                flush();
+            }
+            terminate("完成", LlmTelemetry.OUTCOME_SUCCESS);
+            sink.complete();
+        }
+
+        synchronized void error(Throwable error) {
+            if (terminated) {
+                return;
+            }
+            // 先把已收到的内容发出去，再传递异常
+            if (pendingBytes > 0) {
+                stats.setFinalFlushes(stats.getFinalFlushes() + 1);
+                flush();
+            }
+            terminate("异常", LlmTelemetry.OUTCOME_ERROR);
+            sink.error(error);
+        }
+
+        synchronized void dispose() {
+            if (!terminated) {
+                terminate("取消", LlmTelemetry.OUTCOME_CANCELLED);
+            }
+        }
+
+        private synchronized void onWindowExpired() {
+            scheduledFlush = null;
+            if (terminated || pendingBytes == 0) {
+                return;
+            }
+            stats.setWindowFlushes(stats.getWindowFlushes() + 1);
+            flush();
+        }
+
+        private void flush() {
+            if (scheduledFlush != null) {
+                scheduledFlush.dispose();
+                scheduledFlush = null;
+            }
+            String frame = encodeFrame();
+            pending.setLength(0);
+            pendingBytes = 0;
+            stats.setFrames(stats.getFrames() + 1);
+            stats.setBytes(stats.getBytes() + utf8Length(frame));
+            sink.next(frame);
+        }
+
+        /**
+         * 将待发送内容编码为 {"d": "..."}
+         */
+        private String encodeFrame() {
+            frameBuilder.setLength(0);
+            frameBuilder.append(FRAME_PREFIX);
+            for (int i = 0; i < pending.length(); i++) {
+                char c = pending.charAt(i);
+                switch (c) {
+                    case '"' -> frameBuilder.append("\\\"");
+                    case '\\' -> frameBuilder.append("\\\\");
+                    case '\n' -> frameBuilder.append("\\n");
+                    case '\r' -> frameBuilder.append("\\r");
+                    case '\t' -> frameBuilder.append("\\t");
+                    case '\b' -> frameBuilder.append("\\b");
+                    case '\f' -> frameBuilder.append("\\f");
+                    default -> {
+                        if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+                            frameBuilder.append("\\u")
+                                    .append(HEX_DIGITS[(c >> 12) & 0xF])
+                                    .append(HEX_DIGITS[(c >> 8) & 0xF])
+                                    .append(HEX_DIGITS[(c >> 4) & 0xF])
+                                    .append(HEX_DIGITS[c & 0xF]);
+                        } else {
+                            frameBuilder.append(c);
+                        }
+                    }
+                }
+            }
+            frameBuilder.append(FRAME_SUFFIX);
+            return frameBuilder.toString();
+        }
+
+        private void terminate(String reason, String outcome) {
+            // 结束前的最后一帧可能让下游取消订阅，取消时已在同一线程内结束，不再重复记录
+            if (terminated) {
+                return;
+            }
+            terminated = true;
+            if (scheduledFlush != null) {
+                scheduledFlush.dispose();
+                scheduledFlush = null;
+            }
+            log.info("SSE 流{}，appId: {}, 类型: {}, token 数: {}, 帧数: {}, 字节数: {}, 阈值/窗口/结束发送: {}/{}/{}, 平均每帧 token 数: {}",
+                    reason, appId, codeGenType.getValue(), stats.getChunks(), stats.getFrames(), stats.getBytes(),
+                    stats.getSizeFlushes(), stats.getWindowFlushes(), stats.getFinalFlushes(),
+                    String.format("%.1f", stats.getChunksPerFrame()));
+            recordStats(codeGenType, outcome, stats);
+        }
+    }
+}
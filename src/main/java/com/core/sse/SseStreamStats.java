@@ -0,0 +1,47 @@
+package com.core.sse;
+
+import lombok.Data;
+
+/**
+ * 单个 SSE 流的帧统计
+ */
+@Data
+public class SseStreamStats {
+
+    /**
+     * 收到的 token 片段数
+     */
+    private long chunks;
+
+    /**
+     * 发送的帧数
+     */
+    private long frames;
+
+    /**
+     * 发送的帧字节数（UTF-8 编码后的 JSON）
+     */
+    private long bytes;
+
+    /**
+     * 因达到字节阈值触发的发送次数
+     */
+    private long sizeFlushes;
+
+    /**
+     * 因时间窗口到期触发的发送次数
+     */
+    private long windowFlushes;
+
+    /**
+     * 流结束时触发的发送次数
+     */
+    private long finalFlushes;
+
+    /**
+     * 每帧平均合并的 token 数
+     */
+    public double getChunksPerFrame() {
+        return frames == 0 ? 0 : (double) chunks / frames;
+    }
+}
@@ -0,0 +1,11 @@
+package com.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.model.entity.GenerationTaskRecord;
+
+/**
+ * 生成任务 映射层。
+ */
+public interface GenerationTaskRecordMapper extends BaseMapper<GenerationTaskRecord> {
+
+}
@@ -0,0 +1,19 @@
+package com.model.dto.app;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 取消生成请求
+ */
+@Data
+public class AppChatCancelRequest implements Serializable {
+
+    /**
+     * 应用 ID
+     */
+    private Long appId;
+
+    private static final long serialVersionUID = 1L;
+}
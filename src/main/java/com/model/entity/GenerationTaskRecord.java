@@ -0,0 +1,152 @@
+package com.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableLogic;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import java.io.Serial;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 生成任务 实体类。
+ * 每次对话生成代码记录一条，用于服务重启后对账和耗时统计
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("generation_task")
+public class GenerationTaskRecord implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * id
+     */
+    @TableId(type = IdType.ASSIGN_ID)
+    private Long id;
+
+    /**
+     * 应用id
+     */
+    @TableField("appId")
+    private Long appId;
+
+    /**
+     * 创建用户id
+     */
+    @TableField("userId")
+    private Long userId;
+
+    /**
+     * 代码生成类型（枚举）
+     */
+    @TableField("codeGenType")
+    private String codeGenType;
+
+    /**
+     * 模型名称
+     */
+    @TableField("modelName")
+    private String modelName;
+
+    /**
+     * 提示词 SHA-256
+     */
+    @TableField("promptHash")
+    private String promptHash;
+
+    /**
+     * 状态：running/succeeded/failed/cancelled/interrupted
+     */
+    private String status;
+
+    /**
+     * 执行节点
+     */
+    @TableField("ownerNode")
+    private String ownerNode;
+
+    /**
+     * 开始时间
+     */
+    @TableField("startTime")
+    private LocalDateTime startTime;
+
+    /**
+     * 获得模型额度时间
+     */
+    @TableField("admitTime")
+    private LocalDateTime admitTime;
+
+    /**
+     * 首个 token 时间
+     */
+    @TableField("firstTokenTime")
+    private LocalDateTime firstTokenTime;
+
+    /**
+     * 结束时间
+     */
+    @TableField("endTime")
+    private LocalDateTime endTime;
+
+    /**
+     * 首 token 耗时（毫秒，从开始算起）
+     */
+    @TableField("ttftMs")
+    private Long ttftMs;
+
+    /**
+     * 总耗时（毫秒）
+     */
+    @TableField("durationMs")
+    private Long durationMs;
+
+    /**
+     * 输入 token 数（模型返回的用量，累计本次生成的所有模型请求）
+     */
+    @TableField("inputTokens")
+    private Long inputTokens;
+
+    /**
+     * 输出 token 数（模型返回的用量，累计本次生成的所有模型请求）
+     */
+    @TableField("outputTokens")
+    private Long outputTokens;
+
+    /**
+     * 失败原因或取消原因
+     */
+    @TableField("errorMessage")
+    private String errorMessage;
+
+    /**
+     * 创建时间
+     */
+    @TableField("createTime")
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    @TableField("updateTime")
+    private LocalDateTime updateTime;
+
+    /**
+     * 是否删除
+     */
+    @TableLogic
+    @TableField("isDelete")
+    private Integer isDelete;
+
+}
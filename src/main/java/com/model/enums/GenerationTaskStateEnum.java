@@ -0,0 +1,43 @@
+package com.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 生成任务状态枚举
+ */
+@Getter
+public enum GenerationTaskStateEnum {
+
+    STARTING("启动中", "starting"),
+    QUEUED("排队中", "queued"),
+    RUNNING("生成中", "running"),
+    REAPED("已回收", "reaped");
+
+    private final String text;
+
+    private final String value;
+
+    GenerationTaskStateEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 枚举值的value
+     * @return 枚举值
+     */
+    public static GenerationTaskStateEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (GenerationTaskStateEnum anEnum : GenerationTaskStateEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
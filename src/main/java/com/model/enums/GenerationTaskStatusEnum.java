@@ -0,0 +1,44 @@
+package com.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 生成任务记录（generation_task 表）的状态枚举
+ */
+@Getter
+public enum GenerationTaskStatusEnum {
+
+    RUNNING("生成中", "running"),
+    SUCCEEDED("生成成功", "succeeded"),
+    FAILED("生成失败", "failed"),
+    CANCELLED("已取消", "cancelled"),
+    INTERRUPTED("已中断", "interrupted");
+
+    private final String text;
+
+    private final String value;
+
+    GenerationTaskStatusEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 枚举值的value
+     * @return 枚举值
+     */
+    public static GenerationTaskStatusEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (GenerationTaskStatusEnum anEnum : GenerationTaskStatusEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,47 @@
+package com.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 输入护轨规则类别枚举
+ */
+@Getter
+public enum GuardrailCategoryEnum {
+
+    SENSITIVE("敏感词", "sensitive", "输入包含不当内容，请修改后重试"),
+    INJECTION("提示词注入", "injection", "检测到恶意输入，请求被拒绝");
+
+    private final String text;
+
+    private final String value;
+
+    /**
+     * 命中该类规则时返回给用户的提示
+     */
+    private final String rejectMessage;
+
+    GuardrailCategoryEnum(String text, String value, String rejectMessage) {
+        this.text = text;
+        this.value = value;
+        this.rejectMessage = rejectMessage;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 枚举值的value
+     * @return 枚举值
+     */
+    public static GuardrailCategoryEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (GuardrailCategoryEnum anEnum : GuardrailCategoryEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,54 @@
+package com.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 大模型准入状态
+ */
+@Data
+public class AdmissionStatsVO implements Serializable {
+
+    /**
+     * 模型名称
+     */
+    private String modelName;
+
+    /**
+     * 最大并发生成数
+     */
+    private Integer maxConcurrency;
+
+    /**
+     * 已占用的并发额度（同时进行的模型流数）
+     */
+    private Integer runningCount;
+
+    /**
+     * 排队中的请求数
+     */
+    private Integer waitingCount;
+
+    /**
+     * 排队中的用户数
+     */
+    private Integer waitingUserCount;
+
+    /**
+     * 单次生成的平均耗时（毫秒）
+     */
+    private Long avgDurationMs;
+
+    /**
+     * 累计放行次数
+     */
+    private Long admittedCount;
+
+    /**
+     * 因排队已满累计拒绝次数
+     */
+    private Long rejectedCount;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,44 @@
+package com.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * AI 服务和对话记忆缓存统计
+ */
+@Data
+public class AiServiceStatsVO implements Serializable {
+
+    /**
+     * 已创建的共享 AI 服务数（每种生成类型一个）
+     */
+    private Integer sharedServiceCount;
+
+    /**
+     * 缓存中的对话记忆数
+     */
+    private Long memoryCacheSize;
+
+    /**
+     * 对话记忆缓存命中次数
+     */
+    private Long memoryHitCount;
+
+    /**
+     * 对话记忆缓存未命中次数（需要创建并预热）
+     */
+    private Long memoryMissCount;
+
+    /**
+     * 对话记忆被移出缓存的次数
+     */
+    private Long memoryEvictionCount;
+
+    /**
+     * 创建并预热对话记忆的平均耗时（毫秒），即冷启动耗时
+     */
+    private Double avgMemoryLoadMillis;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,29 @@
+package com.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 对话记忆预热统计
+ */
+@Data
+public class ChatMemoryHydrationStatsVO implements Serializable {
+
+    /**
+     * 预热方式：full 全量加载、delta 增量补充、warm 直接使用
+     */
+    private String mode;
+
+    /**
+     * 次数
+     */
+    private Long count;
+
+    /**
+     * 平均耗时（毫秒）
+     */
+    private Double avgMillis;
+
+    private static final long serialVersionUID = 1L;
+}
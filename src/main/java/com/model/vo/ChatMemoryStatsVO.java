@@ -0,0 +1,49 @@
+package com.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 对话记忆压缩统计
+ */
+@Data
+public class ChatMemoryStatsVO implements Serializable {
+
+    /**
+     * 代码生成类型
+     */
+    private String codeGenType;
+
+    /**
+     * 模型请求次数（每次请求读取一次记忆）
+     */
+    private Long requestCount;
+
+    /**
+     * 发生压缩的次数
+     */
+    private Long compactedCount;
+
+    /**
+     * 折叠了摘要的次数
+     */
+    private Long summarizedCount;
+
+    /**
+     * 压缩前平均 token 数（估算）
+     */
+    private Long avgBeforeTokens;
+
+    /**
+     * 压缩后平均 token 数（估算）
+     */
+    private Long avgAfterTokens;
+
+    /**
+     * 节省的 token 比例
+     */
+    private Double savedRatio;
+
+    private static final long serialVersionUID = 1L;
+}
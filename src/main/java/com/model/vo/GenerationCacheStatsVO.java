@@ -0,0 +1,49 @@
+package com.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 生成结果缓存统计
+ */
+@Data
+public class GenerationCacheStatsVO implements Serializable {
+
+    /**
+     * 本地缓存命中次数
+     */
+    private Long localHitCount;
+
+    /**
+     * Redis 缓存命中次数
+     */
+    private Long redisHitCount;
+
+    /**
+     * 未命中次数
+     */
+    private Long missCount;
+
+    /**
+     * 写入次数
+     */
+    private Long putCount;
+
+    /**
+     * 未使用缓存的生成次数（非首轮对话或请求选择不使用缓存）
+     */
+    private Long bypassCount;
+
+    /**
+     * 本地缓存条目数（估算）
+     */
+    private Long localSize;
+
+    /**
+     * 命中率
+     */
+    private Double hitRate;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,54 @@
+package com.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 生成取消统计（token 数按流式片段数估算）
+ */
+@Data
+public class GenerationCancelStatsVO implements Serializable {
+
+    /**
+     * 代码生成类型
+     */
+    private String codeGenType;
+
+    /**
+     * 正常完成的生成次数
+     */
+    private Long completedCount;
+
+    /**
+     * 正常完成的生成平均输出 token 数
+     */
+    private Long avgCompletedTokens;
+
+    /**
+     * 取消次数
+     */
+    private Long cancelledCount;
+
+    /**
+     * 用户主动取消次数
+     */
+    private Long userCancelledCount;
+
+    /**
+     * 断开连接自动取消次数
+     */
+    private Long disconnectCancelledCount;
+
+    /**
+     * 取消前已输出的 token 数
+     */
+    private Long tokensBeforeCancel;
+
+    /**
+     * 取消节省的 token 数（按正常完成的平均输出估算）
+     */
+    private Long estimatedSavedTokens;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,54 @@
+package com.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 生成耗时统计（毫秒）
+ */
+@Data
+public class GenerationLatencyStatsVO implements Serializable {
+
+    /**
+     * 代码生成类型
+     */
+    private String codeGenType;
+
+    /**
+     * 统计的成功生成次数
+     */
+    private Integer sampleCount;
+
+    /**
+     * 首 token 耗时 p50
+     */
+    private Long ttftP50;
+
+    /**
+     * 首 token 耗时 p95
+     */
+    private Long ttftP95;
+
+    /**
+     * 首 token 耗时 p99
+     */
+    private Long ttftP99;
+
+    /**
+     * 总耗时 p50
+     */
+    private Long durationP50;
+
+    /**
+     * 总耗时 p95
+     */
+    private Long durationP95;
+
+    /**
+     * 总耗时 p99
+     */
+    private Long durationP99;
+
+    private static final long serialVersionUID = 1L;
+}
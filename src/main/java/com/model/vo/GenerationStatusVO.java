@@ -0,0 +1,54 @@
+package com.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 应用生成状态
+ */
+@Data
+public class GenerationStatusVO implements Serializable {
+
+    /**
+     * 应用 id
+     */
+    private Long appId;
+
+    /**
+     * 是否正在生成
+     */
+    private Boolean running;
+
+    /**
+     * 代码生成类型
+     */
+    private String codeGenType;
+
+    /**
+     * 开始时间（毫秒时间戳）
+     */
+    private Long startTime;
+
+    /**
+     * 最新事件序号
+     */
+    private Long lastEventId;
+
+    /**
+     * 当前观看人数
+     */
+    private Integer subscriberCount;
+
+    /**
+     * 执行生成的节点
+     */
+    private String ownerNode;
+
+    /**
+     * 生成租约的防护令牌
+     */
+    private Long fencingToken;
+
+    private static final long serialVersionUID = 1L;
+}
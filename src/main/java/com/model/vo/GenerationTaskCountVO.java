@@ -0,0 +1,24 @@
+package com.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 按代码生成类型统计的运行中任务数
+ */
+@Data
+public class GenerationTaskCountVO implements Serializable {
+
+    /**
+     * 代码生成类型
+     */
+    private String codeGenType;
+
+    /**
+     * 运行中（含排队）的任务数
+     */
+    private Long runningCount;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,64 @@
+package com.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 生成任务记录
+ */
+@Data
+public class GenerationTaskVO implements Serializable {
+
+    /**
+     * 应用 id
+     */
+    private Long appId;
+
+    /**
+     * 发起生成的用户 id
+     */
+    private Long userId;
+
+    /**
+     * 代码生成类型
+     */
+    private String codeGenType;
+
+    /**
+     * 任务状态
+     */
+    private String state;
+
+    /**
+     * 执行任务的节点
+     */
+    private String ownerNode;
+
+    /**
+     * 生成租约的防护令牌
+     */
+    private Long fencingToken;
+
+    /**
+     * 开始时间（毫秒时间戳）
+     */
+    private Long startTime;
+
+    /**
+     * 最近一次进展时间（毫秒时间戳）
+     */
+    private Long lastProgressTime;
+
+    /**
+     * 结束时间（毫秒时间戳），仅回收的任务有值
+     */
+    private Long endTime;
+
+    /**
+     * 当前观看人数
+     */
+    private Integer subscriberCount;
+
+    private static final long serialVersionUID = 1L;
+}
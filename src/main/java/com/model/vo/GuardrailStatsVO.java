@@ -0,0 +1,60 @@
+package com.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * 输入护轨规则统计
+ */
+@Data
+public class GuardrailStatsVO implements Serializable {
+
+    /**
+     * 外部规则文件路径
+     */
+    private String rulesPath;
+
+    /**
+     * 展开、规范化并去重后的模式数
+     */
+    private Integer patternCount;
+
+    /**
+     * 匹配器的状态节点数
+     */
+    private Integer nodeCount;
+
+    /**
+     * 最近一次加载完成的时间（毫秒时间戳）
+     */
+    private Long loadTime;
+
+    /**
+     * 最近一次加载耗时（毫秒）
+     */
+    private Long buildMillis;
+
+    /**
+     * 加载次数（含启动时的首次加载）
+     */
+    private Long reloadCount;
+
+    /**
+     * 最近一次加载失败的原因，加载成功后清空
+     */
+    private String lastReloadError;
+
+    /**
+     * 检查次数
+     */
+    private Long checkCount;
+
+    /**
+     * 各类别的命中次数
+     */
+    private Map<String, Long> hitCounts;
+
+    private static final long serialVersionUID = 1L;
+}
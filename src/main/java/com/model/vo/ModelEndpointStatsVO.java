@@ -0,0 +1,69 @@
+package com.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 模型端点统计
+ */
+@Data
+public class ModelEndpointStatsVO implements Serializable {
+
+    /**
+     * 模型组（streaming、reasoning）
+     */
+    private String group;
+
+    /**
+     * 端点名称
+     */
+    private String name;
+
+    /**
+     * 模型名称
+     */
+    private String modelName;
+
+    /**
+     * 请求次数（包括对冲请求）
+     */
+    private Long requestCount;
+
+    /**
+     * 出错次数
+     */
+    private Long errorCount;
+
+    /**
+     * 错误率
+     */
+    private Double errorRate;
+
+    /**
+     * 超过首 token 期限、触发对冲请求的次数
+     */
+    private Long hedgeCount;
+
+    /**
+     * 最先输出、被采用的次数
+     */
+    private Long winCount;
+
+    /**
+     * 首 token 耗时的滑动平均（毫秒）
+     */
+    private Long avgTtftMs;
+
+    /**
+     * 连续失败次数
+     */
+    private Integer consecutiveFailures;
+
+    /**
+     * 是否处于冷却期
+     */
+    private Boolean coolingDown;
+
+    private static final long serialVersionUID = 1L;
+}
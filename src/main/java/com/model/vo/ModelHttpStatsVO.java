@@ -0,0 +1,74 @@
+package com.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 模型共享 HTTP 传输层统计
+ */
+@Data
+public class ModelHttpStatsVO implements Serializable {
+
+    /**
+     * 是否优先使用 HTTP/2
+     */
+    private Boolean http2Enabled;
+
+    /**
+     * 请求总数
+     */
+    private Long requestCount;
+
+    /**
+     * 流式请求总数
+     */
+    private Long streamCount;
+
+    /**
+     * 失败的请求数
+     */
+    private Long failedCount;
+
+    /**
+     * 线程池已满被拒绝的流式请求数
+     */
+    private Long rejectedCount;
+
+    /**
+     * 以 HTTP/2 协商的响应数
+     */
+    private Long http2ResponseCount;
+
+    /**
+     * 以 HTTP/1.1 协商的响应数
+     */
+    private Long http1ResponseCount;
+
+    /**
+     * 正在进行的请求数
+     */
+    private Integer inFlightRequests;
+
+    /**
+     * 正在读取的流式响应数
+     */
+    private Integer activeStreams;
+
+    /**
+     * 等待线程的流式请求数
+     */
+    private Integer queuedStreams;
+
+    /**
+     * 流式请求上限
+     */
+    private Integer maxStreams;
+
+    /**
+     * 线程池当前线程数
+     */
+    private Integer poolThreads;
+
+    private static final long serialVersionUID = 1L;
+}
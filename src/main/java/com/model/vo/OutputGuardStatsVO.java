@@ -0,0 +1,44 @@
+package com.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 输出校验统计
+ */
+@Data
+public class OutputGuardStatsVO implements Serializable {
+
+    /**
+     * 代码块被截断后发起的续写请求数
+     */
+    private Long continuationCount;
+
+    /**
+     * 经过续写后代码块正常闭合的生成数
+     */
+    private Long recoveredCount;
+
+    /**
+     * 流式输出中未通过校验、没有保存的文件数
+     */
+    private Long rejectedFileCount;
+
+    /**
+     * 未通过校验而被拒绝的工具写入次数（Vue 项目）
+     */
+    private Long rejectedToolWriteCount;
+
+    /**
+     * 因输出超长而中止的生成数
+     */
+    private Long runawayAbortCount;
+
+    /**
+     * 因校验未通过而没有保存或没有构建的生成数
+     */
+    private Long blockedGenerationCount;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,69 @@
+package com.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 提示词缓存统计
+ */
+@Data
+public class PromptCacheStatsVO implements Serializable {
+
+    /**
+     * 代码生成类型
+     */
+    private String codeGenType;
+
+    /**
+     * 模型请求次数
+     */
+    private Long requestCount;
+
+    /**
+     * 输入 token 数
+     */
+    private Long inputTokens;
+
+    /**
+     * 命中服务商缓存的输入 token 数
+     */
+    private Long cachedTokens;
+
+    /**
+     * 未命中缓存的输入 token 数
+     */
+    private Long uncachedTokens;
+
+    /**
+     * 输出 token 数
+     */
+    private Long outputTokens;
+
+    /**
+     * 输入 token 的缓存命中比例
+     */
+    private Double cachedRatio;
+
+    /**
+     * 命中缓存的请求数（命中比例不低于一半）
+     */
+    private Long hitRequestCount;
+
+    /**
+     * 未命中缓存的请求数
+     */
+    private Long missRequestCount;
+
+    /**
+     * 命中缓存的请求的平均首次输出耗时（毫秒）
+     */
+    private Long hitAvgFirstOutputMillis;
+
+    /**
+     * 未命中缓存的请求的平均首次输出耗时（毫秒）
+     */
+    private Long missAvgFirstOutputMillis;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,54 @@
+package com.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 代码生成类型路由统计
+ */
+@Data
+public class RoutingStatsVO implements Serializable {
+
+    /**
+     * 路由总次数
+     */
+    private Long totalCount;
+
+    /**
+     * 本地规则判定次数
+     */
+    private Long heuristicCount;
+
+    /**
+     * 路由结果缓存命中次数
+     */
+    private Long cacheHitCount;
+
+    /**
+     * 调用路由模型次数
+     */
+    private Long llmCount;
+
+    /**
+     * 跳过模型调用的比例
+     */
+    private Double skipRate;
+
+    /**
+     * 调用路由模型的平均耗时（毫秒）
+     */
+    private Double avgLlmMillis;
+
+    /**
+     * 本地判定和缓存命中的平均耗时（毫秒）
+     */
+    private Double avgFastPathMillis;
+
+    /**
+     * 估算节省的总耗时（毫秒）
+     */
+    private Long estimatedSavedMillis;
+
+    private static final long serialVersionUID = 1L;
+}
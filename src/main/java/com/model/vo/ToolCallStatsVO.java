@@ -0,0 +1,44 @@
+package com.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * Vue 项目生成的工具调用统计
+ */
+@Data
+public class ToolCallStatsVO implements Serializable {
+
+    /**
+     * 已完成的生成次数
+     */
+    private Long generationCount;
+
+    /**
+     * 批量写入工具的调用次数
+     */
+    private Long batchWriteCount;
+
+    /**
+     * 每次生成的平均模型请求数（模型往返次数）
+     */
+    private Double avgModelRequests;
+
+    /**
+     * 每次生成的平均工具调用数
+     */
+    private Double avgToolCalls;
+
+    /**
+     * 每次生成平均写入的文件数
+     */
+    private Double avgFilesWritten;
+
+    /**
+     * 平均每次模型请求写入的文件数
+     */
+    private Double filesPerModelRequest;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -1,5 +1,7 @@
 package com.service;
 
+import com.core.builder.VueBuildJob;
+import com.core.sse.GenerationEvent;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.model.dto.app.AppAddRequest;
@@ -7,6 +9,9 @@ import com.model.dto.app.AppQueryRequest;
 import com.model.entity.App;
 import com.model.entity.User;
 import com.model.vo.AppVO;
+import com.model.vo.GenerationStatusVO;
+import com.model.vo.GenerationTaskCountVO;
+import com.model.vo.GenerationTaskVO;
 import reactor.core.publisher.Flux;
 
 import java.util.List;
@@ -24,9 +29,63 @@ public interface AppService extends IService<App> {
      * @param appId     应用 ID
      * @param message   提示词
      * @param loginUser 登录用户
-     * @return
+     * @param useCache  首轮对话是否使用生成结果缓存
+     * @return 带序号的 SSE 事件流，数据帧为 {"d": "..."} 格式的 JSON，最后是 done 事件
+     */
+    Flux<GenerationEvent> chatToGenCode(Long appId, String message, User loginUser, boolean useCache);
+
+    /**
+     * 订阅正在进行（或刚结束）的生成：断线续传或多端观看，共享同一次生成，不会再次调用 AI
+     * 仅应用创建者和管理员可以订阅
+     *
+     * @param appId       应用 ID
+     * @param lastEventId 已收到的最后一个事件序号，0 表示从头回放
+     * @param loginUser   登录用户
+     * @return 断点之后的 SSE 事件流
+     */
+    Flux<GenerationEvent> resumeGenCode(Long appId, long lastEventId, User loginUser);
+
+    /**
+     * 获取应用当前的生成状态
+     *
+     * @param appId     应用 ID
+     * @param loginUser 登录用户
+     * @return 生成状态
+     */
+    GenerationStatusVO getGenerationStatus(Long appId, User loginUser);
+
+    /**
+     * 取消正在进行的生成：中断模型响应流，释放任务槽位，并在对话历史中记录已取消
+     * 仅应用创建者和管理员可以取消
+     *
+     * @param appId     应用 ID
+     * @param loginUser 登录用户
+     * @return 是否取消成功
+     */
+    boolean cancelGenCode(Long appId, User loginUser);
+
+    /**
+     * 获取本节点正在运行和最近被回收的生成任务（管理员）
+     *
+     * @return 生成任务列表，正在运行的在前
+     */
+    List<GenerationTaskVO> listGenerationTasks();
+
+    /**
+     * 按代码生成类型统计本节点正在运行的生成任务数（管理员）
+     *
+     * @return 各类型的任务数
+     */
+    List<GenerationTaskCountVO> countGenerationTasks();
+
+    /**
+     * 获取 Vue 项目的构建任务状态
+     *
+     * @param appId     应用 ID
+     * @param loginUser 登录用户
+     * @return 构建任务，没有构建记录返回 null
      */
-    Flux<String> chatToGenCode(Long appId, String message, User loginUser);
+    VueBuildJob getBuildStatus(Long appId, User loginUser);
 
     /**
      * 更新应用代码
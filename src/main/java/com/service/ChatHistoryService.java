@@ -6,9 +6,10 @@ import com.baomidou.mybatisplus.extension.service.IService;
 import com.model.dto.chathistory.ChatHistoryQueryRequest;
 import com.model.entity.ChatHistory;
 import com.model.entity.User;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.memory.ChatMemory;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 对话历史 服务层。
@@ -57,7 +58,25 @@ public interface ChatHistoryService extends IService<ChatHistory> {
      * @param maxCount 最多加载多少条
      * @return 加载成功的条数
      */
-    int loadChatHistoryToMemory(Long appId, MessageWindowChatMemory chatMemory, int maxCount);
+    int loadChatHistoryToMemory(Long appId, ChatMemory chatMemory, int maxCount);
+
+    /**
+     * 获取应用最新一条对话历史的 id
+     *
+     * @param appId 应用 id
+     * @return 最新的对话历史 id，没有对话历史返回 null
+     */
+    Long getLatestChatHistoryId(Long appId);
+
+    /**
+     * 按 id 升序查询应用从指定 id（包含）开始的对话历史
+     *
+     * @param appId  应用 id
+     * @param fromId 起始 id（包含）
+     * @param limit  最多查询多少条
+     * @return 对话历史
+     */
+    List<ChatHistory> listChatHistoryFromId(Long appId, Long fromId, int limit);
 
     /**
      * 构造查询条件
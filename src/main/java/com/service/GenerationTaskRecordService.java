@@ -0,0 +1,51 @@
+package com.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.core.GenerationTask;
+import com.model.entity.GenerationTaskRecord;
+import com.model.enums.GenerationTaskStatusEnum;
+import com.model.vo.GenerationLatencyStatsVO;
+
+import java.util.List;
+
+/**
+ * 生成任务 服务层。
+ */
+public interface GenerationTaskRecordService extends IService<GenerationTaskRecord> {
+
+    /**
+     * 记录一次生成的开始，写入失败不影响生成
+     *
+     * @param task      生成任务
+     * @param modelName 模型名称
+     * @param prompt    提示词
+     */
+    void recordStart(GenerationTask task, String modelName, String prompt);
+
+    /**
+     * 记录一次生成的结束，写入失败不影响生成
+     *
+     * @param task         生成任务
+     * @param status       结束状态
+     * @param inputTokens  输入 token 数（模型返回的用量，失败或被取消的模型请求没有用量）
+     * @param outputTokens 输出 token 数（模型返回的用量，失败或被取消的模型请求没有用量）
+     * @param errorMessage 失败原因或取消原因
+     */
+    void recordFinish(GenerationTask task, GenerationTaskStatusEnum status, long inputTokens, long outputTokens,
+                      String errorMessage);
+
+    /**
+     * 对账服务重启前未结束的任务：标记为已中断，清理写了一半的临时文件，并在对话历史中记录
+     *
+     * @return 对账的任务数
+     */
+    int reconcileInterruptedTasks();
+
+    /**
+     * 按代码生成类型统计最近成功生成的首 token 耗时和总耗时分位数
+     *
+     * @param days 统计最近多少天
+     * @return 各类型的耗时统计
+     */
+    List<GenerationLatencyStatsVO> getLatencyStats(int days);
+}
@@ -3,29 +3,53 @@ package com.service.impl;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import com.ai.AiCodeGenTypeRoutingService;
-import com.ai.AiCodeGenTypeRoutingServiceFactory;
+import com.ai.http.ModelStreamCancellation;
+import com.ai.routing.CodeGenTypeRouter;
+import com.ai.telemetry.LlmTelemetry;
+import com.ai.model.message.FileProgressMessage;
+import com.ai.model.message.StreamMessage;
 import com.core.AiCodeGeneratorFacade;
+import com.core.GenerationCancelMetrics;
+import com.core.GenerationTask;
 import com.core.GenerationTaskManager;
-import com.core.builder.VueProjectBuilder;
+import com.core.admission.LlmAdmissionController;
+import com.core.cache.GenerationResultCache;
+import com.core.lock.GenerationLease;
+import com.core.builder.VueBuildJob;
+import com.core.builder.VueBuildJobManager;
 import com.core.handler.StreamHandlerExecutor;
+import com.core.sectioned.SectionedCodeGenerator;
+import com.core.sse.GenerationEvent;
+import com.core.sse.GenerationSession;
+import com.core.sse.SseFrameCoalescer;
+import com.config.SectionedGenerationConfig;
 import com.constant.AppConstant;
+import com.constant.UserConstant;
 import com.exception.BusinessException;
 import com.exception.ErrorCode;
 import com.exception.ThrowUtils;
 import com.model.dto.app.AppAddRequest;
 import com.model.dto.app.AppQueryRequest;
 import com.model.entity.App;
+import com.model.entity.ChatHistory;
 import com.mapper.AppMapper;
 import com.model.entity.User;
 import com.model.enums.ChatHistoryMessageTypeEnum;
 import com.model.enums.CodeGenTypeEnum;
+import com.model.enums.GenerationTaskStateEnum;
+import com.model.enums.GenerationTaskStatusEnum;
 import com.model.vo.AppVO;
+import com.model.vo.GenerationStatusVO;
+import com.model.vo.GenerationTaskCountVO;
+import com.model.vo.GenerationTaskVO;
 import com.model.vo.UserVO;
 import com.service.AppService;
 import com.service.ChatHistoryService;
+import com.service.GenerationTaskRecordService;
 import com.service.UserService;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
@@ -49,6 +73,11 @@ import java.util.stream.Collectors;
 @Slf4j
 public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppService {
 
+    /**
+     * 缓存回放的生成任务记录的模型名称
+     */
+    private static final String CACHE_MODEL_NAME = "cache";
+
     @Resource
     private UserService userService;
 
@@ -62,14 +91,35 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
     private StreamHandlerExecutor streamHandlerExecutor;
 
     @Resource
-    private VueProjectBuilder vueProjectBuilder;
+    private VueBuildJobManager vueBuildJobManager;
 
     @Resource
-    private AiCodeGenTypeRoutingServiceFactory aiCodeGenTypeRoutingServiceFactory;
+    private CodeGenTypeRouter codeGenTypeRouter;
 
     @Resource
     private GenerationTaskManager generationTaskManager;
 
+    @Resource
+    private SseFrameCoalescer sseFrameCoalescer;
+
+    @Resource
+    private GenerationCancelMetrics generationCancelMetrics;
+
+    @Resource
+    private LlmAdmissionController llmAdmissionController;
+
+    @Resource
+    private GenerationTaskRecordService generationTaskRecordService;
+
+    @Resource
+    private GenerationResultCache generationResultCache;
+
+    @Resource
+    private SectionedGenerationConfig sectionedGenerationConfig;
+
+    @Resource
+    private LlmTelemetry llmTelemetry;
+
     @Override
     public void updateAppCode(Long id, String codeContent, User loginUser) {
         // 1. 校验
@@ -103,7 +153,7 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
     }
     
     @Override
-    public Flux<String> chatToGenCode(Long appId, String message, User loginUser) {
+    public Flux<GenerationEvent> chatToGenCode(Long appId, String message, User loginUser, boolean useCache) {
         // 1. 参数校验
         if (appId == null || appId <= 0) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "应用 ID 错误");
@@ -124,24 +174,253 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         if (codeGenTypeEnum == null) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "应用代码生成类型错误");
         }
-        // 5. 在调用 AI 前，先保存用户消息到数据库中
+        // 5. 首轮对话的 HTML / 多文件生成先查询生成结果缓存，命中时回放缓存内容，不调用 AI
+        boolean firstTurn = isFirstTurn(appId);
+        String cacheKey = null;
+        String cachedCode = null;
+        if (generationResultCache.isCacheable(codeGenTypeEnum)) {
+            if (useCache && firstTurn) {
+                cacheKey = generationResultCache.buildKey(message, codeGenTypeEnum);
+                cachedCode = generationResultCache.get(cacheKey);
+            } else {
+                generationResultCache.recordBypass();
+            }
+        }
+        // 6. 模型排队人数已满时直接拒绝，在调用 AI 前，先保存用户消息到数据库中
+        if (cachedCode == null) {
+            llmAdmissionController.checkQueueCapacity(codeGenTypeEnum);
+        }
         chatHistoryService.addChatMessage(appId, message, ChatHistoryMessageTypeEnum.USER.getValue(), loginUser.getId());
-        // 6. 去重：同一应用只允许存在一个生成任务
-        if (!generationTaskManager.tryStart(appId)) {
-            throw new BusinessException(ErrorCode.TOO_MANY_REQUEST, "该应用正在生成中，请稍后再试");
+        // 7. 去重：同一应用只允许存在一个生成任务
+        GenerationTask task = generationTaskManager.tryStart(appId, loginUser.getId(), codeGenTypeEnum);
+        if (task == null) {
+            throw new BusinessException(ErrorCode.TOO_MANY_REQUEST, "该应用正在生成中，请稍后再试或刷新页面查看生成进度");
         }
+        // 记录生成任务，服务重启后可对账，并用于耗时统计；离线模型记为 offline，不计入真实模型的耗时统计
+        String modelName = cachedCode != null ? CACHE_MODEL_NAME : llmTelemetry.resolveModelTag(codeGenTypeEnum);
+        generationTaskRecordService.recordStart(task, modelName, message);
         try {
-            // 7. 调用 AI 生成代码（流式）
-            Flux<String> codeStream = aiCodeGeneratorFacade.generateAndSaveCodeStream(message, codeGenTypeEnum, appId);
-            // 8. 收集 AI 响应的内容，并且在完成后保存记录到对话历史
-            Flux<String> handledStream = streamHandlerExecutor.doExecute(codeStream, chatHistoryService, appId, loginUser, codeGenTypeEnum);
-            return handledStream.doFinally(signalType -> generationTaskManager.finish(appId));
+            // 8. 调用 AI 生成代码（流式），绑定取消句柄，取消时中断模型响应流；缓存命中时回放缓存内容
+            ModelStreamCancellation cancellation = new ModelStreamCancellation();
+            // 首轮多文件生成可以分段并行生成，多个文件同时输出，各文件进度以 file 事件推送
+            boolean sectioned = cachedCode == null && firstTurn && codeGenTypeEnum == CodeGenTypeEnum.MULTI_FILE
+                    && sectionedGenerationConfig.isEnabled();
+            Flux<StreamMessage> sourceStream;
+            if (cachedCode != null) {
+                sourceStream = aiCodeGeneratorFacade.replayCachedCode(cachedCode, message, codeGenTypeEnum, appId);
+            } else if (sectioned) {
+                sourceStream = aiCodeGeneratorFacade.generateSectionedCodeStream(message, appId, cacheKey);
+            } else {
+                sourceStream = aiCodeGeneratorFacade.generateAndSaveCodeStream(message, codeGenTypeEnum, appId, cacheKey);
+            }
+            Flux<StreamMessage> codeStream = cancellation.bind(sourceStream)
+                    .doOnComplete(() -> generationCancelMetrics.recordCompleted(codeGenTypeEnum, cancellation.getOutputChunks()))
+                    .doOnCancel(() -> generationCancelMetrics.recordCancelled(codeGenTypeEnum, cancellation.getReason(), cancellation.getOutputChunks()));
+            // 9 - 10. 收集 AI 响应的内容并保存到对话历史，合并 token 编码为 SSE 帧数据；分段生成时并入文件进度事件
+            Flux<GenerationEvent> generationStream = sectioned
+                    ? codeStream.publish(shared -> Flux.merge(
+                            toFrameEvents(shared, appId, loginUser, codeGenTypeEnum),
+                            shared.ofType(FileProgressMessage.class).map(this::toFileEvent)))
+                    : toFrameEvents(codeStream, appId, loginUser, codeGenTypeEnum);
+            // 11. 获得模型并发额度后才调用 AI，排队期间推送 queue 事件；分段生成按并行流数占用额度，缓存回放不占用模型额度
+            if (cachedCode == null) {
+                int weight = sectioned ? SectionedCodeGenerator.CONCURRENT_STREAMS : 1;
+                generationStream = llmAdmissionController.admit(codeGenTypeEnum, loginUser.getId(), appId,
+                        generationStream, weight);
+            }
+            Flux<GenerationEvent> eventStream = generationStream
+                    .doOnNext(event -> recordProgress(task, event))
+                    .doOnError(error -> generationTaskRecordService.recordFinish(task, GenerationTaskStatusEnum.FAILED,
+                            cancellation.getInputTokens(), cancellation.getOutputTokens(), error.getMessage()))
+                    .doOnComplete(() -> generationTaskRecordService.recordFinish(task, GenerationTaskStatusEnum.SUCCEEDED,
+                            cancellation.getInputTokens(), cancellation.getOutputTokens(), null))
+                    .doOnCancel(() -> generationTaskRecordService.recordFinish(task, GenerationTaskStatusEnum.CANCELLED,
+                            cancellation.getInputTokens(), cancellation.getOutputTokens(), cancellation.getReason()))
+                    .doFinally(signalType -> generationTaskManager.finish(task));
+            // 12. Vue 项目在 AI 生成完成后提交到构建队列，构建进度以 build 事件推送
+            if (codeGenTypeEnum == CodeGenTypeEnum.VUE_PROJECT) {
+                eventStream = eventStream.concatWith(vueBuildJobManager.submitAndWatch(appId).map(this::toBuildEvent));
+            }
+            // 13. 由生成会话独立订阅，前端断线不影响生成，重连后可从断点续传
+            GenerationSession session = generationTaskManager.createSession(task, cancellation);
+            session.start(eventStream.doFinally(signalType -> generationTaskManager.expireSession(appId, session)));
+            return session.subscribe(0);
         } catch (RuntimeException e) {
-            generationTaskManager.finish(appId);
+            generationTaskRecordService.recordFinish(task, GenerationTaskStatusEnum.FAILED, 0, 0, e.getMessage());
+            generationTaskManager.finish(task);
             throw e;
         }
     }
 
+    /**
+     * 是否为应用的首轮对话（还没有任何对话历史），只有首轮对话的生成结果与历史无关，可以缓存，多文件生成也可以分段并行生成
+     */
+    private boolean isFirstTurn(Long appId) {
+        return chatHistoryService.count(new LambdaQueryWrapper<ChatHistory>().eq(ChatHistory::getAppId, appId)) == 0;
+    }
+
+    /**
+     * 根据生成事件更新任务进展：queue 事件的 position 为 0 表示排队结束，数据帧表示收到模型输出
+     */
+    private void recordProgress(GenerationTask task, GenerationEvent event) {
+        if (!GenerationSession.QUEUE_EVENT.equals(event.getEvent())) {
+            task.recordOutput();
+            return;
+        }
+        boolean queueing = JSONUtil.parseObj(event.getData()).getInt("position", 0) > 0;
+        task.recordProgress(queueing ? GenerationTaskStateEnum.QUEUED : GenerationTaskStateEnum.RUNNING);
+    }
+
+    @Override
+    public Flux<GenerationEvent> resumeGenCode(Long appId, long lastEventId, User loginUser) {
+        ThrowUtils.throwIf(lastEventId < 0, ErrorCode.PARAMS_ERROR, "事件序号错误");
+        checkGenerationViewAuth(appId, loginUser);
+        GenerationSession session = generationTaskManager.getSession(appId);
+        if (session == null) {
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "生成任务不存在或已结束");
+        }
+        log.info("用户 {} 订阅应用 {} 的生成会话，断点: {}，当前观看人数: {}",
+                loginUser.getId(), appId, lastEventId, session.getSubscriberCount());
+        // 共享同一个会话，不会再次调用 AI
+        return session.subscribe(lastEventId);
+    }
+
+    @Override
+    public GenerationStatusVO getGenerationStatus(Long appId, User loginUser) {
+        checkGenerationViewAuth(appId, loginUser);
+        GenerationStatusVO generationStatusVO = new GenerationStatusVO();
+        generationStatusVO.setAppId(appId);
+        GenerationSession session = generationTaskManager.getSession(appId);
+        if (session == null) {
+            generationStatusVO.setRunning(false);
+            return generationStatusVO;
+        }
+        generationStatusVO.setRunning(!session.isTerminated());
+        generationStatusVO.setCodeGenType(session.getCodeGenType().getValue());
+        generationStatusVO.setStartTime(session.getStartTime());
+        generationStatusVO.setLastEventId(session.getLastEventId());
+        generationStatusVO.setSubscriberCount(session.getSubscriberCount());
+        GenerationLease lease = generationTaskManager.getLease(appId);
+        if (lease != null) {
+            generationStatusVO.setOwnerNode(lease.getOwnerNode());
+            generationStatusVO.setFencingToken(lease.getFencingToken());
+        }
+        return generationStatusVO;
+    }
+
+    @Override
+    public boolean cancelGenCode(Long appId, User loginUser) {
+        checkGenerationViewAuth(appId, loginUser);
+        GenerationSession session = generationTaskManager.getSession(appId);
+        if (session == null || session.isTerminated()) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "没有正在进行的生成任务");
+        }
+        log.info("用户 {} 取消应用 {} 的生成", loginUser.getId(), appId);
+        return session.cancel(GenerationSession.CANCEL_REASON_USER);
+    }
+
+    @Override
+    public List<GenerationTaskVO> listGenerationTasks() {
+        List<GenerationTaskVO> taskVOList = new ArrayList<>();
+        for (GenerationTask task : generationTaskManager.getRunningTasks()) {
+            taskVOList.add(toGenerationTaskVO(task));
+        }
+        for (GenerationTask task : generationTaskManager.getReapedTasks()) {
+            taskVOList.add(toGenerationTaskVO(task));
+        }
+        return taskVOList;
+    }
+
+    @Override
+    public List<GenerationTaskCountVO> countGenerationTasks() {
+        List<GenerationTaskCountVO> countVOList = new ArrayList<>();
+        generationTaskManager.countRunningByType().forEach((codeGenType, count) -> {
+            GenerationTaskCountVO countVO = new GenerationTaskCountVO();
+            countVO.setCodeGenType(codeGenType.getValue());
+            countVO.setRunningCount(count);
+            countVOList.add(countVO);
+        });
+        return countVOList;
+    }
+
+    private GenerationTaskVO toGenerationTaskVO(GenerationTask task) {
+        GenerationTaskVO taskVO = new GenerationTaskVO();
+        taskVO.setAppId(task.getAppId());
+        taskVO.setUserId(task.getUserId());
+        taskVO.setCodeGenType(task.getCodeGenType().getValue());
+        taskVO.setState(task.getState().getValue());
+        taskVO.setOwnerNode(task.getOwnerNode());
+        if (task.getLease() != null) {
+            taskVO.setFencingToken(task.getLease().getFencingToken());
+        }
+        taskVO.setStartTime(task.getStartTime());
+        taskVO.setLastProgressTime(task.getLastProgressTime());
+        taskVO.setEndTime(task.getEndTime());
+        GenerationSession session = task.getSession();
+        taskVO.setSubscriberCount(session == null ? 0 : session.getSubscriberCount());
+        return taskVO;
+    }
+
+    @Override
+    public VueBuildJob getBuildStatus(Long appId, User loginUser) {
+        checkGenerationViewAuth(appId, loginUser);
+        return vueBuildJobManager.getJobWithPosition(appId);
+    }
+
+    /**
+     * 收集 AI 响应的内容，并且在完成后保存记录到对话历史；按时间窗口和字节阈值合并 token，编码为 SSE 帧数据
+     */
+    private Flux<GenerationEvent> toFrameEvents(Flux<StreamMessage> codeStream, Long appId, User loginUser,
+                                                CodeGenTypeEnum codeGenTypeEnum) {
+        Flux<String> handledStream = streamHandlerExecutor.doExecute(codeStream, chatHistoryService, appId, loginUser, codeGenTypeEnum);
+        return sseFrameCoalescer.coalesce(handledStream, codeGenTypeEnum, appId)
+                .map(frame -> new GenerationEvent(0, null, frame));
+    }
+
+    /**
+     * 文件进度转换为 file 事件
+     */
+    private GenerationEvent toFileEvent(FileProgressMessage message) {
+        String data = JSONUtil.createObj()
+                .set("file", message.getFile())
+                .set("status", message.getStatus())
+                .set("chars", message.getChars())
+                .toString();
+        return new GenerationEvent(0, GenerationSession.FILE_EVENT, data);
+    }
+
+    /**
+     * 构建进度转换为 build 事件
+     */
+    private GenerationEvent toBuildEvent(VueBuildJob job) {
+        String data = JSONUtil.createObj()
+                .set("status", job.getStatus())
+                .set("phase", job.getPhase())
+                .set("message", job.getMessage())
+                .toString();
+        return new GenerationEvent(0, GenerationSession.BUILD_EVENT, data);
+    }
+
+    /**
+     * 校验观看生成过程的权限：应用创建者或管理员
+     *
+     * @param appId     应用 ID
+     * @param loginUser 登录用户
+     */
+    private void checkGenerationViewAuth(Long appId, User loginUser) {
+        if (appId == null || appId <= 0) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "应用 ID 错误");
+        }
+        App app = this.getById(appId);
+        if (app == null) {
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "应用不存在");
+        }
+        boolean isAdmin = UserConstant.ADMIN_ROLE.equals(loginUser.getUserRole());
+        if (!app.getUserId().equals(loginUser.getId()) && !isAdmin) {
+            throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无权限访问该应用");
+        }
+    }
+
     @Override
     public Long createApp(AppAddRequest appAddRequest, User loginUser) {
         // 参数校验
@@ -160,9 +439,8 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
             selectedCodeGenType = CodeGenTypeEnum.getEnumByValue(appAddRequest.getCodeGenType());
             ThrowUtils.throwIf(selectedCodeGenType == null, ErrorCode.PARAMS_ERROR, "代码生成类型错误");
         } else {
-            // 前端未传入，使用 AI 智能选择代码生成类型（多例模式）
-            AiCodeGenTypeRoutingService aiCodeGenTypeRoutingService = aiCodeGenTypeRoutingServiceFactory.createAiCodeGenTypeRoutingService();
-            selectedCodeGenType = aiCodeGenTypeRoutingService.routeCodeGenType(initPrompt);
+            // 前端未传入，智能选择代码生成类型：需求明确时本地判定，否则调用 AI
+            selectedCodeGenType = codeGenTypeRouter.route(initPrompt);
         }
         if (selectedCodeGenType == null) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "无法确定代码生成类型");
@@ -21,7 +21,7 @@ import com.service.AppService;
 import com.service.ChatHistoryService;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.UserMessage;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.memory.ChatMemory;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Lazy;
@@ -100,7 +100,7 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
     }
 
     @Override
-    public int loadChatHistoryToMemory(Long appId, MessageWindowChatMemory chatMemory, int maxCount) {
+    public int loadChatHistoryToMemory(Long appId, ChatMemory chatMemory, int maxCount) {
         try {
             LambdaQueryWrapper<ChatHistory> queryWrapper = new LambdaQueryWrapper<>();
             queryWrapper.eq(ChatHistory::getAppId, appId)
@@ -133,6 +133,25 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
         }
     }
 
+    @Override
+    public Long getLatestChatHistoryId(Long appId) {
+        ChatHistory latest = this.getOne(new LambdaQueryWrapper<ChatHistory>()
+                .select(ChatHistory::getId)
+                .eq(ChatHistory::getAppId, appId)
+                .orderByDesc(ChatHistory::getId)
+                .last("LIMIT 1"));
+        return latest == null ? null : latest.getId();
+    }
+
+    @Override
+    public List<ChatHistory> listChatHistoryFromId(Long appId, Long fromId, int limit) {
+        return this.list(new LambdaQueryWrapper<ChatHistory>()
+                .eq(ChatHistory::getAppId, appId)
+                .ge(ChatHistory::getId, fromId)
+                .orderByAsc(ChatHistory::getId)
+                .last("LIMIT " + limit));
+    }
+
     /**
      * 获取查询包装类
      *
@@ -0,0 +1,240 @@
+package com.service.impl;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.config.NodeConfig;
+import com.constant.AppConstant;
+import com.core.GenerationTask;
+import com.mapper.GenerationTaskRecordMapper;
+import com.model.entity.GenerationTaskRecord;
+import com.model.enums.ChatHistoryMessageTypeEnum;
+import com.model.enums.CodeGenTypeEnum;
+import com.model.enums.GenerationTaskStatusEnum;
+import com.model.vo.GenerationLatencyStatsVO;
+import com.service.ChatHistoryService;
+import com.service.GenerationTaskRecordService;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 生成任务 服务层实现。
+ */
+@Service
+@Slf4j
+public class GenerationTaskRecordServiceImpl extends ServiceImpl<GenerationTaskRecordMapper, GenerationTaskRecord>
+        implements GenerationTaskRecordService {
+
+    /**
+     * 其他节点超过该时间（小时）仍未结束的任务也视为已中断（节点可能不会再启动）
+     */
+    private static final long ORPHAN_TASK_HOURS = 24;
+
+    /**
+     * 每种类型最多统计的样本数
+     */
+    private static final int LATENCY_SAMPLE_LIMIT = 5000;
+
+    private static final String INTERRUPTED_MESSAGE = "AI回复已中断（服务重启），请重新发送";
+
+    @Resource
+    private NodeConfig nodeConfig;
+
+    @Resource
+    private ChatHistoryService chatHistoryService;
+
+    @Override
+    public void recordStart(GenerationTask task, String modelName, String prompt) {
+        GenerationTaskRecord record = GenerationTaskRecord.builder()
+                .appId(task.getAppId())
+                .userId(task.getUserId())
+                .codeGenType(task.getCodeGenType().getValue())
+                .modelName(modelName)
+                .promptHash(DigestUtil.sha256Hex(prompt))
+                .status(GenerationTaskStatusEnum.RUNNING.getValue())
+                .ownerNode(task.getOwnerNode())
+                .startTime(toLocalDateTime(task.getStartTime()))
+                .build();
+        try {
+            this.save(record);
+            task.setRecordId(record.getId());
+        } catch (Exception e) {
+            log.error("保存应用 {} 的生成任务记录失败: {}", task.getAppId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void recordFinish(GenerationTask task, GenerationTaskStatusEnum status, long inputTokens, long outputTokens,
+                             String errorMessage) {
+        if (task.getRecordId() == null) {
+            return;
+        }
+        long endTime = System.currentTimeMillis();
+        GenerationTaskRecord record = GenerationTaskRecord.builder()
+                .id(task.getRecordId())
+                .status(status.getValue())
+                .endTime(toLocalDateTime(endTime))
+                .durationMs(endTime - task.getStartTime())
+                .inputTokens(inputTokens)
+                .outputTokens(outputTokens)
+                .errorMessage(StrUtil.maxLength(errorMessage, 1000))
+                .build();
+        if (task.getAdmitTime() > 0) {
+            record.setAdmitTime(toLocalDateTime(task.getAdmitTime()));
+        }
+        if (task.getFirstTokenTime() > 0) {
+            record.setFirstTokenTime(toLocalDateTime(task.getFirstTokenTime()));
+            record.setTtftMs(task.getFirstTokenTime() - task.getStartTime());
+        }
+        try {
+            this.updateById(record);
+        } catch (Exception e) {
+            log.error("更新应用 {} 的生成任务记录失败: {}", task.getAppId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 服务启动完成后对账
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            int count = reconcileInterruptedTasks();
+            if (count > 0) {
+                log.warn("已对账 {} 个服务重启前未结束的生成任务", count);
+            }
+        } catch (Exception e) {
+            log.error("对账未结束的生成任务失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public int reconcileInterruptedTasks() {
+        // 本节点重启前未结束的任务，以及其他节点长时间未结束的任务
+        LocalDateTime orphanTime = LocalDateTime.now().minusHours(ORPHAN_TASK_HOURS);
+        LambdaQueryWrapper<GenerationTaskRecord> queryWrapper = new LambdaQueryWrapper<GenerationTaskRecord>()
+                .eq(GenerationTaskRecord::getStatus, GenerationTaskStatusEnum.RUNNING.getValue())
+                .and(wrapper -> wrapper.eq(GenerationTaskRecord::getOwnerNode, nodeConfig.getNodeId())
+                        .or()
+                        .lt(GenerationTaskRecord::getStartTime, orphanTime));
+        List<GenerationTaskRecord> records = this.list(queryWrapper);
+        if (CollUtil.isEmpty(records)) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int reconciledCount = 0;
+        for (GenerationTaskRecord record : records) {
+            GenerationTaskRecord updateRecord = GenerationTaskRecord.builder()
+                    .id(record.getId())
+                    .status(GenerationTaskStatusEnum.INTERRUPTED.getValue())
+                    .endTime(now)
+                    .errorMessage("服务重启，生成中断")
+                    .build();
+            // 只对账仍处于生成中的记录，避免覆盖其他节点刚写入的结果
+            boolean updated = this.update(updateRecord, new LambdaQueryWrapper<GenerationTaskRecord>()
+                    .eq(GenerationTaskRecord::getId, record.getId())
+                    .eq(GenerationTaskRecord::getStatus, GenerationTaskStatusEnum.RUNNING.getValue()));
+            if (!updated) {
+                continue;
+            }
+            reconciledCount++;
+            log.warn("应用 {} 的生成任务在服务重启前未结束，已标记为中断，开始时间: {}", record.getAppId(), record.getStartTime());
+            cleanTempFiles(record);
+            try {
+                chatHistoryService.addChatMessage(record.getAppId(), INTERRUPTED_MESSAGE,
+                        ChatHistoryMessageTypeEnum.AI.getValue(), record.getUserId());
+            } catch (Exception e) {
+                log.error("记录应用 {} 的中断消息失败: {}", record.getAppId(), e.getMessage());
+            }
+        }
+        return reconciledCount;
+    }
+
+    @Override
+    public List<GenerationLatencyStatsVO> getLatencyStats(int days) {
+        LocalDateTime startTime = LocalDateTime.now().minusDays(days);
+        List<GenerationLatencyStatsVO> statsList = new ArrayList<>();
+        for (CodeGenTypeEnum codeGenType : CodeGenTypeEnum.values()) {
+            List<GenerationTaskRecord> records = this.list(new LambdaQueryWrapper<GenerationTaskRecord>()
+                    .select(GenerationTaskRecord::getTtftMs, GenerationTaskRecord::getDurationMs)
+                    .eq(GenerationTaskRecord::getCodeGenType, codeGenType.getValue())
+                    .eq(GenerationTaskRecord::getStatus, GenerationTaskStatusEnum.SUCCEEDED.getValue())
+                    .ge(GenerationTaskRecord::getStartTime, startTime)
+                    .orderByDesc(GenerationTaskRecord::getStartTime)
+                    .last("limit " + LATENCY_SAMPLE_LIMIT));
+            long[] ttftValues = records.stream()
+                    .map(GenerationTaskRecord::getTtftMs)
+                    .filter(Objects::nonNull)
+                    .mapToLong(Long::longValue)
+                    .sorted()
+                    .toArray();
+            long[] durationValues = records.stream()
+                    .map(GenerationTaskRecord::getDurationMs)
+                    .filter(Objects::nonNull)
+                    .mapToLong(Long::longValue)
+                    .sorted()
+                    .toArray();
+            GenerationLatencyStatsVO statsVO = new GenerationLatencyStatsVO();
+            statsVO.setCodeGenType(codeGenType.getValue());
+            statsVO.setSampleCount(records.size());
+            statsVO.setTtftP50(percentile(ttftValues, 50));
+            statsVO.setTtftP95(percentile(ttftValues, 95));
+            statsVO.setTtftP99(percentile(ttftValues, 99));
+            statsVO.setDurationP50(percentile(durationValues, 50));
+            statsVO.setDurationP95(percentile(durationValues, 95));
+            statsVO.setDurationP99(percentile(durationValues, 99));
+            statsList.add(statsVO);
+        }
+        return statsList;
+    }
+
+    /**
+     * 最近秩法计算分位数
+     *
+     * @param sortedValues 升序排列的数据
+     * @param percent      百分位
+     * @return 分位数，没有数据返回 null
+     */
+    private Long percentile(long[] sortedValues, int percent) {
+        if (sortedValues.length == 0) {
+            return null;
+        }
+        int rank = (int) Math.ceil(percent / 100.0 * sortedValues.length);
+        return sortedValues[Math.max(rank, 1) - 1];
+    }
+
+    /**
+     * 清理写了一半的临时文件（流式保存时代码块闭合前写入 .tmp 文件）
+     */
+    private void cleanTempFiles(GenerationTaskRecord record) {
+        File outputDir = new File(AppConstant.CODE_OUTPUT_ROOT_DIR, record.getCodeGenType() + "_" + record.getAppId());
+        if (!outputDir.isDirectory()) {
+            return;
+        }
+        List<File> tempFiles = FileUtil.loopFiles(outputDir, file -> file.getName().endsWith(".tmp"));
+        for (File tempFile : tempFiles) {
+            FileUtil.del(tempFile);
+        }
+        if (!tempFiles.isEmpty()) {
+            log.info("已清理应用 {} 未完成的临时文件 {} 个", record.getAppId(), tempFiles.size());
+        }
+    }
+
+    private LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
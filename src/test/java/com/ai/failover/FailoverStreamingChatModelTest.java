@@ -0,0 +1,316 @@
+package com.ai.failover;
+
+import com.ai.http.CancellableHttpClientBuilder;
+import com.ai.http.SharedModelHttpTransport;
+import com.config.ModelHttpConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.json.JsonObjectSchema;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 故障转移和首 token 对冲：主端点、备用端点都是本地的 SSE 桩服务，模型使用真实的 OpenAI 流式模型和共享传输层
+ */
+class FailoverStreamingChatModelTest {
+
+    private static final long FIRST_TOKEN_TIMEOUT_MS = 300;
+
+    private final List<StubSseServer> servers = new ArrayList<>();
+
+    private SharedModelHttpTransport transport;
+
+    private ScheduledExecutorService scheduler;
+
+    @BeforeEach
+    void setUp() {
+        transport = new SharedModelHttpTransport();
+        ReflectionTestUtils.setField(transport, "modelHttpConfig", new ModelHttpConfig());
+        transport.init();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(StubSseServer::stop);
+        scheduler.shutdownNow();
+        transport.destroy();
+    }
+
+    @Test
+    void slowPrimaryIsHedgedAndBackupWins() throws Exception {
+        StubSseServer primary = startServer(out -> {
+            sleep(3000);
+            writeEvent(out, textChunk("from primary"));
+            writeEvent(out, finishChunk("stop"));
+            writeDone(out);
+        });
+        StubSseServer backup = startServer(out -> {
+            writeEvent(out, textChunk("from backup"));
+            writeEvent(out, finishChunk("stop"));
+            writeDone(out);
+        });
+        EndpointStats primaryStats = new EndpointStats("test", "primary", "m");
+        EndpointStats backupStats = new EndpointStats("test", "backup", "m");
+
+        Result result = chat(failoverModel(primary, primaryStats, backup, backupStats), ChatRequest.builder()
+                .messages(UserMessage.from("hello"))
+                .build());
+
+        assertThat(result.text()).isEqualTo("from backup");
+        assertThat(primaryStats.getHedgeCount()).isEqualTo(1);
+        assertThat(backupStats.getWinCount()).isEqualTo(1);
+        assertThat(backup.hits()).isEqualTo(1);
+    }
+
+    @Test
+    void erroringPrimaryFailsOverWithoutHedging() throws Exception {
+        StubSseServer primary = startServer(null);
+        StubSseServer backup = startServer(out -> {
+            writeEvent(out, textChunk("from backup"));
+            writeEvent(out, finishChunk("stop"));
+            writeDone(out);
+        });
+        EndpointStats primaryStats = new EndpointStats("test", "primary", "m");
+        EndpointStats backupStats = new EndpointStats("test", "backup", "m");
+
+        Result result = chat(failoverModel(primary, primaryStats, backup, backupStats), ChatRequest.builder()
+                .messages(UserMessage.from("hello"))
+                .build());
+
+        assertThat(result.text()).isEqualTo("from backup");
+        assertThat(primaryStats.getErrorCount()).isEqualTo(1);
+        assertThat(primaryStats.getHedgeCount()).isZero();
+        assertThat(backupStats.getWinCount()).isEqualTo(1);
+    }
+
+    @Test
+    void toolCallOnlyPrimaryIsNotHedged() throws Exception {
+        // 只输出工具调用，总耗时远超首 token 期限，但一直有响应事件
+        StubSseServer primary = startServer(out -> {
+            writeEvent(out, "{\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\",\"tool_calls\":[{\"index\":0,"
+                    + "\"id\":\"call_1\",\"type\":\"function\",\"function\":{\"name\":\"writeFile\",\"arguments\":\"\"}}]},"
+                    + "\"finish_reason\":null}]}");
+            for (String part : List.of("{\\\"relativeFilePath\\\":", "\\\"src/App.vue\\\",", "\\\"content\\\":",
+                    "\\\"<template/>\\\"", "}")) {
+                sleep(FIRST_TOKEN_TIMEOUT_MS / 2);
+                writeEvent(out, "{\"choices\":[{\"index\":0,\"delta\":{\"tool_calls\":[{\"index\":0,"
+                        + "\"function\":{\"arguments\":\"" + part + "\"}}]},\"finish_reason\":null}]}");
+            }
+            writeEvent(out, finishChunk("tool_calls"));
+            writeDone(out);
+        });
+        StubSseServer backup = startServer(out -> {
+            writeEvent(out, textChunk("from backup"));
+            writeEvent(out, finishChunk("stop"));
+            writeDone(out);
+        });
+        EndpointStats primaryStats = new EndpointStats("test", "primary", "m");
+        EndpointStats backupStats = new EndpointStats("test", "backup", "m");
+        ToolSpecification writeFile = ToolSpecification.builder()
+                .name("writeFile")
+                .parameters(JsonObjectSchema.builder()
+                        .addStringProperty("relativeFilePath")
+                        .addStringProperty("content")
+                        .build())
+                .build();
+
+        Result result = chat(failoverModel(primary, primaryStats, backup, backupStats), ChatRequest.builder()
+                .messages(UserMessage.from("hello"))
+                .toolSpecifications(writeFile)
+                .build());
+
+        List<ToolExecutionRequest> toolRequests = result.response().aiMessage().toolExecutionRequests();
+        assertThat(toolRequests).hasSize(1);
+        assertThat(toolRequests.get(0).name()).isEqualTo("writeFile");
+        assertThat(toolRequests.get(0).arguments()).isEqualTo("{\"relativeFilePath\":\"src/App.vue\",\"content\":\"<template/>\"}");
+        assertThat(primaryStats.getHedgeCount()).isZero();
+        assertThat(backup.hits()).isZero();
+    }
+
+    @Test
+    void thinkingPrimaryIsNotHedged() throws Exception {
+        // 推理模型先输出思考过程，之后才有文本片段
+        StubSseServer primary = startServer(out -> {
+            for (int i = 0; i < 5; i++) {
+                writeEvent(out, "{\"choices\":[{\"index\":0,\"delta\":{\"reasoning_content\":\"thinking\"},"
+                        + "\"finish_reason\":null}]}");
+                sleep(FIRST_TOKEN_TIMEOUT_MS / 2);
+            }
+            writeEvent(out, textChunk("from primary"));
+            writeEvent(out, finishChunk("stop"));
+            writeDone(out);
+        });
+        StubSseServer backup = startServer(out -> {
+            writeEvent(out, textChunk("from backup"));
+            writeEvent(out, finishChunk("stop"));
+            writeDone(out);
+        });
+        EndpointStats primaryStats = new EndpointStats("test", "primary", "m");
+        EndpointStats backupStats = new EndpointStats("test", "backup", "m");
+
+        Result result = chat(failoverModel(primary, primaryStats, backup, backupStats), ChatRequest.builder()
+                .messages(UserMessage.from("hello"))
+                .build());
+
+        assertThat(result.text()).isEqualTo("from primary");
+        assertThat(primaryStats.getHedgeCount()).isZero();
+        assertThat(backup.hits()).isZero();
+    }
+
+    private FailoverStreamingChatModel failoverModel(StubSseServer primary, EndpointStats primaryStats,
+                                                     StubSseServer backup, EndpointStats backupStats) {
+        List<ModelEndpoint> endpoints = List.of(
+                new ModelEndpoint(openAiModel(primary), primaryStats),
+                new ModelEndpoint(openAiModel(backup), backupStats));
+        return new FailoverStreamingChatModel(endpoints, FIRST_TOKEN_TIMEOUT_MS, scheduler, 3, 60_000);
+    }
+
+    private StreamingChatModel openAiModel(StubSseServer server) {
+        return OpenAiStreamingChatModel.builder()
+                .baseUrl(server.baseUrl())
+                .apiKey("test")
+                .modelName("m")
+                .httpClientBuilder(new CancellableHttpClientBuilder(transport.httpClientBuilder()))
+                .build();
+    }
+
+    private Result chat(StreamingChatModel model, ChatRequest chatRequest) throws Exception {
+        StringBuilder text = new StringBuilder();
+        CompletableFuture<ChatResponse> future = new CompletableFuture<>();
+        model.chat(chatRequest, new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                text.append(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                future.complete(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                future.completeExceptionally(error);
+            }
+        });
+        ChatResponse response = future.get(10, TimeUnit.SECONDS);
+        return new Result(text.toString(), response);
+    }
+
+    private StubSseServer startServer(SseBody body) throws IOException {
+        StubSseServer server = new StubSseServer(body);
+        servers.add(server);
+        return server;
+    }
+
+    private static String textChunk(String content) {
+        return "{\"choices\":[{\"index\":0,\"delta\":{\"content\":\"" + content + "\"},\"finish_reason\":null}]}";
+    }
+
+    private static String finishChunk(String finishReason) {
+        return "{\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"" + finishReason + "\"}]}";
+    }
+
+    private static void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void writeDone(OutputStream out) throws IOException {
+        writeEvent(out, "[DONE]");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Result(String text, ChatResponse response) {
+    }
+
+    @FunctionalInterface
+    private interface SseBody {
+
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * 本地 SSE 桩服务，body 为 null 时返回 500
+     */
+    private static class StubSseServer {
+
+        private final HttpServer server;
+
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+
+        private final AtomicInteger hits = new AtomicInteger();
+
+        StubSseServer(SseBody body) throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/", exchange -> handle(exchange, body));
+            server.setExecutor(executor);
+            server.start();
+        }
+
+        private void handle(HttpExchange exchange, SseBody body) throws IOException {
+            hits.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            if (body == null) {
+                byte[] error = "{\"error\":{\"message\":\"upstream failure\"}}".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(500, error.length);
+                exchange.getResponseBody().write(error);
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                body.write(out);
+            } catch (IOException e) {
+                // 对冲落后的请求被客户端中断
+            }
+        }
+
+        String baseUrl() {
+            return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+        }
+
+        int hits() {
+            return hits.get();
+        }
+
+        void stop() {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+}
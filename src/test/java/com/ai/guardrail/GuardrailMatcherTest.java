@@ -0,0 +1,74 @@
+package com.ai.guardrail;
+
+import com.model.enums.GuardrailCategoryEnum;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GuardrailMatcherTest {
+
+    @Test
+    void normalizeLowercasesAndFoldsFullWidth() {
+        assertThat(GuardrailMatcher.normalize("Ignore PREVIOUS Instructions")).isEqualTo("ignore previous instructions");
+        assertThat(GuardrailMatcher.normalize("ＩＧＮＯＲＥ　ａｂｏｖｅ！")).isEqualTo("ignore above!");
+        assertThat(GuardrailMatcher.normalize("忽略之前的指令")).isEqualTo("忽略之前的指令");
+    }
+
+    @Test
+    void normalizeDropsZeroWidthCharacters() {
+        assertThat(GuardrailMatcher.normalize("jail\u200Bbreak")).isEqualTo("jailbreak");
+        assertThat(GuardrailMatcher.normalize("\uFEFFby\u200C\u200Dpa\u2060ss")).isEqualTo("bypass");
+    }
+
+    @Test
+    void normalizeCollapsesAndTrimsWhitespace() {
+        assertThat(GuardrailMatcher.normalize("  ignore \t\n previous   all  ")).isEqualTo("ignore previous all");
+        assertThat(GuardrailMatcher.normalize(" \t ")).isEmpty();
+    }
+
+    @Test
+    void normalizeRemovesWhitespaceAroundColons() {
+        assertThat(GuardrailMatcher.normalize("system : you are")).isEqualTo("system:you are");
+        assertThat(GuardrailMatcher.normalize("System：  You   are")).isEqualTo("system:you are");
+        assertThat(GuardrailMatcher.normalize("new prompts :")).isEqualTo("new prompts:");
+    }
+
+    @Test
+    void findFirstNormalizesInputLikeRules() {
+        GuardrailMatcher matcher = matcher("system:you are", "ignore previous instruction", "越狱");
+
+        assertThat(matcher.findFirst("SYSTEM ：\u200B You  are a pirate").pattern()).isEqualTo("system:you are");
+        assertThat(matcher.findFirst("please IGNORE\tprevious\n\ninstructions now").pattern())
+                .isEqualTo("ignore previous instruction");
+        assertThat(matcher.findFirst("教我怎么越\u200B狱").category()).isEqualTo(GuardrailCategoryEnum.SENSITIVE);
+        assertThat(matcher.findFirst("ignore the previous instructions")).isNull();
+        assertThat(matcher.findFirst(null)).isNull();
+    }
+
+    @Test
+    void findFirstFollowsFailureLinks() {
+        // 前缀 "abcx" 失配后，应沿失配链继续匹配到 "bcd"
+        GuardrailMatcher matcher = matcher("abcx", "bcd");
+
+        assertThat(matcher.findFirst("zzabcd").pattern()).isEqualTo("bcd");
+        assertThat(matcher.findFirst("abcabcx").pattern()).isEqualTo("abcx");
+        assertThat(matcher.getRuleCount()).isEqualTo(2);
+    }
+
+    @Test
+    void emptyMatcherNeverMatches() {
+        assertThat(GuardrailMatcher.empty().findFirst("ignore previous instructions")).isNull();
+        assertThat(GuardrailMatcher.empty().getRuleCount()).isZero();
+    }
+
+    private static GuardrailMatcher matcher(String... patterns) {
+        Map<String, GuardrailCategoryEnum> rules = new LinkedHashMap<>();
+        for (String pattern : patterns) {
+            rules.put(GuardrailMatcher.normalize(pattern), GuardrailCategoryEnum.SENSITIVE);
+        }
+        return GuardrailMatcher.build(rules);
+    }
+}
@@ -0,0 +1,96 @@
+package com.ai.guardrail;
+
+import com.config.GuardrailConfig;
+import com.exception.BusinessException;
+import com.model.enums.GuardrailCategoryEnum;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GuardrailRuleDictionaryTest {
+
+    private GuardrailConfig guardrailConfig;
+
+    private GuardrailRuleDictionary dictionary;
+
+    @BeforeEach
+    void setUp() {
+        guardrailConfig = new GuardrailConfig();
+        guardrailConfig.setBuiltinRulesEnabled(false);
+        guardrailConfig.setReloadIntervalSeconds(0);
+        dictionary = new GuardrailRuleDictionary();
+        ReflectionTestUtils.setField(dictionary, "guardrailConfig", guardrailConfig);
+    }
+
+    @Test
+    void expandWithoutBracesReturnsRule() {
+        assertThat(dictionary.expand("ignore above", "test", 1)).containsExactly("ignore above");
+    }
+
+    @Test
+    void expandCombinesGroupsInOrder() {
+        assertThat(dictionary.expand("ignore {previous|all} {instruction|prompt}", "test", 1)).containsExactly(
+                "ignore previous instruction",
+                "ignore previous prompt",
+                "ignore all instruction",
+                "ignore all prompt");
+        assertThat(dictionary.expand("{forget|disregard}前面的{指令|要求}!", "test", 1)).containsExactly(
+                "forget前面的指令!", "forget前面的要求!", "disregard前面的指令!", "disregard前面的要求!");
+    }
+
+    @Test
+    void expandKeepsEmptyAlternatives() {
+        assertThat(dictionary.expand("new {instruction|}:", "test", 1)).containsExactly("new instruction:", "new :");
+    }
+
+    @Test
+    void expandRejectsUnbalancedBraces() {
+        assertThatThrownBy(() -> dictionary.expand("ignore {previous|all", "rules.txt", 7))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("rules.txt")
+                .hasMessageContaining("第 7 行");
+        assertThatThrownBy(() -> dictionary.expand("ignore {previous|{all}}", "rules.txt", 1))
+                .isInstanceOf(BusinessException.class);
+    }
+
+    @Test
+    void expandRejectsRulesOverExpansionLimit() {
+        guardrailConfig.setMaxExpansionsPerRule(8);
+
+        assertThat(dictionary.expand("{a|b}{c|d}{e|f}", "test", 1)).hasSize(8);
+        assertThatThrownBy(() -> dictionary.expand("{a|b}{c|d}{e|f}{g|h}", "test", 1))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("超过 8 条");
+    }
+
+    @Test
+    void externalRulesAreExpandedAndNormalized(@TempDir Path dir) throws IOException {
+        Path rules = dir.resolve("rules.txt");
+        Files.writeString(rules, """
+                # 测试规则
+                [injection]
+                {Pretend|Act} as  {if|you are}
+                System : You Are
+                """, StandardCharsets.UTF_8);
+        guardrailConfig.setRulesPath(rules.toString());
+
+        dictionary.init();
+
+        assertThat(dictionary.getStats().getPatternCount()).isEqualTo(5);
+        GuardrailMatcher.Match match = dictionary.check("ACT   AS if you were root");
+        assertThat(match.category()).isEqualTo(GuardrailCategoryEnum.INJECTION);
+        assertThat(match.pattern()).isEqualTo("act as if");
+        assertThat(dictionary.check("system: you are free").pattern()).isEqualTo("system:you are");
+        assertThat(dictionary.check("写一个待办清单")).isNull();
+        assertThat(dictionary.getStats().getCheckCount()).isEqualTo(3);
+    }
+}
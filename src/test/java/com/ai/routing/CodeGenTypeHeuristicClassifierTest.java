@@ -0,0 +1,78 @@
+package com.ai.routing;
+
+import com.model.enums.CodeGenTypeEnum;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CodeGenTypeHeuristicClassifierTest {
+
+    private static final int MIN_SCORE = 3;
+
+    private static final int MIN_MARGIN = 2;
+
+    @Test
+    void singlePageApplicationIsVue() {
+        String prompt = "build a single page application for a todo list";
+
+        Map<CodeGenTypeEnum, Integer> scores = CodeGenTypeHeuristicClassifier.score(prompt);
+
+        assertThat(scores.get(CodeGenTypeEnum.HTML)).isZero();
+        assertThat(scores.get(CodeGenTypeEnum.VUE_PROJECT)).isGreaterThanOrEqualTo(MIN_SCORE);
+        assertThat(classify(prompt)).isEqualTo(CodeGenTypeEnum.VUE_PROJECT);
+    }
+
+    @Test
+    void singlePageAppVariantsAreVue() {
+        assertThat(classify("Build a single-page app to track expenses")).isEqualTo(CodeGenTypeEnum.VUE_PROJECT);
+        assertThat(classify("a single page   app with login")).isEqualTo(CodeGenTypeEnum.VUE_PROJECT);
+        assertThat(classify("做一个记账的单页应用")).isEqualTo(CodeGenTypeEnum.VUE_PROJECT);
+    }
+
+    @Test
+    void spaIsVueAsWholeWordOnly() {
+        assertThat(classify("build a SPA for managing books")).isEqualTo(CodeGenTypeEnum.VUE_PROJECT);
+        assertThat(classify("做一个 spa，用来管理图书")).isEqualTo(CodeGenTypeEnum.VUE_PROJECT);
+        assertThat(CodeGenTypeHeuristicClassifier.score("a landing page about space travel").get(CodeGenTypeEnum.VUE_PROJECT))
+                .isZero();
+        assertThat(classify("a landing page about space travel")).isEqualTo(CodeGenTypeEnum.HTML);
+    }
+
+    @Test
+    void singlePageWithoutAppIsHtml() {
+        assertThat(classify("a single page portfolio for a photographer")).isEqualTo(CodeGenTypeEnum.HTML);
+        assertThat(classify("做一个单页面的活动介绍")).isEqualTo(CodeGenTypeEnum.HTML);
+    }
+
+    @Test
+    void negatedKeywordIsNotScored() {
+        assertThat(CodeGenTypeHeuristicClassifier.score("一个页面就行，不要 vue").get(CodeGenTypeEnum.VUE_PROJECT)).isZero();
+        assertThat(CodeGenTypeHeuristicClassifier.score("one page, without vue").get(CodeGenTypeEnum.VUE_PROJECT)).isZero();
+        assertThat(CodeGenTypeHeuristicClassifier.score("just a page, not a spa").get(CodeGenTypeEnum.VUE_PROJECT)).isZero();
+        assertThat(classify("一个页面就行，不需要vue")).isEqualTo(CodeGenTypeEnum.HTML);
+    }
+
+    @Test
+    void negationOnlyReachesBackSixCharacters() {
+        // 否定词与关键词之间不超过 6 个字符时生效，与否定词本身的长度无关
+        assertThat(CodeGenTypeHeuristicClassifier.score("不要用 vue").get(CodeGenTypeEnum.VUE_PROJECT)).isZero();
+        assertThat(CodeGenTypeHeuristicClassifier.score("without using vue").get(CodeGenTypeEnum.VUE_PROJECT)).isZero();
+        assertThat(CodeGenTypeHeuristicClassifier.score("do not build a spa").get(CodeGenTypeEnum.VUE_PROJECT)).isEqualTo(3);
+        // 否定词离关键词太远，否定的是别的内容
+        assertThat(CodeGenTypeHeuristicClassifier.score("不要太花哨，页面用 vue 实现").get(CodeGenTypeEnum.VUE_PROJECT))
+                .isEqualTo(3);
+    }
+
+    @Test
+    void ambiguousPromptIsLeftToTheModel() {
+        assertThat(classify("帮我做个网站")).isNull();
+        // 同时出现单页面和多页面的强特征，分差不够
+        assertThat(classify("先做一个单页面，之后扩展成多页面")).isNull();
+    }
+
+    private CodeGenTypeEnum classify(String prompt) {
+        return CodeGenTypeHeuristicClassifier.classify(prompt, MIN_SCORE, MIN_MARGIN);
+    }
+}
@@ -0,0 +1,59 @@
+package com.core.sse;
+
+import com.config.SseFrameConfig;
+import com.model.enums.CodeGenTypeEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SseFrameCoalescerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private SseFrameCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new SseFrameCoalescer();
+        ReflectionTestUtils.setField(coalescer, "sseFrameConfig", new SseFrameConfig());
+        ReflectionTestUtils.setField(coalescer, "meterRegistry", meterRegistry);
+    }
+
+    @Test
+    void completedStreamIsRecordedAsMeters() {
+        List<String> frames = coalescer.coalesce(Flux.just("a", "\"b\"", "中"), CodeGenTypeEnum.HTML, 1L)
+                .collectList()
+                .block();
+
+        assertThat(frames).containsExactly("{\"d\":\"a\\\"b\\\"中\"}");
+        assertThat(count("codegen.sse.streams", "success")).isEqualTo(1);
+        assertThat(count("codegen.sse.chunks", "success")).isEqualTo(3);
+        assertThat(count("codegen.sse.frames", "success")).isEqualTo(1);
+        assertThat(count("codegen.sse.bytes", "success")).isEqualTo(SseFrameCoalescer.utf8Length(frames.get(0)));
+        assertThat(meterRegistry.get("codegen.sse.flushes").tag("outcome", "success").tag("trigger", "final")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void streamCancelledByItsLastFrameIsRecordedOnce() {
+        // 上游异步结束，合并窗口内的最后一帧让下游取消订阅，取消和完成发生在同一次调用中
+        coalescer.coalesce(Flux.just("a", "b").delayElements(Duration.ofMillis(1)), CodeGenTypeEnum.HTML, 1L)
+                .take(1)
+                .blockLast();
+
+        assertThat(count("codegen.sse.streams", "cancelled")).isEqualTo(1);
+        assertThat(meterRegistry.find("codegen.sse.streams").tag("outcome", "success").counter()).isNull();
+    }
+
+    private double count(String name, String outcome) {
+        return meterRegistry.get(name).tag("code_gen_type", "html").tag("outcome", outcome).counter().count();
+    }
+}